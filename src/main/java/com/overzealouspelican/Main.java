@@ -4,6 +4,7 @@ import javax.swing.*;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.overzealouspelican.frame.MainFrame;
 import com.overzealouspelican.panel.SettingsEditorPanel;
+import com.overzealouspelican.service.StorageWatcher;
 
 /**
  * Application entry point.
@@ -11,11 +12,6 @@ import com.overzealouspelican.panel.SettingsEditorPanel;
  */
 public class Main {
     public static void main(String[] args) {
-        // Disable hostname verification for localhost development
-        // This is necessary for HttpClient to work with self-signed certificates
-        // Only affects HTTPS connections, and our code only uses it for localhost URLs
-        System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
-
         // Load and apply saved theme before creating any UI
         SettingsEditorPanel.loadAndApplyTheme();
 
@@ -32,5 +28,8 @@ public class Main {
         // Create and display the main frame
         MainFrame mainFrame = new MainFrame();
         mainFrame.display();
+
+        // Pick up saved calls and environments changed by other instances or sync tools
+        StorageWatcher.getInstance().start();
     }
 }
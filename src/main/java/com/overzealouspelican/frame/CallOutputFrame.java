@@ -3,12 +3,13 @@ package com.overzealouspelican.frame;
 import javax.swing.*;
 import java.awt.*;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.service.ResponseBody;
+import com.overzealouspelican.service.TaskExecutor;
 
 /**
  * Frame to display the output of API calls.
@@ -19,7 +20,9 @@ public class CallOutputFrame extends JFrame {
 
     private static CallOutputFrame instance;
     private JTextArea outputTextArea;
+    private JButton saveBodyButton;
     private Gson prettyGson;
+    private ResponseBody responseBody; // Body of the call shown, for saving
 
     private CallOutputFrame() {
         this.prettyGson = new GsonBuilder().setPrettyPrinting().create();
@@ -74,24 +77,30 @@ public class CallOutputFrame extends JFrame {
         buttonPanel.setBackground(UIManager.getColor("Panel.background"));
         buttonPanel.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, UIManager.getColor("Component.borderColor")));
 
+        saveBodyButton = new JButton("Save Body...");
+        saveBodyButton.setToolTipText("Write the full response body to a file");
+        saveBodyButton.setEnabled(false);
+        saveBodyButton.addActionListener(e -> handleSaveBody());
+
         JButton closeButton = new JButton("Close");
         closeButton.setToolTipText("Close this window");
         closeButton.addActionListener(e -> setVisible(false));
 
+        buttonPanel.add(saveBodyButton);
         buttonPanel.add(closeButton);
 
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
     /**
-     * Display the output of an API call
+     * Display the output of an API call; the response body, if any, can then be saved to a file.
+     * The URL, headers and body are shown as given, already rendered by the sender, so no
+     * variable is resolved on the EDT.
      */
-    public void displayCallOutput(String environment, String name, String url, String method,
-                                   String headers, String body, String response, Map<String, String> environmentVariables) {
-        // Substitute environment variables in URL, headers, and body for display
-        String resolvedUrl = substituteVariables(url, environmentVariables);
-        String resolvedHeaders = substituteVariables(headers, environmentVariables);
-        String resolvedBody = substituteVariables(body, environmentVariables);
+    public void displayCallOutput(String environment, String name, String resolvedUrl, String method,
+                                   String resolvedHeaders, String resolvedBody, String response,
+                                   Map<String, String> environmentVariables, ResponseBody responseBody) {
+        showResponseBody(responseBody);
 
         // Check if response contains JSON content-type to enable pretty printing
         boolean isJsonResponse = isJsonContentType(response);
@@ -150,33 +159,6 @@ public class CallOutputFrame extends JFrame {
         requestFocus();
     }
 
-    /**
-     * Substitute {{key}} placeholders with environment variable values
-     */
-    private String substituteVariables(String input, Map<String, String> environmentVariables) {
-        if (input == null || environmentVariables == null) {
-            return input;
-        }
-
-        Pattern pattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(input);
-        StringBuffer result = new StringBuffer();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String value = environmentVariables.get(key);
-            if (value != null) {
-                matcher.appendReplacement(result, Matcher.quoteReplacement(value));
-            } else {
-                // Keep the placeholder if no value found
-                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-            }
-        }
-        matcher.appendTail(result);
-
-        return result.toString();
-    }
-
     /**
      * Check if the response indicates JSON content type
      */
@@ -231,6 +213,7 @@ public class CallOutputFrame extends JFrame {
      * Display a simple text message
      */
     public void displayMessage(String message) {
+        showResponseBody(null);
         outputTextArea.setText(message);
         outputTextArea.setCaretPosition(0);
 
@@ -247,9 +230,51 @@ public class CallOutputFrame extends JFrame {
      * Clear the output
      */
     public void clearOutput() {
+        showResponseBody(null);
         outputTextArea.setText("");
     }
 
+    /**
+     * Replace the body available for saving, deleting the spill file of the previous one
+     */
+    private void showResponseBody(ResponseBody newBody) {
+        if (responseBody != null && responseBody != newBody) {
+            responseBody.release();
+        }
+        responseBody = newBody;
+        saveBodyButton.setEnabled(newBody != null);
+    }
+
+    /**
+     * Save the full response body to a file chosen by the user, copying off the EDT
+     */
+    private void handleSaveBody() {
+        ResponseBody body = responseBody;
+        if (body == null) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Response Body");
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path target = fileChooser.getSelectedFile().toPath();
+
+        ApplicationState appState = ApplicationState.getInstance();
+        appState.setStatus("Saving response body...", "🔵");
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
+            body.saveTo(target);
+            return body.getTotalBytes();
+        }), (bytes, error) -> {
+            if (error != null) {
+                appState.setStatusError("Failed to save response body - " + error.getMessage());
+            } else {
+                appState.setStatusSuccess("Saved " + ResponseBody.formatBytes(bytes) + " to " + target.getFileName());
+            }
+        });
+    }
+
     /**
      * Show the frame
      */
@@ -0,0 +1,254 @@
+package com.overzealouspelican.frame;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.model.EnvironmentSnapshot;
+import com.overzealouspelican.service.ApiCallRepository;
+import com.overzealouspelican.service.CollectionRunner;
+import com.overzealouspelican.service.ResponseBody;
+import com.overzealouspelican.service.TaskExecutor;
+
+/**
+ * Frame that runs every call of a group against the selected environment and shows a
+ * summary table, with rows updated as each call starts and finishes.
+ * Uses singleton pattern so only one collection runs at a time.
+ */
+public class CollectionRunnerFrame extends JFrame {
+
+    private static final String[] COLUMNS = {"Call", "Method", "Result", "Status", "Time (ms)", "Size", "Message"};
+
+    private static CollectionRunnerFrame instance;
+    private final ApiCallRepository apiCallRepository;
+    private final ApplicationState appState;
+    private final ResultsTableModel tableModel;
+    private JLabel titleLabel;
+    private JLabel summaryLabel;
+    private JButton runAgainButton;
+    private JButton stopButton;
+    private CollectionRunner runner;
+    private String groupName;
+
+    /**
+     * Table model holding the latest state of each call, in run order
+     */
+    private static class ResultsTableModel extends AbstractTableModel {
+        private final List<CollectionRunner.CallRun> rows = new ArrayList<>();
+        private final Map<String, Integer> rowIndexes = new HashMap<>(); // Call name -> row
+
+        void setRows(List<CollectionRunner.CallRun> plan) {
+            rows.clear();
+            rowIndexes.clear();
+            for (CollectionRunner.CallRun run : plan) {
+                rowIndexes.put(run.getName(), rows.size());
+                rows.add(run);
+            }
+            fireTableDataChanged();
+        }
+
+        void update(CollectionRunner.CallRun run) {
+            Integer index = rowIndexes.get(run.getName());
+            if (index != null) {
+                rows.set(index, run);
+                fireTableRowsUpdated(index, index);
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            CollectionRunner.CallRun run = rows.get(rowIndex);
+            boolean finished = run.getState() == CollectionRunner.State.PASSED || run.getState() == CollectionRunner.State.FAILED;
+            switch (columnIndex) {
+                case 0: return run.getName();
+                case 1: return run.getMethod();
+                case 2: return run.getState();
+                case 3: return run.getStatusCode() > 0 ? String.valueOf(run.getStatusCode()) : "";
+                case 4: return finished && run.getStatusCode() > 0 ? String.valueOf(run.getDurationMillis()) : "";
+                case 5: return run.getBytes() >= 0 ? ResponseBody.formatBytes(run.getBytes()) : "";
+                default: return run.getMessage();
+            }
+        }
+    }
+
+    private CollectionRunnerFrame() {
+        this.apiCallRepository = ApiCallRepository.getInstance();
+        this.appState = ApplicationState.getInstance();
+        this.tableModel = new ResultsTableModel();
+        initializeFrame();
+        addComponents();
+    }
+
+    /**
+     * Get the singleton instance of CollectionRunnerFrame
+     */
+    public static synchronized CollectionRunnerFrame getInstance() {
+        if (instance == null) {
+            instance = new CollectionRunnerFrame();
+        }
+        return instance;
+    }
+
+    private void initializeFrame() {
+        setTitle("Run Group");
+        setSize(820, 480);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Hide instead of dispose to reuse
+        setLayout(new BorderLayout());
+    }
+
+    private void addComponents() {
+        JPanel titleBar = new JPanel(new BorderLayout());
+        titleBar.setBackground(UIManager.getColor("Panel.background"));
+        titleBar.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createMatteBorder(0, 0, 1, 0, UIManager.getColor("Component.borderColor")),
+            BorderFactory.createEmptyBorder(10, 10, 10, 10)
+        ));
+        titleLabel = new JLabel("Run Group");
+        titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD, 14f));
+        titleBar.add(titleLabel, BorderLayout.WEST);
+        add(titleBar, BorderLayout.NORTH);
+
+        JTable table = new JTable(tableModel);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(180);
+        table.getColumnModel().getColumn(6).setPreferredWidth(240);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.setBackground(UIManager.getColor("Panel.background"));
+        bottomPanel.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, UIManager.getColor("Component.borderColor")));
+
+        summaryLabel = new JLabel(" ");
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+        bottomPanel.add(summaryLabel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        buttonPanel.setOpaque(false);
+
+        runAgainButton = new JButton("Run Again");
+        runAgainButton.setToolTipText("Run the group again with the current environment");
+        runAgainButton.setEnabled(false);
+        runAgainButton.addActionListener(e -> runGroup(groupName));
+
+        stopButton = new JButton("Stop");
+        stopButton.setToolTipText("Cancel the requests in flight and skip the rest");
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> {
+            if (runner != null) {
+                runner.cancel();
+            }
+        });
+
+        JButton closeButton = new JButton("Close");
+        closeButton.setToolTipText("Close this window");
+        closeButton.addActionListener(e -> setVisible(false));
+
+        buttonPanel.add(runAgainButton);
+        buttonPanel.add(stopButton);
+        buttonPanel.add(closeButton);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Run every call of a group against the selected environment and show the results
+     */
+    public void runGroup(String groupName) {
+        if (runner != null && stopButton.isEnabled()) {
+            appState.setStatusWarning("A group is already running");
+            display();
+            return;
+        }
+        Map<String, ApiCall> calls = apiCallRepository.findAllInGroup(groupName);
+        if (calls.isEmpty()) {
+            appState.setStatusWarning("Group '" + groupName + "' has no calls");
+            return;
+        }
+
+        this.groupName = groupName;
+        // One snapshot for the whole run, so calls started later use the same environment
+        EnvironmentSnapshot snapshot = appState.getSnapshot();
+        titleLabel.setText(groupName + " - " + snapshot.getEnvironmentName());
+        CollectionRunner started = new CollectionRunner(groupName, calls, snapshot.getRequestVariables(),
+            snapshot.getHostOverrides());
+        runner = started;
+        tableModel.setRows(started.getPlan());
+        summaryLabel.setText("Running " + calls.size() + " calls...");
+        runAgainButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        appState.setStatus("Running group " + groupName + "...", "🔵");
+        display();
+
+        TaskExecutor.onEdt(started.start(run -> SwingUtilities.invokeLater(() -> {
+            if (runner == started) {
+                tableModel.update(run);
+            }
+        })), (results, error) -> {
+            if (runner != started) {
+                return;
+            }
+            runAgainButton.setEnabled(true);
+            stopButton.setEnabled(false);
+            if (error != null) {
+                summaryLabel.setText("Run failed: " + error.getMessage());
+                appState.setStatusError("Group run failed - " + error.getMessage());
+                return;
+            }
+            finishRun(started, results);
+        });
+    }
+
+    private void finishRun(CollectionRunner finished, List<CollectionRunner.CallRun> results) {
+        int passed = 0;
+        int failed = 0;
+        int skipped = 0;
+        for (CollectionRunner.CallRun run : results) {
+            tableModel.update(run); // Listener updates may still be queued behind this one
+            switch (run.getState()) {
+                case PASSED: passed++; break;
+                case FAILED: failed++; break;
+                default: skipped++; break;
+            }
+        }
+        String summary = String.format("%d passed, %d failed, %d skipped in %.1f s",
+            passed, failed, skipped, finished.getElapsedMillis() / 1000.0);
+        summaryLabel.setText(summary);
+        if (failed == 0 && skipped == 0) {
+            appState.setStatusSuccess(finished.getGroupName() + ": " + summary);
+        } else {
+            appState.setStatusWarning(finished.getGroupName() + ": " + summary);
+        }
+    }
+
+    /**
+     * Show the frame
+     */
+    public void display() {
+        if (!isVisible()) {
+            setLocationRelativeTo(null);
+        }
+        setVisible(true);
+        toFront();
+        requestFocus();
+    }
+}
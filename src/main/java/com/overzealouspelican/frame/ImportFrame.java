@@ -9,7 +9,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import com.overzealouspelican.model.ApiCall;
-import com.overzealouspelican.service.ApiCallService;
+import com.overzealouspelican.service.ApiCallRepository;
+import com.overzealouspelican.service.TaskExecutor;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -26,12 +27,12 @@ public class ImportFrame extends JFrame {
     private JButton importButton;
     private JButton cancelButton;
     private JComboBox<String> entrySelector;
-    private ApiCallService apiCallService;
+    private ApiCallRepository apiCallRepository;
     private Gson gson;
     private JsonObject harData;
 
     public ImportFrame() {
-        this.apiCallService = new ApiCallService();
+        this.apiCallRepository = ApiCallRepository.getInstance();
         this.gson = new GsonBuilder().setPrettyPrinting().create();
         initializeFrame();
         addComponents();
@@ -139,12 +140,16 @@ public class ImportFrame extends JFrame {
     }
 
     private void loadHarFile(File file) {
-        try {
+        entrySelector.setEnabled(false);
+        importButton.setEnabled(false);
+
+        // Read and parse off the EDT; large HAR files take a while
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
             String content = Files.readString(file.toPath());
-            harData = gson.fromJson(content, JsonObject.class);
+            JsonObject parsed = gson.fromJson(content, JsonObject.class);
 
             // Parse HAR structure to get entries
-            JsonObject log = harData.getAsJsonObject("log");
+            JsonObject log = parsed.getAsJsonObject("log");
             if (log == null || !log.has("entries")) {
                 throw new IllegalArgumentException("Invalid HAR format: missing log.entries");
             }
@@ -153,6 +158,18 @@ public class ImportFrame extends JFrame {
             if (entries.size() == 0) {
                 throw new IllegalArgumentException("No entries found in HAR file");
             }
+            return parsed;
+        }), (parsed, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this,
+                    "Failed to load HAR file:\n" + error.getMessage(),
+                    "Load Error",
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            harData = parsed;
+            JsonArray entries = harData.getAsJsonObject("log").getAsJsonArray("entries");
 
             // Populate entry selector with request URLs
             entrySelector.removeAllItems();
@@ -173,17 +190,7 @@ public class ImportFrame extends JFrame {
 
             entrySelector.setEnabled(true);
             importButton.setEnabled(true);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Failed to load HAR file:\n" + e.getMessage(),
-                "Load Error",
-                JOptionPane.ERROR_MESSAGE);
-
-            entrySelector.setEnabled(false);
-            importButton.setEnabled(false);
-        }
+        });
     }
 
     private void performImport() {
@@ -221,7 +228,7 @@ public class ImportFrame extends JFrame {
             ApiCall apiCall = convertHarToApiCall(name, request);
 
             // Check if API call already exists
-            if (apiCallService.apiCallExists(apiCall.getName())) {
+            if (apiCallRepository.exists(apiCall.getName())) {
                 int overwrite = JOptionPane.showConfirmDialog(this,
                     "An API call with the name '" + apiCall.getName() + "' already exists.\nDo you want to overwrite it?",
                     "Confirm Overwrite",
@@ -234,7 +241,7 @@ public class ImportFrame extends JFrame {
             }
 
             // Save the API call
-            apiCallService.saveApiCall(apiCall);
+            apiCallRepository.save(apiCall);
 
             JOptionPane.showMessageDialog(this,
                 "Successfully imported API call: " + apiCall.getName(),
@@ -297,7 +304,8 @@ public class ImportFrame extends JFrame {
     }
 
     private boolean shouldSkipHeader(String headerName) {
-        // Skip browser-specific and security headers that shouldn't be replicated
+        // Skip browser-specific and security headers that shouldn't be replicated;
+        // Accept-Encoding is negotiated by ApiCallService for the codings it can decode
         String lowerName = headerName.toLowerCase();
         return lowerName.equals("host") ||
                lowerName.equals("user-agent") ||
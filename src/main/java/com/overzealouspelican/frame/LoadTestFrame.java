@@ -0,0 +1,391 @@
+package com.overzealouspelican.frame;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.model.EnvironmentSnapshot;
+import com.overzealouspelican.service.ApiCallRepository;
+import com.overzealouspelican.service.ApiCallService;
+import com.overzealouspelican.service.LoadTestConfig;
+import com.overzealouspelican.service.LoadTestRunner;
+import com.overzealouspelican.service.TaskExecutor;
+
+/**
+ * Frame for load testing a saved API call against the selected environment, either with a
+ * fixed number of concurrent users or at a target request rate (see LoadTestConfig).
+ * Shows throughput, latency percentiles and outcomes per status code, refreshed while the
+ * test runs; the latencies can be exported as an HdrHistogram log.
+ * Uses singleton pattern so only one load test runs at a time.
+ */
+public class LoadTestFrame extends JFrame {
+
+    private static final int REFRESH_MILLIS = 250;
+
+    private static LoadTestFrame instance;
+    private final ApiCallRepository apiCallRepository;
+    private final ApiCallService apiCallService;
+    private final ApplicationState appState;
+    private JComboBox<String> callSelector;
+    private JSpinner concurrencySpinner;
+    private JSpinner iterationsSpinner;
+    private JSpinner durationSpinner;
+    private JSpinner warmupSpinner;
+    private JSpinner rateSpinner;
+    private JSpinner rampUpSpinner;
+    private JSpinner rampDownSpinner;
+    private JButton startButton;
+    private JButton stopButton;
+    private JButton exportButton;
+    private JTextArea reportTextArea;
+    private Timer refreshTimer;
+    private LoadTestRunner runner;
+    private String runDescription; // Call and environment of the current run, for the report
+
+    private LoadTestFrame() {
+        this.apiCallRepository = ApiCallRepository.getInstance();
+        this.apiCallService = new ApiCallService();
+        this.appState = ApplicationState.getInstance();
+        initializeFrame();
+        addComponents();
+    }
+
+    /**
+     * Get the singleton instance of LoadTestFrame
+     */
+    public static synchronized LoadTestFrame getInstance() {
+        if (instance == null) {
+            instance = new LoadTestFrame();
+        }
+        return instance;
+    }
+
+    private void initializeFrame() {
+        setTitle("Load Test");
+        setSize(760, 640);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Hide instead of dispose to reuse
+        setLayout(new BorderLayout());
+    }
+
+    private void addComponents() {
+        JPanel configPanel = new JPanel();
+        configPanel.setLayout(new BoxLayout(configPanel, BoxLayout.Y_AXIS));
+        configPanel.setBackground(UIManager.getColor("Panel.background"));
+        configPanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createMatteBorder(0, 0, 1, 0, UIManager.getColor("Component.borderColor")),
+            BorderFactory.createEmptyBorder(10, 10, 10, 10)
+        ));
+
+        JPanel callRow = new JPanel(new BorderLayout(8, 0));
+        callRow.setOpaque(false);
+        callRow.add(new JLabel("Saved call:"), BorderLayout.WEST);
+        callSelector = new JComboBox<>();
+        callRow.add(callSelector, BorderLayout.CENTER);
+        configPanel.add(callRow);
+        configPanel.add(Box.createVerticalStrut(8));
+
+        concurrencySpinner = new JSpinner(new SpinnerNumberModel(10, 1, 1024, 1));
+        concurrencySpinner.setToolTipText("Concurrent users, or with a target rate the most requests in flight");
+        iterationsSpinner = new JSpinner(new SpinnerNumberModel(1000, 0, 10_000_000, 100));
+        iterationsSpinner.setToolTipText("Measured requests; 0 to run for the duration instead");
+        durationSpinner = new JSpinner(new SpinnerNumberModel(30, 0, 86_400, 5));
+        durationSpinner.setToolTipText("Seconds to run when the number of requests is 0, or to hold the target rate");
+        warmupSpinner = new JSpinner(new SpinnerNumberModel(50, 0, 100_000, 10));
+        warmupSpinner.setToolTipText("Requests sent first and left out of the results");
+
+        JPanel settingsRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        settingsRow.setOpaque(false);
+        settingsRow.add(new JLabel("Concurrency:"));
+        settingsRow.add(concurrencySpinner);
+        settingsRow.add(new JLabel("Requests:"));
+        settingsRow.add(iterationsSpinner);
+        settingsRow.add(new JLabel("Duration (s):"));
+        settingsRow.add(durationSpinner);
+        settingsRow.add(new JLabel("Warm-up:"));
+        settingsRow.add(warmupSpinner);
+        configPanel.add(settingsRow);
+        configPanel.add(Box.createVerticalStrut(8));
+
+        rateSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 1_000_000, 100));
+        rateSpinner.setToolTipText("Requests started per second whatever the server does; 0 for concurrent users");
+        rampUpSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 86_400, 5));
+        rampUpSpinner.setToolTipText("Seconds to ramp up from 0 to the target rate");
+        rampDownSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 86_400, 5));
+        rampDownSpinner.setToolTipText("Seconds to ramp down from the target rate to 0");
+
+        JPanel rateRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        rateRow.setOpaque(false);
+        rateRow.add(new JLabel("Target rate (req/s):"));
+        rateRow.add(rateSpinner);
+        rateRow.add(new JLabel("Ramp-up (s):"));
+        rateRow.add(rampUpSpinner);
+        rateRow.add(new JLabel("Ramp-down (s):"));
+        rateRow.add(rampDownSpinner);
+        configPanel.add(rateRow);
+
+        add(configPanel, BorderLayout.NORTH);
+
+        reportTextArea = new JTextArea();
+        reportTextArea.setEditable(false);
+        reportTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        reportTextArea.setMargin(new Insets(10, 10, 10, 10));
+        add(new JScrollPane(reportTextArea), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        buttonPanel.setBackground(UIManager.getColor("Panel.background"));
+        buttonPanel.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, UIManager.getColor("Component.borderColor")));
+
+        startButton = new JButton("Start");
+        startButton.setToolTipText("Start the load test");
+        startButton.addActionListener(e -> handleStart());
+
+        stopButton = new JButton("Stop");
+        stopButton.setToolTipText("Stop the load test, keeping the results so far");
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> handleStop());
+
+        exportButton = new JButton("Export Log...");
+        exportButton.setToolTipText("Save the latencies per second as an HdrHistogram log");
+        exportButton.setEnabled(false);
+        exportButton.addActionListener(e -> handleExport());
+
+        JButton closeButton = new JButton("Close");
+        closeButton.setToolTipText("Close this window");
+        closeButton.addActionListener(e -> setVisible(false));
+
+        buttonPanel.add(startButton);
+        buttonPanel.add(stopButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refreshReport());
+    }
+
+    private void handleStart() {
+        String name = (String) callSelector.getSelectedItem();
+        ApiCall apiCall = name != null ? apiCallRepository.find(name) : null;
+        if (apiCall == null) {
+            JOptionPane.showMessageDialog(this,
+                "Please select a saved API call.",
+                "No Call Selected",
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        LoadTestConfig config;
+        try {
+            config = new LoadTestConfig(
+                (Integer) concurrencySpinner.getValue(),
+                (Integer) iterationsSpinner.getValue(),
+                (Integer) durationSpinner.getValue(),
+                (Integer) warmupSpinner.getValue(),
+                (Integer) rateSpinner.getValue(),
+                (Integer) rampUpSpinner.getValue(),
+                (Integer) rampDownSpinner.getValue());
+        } catch (IllegalArgumentException e) {
+            showStartError(e.getMessage());
+            return;
+        }
+
+        // Rendered off the EDT, since computed variables may read files or run commands
+        // Host overrides from the same snapshot, so the requests go where single sends go
+        EnvironmentSnapshot snapshot = appState.getSnapshot();
+        Map<String, String> variables = snapshot.getRequestVariables();
+        Map<String, String> hostOverrides = snapshot.getHostOverrides();
+        String environment = snapshot.getEnvironmentName();
+        startButton.setEnabled(false);
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
+            // Built once unless the call uses dynamic variables, which are rendered per iteration
+            Supplier<HttpRequest> requests = apiCallService.getRequestSource(apiCall, variables);
+            HttpRequest request = requests.get();
+            String description = apiCall.getName() + " (" + request.method() + " " + request.uri() + ")\n"
+                + "Environment: " + environment + "\n"
+                + "Settings:    " + config;
+            return new PreparedRun(new LoadTestRunner(apiCallService.getLoadTestSender(request.uri(), hostOverrides), requests, config), description);
+        }), (prepared, error) -> {
+            if (error != null) {
+                startButton.setEnabled(true);
+                showStartError(error.getMessage());
+                return;
+            }
+            run(prepared);
+        });
+    }
+
+    /**
+     * A load test ready to start, with the description shown in its report
+     */
+    private static final class PreparedRun {
+        private final LoadTestRunner runner;
+        private final String description;
+
+        PreparedRun(LoadTestRunner runner, String description) {
+            this.runner = runner;
+            this.description = description;
+        }
+    }
+
+    private void showStartError(String message) {
+        JOptionPane.showMessageDialog(this,
+            message,
+            "Cannot Start Load Test",
+            JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void run(PreparedRun prepared) {
+        runDescription = prepared.description;
+        runner = prepared.runner;
+        setRunning(true);
+        appState.setStatus("Load test running...", "🔵");
+
+        LoadTestRunner started = runner;
+        TaskExecutor.onEdt(started.start(), (snapshot, error) -> {
+            if (runner != started) {
+                return; // A newer run has replaced this one
+            }
+            setRunning(false);
+            refreshReport();
+            if (error != null) {
+                appState.setStatusError("Load test failed - " + error.getMessage());
+            } else if (snapshot.getPhase() == LoadTestRunner.Phase.STOPPED) {
+                appState.setStatusWarning("Load test stopped");
+            } else {
+                appState.setStatusSuccess(String.format("Load test finished: %,d requests, %.1f req/s",
+                    snapshot.getRequests(), snapshot.getThroughput()));
+            }
+        });
+    }
+
+    private void handleStop() {
+        if (runner != null) {
+            runner.stop();
+        }
+    }
+
+    /**
+     * Save the measured latencies as an HdrHistogram log, writing off the EDT
+     */
+    private void handleExport() {
+        LoadTestRunner finished = runner;
+        if (finished == null) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export HdrHistogram Log");
+        fileChooser.setSelectedFile(new java.io.File("load-test.hlog"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path target = fileChooser.getSelectedFile().toPath();
+
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                finished.writeHistogramLog(writer);
+            }
+            return target;
+        }), (path, error) -> {
+            if (error != null) {
+                appState.setStatusError("Failed to export log - " + error.getMessage());
+            } else {
+                appState.setStatusSuccess("Exported load test log to " + path.getFileName());
+            }
+        });
+    }
+
+    private void setRunning(boolean running) {
+        startButton.setEnabled(!running);
+        stopButton.setEnabled(running);
+        exportButton.setEnabled(!running);
+        callSelector.setEnabled(!running);
+        if (running) {
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+    }
+
+    private void refreshReport() {
+        if (runner == null) {
+            return;
+        }
+        LoadTestRunner.Snapshot snapshot = runner.getSnapshot();
+
+        StringBuilder report = new StringBuilder();
+        report.append("Call:        ").append(runDescription).append("\n");
+        report.append("Phase:       ").append(snapshot.getPhase()).append("\n\n");
+
+        long errors = snapshot.getErrors();
+        report.append(String.format("Elapsed:     %.1f s%n", snapshot.getElapsedNanos() / 1e9));
+        report.append(String.format("Requests:    %,d%n", snapshot.getRequests()));
+        report.append(String.format("Errors:      %,d (%.2f%%)%n", errors,
+            snapshot.getRequests() == 0 ? 0.0 : errors * 100.0 / snapshot.getRequests()));
+        report.append(String.format("Throughput:  %.1f req/s%n", snapshot.getThroughput()));
+        if (snapshot.isOpenModel()) {
+            report.append(String.format("Target rate: %.1f req/s%n", snapshot.getTargetRate()));
+        }
+        report.append("\n");
+
+        report.append(snapshot.isOpenModel() ? "Latency from scheduled start (ms)\n" : "Latency (ms)\n");
+        report.append(formatLatency("mean", snapshot.getMeanNanos()));
+        report.append(formatLatency("p50", snapshot.getP50Nanos()));
+        report.append(formatLatency("p90", snapshot.getP90Nanos()));
+        report.append(formatLatency("p99", snapshot.getP99Nanos()));
+        report.append(formatLatency("p99.9", snapshot.getP999Nanos()));
+        report.append(formatLatency("max", snapshot.getMaxNanos()));
+        report.append("\n");
+
+        if (snapshot.isOpenModel()) {
+            // Without the time requests waited to be sent; the gap shows coordinated omission
+            report.append("Service time, uncorrected (ms)\n");
+            report.append(formatLatency("p99", snapshot.getServiceP99Nanos()));
+            report.append(formatLatency("max", snapshot.getServiceMaxNanos()));
+            report.append("\n");
+        }
+
+        report.append("Outcomes\n");
+        if (snapshot.getOutcomes().isEmpty()) {
+            report.append("  (none yet)\n");
+        }
+        for (Map.Entry<String, Long> outcome : snapshot.getOutcomes().entrySet()) {
+            report.append(String.format("  %-24s %,12d%n", outcome.getKey(), outcome.getValue()));
+        }
+
+        reportTextArea.setText(report.toString());
+        reportTextArea.setCaretPosition(0);
+    }
+
+    private static String formatLatency(String label, long nanos) {
+        return String.format("  %-8s %12.3f%n", label, nanos / 1e6);
+    }
+
+    /**
+     * Show the frame with the saved calls available for testing
+     */
+    public void display() {
+        List<String> names = new ArrayList<>(apiCallRepository.findAllSummaries().keySet());
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        Object selected = callSelector.getSelectedItem();
+        callSelector.setModel(new DefaultComboBoxModel<>(names.toArray(new String[0])));
+        if (selected != null && names.contains(selected)) {
+            callSelector.setSelectedItem(selected);
+        }
+
+        if (!isVisible()) {
+            setLocationRelativeTo(null);
+        }
+        setVisible(true);
+        toFront();
+        requestFocus();
+    }
+}
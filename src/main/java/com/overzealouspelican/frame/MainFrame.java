@@ -85,8 +85,19 @@ public class MainFrame extends JFrame {
         importMenu.add(importCurlItem);
         importMenu.add(importHarItem);
 
+        // Tools menu
+        JMenu toolsMenu = new JMenu("Tools");
+        toolsMenu.setMnemonic('T');
+
+        JMenuItem loadTestItem = new JMenuItem("Load Test...");
+        loadTestItem.setAccelerator(KeyStroke.getKeyStroke("ctrl shift L"));
+        loadTestItem.addActionListener(e -> LoadTestFrame.getInstance().display());
+
+        toolsMenu.add(loadTestItem);
+
         menuBar.add(fileMenu);
         menuBar.add(importMenu);
+        menuBar.add(toolsMenu);
 
         return menuBar;
     }
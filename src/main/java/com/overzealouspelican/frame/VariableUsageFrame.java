@@ -0,0 +1,329 @@
+package com.overzealouspelican.frame;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.model.Environment;
+import com.overzealouspelican.service.EnvironmentRepository;
+import com.overzealouspelican.service.TaskExecutor;
+import com.overzealouspelican.service.VariableIndex;
+import com.overzealouspelican.util.DynamicVariables;
+
+/**
+ * Frame listing every variable used by the saved calls: how many calls use it, which
+ * environments do not define it, and the calls themselves. Variables can be renamed across
+ * all calls and environments. Answers come from the VariableIndex.
+ * Uses singleton pattern to ensure only one instance exists.
+ */
+public class VariableUsageFrame extends JFrame {
+
+    private static final String[] COLUMNS = {"Variable", "Used By", "In Selected Environment", "Missing In"};
+
+    private static VariableUsageFrame instance;
+    private final VariableIndex variableIndex;
+    private final EnvironmentRepository environmentRepository;
+    private final ApplicationState appState;
+    private final UsageTableModel tableModel;
+    private JTable table;
+    private JTextArea callsTextArea;
+    private JLabel summaryLabel;
+    private JButton renameButton;
+    private String pendingSelection; // Variable to select once the next refresh completes
+
+    /**
+     * One variable with the calls using it and the environments missing it
+     */
+    private static class Usage {
+        final String variable;
+        final Set<String> calls;
+        final boolean inSelectedEnvironment;
+        final List<String> missingIn;
+
+        Usage(String variable, Set<String> calls, boolean inSelectedEnvironment, List<String> missingIn) {
+            this.variable = variable;
+            this.calls = calls;
+            this.inSelectedEnvironment = inSelectedEnvironment;
+            this.missingIn = missingIn;
+        }
+    }
+
+    private static class UsageTableModel extends AbstractTableModel {
+        private final List<Usage> rows = new ArrayList<>();
+
+        void setRows(List<Usage> usages) {
+            rows.clear();
+            rows.addAll(usages);
+            fireTableDataChanged();
+        }
+
+        Usage getRow(int index) {
+            return index >= 0 && index < rows.size() ? rows.get(index) : null;
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            Usage usage = rows.get(rowIndex);
+            switch (columnIndex) {
+                case 0: return usage.variable;
+                case 1: return usage.calls.size() == 1 ? "1 call" : usage.calls.size() + " calls";
+                case 2: return usage.inSelectedEnvironment ? "Defined" : "Missing";
+                default: return String.join(", ", usage.missingIn);
+            }
+        }
+    }
+
+    private VariableUsageFrame() {
+        this.variableIndex = VariableIndex.getInstance();
+        this.environmentRepository = EnvironmentRepository.getInstance();
+        this.appState = ApplicationState.getInstance();
+        this.tableModel = new UsageTableModel();
+        initializeFrame();
+        addComponents();
+
+        // Keep the view current while it is open
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_ENVIRONMENT_VARIABLES, evt -> refreshIfVisible());
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_ENVIRONMENTS_CHANGED, evt -> refreshIfVisible());
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_API_CALLS_CHANGED, evt -> refreshIfVisible());
+        appState.addPropertyChangeListener("apiCallSaved", evt -> refreshIfVisible());
+    }
+
+    /**
+     * Get the singleton instance of VariableUsageFrame
+     */
+    public static synchronized VariableUsageFrame getInstance() {
+        if (instance == null) {
+            instance = new VariableUsageFrame();
+        }
+        return instance;
+    }
+
+    private void initializeFrame() {
+        setTitle("Variable Usage");
+        setSize(820, 480);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Hide instead of dispose to reuse
+        setLayout(new BorderLayout());
+    }
+
+    private void addComponents() {
+        JPanel titleBar = new JPanel(new BorderLayout());
+        titleBar.setBackground(UIManager.getColor("Panel.background"));
+        titleBar.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createMatteBorder(0, 0, 1, 0, UIManager.getColor("Component.borderColor")),
+            BorderFactory.createEmptyBorder(10, 10, 10, 10)
+        ));
+        JLabel titleLabel = new JLabel("Variables Used by Saved Calls");
+        titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD, 14f));
+        titleBar.add(titleLabel, BorderLayout.WEST);
+        add(titleBar, BorderLayout.NORTH);
+
+        table = new JTable(tableModel);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(160);
+        table.getColumnModel().getColumn(3).setPreferredWidth(220);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelectedUsage();
+            }
+        });
+
+        callsTextArea = new JTextArea();
+        callsTextArea.setEditable(false);
+        callsTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        callsTextArea.setMargin(new Insets(8, 8, 8, 8));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+            new JScrollPane(table), new JScrollPane(callsTextArea));
+        splitPane.setResizeWeight(0.65);
+        splitPane.setBorder(null);
+        add(splitPane, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.setBackground(UIManager.getColor("Panel.background"));
+        bottomPanel.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, UIManager.getColor("Component.borderColor")));
+
+        summaryLabel = new JLabel(" ");
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+        bottomPanel.add(summaryLabel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        buttonPanel.setOpaque(false);
+
+        renameButton = new JButton("Rename...");
+        renameButton.setToolTipText("Rename the selected variable in every saved call and environment");
+        renameButton.setEnabled(false);
+        renameButton.addActionListener(e -> handleRename());
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.setToolTipText("Show the latest usage");
+        refreshButton.addActionListener(e -> refresh());
+
+        JButton closeButton = new JButton("Close");
+        closeButton.setToolTipText("Close this window");
+        closeButton.addActionListener(e -> setVisible(false));
+
+        buttonPanel.add(renameButton);
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(closeButton);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void refreshIfVisible() {
+        if (isVisible()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Read the usage from the index off the EDT; the first time, this reads every saved call
+     */
+    public void refresh() {
+        Map<String, String> selectedVariables = appState.getEnvironmentVariables();
+        String selectedEnvironment = appState.getSelectedEnvironment();
+        summaryLabel.setText("Reading saved calls...");
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
+            Collection<Environment> environments = environmentRepository.findAll().values();
+            List<Usage> usages = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : variableIndex.getUsages().entrySet()) {
+                List<String> missingIn = new ArrayList<>();
+                boolean builtIn = DynamicVariables.isDynamic(entry.getKey());
+                for (Environment environment : environments) {
+                    if (!builtIn && !environment.getVariables().containsKey(entry.getKey())) {
+                        missingIn.add(environment.getName());
+                    }
+                }
+                usages.add(new Usage(entry.getKey(), entry.getValue(),
+                    builtIn || selectedVariables.get(entry.getKey()) != null, missingIn));
+            }
+            return usages;
+        }), (usages, error) -> {
+            if (error != null) {
+                summaryLabel.setText("Failed to read variable usage: " + error.getMessage());
+                return;
+            }
+            String selected = getSelectedVariable();
+            tableModel.setRows(usages);
+            if (pendingSelection != null && usages.stream().anyMatch(usage -> usage.variable.equals(pendingSelection))) {
+                selected = pendingSelection;
+                pendingSelection = null;
+            }
+            reselect(selected);
+
+            Set<String> brokenCalls = new java.util.TreeSet<>();
+            for (Usage usage : usages) {
+                if (!usage.inSelectedEnvironment) {
+                    brokenCalls.addAll(usage.calls);
+                }
+            }
+            summaryLabel.setText(usages.size() + " variables; " + (brokenCalls.isEmpty()
+                ? "every call resolves in " + selectedEnvironment
+                : brokenCalls.size() + " calls use variables missing from " + selectedEnvironment));
+        });
+    }
+
+    private String getSelectedVariable() {
+        int row = table.getSelectedRow();
+        Usage usage = row >= 0 ? tableModel.getRow(table.convertRowIndexToModel(row)) : null;
+        return usage != null ? usage.variable : null;
+    }
+
+    private void reselect(String variable) {
+        for (int i = 0; variable != null && i < tableModel.getRowCount(); i++) {
+            if (tableModel.getRow(i).variable.equals(variable)) {
+                int row = table.convertRowIndexToView(i);
+                table.getSelectionModel().setSelectionInterval(row, row);
+                return;
+            }
+        }
+        showSelectedUsage();
+    }
+
+    private void showSelectedUsage() {
+        int row = table.getSelectedRow();
+        Usage usage = row >= 0 ? tableModel.getRow(table.convertRowIndexToModel(row)) : null;
+        renameButton.setEnabled(usage != null);
+        if (usage == null) {
+            callsTextArea.setText("Select a variable to see the calls that use it.");
+            return;
+        }
+        StringBuilder text = new StringBuilder("Calls using {{" + usage.variable + "}}:\n\n");
+        usage.calls.forEach(call -> text.append(call).append("\n"));
+        if (!usage.missingIn.isEmpty()) {
+            text.append("\nNot defined in: ").append(String.join(", ", usage.missingIn)).append("\n");
+        }
+        callsTextArea.setText(text.toString());
+        callsTextArea.setCaretPosition(0);
+    }
+
+    private void handleRename() {
+        String oldName = getSelectedVariable();
+        if (oldName == null) {
+            return;
+        }
+        String newName = (String) JOptionPane.showInputDialog(this,
+            "Rename {{" + oldName + "}} in every saved call and environment to:",
+            "Rename Variable", JOptionPane.PLAIN_MESSAGE, null, null, oldName);
+        if (newName == null || newName.trim().isEmpty() || newName.trim().equals(oldName)) {
+            return;
+        }
+        String trimmed = newName.trim();
+        if (trimmed.contains("}") || trimmed.contains("{{")) {
+            JOptionPane.showMessageDialog(this,
+                "Variable names cannot contain '}' or '{{'.",
+                "Invalid Variable Name",
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        appState.setStatus("Renaming variable " + oldName + "...", "🔵");
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> variableIndex.renameVariable(oldName, trimmed)),
+            (renamed, error) -> {
+                if (error != null) {
+                    appState.setStatusError("Failed to rename variable - " + error.getMessage());
+                    return;
+                }
+                appState.setStatusSuccess("Renamed {{" + oldName + "}} to {{" + trimmed + "}} in " + renamed + " calls");
+                // Reload the call list and the environment editor, which show the renamed values
+                appState.firePropertyChange("apiCallSaved", null, null);
+                pendingSelection = trimmed;
+                appState.firePropertyChange(ApplicationState.PROPERTY_ENVIRONMENTS_CHANGED, null, List.of());
+                refresh();
+            });
+    }
+
+    /**
+     * Show the frame with the current usage
+     */
+    public void display() {
+        if (!isVisible()) {
+            setLocationRelativeTo(null);
+        }
+        setVisible(true);
+        refresh();
+        toFront();
+        requestFocus();
+    }
+}
@@ -1,7 +1,10 @@
 package com.overzealouspelican.model;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Model class representing a saved API call configuration.
@@ -13,6 +16,11 @@ public class ApiCall {
     private Map<String, String> headers;
     private Map<String, String> body;
     private String groupName; // Group this API call belongs to
+    private long modifiedAt; // Epoch millis of the last save
+    private long version; // Incremented on every save, to detect concurrent edits
+    private int timeoutSeconds; // Request timeout; 0 uses the default from Settings
+    private List<String> dependsOn; // Calls in the same group that must succeed first when the group is run
+    private Map<String, String> extractions; // Variable -> JSONPath or "header:Name" to read from the response
 
     public ApiCall() {
         this.headers = new HashMap<>();
@@ -27,6 +35,19 @@ public class ApiCall {
         this.body = body != null ? new HashMap<>(body) : new HashMap<>();
     }
 
+    /**
+     * Copy constructor, used to hand out calls that callers can modify freely
+     */
+    public ApiCall(ApiCall other) {
+        this(other.name, other.url, other.httpMethod, other.headers, other.body);
+        this.groupName = other.groupName;
+        this.modifiedAt = other.modifiedAt;
+        this.version = other.version;
+        this.timeoutSeconds = other.timeoutSeconds;
+        this.dependsOn = other.dependsOn != null ? new ArrayList<>(other.dependsOn) : null;
+        this.extractions = other.extractions != null ? new HashMap<>(other.extractions) : null;
+    }
+
     public String getName() {
         return name;
     }
@@ -75,6 +96,77 @@ public class ApiCall {
         this.groupName = groupName;
     }
 
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(long modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = Math.max(0, timeoutSeconds);
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Get the names of the calls that must succeed before this one when its group is run
+     */
+    public List<String> getDependsOn() {
+        return dependsOn != null ? new ArrayList<>(dependsOn) : new ArrayList<>();
+    }
+
+    public void setDependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn != null && !dependsOn.isEmpty() ? new ArrayList<>(dependsOn) : null;
+    }
+
+    /**
+     * Get the values copied from a successful response into session variables
+     * (variable name -> JSONPath or "header:Name")
+     */
+    public Map<String, String> getExtractions() {
+        return extractions != null ? new HashMap<>(extractions) : new HashMap<>();
+    }
+
+    public void setExtractions(Map<String, String> extractions) {
+        this.extractions = extractions != null && !extractions.isEmpty() ? new HashMap<>(extractions) : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ApiCall)) return false;
+        ApiCall other = (ApiCall) o;
+        return modifiedAt == other.modifiedAt
+            && version == other.version
+            && timeoutSeconds == other.timeoutSeconds
+            && Objects.equals(name, other.name)
+            && Objects.equals(url, other.url)
+            && Objects.equals(httpMethod, other.httpMethod)
+            && Objects.equals(headers, other.headers)
+            && Objects.equals(body, other.body)
+            && Objects.equals(groupName, other.groupName)
+            && Objects.equals(getDependsOn(), other.getDependsOn())
+            && Objects.equals(getExtractions(), other.getExtractions());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, url, httpMethod, headers, body, groupName, modifiedAt, version, timeoutSeconds,
+            getDependsOn(), getExtractions());
+    }
+
     @Override
     public String toString() {
         return "ApiCall{name='" + name + "', url='" + url + "', method='" + httpMethod + "'}";
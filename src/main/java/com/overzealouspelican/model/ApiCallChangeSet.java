@@ -0,0 +1,45 @@
+package com.overzealouspelican.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Saved calls that were added, changed or removed outside the application,
+ * published through ApplicationState so views can update just the affected rows.
+ */
+public class ApiCallChangeSet {
+    private final List<ApiCallSummary> added;
+    private final List<ApiCallSummary> changed;
+    private final List<String> removed;
+
+    public ApiCallChangeSet(List<ApiCallSummary> added, List<ApiCallSummary> changed, List<String> removed) {
+        this.added = Collections.unmodifiableList(added);
+        this.changed = Collections.unmodifiableList(changed);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    public List<ApiCallSummary> getAdded() {
+        return added;
+    }
+
+    public List<ApiCallSummary> getChanged() {
+        return changed;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public int size() {
+        return added.size() + changed.size() + removed.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiCallChangeSet{added=" + added.size() + ", changed=" + changed.size() + ", removed=" + removed.size() + "}";
+    }
+}
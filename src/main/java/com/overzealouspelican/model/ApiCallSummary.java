@@ -0,0 +1,91 @@
+package com.overzealouspelican.model;
+
+import java.util.Objects;
+
+/**
+ * Lightweight summary of a saved API call, holding just enough to list it.
+ * Headers and body are deliberately left out so listings never have to load them.
+ */
+public class ApiCallSummary {
+    private String name;
+    private String httpMethod;
+    private String url;
+    private String groupName;
+    private long modifiedAt;
+    private long version;
+
+    public ApiCallSummary() {
+    }
+
+    public ApiCallSummary(String name, String httpMethod, String url, String groupName, long modifiedAt, long version) {
+        this.name = name;
+        this.httpMethod = httpMethod;
+        this.url = url;
+        this.groupName = groupName;
+        this.modifiedAt = modifiedAt;
+        this.version = version;
+    }
+
+    /**
+     * Create a summary of a full API call
+     */
+    public static ApiCallSummary of(ApiCall apiCall) {
+        return new ApiCallSummary(apiCall.getName(), apiCall.getHttpMethod(), apiCall.getUrl(),
+            apiCall.getGroupName(), apiCall.getModifiedAt(), apiCall.getVersion());
+    }
+
+    /**
+     * Check if the call belongs to a group; a null group name matches ungrouped calls
+     */
+    public boolean isInGroup(String group) {
+        boolean ungrouped = groupName == null || groupName.trim().isEmpty();
+        return group == null ? ungrouped : group.equals(groupName);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ApiCallSummary)) return false;
+        ApiCallSummary other = (ApiCallSummary) o;
+        return modifiedAt == other.modifiedAt
+            && version == other.version
+            && Objects.equals(name, other.name)
+            && Objects.equals(httpMethod, other.httpMethod)
+            && Objects.equals(url, other.url)
+            && Objects.equals(groupName, other.groupName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, httpMethod, url, groupName, modifiedAt, version);
+    }
+
+    @Override
+    public String toString() {
+        return "ApiCallSummary{name='" + name + "', method='" + httpMethod + "', group='" + groupName + "'}";
+    }
+}
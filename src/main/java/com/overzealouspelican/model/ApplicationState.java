@@ -4,11 +4,18 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Centralized application state following the Singleton pattern.
  * Uses the Observer pattern (PropertyChangeSupport) to notify listeners when state changes.
  * Follows SOLID principles - Single Responsibility for managing application state.
+ * The selected environment's name, variables and host overrides and the session variables are
+ * published together as immutable, versioned EnvironmentSnapshots, so request threads read
+ * them without locking. Selecting or saving an environment publishes one snapshot holding all
+ * of its values, and listeners are notified only once it is in place.
  */
 public class ApplicationState {
 
@@ -16,21 +23,25 @@ public class ApplicationState {
     private final PropertyChangeSupport propertyChangeSupport;
 
     // Application state properties
-    private String selectedEnvironment;
-    private Map<String, String> environmentVariables;
+    private final AtomicReference<EnvironmentSnapshot> snapshot; // Environment name, variables, host overrides and session values
     private String statusMessage;
     private String statusIcon;
 
     // Property names for change events
     public static final String PROPERTY_SELECTED_ENVIRONMENT = "selectedEnvironment";
     public static final String PROPERTY_ENVIRONMENT_VARIABLES = "environmentVariables";
+    public static final String PROPERTY_HOST_OVERRIDES = "hostOverrides";
+    public static final String PROPERTY_SESSION_VARIABLES = "sessionVariables";
     public static final String PROPERTY_STATUS_MESSAGE = "statusMessage";
     public static final String PROPERTY_STATUS_ICON = "statusIcon";
+    public static final String PROPERTY_API_CALLS_CHANGED = "apiCallsChanged"; // New value: ApiCallChangeSet
+    public static final String PROPERTY_ENVIRONMENTS_CHANGED = "environmentsChanged"; // New value: names changed
+    public static final String PROPERTY_IN_FLIGHT_REQUESTS = "inFlightRequests"; // New value: number of requests
+    public static final String PROPERTY_CONNECTION_POOL = "connectionPool"; // New value: TimedHttpEngine.PoolStats
 
     private ApplicationState() {
         this.propertyChangeSupport = new PropertyChangeSupport(this);
-        this.selectedEnvironment = "Development"; // Default value
-        this.environmentVariables = new HashMap<>();
+        this.snapshot = new AtomicReference<>(EnvironmentSnapshot.EMPTY.withEnvironment("Development", Map.of(), Map.of())); // Default value
         this.statusMessage = "Ready";
         this.statusIcon = "🟢"; // Green circle emoji for ready status
     }
@@ -76,32 +87,115 @@ public class ApplicationState {
     // Getters and Setters with property change notifications
 
     public String getSelectedEnvironment() {
-        return selectedEnvironment;
+        return snapshot.get().getEnvironmentName();
     }
 
-    public void setSelectedEnvironment(String newEnvironment) {
-        String oldEnvironment = this.selectedEnvironment;
-        this.selectedEnvironment = newEnvironment;
-        propertyChangeSupport.firePropertyChange(PROPERTY_SELECTED_ENVIRONMENT, oldEnvironment, newEnvironment);
+    /**
+     * Select an environment, or publish the saved values of the selected one, as a single
+     * snapshot. Selecting another environment clears the session variables, since values
+     * extracted from one environment's responses do not apply to another. Listeners of each
+     * property that changed are notified afterwards, so all of them see the whole new state.
+     */
+    public void setEnvironment(String name, Map<String, String> variables, Map<String, String> hostOverrides) {
+        EnvironmentSnapshot previous;
+        EnvironmentSnapshot next;
+        do {
+            previous = snapshot.get();
+            next = previous.withEnvironment(name, variables, hostOverrides);
+        } while (!snapshot.compareAndSet(previous, next));
+        propertyChangeSupport.firePropertyChange(PROPERTY_SELECTED_ENVIRONMENT,
+            previous.getEnvironmentName(), next.getEnvironmentName());
+        propertyChangeSupport.firePropertyChange(PROPERTY_SESSION_VARIABLES,
+            previous.getSessionVariables(), next.getSessionVariables());
+        propertyChangeSupport.firePropertyChange(PROPERTY_HOST_OVERRIDES,
+            previous.getHostOverrides(), next.getHostOverrides());
+        propertyChangeSupport.firePropertyChange(PROPERTY_ENVIRONMENT_VARIABLES,
+            previous.getVariables(), next.getVariables());
     }
 
-    public Map<String, String> getEnvironmentVariables() {
-        return new HashMap<>(environmentVariables); // Return a copy to prevent external modification
+    /**
+     * Get the current environment snapshot, for reading several values that must agree
+     */
+    public EnvironmentSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Replace the snapshot with one derived from the current one, and notify listeners of the
+     * property that changed. Safe to call from any thread; listeners run on the caller's.
+     */
+    private void publish(String propertyName, UnaryOperator<EnvironmentSnapshot> change,
+                         Function<EnvironmentSnapshot, Map<String, String>> property) {
+        EnvironmentSnapshot previous;
+        EnvironmentSnapshot next;
+        do {
+            previous = snapshot.get();
+            next = change.apply(previous);
+        } while (!snapshot.compareAndSet(previous, next));
+        propertyChangeSupport.firePropertyChange(propertyName, property.apply(previous), property.apply(next));
     }
 
-    public void setEnvironmentVariables(Map<String, String> newVariables) {
-        Map<String, String> oldVariables = this.environmentVariables;
-        this.environmentVariables = new HashMap<>(newVariables);
-        propertyChangeSupport.firePropertyChange(PROPERTY_ENVIRONMENT_VARIABLES, oldVariables, this.environmentVariables);
+    /**
+     * Get the variables of the selected environment; the map cannot be modified
+     */
+    public Map<String, String> getEnvironmentVariables() {
+        return snapshot.get().getVariables();
     }
 
     public void addEnvironmentVariable(String key, String value) {
-        environmentVariables.put(key, value);
-        propertyChangeSupport.firePropertyChange(PROPERTY_ENVIRONMENT_VARIABLES, null, environmentVariables);
+        publish(PROPERTY_ENVIRONMENT_VARIABLES, current -> {
+            Map<String, String> variables = new HashMap<>(current.getVariables());
+            variables.put(key, value);
+            return current.withVariables(variables);
+        }, EnvironmentSnapshot::getVariables);
     }
 
     public String getEnvironmentVariable(String key) {
-        return environmentVariables.get(key);
+        return snapshot.get().getVariables().get(key);
+    }
+
+    /**
+     * Get the variables extracted from responses during this session; the map cannot be modified
+     */
+    public Map<String, String> getSessionVariables() {
+        return snapshot.get().getSessionVariables();
+    }
+
+    /**
+     * Set variables extracted from a response, replacing earlier values of the same names
+     */
+    public void putSessionVariables(Map<String, String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        publish(PROPERTY_SESSION_VARIABLES, current -> {
+            Map<String, String> session = new HashMap<>(current.getSessionVariables());
+            session.putAll(values);
+            return current.withSessionVariables(session);
+        }, EnvironmentSnapshot::getSessionVariables);
+    }
+
+    public void clearSessionVariables() {
+        if (snapshot.get().getSessionVariables().isEmpty()) {
+            return;
+        }
+        publish(PROPERTY_SESSION_VARIABLES, current -> current.withSessionVariables(Map.of()),
+            EnvironmentSnapshot::getSessionVariables);
+    }
+
+    /**
+     * Get the variables requests are rendered with: the selected environment's, overridden
+     * by the values extracted from responses during this session; the map cannot be modified
+     */
+    public Map<String, String> getRequestVariables() {
+        return snapshot.get().getRequestVariables();
+    }
+
+    /**
+     * Get the host overrides of the selected environment (host -> address); the map cannot be modified
+     */
+    public Map<String, String> getHostOverrides() {
+        return snapshot.get().getHostOverrides();
     }
 
     // Status message getters and setters
@@ -2,13 +2,18 @@ package com.overzealouspelican.model;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Model class representing an environment with its variables.
+ * Host overrides map host names to the addresses to connect to instead of resolving them,
+ * like curl --resolve; requests keep the original host name in the Host header and for TLS.
  */
 public class Environment {
     private String name;
     private Map<String, String> variables;
+    private Map<String, String> hostOverrides; // Host -> address; null when there are none
+    private long version; // Incremented on every save, to detect concurrent edits
 
     public Environment() {
         this.variables = new HashMap<>();
@@ -19,6 +24,16 @@ public class Environment {
         this.variables = variables != null ? new HashMap<>(variables) : new HashMap<>();
     }
 
+    public Environment(String name, Map<String, String> variables, Map<String, String> hostOverrides) {
+        this(name, variables);
+        setHostOverrides(hostOverrides);
+    }
+
+    public Environment(Environment other) {
+        this(other.name, other.variables, other.hostOverrides);
+        this.version = other.version;
+    }
+
     public String getName() {
         return name;
     }
@@ -43,9 +58,42 @@ public class Environment {
         return this.variables.get(key);
     }
 
+    /**
+     * Get the addresses to connect to for overridden hosts, keyed by host name
+     */
+    public Map<String, String> getHostOverrides() {
+        return hostOverrides != null ? new HashMap<>(hostOverrides) : new HashMap<>();
+    }
+
+    public void setHostOverrides(Map<String, String> hostOverrides) {
+        this.hostOverrides = hostOverrides != null && !hostOverrides.isEmpty() ? new HashMap<>(hostOverrides) : null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Environment)) return false;
+        Environment other = (Environment) o;
+        return version == other.version && Objects.equals(name, other.name) && Objects.equals(variables, other.variables)
+            && Objects.equals(getHostOverrides(), other.getHostOverrides());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, variables, getHostOverrides(), version);
+    }
+
     @Override
     public String toString() {
-        return "Environment{name='" + name + "', variables=" + variables + "}";
+        return "Environment{name='" + name + "', variables=" + variables + ", hostOverrides=" + getHostOverrides() + "}";
     }
 }
 
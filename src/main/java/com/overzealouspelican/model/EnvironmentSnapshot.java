@@ -0,0 +1,123 @@
+package com.overzealouspelican.model;
+
+import com.overzealouspelican.util.VariableTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The environment state requests are sent with, as one immutable value: the name of the
+ * selected environment, its variables and host overrides, and the values extracted from responses.
+ * ApplicationState publishes a new snapshot with a higher version on every change, so a
+ * request thread reads one consistent state without copying or locking, and anything derived
+ * from a snapshot can be cached against its version.
+ */
+public final class EnvironmentSnapshot {
+
+    static final EnvironmentSnapshot EMPTY = new EnvironmentSnapshot(0, null, Map.of(), Map.of(), Map.of());
+
+    private final long version;
+    private final String environmentName;
+    private final Map<String, String> variables;
+    private final Map<String, String> hostOverrides;
+    private final Map<String, String> sessionVariables;
+    private final Map<String, String> requestVariables; // Variables overridden by session variables
+    private final Map<String, VariableTemplate> valueTemplates; // Compiled on first use
+
+    private EnvironmentSnapshot(long version, String environmentName, Map<String, String> variables,
+                                Map<String, String> hostOverrides, Map<String, String> sessionVariables) {
+        this.version = version;
+        this.environmentName = environmentName;
+        this.variables = variables;
+        this.hostOverrides = hostOverrides;
+        this.sessionVariables = sessionVariables;
+        Map<String, String> merged = new HashMap<>(variables);
+        merged.putAll(sessionVariables);
+        this.requestVariables = Collections.unmodifiableMap(merged);
+        this.valueTemplates = new ConcurrentHashMap<>();
+    }
+
+    private static Map<String, String> freeze(Map<String, String> map) {
+        return map != null ? Collections.unmodifiableMap(new HashMap<>(map)) : Map.of();
+    }
+
+    /**
+     * Derive the snapshot of an environment being selected or saved. Values extracted from
+     * responses are kept only if it is the environment already selected.
+     */
+    EnvironmentSnapshot withEnvironment(String newName, Map<String, String> newVariables, Map<String, String> newOverrides) {
+        Map<String, String> session = newName != null && newName.equals(environmentName) ? sessionVariables : Map.of();
+        return new EnvironmentSnapshot(version + 1, newName, freeze(newVariables), freeze(newOverrides), session);
+    }
+
+    EnvironmentSnapshot withVariables(Map<String, String> newVariables) {
+        return new EnvironmentSnapshot(version + 1, environmentName, freeze(newVariables), hostOverrides, sessionVariables);
+    }
+
+    EnvironmentSnapshot withSessionVariables(Map<String, String> newSessionVariables) {
+        return new EnvironmentSnapshot(version + 1, environmentName, variables, hostOverrides, freeze(newSessionVariables));
+    }
+
+    /**
+     * Get the version, higher for every later snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the name of the selected environment
+     */
+    public String getEnvironmentName() {
+        return environmentName;
+    }
+
+    /**
+     * Get the variables of the selected environment; the map cannot be modified
+     */
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Get the host overrides of the selected environment (host -> address); the map cannot be modified
+     */
+    public Map<String, String> getHostOverrides() {
+        return hostOverrides;
+    }
+
+    /**
+     * Get the values extracted from responses; the map cannot be modified
+     */
+    public Map<String, String> getSessionVariables() {
+        return sessionVariables;
+    }
+
+    /**
+     * Get the variables requests are rendered with: the environment's, overridden by the
+     * session's; the map cannot be modified
+     */
+    public Map<String, String> getRequestVariables() {
+        return requestVariables;
+    }
+
+    /**
+     * Get the compiled template of a request variable's value, so values referring to other
+     * variables are parsed once per snapshot rather than once per request. Null if undefined.
+     */
+    public VariableTemplate getValueTemplate(String name) {
+        String value = requestVariables.get(name);
+        if (value == null) {
+            return null;
+        }
+        return valueTemplates.computeIfAbsent(name, key -> VariableTemplate.compile(value));
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentSnapshot{version=" + version + ", environment=" + environmentName + ", variables=" + variables.keySet()
+            + ", session=" + sessionVariables.keySet() + "}";
+    }
+}
@@ -2,14 +2,23 @@ package com.overzealouspelican.panel;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import com.overzealouspelican.component.KeyValueInputGroup;
 import com.overzealouspelican.component.LabeledTextField;
 import com.overzealouspelican.component.UrlWithMethodInput;
 import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.model.EnvironmentSnapshot;
 import com.overzealouspelican.model.ApiCall;
 import com.overzealouspelican.frame.CallOutputFrame;
+import com.overzealouspelican.service.ApiCallRepository;
 import com.overzealouspelican.service.ApiCallService;
+import com.overzealouspelican.service.CompiledApiCall;
+import com.overzealouspelican.service.InFlightRequests;
+import com.overzealouspelican.service.RequestVariables;
+import com.overzealouspelican.service.TaskExecutor;
 
 /**
  * Modern IntelliJ-style call configuration panel.
@@ -19,18 +28,28 @@ public class CallConfigurationPanel extends JPanel {
     private JButton saveButton;
     private JButton callButton;
     private JButton clearButton;
+    private JButton cancelButton;
     private LabeledTextField nameField;
+    private LabeledTextField timeoutField;
+    private LabeledTextField dependsOnField;
     private UrlWithMethodInput urlInput;
     private KeyValueInputGroup headersGroup;
     private KeyValueInputGroup bodyGroup;
+    private KeyValueInputGroup extractGroup;
     private ApplicationState appState;
     private ApiCallService apiCallService;
+    private ApiCallRepository apiCallRepository;
     private String currentGroupName; // Track the group of the currently loaded API call
+    private final Set<InFlightRequests.InFlightRequest> pendingRequests = new LinkedHashSet<>(); // Sent from this panel, EDT only
 
     public CallConfigurationPanel() {
         this.appState = ApplicationState.getInstance();
         this.apiCallService = new ApiCallService();
+        this.apiCallRepository = ApiCallRepository.getInstance();
         initializePanel();
+
+        // The selected environment decides where the loaded call goes; warm that host
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_ENVIRONMENT_VARIABLES, evt -> preconnect());
     }
 
     private void initializePanel() {
@@ -79,12 +98,18 @@ public class CallConfigurationPanel extends JPanel {
         callButton.setToolTipText("Execute the API call");
         callButton.addActionListener(e -> handleCall());
 
+        cancelButton = new JButton("Cancel");
+        cancelButton.setToolTipText("Cancel the requests in flight");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> handleCancel());
+
         saveButton = new JButton("Save");
         saveButton.setToolTipText("Save this API call");
         saveButton.addActionListener(e -> handleSave());
 
         buttonsPanel.add(clearButton);
         buttonsPanel.add(callButton);
+        buttonsPanel.add(cancelButton);
         buttonsPanel.add(saveButton);
 
         toolbar.add(buttonsPanel, BorderLayout.EAST);
@@ -117,6 +142,22 @@ public class CallConfigurationPanel extends JPanel {
         contentPanel.add(bodyGroup);
         contentPanel.add(Box.createVerticalStrut(16));
 
+        // Values copied from a successful response into session variables for later calls
+        extractGroup = new KeyValueInputGroup("Extract to Variables", "+ Add Extraction", "Remove this extraction");
+        extractGroup.setToolTipText("Key: variable name. Value: a JSONPath such as $.data.id, or header:Name");
+        contentPanel.add(extractGroup);
+        contentPanel.add(Box.createVerticalStrut(16));
+
+        // Per-call timeout, empty for the default from Settings
+        timeoutField = new LabeledTextField("Timeout (s)", "Leave empty to use the request timeout from Settings");
+        contentPanel.add(timeoutField);
+        contentPanel.add(Box.createVerticalStrut(16));
+
+        // Ordering when the call's group is run as a collection
+        dependsOnField = new LabeledTextField("Runs After", "Calls in the same group that must succeed first when the group is run, comma separated");
+        contentPanel.add(dependsOnField);
+        contentPanel.add(Box.createVerticalStrut(16));
+
         return contentPanel;
     }
 
@@ -128,8 +169,12 @@ public class CallConfigurationPanel extends JPanel {
         String friendlyName = nameField.getText();
         String url = urlInput.getUrl();
         String httpMethod = urlInput.getHttpMethod();
-        String environment = appState.getSelectedEnvironment();
-        Map<String, String> environmentVariables = appState.getEnvironmentVariables();
+        // Name, variables and host overrides from one snapshot, so they describe one environment
+        EnvironmentSnapshot snapshot = appState.getSnapshot();
+        String environment = snapshot.getEnvironmentName();
+        // Resolved once for this request, so the output shows the dynamic values that were sent;
+        // nothing is resolved here, the request is rendered off the EDT
+        RequestVariables environmentVariables = new RequestVariables(snapshot);
 
         // Create ApiCall object
         ApiCall apiCall = new ApiCall(
@@ -139,82 +184,101 @@ public class CallConfigurationPanel extends JPanel {
             headersGroup.getKeyValuePairs(),
             bodyGroup.getKeyValuePairs()
         );
+        apiCall.setTimeoutSeconds(getTimeoutSeconds());
+        apiCall.setExtractions(extractGroup.getKeyValuePairs());
+
+        // Send without blocking; an identical request still in flight is joined instead
+        InFlightRequests.InFlightRequest request = apiCallService.executeApiCallAsync(apiCall, environmentVariables,
+            snapshot.getHostOverrides());
+        pendingRequests.add(request);
+        updateCancelButton();
+
+        // Results always complete normally; failures arrive as error results
+        TaskExecutor.onEdt(request.getResult(), (result, error) -> {
+            pendingRequests.remove(request);
+            updateCancelButton();
+
+            if (result.isCancelled()) {
+                appState.setStatusWarning("API call cancelled");
+                return;
+            }
 
-        // Execute the actual HTTP request in a background thread
-        new Thread(() -> {
-            ApiCallService.HttpCallResult result = apiCallService.executeApiCall(apiCall, environmentVariables);
-
-            // Update UI on EDT
-            SwingUtilities.invokeLater(() -> {
-                // Format headers and body for display AFTER substitution
-                StringBuilder headersDisplay = new StringBuilder();
-                headersGroup.getKeyValuePairs().forEach((key, value) -> {
-                    String resolvedKey = substituteVariables(key, environmentVariables);
-                    String resolvedValue = substituteVariables(value, environmentVariables);
-                    headersDisplay.append(resolvedKey).append(": ").append(resolvedValue).append("\n");
-                });
-                if (headersDisplay.length() == 0) {
-                    headersDisplay.append("(No headers)");
-                }
+            // Show the URL, headers and body as they were sent, rendered off the EDT; a request
+            // that failed before it was rendered is shown as written, nothing is resolved here
+            CompiledApiCall.Rendered rendered = result.getRendered();
+            String shownUrl = rendered != null ? rendered.getUrl() : url;
+            String headersDisplay = formatPairs(rendered != null ? rendered.getHeaders() : apiCall.getHeaders(), "(No headers)");
+            String bodyDisplay = formatPairs(rendered != null ? rendered.getBody() : apiCall.getBody(), "(No body)");
+
+            // Show the output in the CallOutputFrame
+            CallOutputFrame outputFrame = CallOutputFrame.getInstance();
+            outputFrame.displayCallOutput(
+                environment,
+                friendlyName,
+                shownUrl,
+                httpMethod,
+                headersDisplay,
+                bodyDisplay,
+                result.formatResponse(),
+                environmentVariables,
+                result.getResponseBody()
+            );
 
-                StringBuilder bodyDisplay = new StringBuilder();
-                bodyGroup.getKeyValuePairs().forEach((key, value) -> {
-                    String resolvedKey = substituteVariables(key, environmentVariables);
-                    String resolvedValue = substituteVariables(value, environmentVariables);
-                    bodyDisplay.append(resolvedKey).append(": ").append(resolvedValue).append("\n");
-                });
-                if (bodyDisplay.length() == 0) {
-                    bodyDisplay.append("(No body)");
-                }
+            // Update status based on result
+            Map<String, String> extracted = result.getExtractedVariables();
+            if (result.isSuccess() && !extracted.isEmpty()) {
+                appState.putSessionVariables(extracted);
+                appState.setStatusSuccess("API call completed; set " + String.join(", ", extracted.keySet()));
+            } else if (result.isSuccess()) {
+                appState.setStatusSuccess("API call completed successfully");
+            } else {
+                appState.setStatusError("API call failed");
+            }
+        });
+    }
 
-                // Show the output in the CallOutputFrame
-                CallOutputFrame outputFrame = CallOutputFrame.getInstance();
-                outputFrame.displayCallOutput(
-                    environment,
-                    friendlyName,
-                    url,
-                    httpMethod,
-                    headersDisplay.toString(),
-                    bodyDisplay.toString(),
-                    result.formatResponse(),
-                    environmentVariables
-                );
-
-                // Update status based on result
-                if (result.isSuccess()) {
-                    appState.setStatusSuccess("API call completed successfully");
-                } else {
-                    appState.setStatusError("API call failed");
-                }
-            });
-        }).start();
+    /**
+     * Format key-value pairs one per line, or return the placeholder if there are none
+     */
+    private static String formatPairs(Map<String, String> pairs, String placeholder) {
+        StringBuilder display = new StringBuilder();
+        pairs.forEach((key, value) -> display.append(key).append(": ").append(value).append("\n"));
+        return display.length() > 0 ? display.toString() : placeholder;
     }
 
     /**
-     * Substitute {{key}} placeholders with environment variable values
+     * Cancel the requests sent from this panel that are still in flight
      */
-    private String substituteVariables(String input, Map<String, String> environmentVariables) {
-        if (input == null || environmentVariables == null) {
-            return input;
-        }
+    private void handleCancel() {
+        new java.util.ArrayList<>(pendingRequests).forEach(InFlightRequests.InFlightRequest::cancel);
+    }
 
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        java.util.regex.Matcher matcher = pattern.matcher(input);
-        StringBuffer result = new StringBuffer();
+    private void updateCancelButton() {
+        cancelButton.setEnabled(!pendingRequests.isEmpty());
+    }
 
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String value = environmentVariables.get(key);
-            if (value != null) {
-                matcher.appendReplacement(result, java.util.regex.Matcher.quoteReplacement(value));
-            } else {
-                // Keep the placeholder if no value found
-                matcher.appendReplacement(result, java.util.regex.Matcher.quoteReplacement(matcher.group(0)));
+    /**
+     * Get the names entered in the Runs After field
+     */
+    private java.util.List<String> getDependsOn() {
+        java.util.List<String> names = new java.util.ArrayList<>();
+        for (String name : dependsOnField.getText().split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
             }
         }
-        matcher.appendTail(result);
+        return names;
+    }
 
-        return result.toString();
+    /**
+     * Get the timeout entered for this call, or 0 to use the default from Settings
+     */
+    private int getTimeoutSeconds() {
+        try {
+            return Math.max(0, Integer.parseInt(timeoutField.getText().trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     private void handleSave() {
@@ -243,22 +307,23 @@ public class CallConfigurationPanel extends JPanel {
                 headersGroup.getKeyValuePairs(),
                 bodyGroup.getKeyValuePairs()
             );
+            apiCall.setTimeoutSeconds(getTimeoutSeconds());
+            apiCall.setDependsOn(getDependsOn());
+            apiCall.setExtractions(extractGroup.getKeyValuePairs());
 
             // Preserve the group name if this API call was loaded from a group
             if (currentGroupName != null) {
                 apiCall.setGroupName(currentGroupName);
             }
 
-            apiCallService.saveApiCall(apiCall);
+            apiCallRepository.save(apiCall);
 
 //            JOptionPane.showMessageDialog(this,
-//                "API call saved successfully to:\n" + apiCallService.getApiCallsFilePath(),
+//                "API call saved successfully to:\n" + apiCallRepository.getApiCallsFilePath(),
 //                "Success",
 //                JOptionPane.INFORMATION_MESSAGE);
 
-            // Update status to success
-            appState.setStatusSuccess("Configuration saved");
-
+            // The write happens in the background and reports its own completion status
             // Notify that a new call was saved (fire property change)
             appState.firePropertyChange("apiCallSaved", null, friendlyName);
         } catch (Exception e) {
@@ -279,6 +344,9 @@ public class CallConfigurationPanel extends JPanel {
         urlInput.setHttpMethod("GET");
         headersGroup.clear();
         bodyGroup.clear();
+        extractGroup.clear();
+        timeoutField.setText("");
+        dependsOnField.setText("");
 
         // Clear the tracked group name
         currentGroupName = null;
@@ -404,14 +472,24 @@ public class CallConfigurationPanel extends JPanel {
         if (result == JFileChooser.APPROVE_OPTION) {
             java.io.File selectedFile = fileChooser.getSelectedFile();
 
-            try {
-                // Read the file
-                String harContent = new String(java.nio.file.Files.readAllBytes(selectedFile.toPath()));
+            appState.setStatusLoading();
 
-                // Parse the HAR file
-                java.util.List<ApiCall> apiCalls = com.overzealouspelican.util.HarParser.parseHar(harContent);
+            // Read and parse off the EDT; large HAR files take a while
+            TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> {
+                String harContent = new String(java.nio.file.Files.readAllBytes(selectedFile.toPath()));
+                return com.overzealouspelican.util.HarParser.parseHar(harContent);
+            }), (apiCalls, error) -> {
+                if (error != null) {
+                    appState.setStatusError("Failed to import HAR file");
+                    JOptionPane.showMessageDialog(this,
+                        "Failed to import HAR file:\n" + error.getMessage(),
+                        "Import Error",
+                        JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
 
                 if (apiCalls.isEmpty()) {
+                    appState.setStatus("Ready", "✅");
                     JOptionPane.showMessageDialog(this,
                         "No API calls found in the HAR file.",
                         "No Data",
@@ -429,15 +507,10 @@ public class CallConfigurationPanel extends JPanel {
                         JOptionPane.INFORMATION_MESSAGE);
                 } else {
                     // Multiple API calls - show selection dialog
+                    appState.setStatus("Ready", "✅");
                     showHarSelectionDialog(apiCalls);
                 }
-
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this,
-                    "Failed to import HAR file:\n" + ex.getMessage(),
-                    "Import Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
@@ -522,9 +595,27 @@ public class CallConfigurationPanel extends JPanel {
         urlInput.setHttpMethod(apiCall.getHttpMethod());
         headersGroup.setKeyValuePairs(apiCall.getHeaders());
         bodyGroup.setKeyValuePairs(apiCall.getBody());
+        extractGroup.setKeyValuePairs(apiCall.getExtractions());
+        timeoutField.setText(apiCall.getTimeoutSeconds() > 0 ? String.valueOf(apiCall.getTimeoutSeconds()) : "");
+        dependsOnField.setText(String.join(", ", apiCall.getDependsOn()));
 
         // Track the group name so it can be preserved when saving
         currentGroupName = apiCall.getGroupName();
+
+        preconnect();
+    }
+
+    /**
+     * Open a connection to the host of the loaded call ahead of Send, if enabled in Settings
+     */
+    private void preconnect() {
+        String url = urlInput.getUrl();
+        if (!SettingsEditorPanel.isPreconnectEnabled() || url == null || url.isBlank()) {
+            return;
+        }
+        ApiCall apiCall = new ApiCall(nameField.getText(), url, urlInput.getHttpMethod(), new HashMap<>(), new HashMap<>());
+        EnvironmentSnapshot snapshot = appState.getSnapshot();
+        apiCallService.preconnect(apiCall, snapshot.getRequestVariables(), snapshot.getHostOverrides());
     }
 
     // Public API for accessing/setting data
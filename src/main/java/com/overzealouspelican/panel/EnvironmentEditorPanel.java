@@ -6,9 +6,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import com.overzealouspelican.component.KeyValueInputGroup;
+import com.overzealouspelican.frame.VariableUsageFrame;
 import com.overzealouspelican.model.ApplicationState;
 import com.overzealouspelican.model.Environment;
-import com.overzealouspelican.service.EnvironmentService;
+import com.overzealouspelican.service.EnvironmentRepository;
+import com.overzealouspelican.service.HostResolver;
+import com.overzealouspelican.service.TaskExecutor;
+import com.overzealouspelican.service.VariableIndex;
 
 /**
  * IntelliJ-style environment editor embedded in the sidebar.
@@ -22,19 +29,38 @@ public class EnvironmentEditorPanel extends JPanel {
     private List<JTextField> valueFields;
     private List<JButton> removeButtons;
     private JPanel keyValueRowsContainer;
+    private KeyValueInputGroup hostOverridesGroup;
     private ApplicationState appState;
-    private EnvironmentService environmentService;
+    private EnvironmentRepository environmentRepository;
     private JButton saveButton;
     private JButton newEnvButton;
+    private JLabel lintLabel;
+    private JLabel sessionLabel;
+    private JButton clearSessionButton;
+    private int lintGeneration; // Only the latest check updates the label, EDT only
 
     public EnvironmentEditorPanel() {
         keyFields = new ArrayList<>();
         valueFields = new ArrayList<>();
         removeButtons = new ArrayList<>();
         appState = ApplicationState.getInstance();
-        environmentService = new EnvironmentService();
+        environmentRepository = EnvironmentRepository.getInstance();
         initializePanel();
         loadEnvironmentsFromDisk();
+
+        // Environments edited outside the application (another instance, a sync tool)
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_ENVIRONMENTS_CHANGED, evt -> refresh());
+
+        // Check the saved calls against the environment whenever either changes
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_ENVIRONMENT_VARIABLES, evt -> updateLint());
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_API_CALLS_CHANGED, evt -> updateLint());
+        appState.addPropertyChangeListener("apiCallSaved", evt -> updateLint());
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_SESSION_VARIABLES, evt -> {
+            updateSession();
+            updateLint();
+        });
+        updateLint();
+        updateSession();
     }
 
     private void initializePanel() {
@@ -48,6 +74,10 @@ public class EnvironmentEditorPanel extends JPanel {
 
         // Dropdown section
         mainPanel.add(createDropdownPanel());
+        mainPanel.add(Box.createVerticalStrut(6));
+        mainPanel.add(createLintPanel());
+        mainPanel.add(Box.createVerticalStrut(4));
+        mainPanel.add(createSessionPanel());
         mainPanel.add(Box.createVerticalStrut(12));
 
         // Key-value pairs section
@@ -79,6 +109,107 @@ public class EnvironmentEditorPanel extends JPanel {
         return panel;
     }
 
+    private JPanel createLintPanel() {
+        JPanel panel = new JPanel(new BorderLayout(8, 0));
+        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 24));
+        panel.setBackground(UIManager.getColor("Panel.background"));
+
+        lintLabel = new JLabel(" ");
+        lintLabel.setFont(lintLabel.getFont().deriveFont(Font.PLAIN, 11f));
+
+        JButton usagesButton = new JButton("Usages");
+        usagesButton.setToolTipText("Show which saved calls use each variable, and rename variables");
+        usagesButton.setFont(usagesButton.getFont().deriveFont(11f));
+        usagesButton.addActionListener(e -> VariableUsageFrame.getInstance().display());
+
+        panel.add(lintLabel, BorderLayout.CENTER);
+        panel.add(usagesButton, BorderLayout.EAST);
+        return panel;
+    }
+
+    private JPanel createSessionPanel() {
+        JPanel panel = new JPanel(new BorderLayout(8, 0));
+        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 24));
+        panel.setBackground(UIManager.getColor("Panel.background"));
+
+        sessionLabel = new JLabel(" ");
+        sessionLabel.setFont(sessionLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        sessionLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+
+        clearSessionButton = new JButton("Clear");
+        clearSessionButton.setToolTipText("Forget the values extracted from responses");
+        clearSessionButton.setFont(clearSessionButton.getFont().deriveFont(11f));
+        clearSessionButton.addActionListener(e -> appState.clearSessionVariables());
+
+        panel.add(sessionLabel, BorderLayout.CENTER);
+        panel.add(clearSessionButton, BorderLayout.EAST);
+        return panel;
+    }
+
+    /**
+     * Show the values extracted from responses, which override the environment's
+     */
+    private void updateSession() {
+        Map<String, String> session = new TreeMap<>(appState.getSessionVariables());
+        clearSessionButton.setVisible(!session.isEmpty());
+        if (session.isEmpty()) {
+            sessionLabel.setText("No values extracted from responses");
+            sessionLabel.setToolTipText(null);
+            return;
+        }
+        sessionLabel.setText(session.size() + (session.size() == 1 ? " value" : " values")
+            + " extracted from responses: " + String.join(", ", session.keySet()));
+        StringBuilder tooltip = new StringBuilder("<html>Used instead of the environment's values until cleared<br>");
+        session.forEach((name, value) -> tooltip.append(escapeHtml(name)).append(" = ")
+            .append(escapeHtml(value.length() > 80 ? value.substring(0, 80) + "..." : value)).append("<br>"));
+        sessionLabel.setToolTipText(tooltip.append("</html>").toString());
+    }
+
+    /**
+     * Show how many saved calls use variables the selected environment does not define
+     */
+    private void updateLint() {
+        int generation = ++lintGeneration;
+        Map<String, String> variables = appState.getRequestVariables();
+        TaskExecutor.onEdt(TaskExecutor.getInstance().submit(() -> VariableIndex.getInstance().findUnresolved(variables)),
+            (unresolved, error) -> {
+                if (generation != lintGeneration) {
+                    return;
+                }
+                if (error != null) {
+                    lintLabel.setText(" ");
+                    lintLabel.setToolTipText(null);
+                    System.err.println("Failed to check saved calls for unresolved variables: " + error.getMessage());
+                    return;
+                }
+                if (unresolved.isEmpty()) {
+                    lintLabel.setText("✓ All saved calls resolve");
+                    lintLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+                    lintLabel.setToolTipText(null);
+                    return;
+                }
+                lintLabel.setText("⚠ " + unresolved.size() + (unresolved.size() == 1 ? " call uses" : " calls use")
+                    + " undefined variables");
+                lintLabel.setForeground(UIManager.getColor("Component.warning.focusedBorderColor") != null
+                    ? UIManager.getColor("Component.warning.focusedBorderColor") : Color.ORANGE.darker());
+                StringBuilder tooltip = new StringBuilder("<html>");
+                int shown = 0;
+                for (Map.Entry<String, Set<String>> entry : unresolved.entrySet()) {
+                    if (shown++ == 15) {
+                        tooltip.append("...and ").append(unresolved.size() - 15).append(" more");
+                        break;
+                    }
+                    tooltip.append(escapeHtml(entry.getKey())).append(": ")
+                        .append(escapeHtml(String.join(", ", entry.getValue()))).append("<br>");
+                }
+                lintLabel.setToolTipText(tooltip.append("</html>").toString());
+            });
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
     private JPanel createKeyValuePanel() {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -125,6 +256,17 @@ public class EnvironmentEditorPanel extends JPanel {
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
 
         panel.add(scrollPane);
+        panel.add(Box.createVerticalStrut(12));
+
+        // Host overrides: host name -> address to connect to, like curl --resolve
+        hostOverridesGroup = new KeyValueInputGroup("Host Overrides", "+ Add Override", "Remove this override");
+        panel.add(hostOverridesGroup);
+        panel.add(Box.createVerticalStrut(4));
+        JLabel overridesInfoLabel = new JLabel("<html><i>Host name = IP address to connect to; the Host header and TLS keep the host name</i></html>");
+        overridesInfoLabel.setFont(overridesInfoLabel.getFont().deriveFont(Font.PLAIN, 10f));
+        overridesInfoLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        overridesInfoLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        panel.add(overridesInfoLabel);
         panel.add(Box.createVerticalStrut(6));
 
         // Button panel with Add Variable and Save buttons on same row
@@ -135,6 +277,9 @@ public class EnvironmentEditorPanel extends JPanel {
 
         JButton addRowButton = new JButton("+ Add Variable");
         addRowButton.setPreferredSize(new Dimension(140, 28));
+        addRowButton.setToolTipText("<html>Values may use other variables as {{name}}, or be computed:<br>"
+            + "$file:path reads a file, $cmd:command runs a command (if enabled in Settings).<br>"
+            + "Built in: {{$timestamp}}, {{$isoNow}}, {{$uuid}}, {{$randomInt}}, {{$randomInt min max}}</html>");
         addRowButton.addActionListener(e -> {
             addKeyValueRow();
             keyValueRowsContainer.revalidate();
@@ -218,7 +363,7 @@ public class EnvironmentEditorPanel extends JPanel {
     }
 
     private void loadEnvironmentsFromDisk() {
-        Map<String, Environment> environments = environmentService.loadEnvironments();
+        Map<String, Environment> environments = environmentRepository.findAll();
 
         environmentDropdown.removeAllItems();
 
@@ -246,10 +391,12 @@ public class EnvironmentEditorPanel extends JPanel {
         String selectedName = (String) environmentDropdown.getSelectedItem();
         if (selectedName == null) return;
 
-        // Update app state
-        appState.setSelectedEnvironment(selectedName);
+        Environment env = environmentRepository.find(selectedName);
 
-        Environment env = environmentService.loadEnvironment(selectedName);
+        // Name, variables and host overrides are published together, as one snapshot
+        Map<String, String> hostOverrides = env != null ? env.getHostOverrides() : new HashMap<>();
+        appState.setEnvironment(selectedName, env != null ? env.getVariables() : new HashMap<>(), hostOverrides);
+        hostOverridesGroup.setKeyValuePairs(hostOverrides);
 
         keyValueRowsContainer.removeAll();
         keyFields.clear();
@@ -257,9 +404,6 @@ public class EnvironmentEditorPanel extends JPanel {
         removeButtons.clear();
 
         if (env != null && !env.getVariables().isEmpty()) {
-            // Update app state with the loaded environment variables
-            appState.setEnvironmentVariables(env.getVariables());
-
             for (Map.Entry<String, String> entry : env.getVariables().entrySet()) {
                 addKeyValueRow();
                 int lastIndex = keyFields.size() - 1;
@@ -267,9 +411,6 @@ public class EnvironmentEditorPanel extends JPanel {
                 valueFields.get(lastIndex).setText(entry.getValue());
             }
         } else {
-            // Clear environment variables in app state if environment is empty
-            appState.setEnvironmentVariables(new HashMap<>());
-
             for (int i = 0; i < INITIAL_KEY_VALUE_ROWS; i++) {
                 addKeyValueRow();
             }
@@ -303,12 +444,27 @@ public class EnvironmentEditorPanel extends JPanel {
             }
         }
 
+        Map<String, String> hostOverrides = hostOverridesGroup.getKeyValuePairs();
+        for (Map.Entry<String, String> override : hostOverrides.entrySet()) {
+            for (String address : override.getValue().split("\\s*,\\s*")) {
+                String bare = address.startsWith("[") && address.endsWith("]") ? address.substring(1, address.length() - 1) : address;
+                if (!HostResolver.isIpAddress(bare)) {
+                    JOptionPane.showMessageDialog(this,
+                        "The override for '" + override.getKey() + "' must be one or more IP addresses, comma separated.",
+                        "Invalid Host Override",
+                        JOptionPane.WARNING_MESSAGE);
+                    appState.setStatusError("Invalid host override for " + override.getKey());
+                    return;
+                }
+            }
+        }
+
         try {
-            Environment environment = new Environment(selectedEnvironment, keyValuePairs);
-            environmentService.saveEnvironment(environment);
+            Environment environment = new Environment(selectedEnvironment, keyValuePairs, hostOverrides);
+            environmentRepository.save(environment);
 
-            appState.setEnvironmentVariables(keyValuePairs);
-            appState.setStatusSuccess("Environment '" + selectedEnvironment + "' saved");
+            // The write happens in the background and reports its own completion status
+            appState.setEnvironment(selectedEnvironment, keyValuePairs, hostOverrides);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
                 "Failed to save environment: " + e.getMessage(),
@@ -330,7 +486,7 @@ public class EnvironmentEditorPanel extends JPanel {
         if (newEnvName != null && !newEnvName.trim().isEmpty()) {
             newEnvName = newEnvName.trim();
 
-            if (environmentService.environmentExists(newEnvName)) {
+            if (environmentRepository.exists(newEnvName)) {
                 int result = JOptionPane.showConfirmDialog(
                     this,
                     "Environment '" + newEnvName + "' already exists. Do you want to edit it?",
@@ -1,9 +1,16 @@
 package com.overzealouspelican.panel;
 
 import com.formdev.flatlaf.*;
+import com.overzealouspelican.service.ApiCallService;
+import com.overzealouspelican.service.ComputedVariables;
+import com.overzealouspelican.service.JsonStoreCodec;
+import com.overzealouspelican.service.StorageBackends;
+import com.overzealouspelican.service.TlsTrustPolicy;
+import com.overzealouspelican.util.DataDirectory;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.net.http.HttpClient;
 import java.util.prefs.Preferences;
 
 /**
@@ -14,10 +21,47 @@ public class SettingsEditorPanel extends JPanel {
     private static final Preferences prefs = Preferences.userNodeForPackage(SettingsEditorPanel.class);
     private static final String THEME_KEY = "theme";
     private static final String STORAGE_LOCATION_KEY = "storage_location";
+    private static final String JOURNAL_ENABLED_KEY = "storage_journal_enabled";
+    private static final String SHARDED_STORAGE_KEY = "storage_sharded";
+    private static final String STORAGE_FORMAT_KEY = "storage_format";
+    private static final String STORAGE_BACKEND_KEY = "storage_backend";
+    private static final String HTTP_VERSION_KEY = "http_version";
+    private static final String HTTP_ENGINE_KEY = "http_engine";
+    private static final String PRECONNECT_KEY = "http_preconnect";
+    private static final String HTTP_PROXY_KEY = "http_proxy";
+    private static final String CONNECT_TIMEOUT_KEY = "http_connect_timeout";
+    private static final String REQUEST_TIMEOUT_KEY = "http_request_timeout";
+    private static final String HTTP_CLIENT_THREADS_KEY = "http_client_threads";
+    private static final String MAX_REQUESTS_PER_HOST_KEY = "http_max_requests_per_host";
+    private static final String RESPONSE_PREVIEW_KEY = "http_response_preview_kb";
+    private static final String INSECURE_TLS_HOSTS_KEY = "tls_insecure_hosts";
+    private static final String COMPUTED_VARIABLE_TTL_KEY = "computed_variable_ttl";
+    private static final String COMPUTED_VARIABLE_COMMANDS_KEY = "computed_variable_commands";
     private static final String DEFAULT_THEME = "FlatLaf IntelliJ";
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 6;
+    private static final int DEFAULT_RESPONSE_PREVIEW_KB = 256;
+    private static final int DEFAULT_COMPUTED_VARIABLE_TTL_SECONDS = 60;
 
     private JComboBox<ThemeOption> themeComboBox;
     private JTextField storageLocationField;
+    private JCheckBox journalCheckBox;
+    private JCheckBox shardedCheckBox;
+    private JComboBox<JsonStoreCodec.Format> formatComboBox;
+    private JComboBox<StorageBackends.Kind> backendComboBox;
+    private JComboBox<HttpClient.Version> httpVersionComboBox;
+    private JComboBox<ApiCallService.Engine> httpEngineComboBox;
+    private JCheckBox preconnectCheckBox;
+    private JTextField proxyField;
+    private JTextField insecureHostsField;
+    private JSpinner connectTimeoutSpinner;
+    private JSpinner requestTimeoutSpinner;
+    private JSpinner clientThreadsSpinner;
+    private JSpinner maxRequestsPerHostSpinner;
+    private JSpinner responsePreviewSpinner;
+    private JSpinner computedVariableTtlSpinner;
+    private JCheckBox computedVariableCommandsCheckBox;
     private JButton browseButton;
     private JButton saveButton;
     private JButton resetButton;
@@ -65,6 +109,12 @@ public class SettingsEditorPanel extends JPanel {
         mainPanel.add(createInfoLabel());
         mainPanel.add(Box.createVerticalStrut(16));
 
+        // Network section
+        mainPanel.add(createSectionLabel("Network"));
+        mainPanel.add(Box.createVerticalStrut(8));
+        mainPanel.add(createNetworkPanel());
+        mainPanel.add(Box.createVerticalStrut(16));
+
         // Buttons
         mainPanel.add(createButtonPanel());
 
@@ -106,7 +156,7 @@ public class SettingsEditorPanel extends JPanel {
     private JPanel createStoragePanel() {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
+        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 240));
         panel.setBackground(UIManager.getColor("Panel.background"));
         panel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
@@ -128,13 +178,159 @@ public class SettingsEditorPanel extends JPanel {
         fieldPanel.add(storageLocationField, BorderLayout.CENTER);
         fieldPanel.add(browseButton, BorderLayout.EAST);
 
+        journalCheckBox = new JCheckBox("Journal changes instead of rewriting files");
+        journalCheckBox.setToolTipText("Append each change to a log that is compacted in the background (applies after restart)");
+        journalCheckBox.setOpaque(false);
+        journalCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        shardedCheckBox = new JCheckBox("Store each saved call in its own file");
+        shardedCheckBox.setToolTipText("Keep a small index for the saved calls list and load calls when opened (applies after restart)");
+        shardedCheckBox.setOpaque(false);
+        shardedCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel backendLabel = new JLabel("Storage Engine:");
+        backendLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        backendComboBox = new JComboBox<>(StorageBackends.Kind.values());
+        backendComboBox.setToolTipText("Data is moved to the selected engine on the next start");
+        backendComboBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        backendComboBox.setPreferredSize(new Dimension(0, 28));
+        backendComboBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel formatLabel = new JLabel("File Format:");
+        formatLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        formatComboBox = new JComboBox<>(JsonStoreCodec.Format.values());
+        formatComboBox.setToolTipText("Format used when data files are next written (applies after restart)");
+        formatComboBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        formatComboBox.setPreferredSize(new Dimension(0, 28));
+        formatComboBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
         panel.add(label);
         panel.add(Box.createVerticalStrut(4));
         panel.add(fieldPanel);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(backendLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(backendComboBox);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(journalCheckBox);
+        panel.add(shardedCheckBox);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(formatLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(formatComboBox);
+
+        return panel;
+    }
+
+    private JPanel createNetworkPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 515));
+        panel.setBackground(UIManager.getColor("Panel.background"));
+        panel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel versionLabel = new JLabel("HTTP Version:");
+        versionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        httpVersionComboBox = new JComboBox<>(HttpClient.Version.values());
+        httpVersionComboBox.setToolTipText("HTTP/2 falls back to HTTP/1.1 for servers that do not support it");
+        httpVersionComboBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        httpVersionComboBox.setPreferredSize(new Dimension(0, 28));
+        httpVersionComboBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel engineLabel = new JLabel("HTTP Engine:");
+        engineLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        httpEngineComboBox = new JComboBox<>(ApiCallService.Engine.values());
+        httpEngineComboBox.setToolTipText("The timed engine speaks HTTP/1.1 only and shows DNS, connect, TLS, wait and download times; it is not used with a proxy");
+        httpEngineComboBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        httpEngineComboBox.setPreferredSize(new Dimension(0, 28));
+        httpEngineComboBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        preconnectCheckBox = new JCheckBox("Pre-connect to the host of the selected call");
+        preconnectCheckBox.setToolTipText("Open the connection when a call or environment is selected, so the first send skips DNS, connect and TLS (timed engine; the Java HttpClient only pre-resolves DNS)");
+        preconnectCheckBox.setOpaque(false);
+        preconnectCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel proxyLabel = new JLabel("Proxy (host:port):");
+        proxyLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        proxyField = new JTextField();
+        proxyField.setToolTipText("Leave empty to use the system proxy settings");
+        proxyField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        proxyField.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel insecureHostsLabel = new JLabel("Skip TLS Verification For:");
+        insecureHostsLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        insecureHostsField = new JTextField();
+        insecureHostsField.setToolTipText("Hosts with self-signed certificates, comma separated; *.example.test matches subdomains");
+        insecureHostsField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        insecureHostsField.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        connectTimeoutSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_CONNECT_TIMEOUT_SECONDS, 1, 600, 1));
+        requestTimeoutSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_REQUEST_TIMEOUT_SECONDS, 1, 3600, 1));
+        requestTimeoutSpinner.setToolTipText("Default for calls without a timeout of their own");
+        clientThreadsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 256, 1));
+        clientThreadsSpinner.setToolTipText("Threads handling responses per HTTP client; 0 uses virtual threads");
+        maxRequestsPerHostSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_MAX_REQUESTS_PER_HOST, 1, 1024, 1));
+        maxRequestsPerHostSpinner.setToolTipText("Requests to the same host beyond this limit wait for one to finish");
+        responsePreviewSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_RESPONSE_PREVIEW_KB, 1, 65536, 64));
+        responsePreviewSpinner.setToolTipText("Response bytes kept in memory and shown; the rest is written to a temporary file");
+        computedVariableTtlSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_COMPUTED_VARIABLE_TTL_SECONDS, 0, 86400, 10));
+        computedVariableTtlSpinner.setToolTipText("How long values of $file: and $cmd: variables are reused; 0 reads them for every request");
+
+        computedVariableCommandsCheckBox = new JCheckBox("Run commands of $cmd: variables");
+        computedVariableCommandsCheckBox.setToolTipText("Environments may be shared through the data folder; only enable this if you trust everyone who can write to it. Applies to this machine only");
+        computedVariableCommandsCheckBox.setOpaque(false);
+        computedVariableCommandsCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        panel.add(versionLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(httpVersionComboBox);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(engineLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(httpEngineComboBox);
+        panel.add(preconnectCheckBox);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(proxyLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(proxyField);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(insecureHostsLabel);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(insecureHostsField);
+        panel.add(Box.createVerticalStrut(6));
+        panel.add(createSpinnerRow("Connect Timeout (s):", connectTimeoutSpinner));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(createSpinnerRow("Request Timeout (s):", requestTimeoutSpinner));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(createSpinnerRow("Client Threads:", clientThreadsSpinner));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(createSpinnerRow("Max Requests Per Host:", maxRequestsPerHostSpinner));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(createSpinnerRow("Response Preview (KB):", responsePreviewSpinner));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(createSpinnerRow("Computed Variable Cache (s):", computedVariableTtlSpinner));
+        panel.add(computedVariableCommandsCheckBox);
 
         return panel;
     }
 
+    private JPanel createSpinnerRow(String text, JSpinner spinner) {
+        JPanel row = new JPanel(new BorderLayout(8, 0));
+        row.setMaximumSize(new Dimension(Integer.MAX_VALUE, 28));
+        row.setBackground(UIManager.getColor("Panel.background"));
+        row.setAlignmentX(Component.LEFT_ALIGNMENT);
+        spinner.setPreferredSize(new Dimension(80, 28));
+        row.add(new JLabel(text), BorderLayout.CENTER);
+        row.add(spinner, BorderLayout.EAST);
+        return row;
+    }
+
     private JLabel createInfoLabel() {
         JLabel infoLabel = new JLabel("<html><i>Default: " + getDefaultStorageLocation() + "</i></html>");
         infoLabel.setFont(infoLabel.getFont().deriveFont(Font.PLAIN, 10f));
@@ -172,20 +368,7 @@ public class SettingsEditorPanel extends JPanel {
     }
 
     private String getDefaultStorageLocation() {
-        String userHome = System.getProperty("user.home");
-        String os = System.getProperty("os.name").toLowerCase();
-
-        if (os.contains("win")) {
-            String appData = System.getenv("APPDATA");
-            if (appData != null) {
-                return appData + File.separator + "YAPMC";
-            }
-            return userHome + File.separator + "AppData" + File.separator + "Roaming" + File.separator + "YAPMC";
-        } else if (os.contains("mac")) {
-            return userHome + File.separator + "Library" + File.separator + "Application Support" + File.separator + "YAPMC";
-        } else {
-            return userHome + File.separator + ".yapmc";
-        }
+        return DataDirectory.getDefault().toString();
     }
 
     private void browseForDirectory() {
@@ -215,6 +398,24 @@ public class SettingsEditorPanel extends JPanel {
 
         String savedLocation = prefs.get(STORAGE_LOCATION_KEY, "");
         storageLocationField.setText(savedLocation);
+
+        journalCheckBox.setSelected(isJournalEnabled());
+        shardedCheckBox.setSelected(isShardedStorageEnabled());
+        formatComboBox.setSelectedItem(JsonStoreCodec.Format.fromName(getStorageFormat()));
+        backendComboBox.setSelectedItem(StorageBackends.Kind.fromName(getStorageBackend()));
+
+        httpVersionComboBox.setSelectedItem(HttpClient.Version.valueOf(getHttpVersion()));
+        httpEngineComboBox.setSelectedItem(ApiCallService.Engine.fromName(getHttpEngine()));
+        preconnectCheckBox.setSelected(isPreconnectEnabled());
+        proxyField.setText(getHttpProxy());
+        insecureHostsField.setText(getInsecureTlsHosts());
+        connectTimeoutSpinner.setValue(getConnectTimeoutSeconds());
+        requestTimeoutSpinner.setValue(getRequestTimeoutSeconds());
+        clientThreadsSpinner.setValue(getHttpClientThreads());
+        maxRequestsPerHostSpinner.setValue(getMaxRequestsPerHost());
+        responsePreviewSpinner.setValue(prefs.getInt(RESPONSE_PREVIEW_KEY, DEFAULT_RESPONSE_PREVIEW_KB));
+        computedVariableTtlSpinner.setValue(getComputedVariableTtlSeconds());
+        computedVariableCommandsCheckBox.setSelected(isComputedVariableCommandsEnabled());
     }
 
     private void saveSettings() {
@@ -244,6 +445,37 @@ public class SettingsEditorPanel extends JPanel {
 
         String storageLocation = storageLocationField.getText().trim();
         prefs.put(STORAGE_LOCATION_KEY, storageLocation);
+        prefs.putBoolean(JOURNAL_ENABLED_KEY, journalCheckBox.isSelected());
+        prefs.putBoolean(SHARDED_STORAGE_KEY, shardedCheckBox.isSelected());
+        StorageBackends.Kind selectedBackend = (StorageBackends.Kind) backendComboBox.getSelectedItem();
+        if (selectedBackend != null) {
+            prefs.put(STORAGE_BACKEND_KEY, selectedBackend.name());
+        }
+        JsonStoreCodec.Format selectedFormat = (JsonStoreCodec.Format) formatComboBox.getSelectedItem();
+        if (selectedFormat != null) {
+            prefs.put(STORAGE_FORMAT_KEY, selectedFormat.name());
+        }
+
+        // Network settings apply to the next request; the registry creates a client per profile
+        HttpClient.Version selectedVersion = (HttpClient.Version) httpVersionComboBox.getSelectedItem();
+        if (selectedVersion != null) {
+            prefs.put(HTTP_VERSION_KEY, selectedVersion.name());
+        }
+        ApiCallService.Engine selectedEngine = (ApiCallService.Engine) httpEngineComboBox.getSelectedItem();
+        if (selectedEngine != null) {
+            prefs.put(HTTP_ENGINE_KEY, selectedEngine.name());
+        }
+        prefs.putBoolean(PRECONNECT_KEY, preconnectCheckBox.isSelected());
+        prefs.put(HTTP_PROXY_KEY, proxyField.getText().trim());
+        prefs.put(INSECURE_TLS_HOSTS_KEY, insecureHostsField.getText().trim());
+        prefs.putInt(CONNECT_TIMEOUT_KEY, (Integer) connectTimeoutSpinner.getValue());
+        prefs.putInt(REQUEST_TIMEOUT_KEY, (Integer) requestTimeoutSpinner.getValue());
+        prefs.putInt(HTTP_CLIENT_THREADS_KEY, (Integer) clientThreadsSpinner.getValue());
+        prefs.putInt(MAX_REQUESTS_PER_HOST_KEY, (Integer) maxRequestsPerHostSpinner.getValue());
+        prefs.putInt(RESPONSE_PREVIEW_KEY, (Integer) responsePreviewSpinner.getValue());
+        prefs.putInt(COMPUTED_VARIABLE_TTL_KEY, (Integer) computedVariableTtlSpinner.getValue());
+        prefs.putBoolean(COMPUTED_VARIABLE_COMMANDS_KEY, computedVariableCommandsCheckBox.isSelected());
+        ComputedVariables.getInstance().clear();
 
         if (!storageLocation.isEmpty()) {
             File storageDir = new File(storageLocation);
@@ -281,8 +513,40 @@ public class SettingsEditorPanel extends JPanel {
             }
 
             storageLocationField.setText("");
+            journalCheckBox.setSelected(false);
+            shardedCheckBox.setSelected(false);
+            formatComboBox.setSelectedItem(JsonStoreCodec.Format.PRETTY);
+            backendComboBox.setSelectedItem(StorageBackends.Kind.JSON_FILES);
+            httpVersionComboBox.setSelectedItem(HttpClient.Version.HTTP_2);
+            httpEngineComboBox.setSelectedItem(ApiCallService.Engine.JDK);
+            preconnectCheckBox.setSelected(false);
+            proxyField.setText("");
+            insecureHostsField.setText(TlsTrustPolicy.DEFAULT_INSECURE_HOSTS);
+            connectTimeoutSpinner.setValue(DEFAULT_CONNECT_TIMEOUT_SECONDS);
+            requestTimeoutSpinner.setValue(DEFAULT_REQUEST_TIMEOUT_SECONDS);
+            clientThreadsSpinner.setValue(0);
+            maxRequestsPerHostSpinner.setValue(DEFAULT_MAX_REQUESTS_PER_HOST);
+            responsePreviewSpinner.setValue(DEFAULT_RESPONSE_PREVIEW_KB);
+            computedVariableTtlSpinner.setValue(DEFAULT_COMPUTED_VARIABLE_TTL_SECONDS);
+            computedVariableCommandsCheckBox.setSelected(false);
             prefs.remove(THEME_KEY);
             prefs.remove(STORAGE_LOCATION_KEY);
+            prefs.remove(JOURNAL_ENABLED_KEY);
+            prefs.remove(SHARDED_STORAGE_KEY);
+            prefs.remove(STORAGE_FORMAT_KEY);
+            prefs.remove(STORAGE_BACKEND_KEY);
+            prefs.remove(HTTP_VERSION_KEY);
+            prefs.remove(HTTP_ENGINE_KEY);
+            prefs.remove(PRECONNECT_KEY);
+            prefs.remove(HTTP_PROXY_KEY);
+            prefs.remove(INSECURE_TLS_HOSTS_KEY);
+            prefs.remove(CONNECT_TIMEOUT_KEY);
+            prefs.remove(REQUEST_TIMEOUT_KEY);
+            prefs.remove(HTTP_CLIENT_THREADS_KEY);
+            prefs.remove(MAX_REQUESTS_PER_HOST_KEY);
+            prefs.remove(RESPONSE_PREVIEW_KEY);
+            prefs.remove(COMPUTED_VARIABLE_TTL_KEY);
+            prefs.remove(COMPUTED_VARIABLE_COMMANDS_KEY);
 
             JOptionPane.showMessageDialog(this,
                 "Settings reset to defaults.",
@@ -295,6 +559,122 @@ public class SettingsEditorPanel extends JPanel {
         return prefs.get(STORAGE_LOCATION_KEY, "");
     }
 
+    /**
+     * Whether saved calls and environments are persisted through an append-only journal
+     */
+    public static boolean isJournalEnabled() {
+        return prefs.getBoolean(JOURNAL_ENABLED_KEY, false);
+    }
+
+    /**
+     * Whether saved calls are stored one file per call with a summary index.
+     * Saved calls are not journaled in this layout, since each save only rewrites one small file.
+     */
+    public static boolean isShardedStorageEnabled() {
+        return prefs.getBoolean(SHARDED_STORAGE_KEY, false);
+    }
+
+    /**
+     * Get the name of the selected storage backend (see StorageBackends.Kind)
+     */
+    public static String getStorageBackend() {
+        return prefs.get(STORAGE_BACKEND_KEY, StorageBackends.Kind.JSON_FILES.name());
+    }
+
+    /**
+     * Get the name of the on-disk format for data files (see JsonStoreCodec.Format)
+     */
+    public static String getStorageFormat() {
+        return prefs.get(STORAGE_FORMAT_KEY, JsonStoreCodec.Format.PRETTY.name());
+    }
+
+    /**
+     * Get the name of the preferred HTTP version (see HttpClient.Version)
+     */
+    public static String getHttpVersion() {
+        String version = prefs.get(HTTP_VERSION_KEY, HttpClient.Version.HTTP_2.name());
+        try {
+            return HttpClient.Version.valueOf(version).name();
+        } catch (IllegalArgumentException e) {
+            return HttpClient.Version.HTTP_2.name();
+        }
+    }
+
+    /**
+     * Get the name of the engine requests are sent with (see ApiCallService.Engine)
+     */
+    public static String getHttpEngine() {
+        return prefs.get(HTTP_ENGINE_KEY, ApiCallService.Engine.JDK.name());
+    }
+
+    /**
+     * Check whether connections are opened ahead of time when a call or environment is selected
+     */
+    public static boolean isPreconnectEnabled() {
+        return prefs.getBoolean(PRECONNECT_KEY, false);
+    }
+
+    /**
+     * Get the proxy as host:port, or an empty string to use the system proxy settings
+     */
+    public static String getHttpProxy() {
+        return prefs.get(HTTP_PROXY_KEY, "");
+    }
+
+    /**
+     * Get the hosts whose TLS certificates are not verified (see TlsTrustPolicy)
+     */
+    public static String getInsecureTlsHosts() {
+        return prefs.get(INSECURE_TLS_HOSTS_KEY, TlsTrustPolicy.DEFAULT_INSECURE_HOSTS);
+    }
+
+    public static int getConnectTimeoutSeconds() {
+        return prefs.getInt(CONNECT_TIMEOUT_KEY, DEFAULT_CONNECT_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Get the default request timeout, for calls that do not set their own
+     */
+    public static int getRequestTimeoutSeconds() {
+        return prefs.getInt(REQUEST_TIMEOUT_KEY, DEFAULT_REQUEST_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Get the number of threads per HTTP client, or 0 for virtual threads
+     */
+    public static int getHttpClientThreads() {
+        return prefs.getInt(HTTP_CLIENT_THREADS_KEY, 0);
+    }
+
+    /**
+     * Get the number of requests sent to one host at the same time
+     */
+    public static int getMaxRequestsPerHost() {
+        return Math.max(1, prefs.getInt(MAX_REQUESTS_PER_HOST_KEY, DEFAULT_MAX_REQUESTS_PER_HOST));
+    }
+
+    /**
+     * Get the number of response bytes kept in memory; larger bodies spill to a temporary file
+     */
+    public static int getResponsePreviewBytes() {
+        return Math.max(1, prefs.getInt(RESPONSE_PREVIEW_KEY, DEFAULT_RESPONSE_PREVIEW_KB)) * 1024;
+    }
+
+    /**
+     * Get how long the values of $file: and $cmd: variables are cached, or 0 to not cache them
+     */
+    public static int getComputedVariableTtlSeconds() {
+        return Math.max(0, prefs.getInt(COMPUTED_VARIABLE_TTL_KEY, DEFAULT_COMPUTED_VARIABLE_TTL_SECONDS));
+    }
+
+    /**
+     * Check whether $cmd: variables may run their commands. Off by default, since environments
+     * can come from a shared data folder; the setting itself is kept on this machine only.
+     */
+    public static boolean isComputedVariableCommandsEnabled() {
+        return prefs.getBoolean(COMPUTED_VARIABLE_COMMANDS_KEY, false);
+    }
+
     /**
      * Load and apply the saved theme at application startup
      */
@@ -5,7 +5,6 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import com.overzealouspelican.model.ApplicationState;
 import com.overzealouspelican.model.Environment;
-import com.overzealouspelican.service.EnvironmentService;
 
 /**
  * IntelliJ-style sidebar panel with collapsible sections for Environments and Settings.
@@ -13,14 +12,12 @@ import com.overzealouspelican.service.EnvironmentService;
 public class SidebarPanel extends JPanel {
 
     private final ApplicationState appState;
-    private final EnvironmentService environmentService;
     private JComboBox<String> environmentDropdown;
     private EnvironmentEditorPanel environmentEditor;
     private SettingsEditorPanel settingsEditor;
 
     public SidebarPanel() {
         this.appState = ApplicationState.getInstance();
-        this.environmentService = new EnvironmentService();
         initializePanel();
     }
 
@@ -3,6 +3,7 @@ package com.overzealouspelican.panel;
 import javax.swing.*;
 import java.awt.*;
 import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.service.TimedHttpEngine;
 
 /**
  * Modern IntelliJ-style status bar.
@@ -11,6 +12,7 @@ public class StatusPanel extends JPanel {
 
     private JLabel statusLabel;
     private JLabel iconLabel;
+    private JLabel poolLabel;
     private ApplicationState appState;
 
     public StatusPanel() {
@@ -40,6 +42,13 @@ public class StatusPanel extends JPanel {
 
         add(leftPanel, BorderLayout.WEST);
 
+        // Keep-alive pool of the timed engine, shown once it has been used
+        poolLabel = new JLabel();
+        poolLabel.setFont(poolLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        poolLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        poolLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 8));
+        add(poolLabel, BorderLayout.EAST);
+
         // Add top border
         setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0,
             UIManager.getColor("Component.borderColor")));
@@ -54,6 +63,16 @@ public class StatusPanel extends JPanel {
         appState.addPropertyChangeListener(ApplicationState.PROPERTY_STATUS_ICON, evt -> {
             iconLabel.setText((String) evt.getNewValue());
         });
+
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_CONNECTION_POOL, evt -> {
+            TimedHttpEngine.PoolStats stats = (TimedHttpEngine.PoolStats) evt.getNewValue();
+            poolLabel.setText(stats.toString());
+            poolLabel.setToolTipText("<html>Requests on a pooled connection: " + stats.getHits()
+                + "<br>Requests that opened a new connection: " + stats.getMisses()
+                + "<br>Connections opened ahead by pre-connect: " + stats.getPrewarmed()
+                + ", used by a request: " + stats.getPrewarmedUsed()
+                + "<br>Idle connections: " + stats.getIdleConnections() + "</html>");
+        });
     }
 
     public void setStatus(String status, String emoji) {
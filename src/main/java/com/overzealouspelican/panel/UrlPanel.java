@@ -7,12 +7,14 @@ import java.awt.datatransfer.*;
 import java.awt.dnd.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.IOException;
 import java.util.*;
 import java.util.List;
 import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallChangeSet;
+import com.overzealouspelican.model.ApiCallSummary;
 import com.overzealouspelican.model.ApplicationState;
-import com.overzealouspelican.service.ApiCallService;
+import com.overzealouspelican.service.ApiCallRepository;
+import com.overzealouspelican.frame.CollectionRunnerFrame;
 import com.overzealouspelican.frame.ImportFrame;
 
 /**
@@ -20,16 +22,28 @@ import com.overzealouspelican.frame.ImportFrame;
  */
 public class UrlPanel extends JPanel {
 
-    private ApiCallService apiCallService;
+    private ApiCallRepository apiCallRepository;
     private ApplicationState appState;
     private JPanel listPanel;
     private CallConfigurationPanel configPanel;
     private Map<String, Boolean> groupExpandedState;
 
+    // Rows currently in listPanel, so external changes update only the affected rows
+    private Map<String, JPanel> itemPanels; // Call name -> row (absent while its group is collapsed)
+    private Map<String, String> itemGroups; // Call name -> group, null when ungrouped
+    private Map<String, JPanel> groupHeaders;
+    private Map<String, JLabel> groupLabels;
+    private Map<String, Integer> groupSizes;
+
     public UrlPanel() {
-        this.apiCallService = new ApiCallService();
+        this.apiCallRepository = ApiCallRepository.getInstance();
         this.appState = ApplicationState.getInstance();
         this.groupExpandedState = new HashMap<>();
+        this.itemPanels = new HashMap<>();
+        this.itemGroups = new HashMap<>();
+        this.groupHeaders = new HashMap<>();
+        this.groupLabels = new HashMap<>();
+        this.groupSizes = new HashMap<>();
         initializePanel();
         setupListeners();
     }
@@ -80,17 +94,26 @@ public class UrlPanel extends JPanel {
                 loadApiCallsList();
             }
         });
+
+        appState.addPropertyChangeListener(ApplicationState.PROPERTY_API_CALLS_CHANGED, evt ->
+            applyApiCallChanges((ApiCallChangeSet) evt.getNewValue()));
     }
 
     private void loadApiCallsList() {
         listPanel.removeAll();
-        Map<String, ApiCall> apiCalls = apiCallService.loadApiCalls();
+        itemPanels.clear();
+        itemGroups.clear();
+        groupHeaders.clear();
+        groupLabels.clear();
+        groupSizes.clear();
+        // Render from the summaries only; headers and body are loaded when a call is opened
+        Map<String, ApiCallSummary> summaries = apiCallRepository.findAllSummaries();
 
         // Organize API calls by group
         Map<String, List<String>> groups = new LinkedHashMap<>();
         List<String> ungrouped = new ArrayList<>();
 
-        for (Map.Entry<String, ApiCall> entry : apiCalls.entrySet()) {
+        for (Map.Entry<String, ApiCallSummary> entry : summaries.entrySet()) {
             String name = entry.getKey();
             String groupName = entry.getValue().getGroupName();
 
@@ -105,26 +128,134 @@ public class UrlPanel extends JPanel {
         for (Map.Entry<String, List<String>> group : groups.entrySet()) {
             String groupName = group.getKey();
             List<String> members = group.getValue();
-            listPanel.add(createGroupHeader(groupName, members));
+            JPanel headerPanel = createGroupHeader(groupName, members.size());
+            listPanel.add(headerPanel);
+            groupHeaders.put(groupName, headerPanel);
+            groupSizes.put(groupName, members.size());
 
             boolean expanded = groupExpandedState.getOrDefault(groupName, true);
-            if (expanded) {
-                for (String memberName : members) {
-                    listPanel.add(createApiCallItem(memberName, groupName));
+            for (String memberName : members) {
+                itemGroups.put(memberName, groupName);
+                if (expanded) {
+                    JPanel itemPanel = createApiCallItem(summaries.get(memberName), groupName);
+                    listPanel.add(itemPanel);
+                    itemPanels.put(memberName, itemPanel);
                 }
             }
         }
 
         // Add ungrouped items
         for (String name : ungrouped) {
-            listPanel.add(createApiCallItem(name, null));
+            JPanel itemPanel = createApiCallItem(summaries.get(name), null);
+            listPanel.add(itemPanel);
+            itemPanels.put(name, itemPanel);
+            itemGroups.put(name, null);
         }
 
         listPanel.revalidate();
         listPanel.repaint();
     }
 
-    private JPanel createGroupHeader(String groupName, List<String> members) {
+    /**
+     * Update the rows of calls that were added, changed or removed outside the application,
+     * keeping the rest of the list (and its scroll position) as it is
+     */
+    private void applyApiCallChanges(ApiCallChangeSet changes) {
+        for (String name : changes.getRemoved()) {
+            removeApiCallRow(name);
+        }
+        for (ApiCallSummary summary : changes.getChanged()) {
+            String name = summary.getName();
+            JPanel oldPanel = itemPanels.get(name);
+            String groupName = groupNameOf(summary);
+            if (itemGroups.containsKey(name) && Objects.equals(itemGroups.get(name), groupName)) {
+                // Same group: replace the row in place, if it is shown at all
+                if (oldPanel != null) {
+                    int index = listPanel.getComponentZOrder(oldPanel);
+                    JPanel itemPanel = createApiCallItem(summary, groupName);
+                    listPanel.remove(index);
+                    listPanel.add(itemPanel, index);
+                    itemPanels.put(name, itemPanel);
+                }
+            } else {
+                removeApiCallRow(name);
+                addApiCallRow(summary);
+            }
+        }
+        for (ApiCallSummary summary : changes.getAdded()) {
+            removeApiCallRow(summary.getName());
+            addApiCallRow(summary);
+        }
+
+        listPanel.revalidate();
+        listPanel.repaint();
+        appState.setStatus("Reloaded " + changes.size() + " saved call(s) changed outside the application", "🔄");
+    }
+
+    private void removeApiCallRow(String name) {
+        if (!itemGroups.containsKey(name)) {
+            return;
+        }
+        String groupName = itemGroups.remove(name);
+        JPanel itemPanel = itemPanels.remove(name);
+        if (itemPanel != null) {
+            listPanel.remove(itemPanel);
+        }
+        if (groupName != null) {
+            int size = groupSizes.merge(groupName, -1, Integer::sum);
+            if (size == 0) {
+                listPanel.remove(groupHeaders.remove(groupName));
+                groupLabels.remove(groupName);
+                groupSizes.remove(groupName);
+            } else {
+                updateGroupLabel(groupName);
+            }
+        }
+    }
+
+    /**
+     * Add a row at the end of its group, or at the end of the list when ungrouped
+     */
+    private void addApiCallRow(ApiCallSummary summary) {
+        String name = summary.getName();
+        String groupName = groupNameOf(summary);
+        JPanel itemPanel = createApiCallItem(summary, groupName);
+
+        if (groupName == null) {
+            listPanel.add(itemPanel);
+            itemPanels.put(name, itemPanel);
+            itemGroups.put(name, null);
+            return;
+        }
+
+        JPanel headerPanel = groupHeaders.get(groupName);
+        if (headerPanel == null) {
+            // New groups go after the existing ones, before the ungrouped calls
+            int ungroupedCount = Collections.frequency(itemGroups.values(), null);
+            headerPanel = createGroupHeader(groupName, 0);
+            listPanel.add(headerPanel, listPanel.getComponentCount() - ungroupedCount);
+            groupHeaders.put(groupName, headerPanel);
+        }
+        int size = groupSizes.merge(groupName, 1, Integer::sum);
+        itemGroups.put(name, groupName);
+        updateGroupLabel(groupName);
+
+        if (groupExpandedState.getOrDefault(groupName, true)) {
+            listPanel.add(itemPanel, listPanel.getComponentZOrder(headerPanel) + size);
+            itemPanels.put(name, itemPanel);
+        }
+    }
+
+    private void updateGroupLabel(String groupName) {
+        groupLabels.get(groupName).setText(groupName + " (" + groupSizes.get(groupName) + ")");
+    }
+
+    private static String groupNameOf(ApiCallSummary summary) {
+        String groupName = summary.getGroupName();
+        return groupName != null && !groupName.trim().isEmpty() ? groupName : null;
+    }
+
+    private JPanel createGroupHeader(String groupName, int memberCount) {
         JPanel headerPanel = new JPanel(new BorderLayout(6, 0));
         headerPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 32));
         headerPanel.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
@@ -139,9 +270,20 @@ public class UrlPanel extends JPanel {
         headerPanel.add(iconLabel, BorderLayout.WEST);
 
         // Group name
-        JLabel nameLabel = new JLabel(groupName + " (" + members.size() + ")");
+        JLabel nameLabel = new JLabel(groupName + " (" + memberCount + ")");
         nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD, 12f));
         headerPanel.add(nameLabel, BorderLayout.CENTER);
+        groupLabels.put(groupName, nameLabel);
+
+        // Run button
+        JButton runButton = new JButton("▶");
+        runButton.setPreferredSize(new Dimension(28, 24));
+        runButton.setToolTipText("Run all calls in this group");
+        runButton.setFocusPainted(false);
+        runButton.setFont(runButton.getFont().deriveFont(10f));
+        runButton.setMargin(new Insets(0, 0, 0, 0));
+        runButton.addActionListener(e -> CollectionRunnerFrame.getInstance().runGroup(groupName));
+        headerPanel.add(runButton, BorderLayout.EAST);
 
         // Click to expand/collapse
         headerPanel.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -195,7 +337,8 @@ public class UrlPanel extends JPanel {
         return headerPanel;
     }
 
-    private JPanel createApiCallItem(String name, String groupName) {
+    private JPanel createApiCallItem(ApiCallSummary summary, String groupName) {
+        String name = summary.getName();
         JPanel itemPanel = new JPanel(new BorderLayout(6, 0));
         itemPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 32));
         int leftPadding = groupName != null ? 24 : 8;
@@ -207,6 +350,7 @@ public class UrlPanel extends JPanel {
         JLabel nameLabel = new JLabel(name);
         nameLabel.setFont(nameLabel.getFont().deriveFont(Font.PLAIN, 12f));
         nameLabel.setBorder(BorderFactory.createEmptyBorder(6, 4, 6, 4));
+        nameLabel.setToolTipText(summary.getHttpMethod() + " " + summary.getUrl());
         itemPanel.add(nameLabel, BorderLayout.CENTER);
 
         // Delete button
@@ -284,9 +428,8 @@ public class UrlPanel extends JPanel {
 
     private void handleDrop(String draggedName, String targetName) {
         try {
-            Map<String, ApiCall> apiCalls = apiCallService.loadApiCalls();
-            ApiCall draggedCall = apiCalls.get(draggedName);
-            ApiCall targetCall = apiCalls.get(targetName);
+            ApiCallSummary draggedCall = apiCallRepository.findSummary(draggedName);
+            ApiCallSummary targetCall = apiCallRepository.findSummary(targetName);
 
             if (draggedCall == null || targetCall == null) {
                 return;
@@ -337,13 +480,8 @@ public class UrlPanel extends JPanel {
         }
     }
 
-    private void addApiCallToGroup(String apiCallName, String groupName) throws IOException {
-        Map<String, ApiCall> apiCalls = apiCallService.loadApiCalls();
-        ApiCall apiCall = apiCalls.get(apiCallName);
-
-        if (apiCall != null) {
-            apiCall.setGroupName(groupName);
-            apiCallService.saveApiCall(apiCall);
+    private void addApiCallToGroup(String apiCallName, String groupName) {
+        if (apiCallRepository.moveToGroup(apiCallName, groupName)) {
             appState.setStatusSuccess("Added '" + apiCallName + "' to group '" + groupName + "'");
         }
     }
@@ -351,7 +489,7 @@ public class UrlPanel extends JPanel {
     private void loadApiCall(String name) {
         if (name == null || configPanel == null) return;
 
-        ApiCall apiCall = apiCallService.loadApiCall(name);
+        ApiCall apiCall = apiCallRepository.find(name);
         if (apiCall != null) {
             configPanel.loadApiCall(apiCall);
             appState.setStatus("Loaded: " + name, "📋");
@@ -369,7 +507,7 @@ public class UrlPanel extends JPanel {
 
         if (result == JOptionPane.YES_OPTION) {
             try {
-                apiCallService.deleteApiCall(name);
+                apiCallRepository.delete(name);
                 appState.setStatusSuccess("Deleted: " + name);
                 loadApiCallsList();
             } catch (Exception e) {
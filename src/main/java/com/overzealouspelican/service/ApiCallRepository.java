@@ -0,0 +1,412 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallChangeSet;
+import com.overzealouspelican.model.ApiCallSummary;
+import com.overzealouspelican.model.ApplicationState;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared in-memory repository of saved API calls.
+ * Summaries of every call are loaded once and listings are served from memory; a call's
+ * headers and body are loaded from the StorageBackend the first time it is opened and then
+ * kept. Mutations update memory immediately and are collected into a StorageBatch that the
+ * PersistenceExecutor writes behind to the backend, so callers on the EDT never wait for disk I/O.
+ * The VariableIndex is told about every change.
+ * Uses the Singleton pattern so all panels see the same state.
+ */
+public class ApiCallRepository {
+
+    private static final String PERSISTENCE_KEY = "api-calls";
+    private static final String PERSISTENCE_DESCRIPTION = "Saved calls written to disk";
+
+    private static ApiCallRepository instance;
+
+    private final StorageBackend backend;
+    private final Map<String, ApiCallSummary> summaries;
+    private final Map<String, ApiCall> apiCalls; // The calls loaded or saved so far
+    private final ReadWriteLock lock;
+    private final PersistenceExecutor persistenceExecutor;
+    private StorageBatch pendingWrites; // Guarded by the write lock
+
+    private ApiCallRepository(StorageBackend backend) {
+        this.backend = backend;
+        this.lock = new ReentrantReadWriteLock();
+        this.persistenceExecutor = PersistenceExecutor.getInstance();
+        this.summaries = new LinkedHashMap<>();
+        this.apiCalls = new LinkedHashMap<>();
+        this.pendingWrites = new StorageBatch();
+
+        try {
+            summaries.putAll(backend.loadCallSummaries());
+        } catch (IOException e) {
+            System.err.println("Failed to load API calls: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the singleton instance of ApiCallRepository, loading the saved calls on first use
+     */
+    public static synchronized ApiCallRepository getInstance() {
+        if (instance == null) {
+            instance = new ApiCallRepository(StorageBackends.getShared());
+        }
+        return instance;
+    }
+
+    /**
+     * Get summaries of all saved API calls, in storage order.
+     * This never loads headers or bodies and is what listings should use.
+     */
+    public Map<String, ApiCallSummary> findAllSummaries() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashMap<>(summaries);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the summary of a specific API call, or null if it does not exist
+     */
+    public ApiCallSummary findSummary(String name) {
+        lock.readLock().lock();
+        try {
+            return summaries.get(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a copy of all saved API calls, in storage order.
+     * Calls that have not been opened yet are loaded from the StorageBackend, one at a time.
+     */
+    public Map<String, ApiCall> findAll() {
+        Map<String, ApiCall> copy = new LinkedHashMap<>();
+        for (String name : findAllSummaries().keySet()) {
+            ApiCall apiCall = find(name);
+            if (apiCall != null) {
+                copy.put(name, apiCall);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Get a copy of a specific API call by name, or null if it does not exist.
+     * The call is loaded from the backend the first time it is requested.
+     */
+    public ApiCall find(String name) {
+        lock.readLock().lock();
+        try {
+            ApiCall apiCall = apiCalls.get(name);
+            if (apiCall != null) {
+                return new ApiCall(apiCall);
+            }
+            if (!summaries.containsKey(name)) {
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ApiCall loaded;
+        try {
+            loaded = backend.loadCall(name);
+        } catch (IOException e) {
+            System.err.println("Failed to load API call '" + name + "': " + e.getMessage());
+            return null;
+        }
+        if (loaded == null) {
+            return null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Another thread may have saved or deleted the call while it was being read
+            if (!summaries.containsKey(name)) {
+                return null;
+            }
+            ApiCall cached = apiCalls.putIfAbsent(name, loaded);
+            return new ApiCall(cached != null ? cached : loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get copies of all calls in a group, in storage order; a null group name selects
+     * the ungrouped calls. Calls not opened yet are loaded with one range scan of the group.
+     */
+    public Map<String, ApiCall> findAllInGroup(String groupName) {
+        Map<String, ApiCall> result = new LinkedHashMap<>();
+        boolean complete = true;
+        lock.readLock().lock();
+        try {
+            for (ApiCallSummary summary : summaries.values()) {
+                if (summary.isInGroup(groupName)) {
+                    ApiCall apiCall = apiCalls.get(summary.getName());
+                    result.put(summary.getName(), apiCall != null ? new ApiCall(apiCall) : null);
+                    complete &= apiCall != null;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (complete) {
+            return result;
+        }
+
+        Map<String, ApiCall> loaded;
+        try {
+            loaded = backend.loadCallsInGroup(groupName);
+        } catch (IOException e) {
+            System.err.println("Failed to load group '" + groupName + "': " + e.getMessage());
+            loaded = new LinkedHashMap<>();
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, ApiCall> entry : result.entrySet()) {
+                if (entry.getValue() == null) {
+                    ApiCall apiCall = loaded.get(entry.getKey());
+                    if (apiCall != null && summaries.containsKey(entry.getKey())) {
+                        ApiCall cached = apiCalls.putIfAbsent(entry.getKey(), apiCall);
+                        entry.setValue(new ApiCall(cached != null ? cached : apiCall));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        result.values().removeIf(java.util.Objects::isNull);
+        return result;
+    }
+
+    /**
+     * Check if an API call exists
+     */
+    public boolean exists(String name) {
+        lock.readLock().lock();
+        try {
+            return summaries.containsKey(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Save (insert or replace) an API call
+     */
+    public void save(ApiCall apiCall) {
+        ApiCall stored = new ApiCall(apiCall);
+        stored.setModifiedAt(System.currentTimeMillis());
+        lock.writeLock().lock();
+        try {
+            ApiCallSummary current = summaries.get(stored.getName());
+            long version = current != null ? current.getVersion() : 0;
+            stored.setVersion(version + 1);
+            apiCalls.put(stored.getName(), stored);
+            summaries.put(stored.getName(), ApiCallSummary.of(stored));
+            pendingWrites.putCall(stored, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleWrite();
+        VariableIndex.getInstance().update(stored);
+    }
+
+    /**
+     * Delete an API call
+     */
+    public void delete(String name) {
+        lock.writeLock().lock();
+        try {
+            apiCalls.remove(name);
+            ApiCallSummary removed = summaries.remove(name);
+            if (removed == null) {
+                return;
+            }
+            pendingWrites.deleteCall(name, removed.getVersion());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleWrite();
+        VariableIndex.getInstance().remove(name);
+    }
+
+    /**
+     * Move an API call into a group. Returns false if the call does not exist.
+     */
+    public boolean moveToGroup(String name, String groupName) {
+        // Make sure the full call is in memory
+        if (find(name) == null) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            ApiCall apiCall = apiCalls.get(name);
+            if (apiCall == null) {
+                return false;
+            }
+            // Replace rather than mutate so batches being written stay consistent
+            ApiCall moved = withGroup(apiCall, groupName);
+            moved.setModifiedAt(System.currentTimeMillis());
+            moved.setVersion(apiCall.getVersion() + 1);
+            apiCalls.put(name, moved);
+            summaries.put(name, ApiCallSummary.of(moved));
+            pendingWrites.putCall(moved, apiCall.getVersion());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleWrite();
+        return true;
+    }
+
+    /**
+     * Apply changes made to the stored calls outside this process, after the backend has
+     * been reloaded. Calls with local changes that have not been written yet keep their
+     * local version. Must run on the persistence thread, so that no batch is being written
+     * meanwhile. The differences are published as an ApiCallChangeSet through ApplicationState.
+     */
+    public void applyExternalChanges() throws IOException {
+        Map<String, ApiCallSummary> stored = backend.loadCallSummaries();
+
+        // Load the stored version of every opened call, to notice edits of headers and body
+        List<String> openedNames;
+        lock.readLock().lock();
+        try {
+            openedNames = new ArrayList<>(apiCalls.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<String, ApiCall> storedOpened = new HashMap<>();
+        for (String name : openedNames) {
+            if (stored.containsKey(name)) {
+                storedOpened.put(name, backend.loadCall(name));
+            }
+        }
+
+        List<ApiCallSummary> added = new ArrayList<>();
+        List<ApiCallSummary> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (ApiCallSummary summary : stored.values()) {
+                String name = summary.getName();
+                if (pendingWrites.touchesCall(name)) {
+                    continue;
+                }
+                ApiCallSummary current = summaries.get(name);
+                if (current == null) {
+                    summaries.put(name, summary);
+                    added.add(summary);
+                    continue;
+                }
+                ApiCall opened = apiCalls.get(name);
+                boolean contentChanged = opened != null && storedOpened.containsKey(name)
+                    && !opened.equals(storedOpened.get(name));
+                if (!current.equals(summary) || contentChanged) {
+                    summaries.put(name, summary);
+                    apiCalls.remove(name); // Loaded again when next opened
+                    changed.add(summary);
+                }
+            }
+
+            Iterator<String> names = summaries.keySet().iterator();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!stored.containsKey(name) && !pendingWrites.touchesCall(name)) {
+                    names.remove();
+                    apiCalls.remove(name);
+                    removed.add(name);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        VariableIndex variableIndex = VariableIndex.getInstance();
+        added.forEach(summary -> variableIndex.invalidate(summary.getName()));
+        changed.forEach(summary -> variableIndex.invalidate(summary.getName()));
+        removed.forEach(variableIndex::remove);
+
+        ApiCallChangeSet changes = new ApiCallChangeSet(added, changed, removed);
+        if (!changes.isEmpty()) {
+            System.out.println("Applied saved call changes made outside the application: " + changes);
+            SwingUtilities.invokeLater(() -> ApplicationState.getInstance()
+                .firePropertyChange(ApplicationState.PROPERTY_API_CALLS_CHANGED, null, changes));
+        }
+    }
+
+    /**
+     * Get the location of the backing storage
+     */
+    public String getApiCallsFilePath() {
+        return backend.getLocation();
+    }
+
+    /**
+     * Schedule a write of the pending mutations. A burst of mutations within the
+     * debounce window is written as a single batch.
+     */
+    private void scheduleWrite() {
+        persistenceExecutor.schedule(PERSISTENCE_KEY, PERSISTENCE_DESCRIPTION, this::writePending);
+    }
+
+    private void writePending() throws IOException {
+        StorageBatch batch;
+        lock.writeLock().lock();
+        try {
+            batch = pendingWrites;
+            pendingWrites = new StorageBatch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<String> conflicts;
+        try {
+            conflicts = backend.write(batch);
+        } catch (IOException e) {
+            // Keep the mutations; PersistenceExecutor retries this write, which picks them up again
+            lock.writeLock().lock();
+            try {
+                pendingWrites = StorageBatch.merge(batch, pendingWrites);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        if (!conflicts.isEmpty()) {
+            // Show the other instance's versions, next to the conflict copies of ours
+            System.err.println("Saved calls changed by another instance meanwhile: " + conflicts);
+            applyExternalChanges();
+            SwingUtilities.invokeLater(() -> ApplicationState.getInstance().setStatusWarning(
+                "Changed by another instance meanwhile: " + String.join(", ", conflicts) + " - your version was kept as a conflict copy"));
+        }
+    }
+
+    private static ApiCall withGroup(ApiCall apiCall, String groupName) {
+        ApiCall moved = new ApiCall(apiCall);
+        moved.setGroupName(groupName);
+        return moved;
+    }
+}
@@ -1,440 +1,411 @@
 package com.overzealouspelican.service;
 
 import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.util.VariableTemplate;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
+
 import java.net.URI;
-import java.net.UnknownHostException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
- * Service for persisting API calls to JSON files on the local filesystem.
- * Follows Single Responsibility Principle - handles only API call persistence.
+ * Service for executing API calls over HTTP.
+ * Follows Single Responsibility Principle - saved calls are persisted by ApiCallRepository.
+ * Clients come from the shared HttpClientRegistry, so instances of this service are cheap.
+ * Requests are sent with the Java HttpClient, or with TimedHttpEngine when it is selected in
+ * Settings, which also reports where the time of each request went.
  */
 public class ApiCallService {
 
-    private static final String APP_DIR_NAME = ".yapmc";
-    private static final String API_CALLS_FILE = "api-calls.json";
-    private final Gson gson;
-    private final Path dataDirectory;
-    private final Path apiCallsFile;
-    private final HttpClient httpClient;
+    // Methods without side effects, whose identical requests in flight can share one response
+    private static final Set<String> SHARED_METHODS = Set.of("GET", "HEAD", "OPTIONS");
 
-    public ApiCallService() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.dataDirectory = getDataDirectory();
-        this.apiCallsFile = dataDirectory.resolve(API_CALLS_FILE);
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
-        ensureDataDirectoryExists();
-    }
+    private final Gson gson;
+    private final HttpClientRegistry clientRegistry;
+    private final TlsTrustPolicy tlsTrustPolicy;
+    private final InFlightRequests inFlightRequests;
+    private final TaskExecutor taskExecutor;
+    private final TemplateCache templateCache;
 
     /**
-     * Get the application data directory based on the OS
+     * Available engines for sending requests
      */
-    private Path getDataDirectory() {
-        // Check if custom storage location is configured
-        String customLocation = com.overzealouspelican.panel.SettingsEditorPanel.getStorageLocation();
-        if (customLocation != null && !customLocation.isEmpty()) {
-            return Paths.get(customLocation);
-        }
+    public enum Engine {
+        JDK("Java HttpClient"),
+        TIMED("Timed HTTP/1.1 (phase timings)");
 
-        // Fall back to default location
-        String userHome = System.getProperty("user.home");
-        String os = System.getProperty("os.name").toLowerCase();
+        private final String displayName;
 
-        if (os.contains("win")) {
-            String appData = System.getenv("APPDATA");
-            if (appData != null) {
-                return Paths.get(appData, "YAPMC");
-            }
-            return Paths.get(userHome, "AppData", "Roaming", "YAPMC");
-        } else if (os.contains("mac")) {
-            return Paths.get(userHome, "Library", "Application Support", "YAPMC");
-        } else {
-            return Paths.get(userHome, APP_DIR_NAME);
+        Engine(String displayName) {
+            this.displayName = displayName;
         }
-    }
 
-    /**
-     * Ensure the data directory exists
-     */
-    private void ensureDataDirectoryExists() {
-        try {
-            if (!Files.exists(dataDirectory)) {
-                Files.createDirectories(dataDirectory);
-                System.out.println("Created data directory: " + dataDirectory);
+        /**
+         * Parse a stored setting value, falling back to the Java HttpClient
+         */
+        public static Engine fromName(String name) {
+            for (Engine engine : values()) {
+                if (engine.name().equals(name)) {
+                    return engine;
+                }
             }
-        } catch (IOException e) {
-            System.err.println("Failed to create data directory: " + e.getMessage());
-            e.printStackTrace();
+            return JDK;
         }
-    }
 
-    /**
-     * Load all API calls from the JSON file
-     */
-    public Map<String, ApiCall> loadApiCalls() {
-        if (!Files.exists(apiCallsFile)) {
-            return new HashMap<>();
+        @Override
+        public String toString() {
+            return displayName;
         }
+    }
 
-        try (FileReader reader = new FileReader(apiCallsFile.toFile())) {
-            Type type = new TypeToken<Map<String, ApiCall>>(){}.getType();
-            Map<String, ApiCall> apiCalls = gson.fromJson(reader, type);
-            return apiCalls != null ? apiCalls : new HashMap<>();
-        } catch (IOException e) {
-            System.err.println("Failed to load API calls: " + e.getMessage());
-            e.printStackTrace();
-            return new HashMap<>();
-        }
+    public ApiCallService() {
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.clientRegistry = HttpClientRegistry.getInstance();
+        this.tlsTrustPolicy = TlsTrustPolicy.getInstance();
+        this.inFlightRequests = InFlightRequests.getInstance();
+        this.taskExecutor = TaskExecutor.getInstance();
+        this.templateCache = TemplateCache.getInstance();
     }
 
     /**
-     * Save all API calls to the JSON file
+     * Execute an API call with environment variable substitution, waiting for the result.
+     * The host overrides must come from the same environment snapshot as the variables.
      */
-    public void saveApiCalls(Map<String, ApiCall> apiCalls) throws IOException {
-        try (FileWriter writer = new FileWriter(apiCallsFile.toFile())) {
-            gson.toJson(apiCalls, writer);
-            System.out.println("Saved API calls to: " + apiCallsFile);
-        }
+    public HttpCallResult executeApiCall(ApiCall apiCall, Map<String, String> environmentVariables,
+                                         Map<String, String> hostOverrides) {
+        return executeApiCallAsync(apiCall, environmentVariables, hostOverrides).getResult().join();
     }
 
     /**
-     * Save a single API call
+     * Start an API call with environment variable substitution without blocking.
+     * The request is rendered on a virtual thread, since computed variables may read files or
+     * run commands. If an identical GET, HEAD or OPTIONS request is already in flight, it is
+     * joined instead of sending another one. The returned request can be cancelled; its result always
+     * completes normally, with an error result if the call failed or was cancelled.
+     * The host overrides must come from the same environment snapshot as the variables.
      */
-    public void saveApiCall(ApiCall apiCall) throws IOException {
-        Map<String, ApiCall> apiCalls = loadApiCalls();
-        apiCalls.put(apiCall.getName(), apiCall);
-        saveApiCalls(apiCalls);
+    public InFlightRequests.InFlightRequest executeApiCallAsync(ApiCall apiCall, Map<String, String> environmentVariables,
+                                                                Map<String, String> hostOverrides) {
+        return executeApiCallAsync(apiCall, environmentVariables, hostOverrides, true);
     }
 
     /**
-     * Load a specific API call by name
+     * Start an API call without blocking, as above; with joinInFlight false the request is
+     * always sent, even if an identical one is in flight, for callers that need every call
+     * they make to reach the server, such as collection runs
      */
-    public ApiCall loadApiCall(String name) {
-        Map<String, ApiCall> apiCalls = loadApiCalls();
-        return apiCalls.get(name);
+    public InFlightRequests.InFlightRequest executeApiCallAsync(ApiCall apiCall, Map<String, String> environmentVariables,
+                                                                Map<String, String> hostOverrides, boolean joinInFlight) {
+        return inFlightRequests.start(apiCall.getHttpMethod() + " " + apiCall.getUrl(),
+            () -> send(prepareRequest(apiCall, environmentVariables, true), hostOverrides, joinInFlight));
     }
 
     /**
-     * Delete an API call
+     * Send a rendered request, or join the identical one in flight if allowed
      */
-    public void deleteApiCall(String name) throws IOException {
-        Map<String, ApiCall> apiCalls = loadApiCalls();
-        apiCalls.remove(name);
-        saveApiCalls(apiCalls);
+    private InFlightRequests.InFlightRequest send(PreparedRequest prepared, Map<String, String> hostOverrides,
+                                                  boolean joinInFlight) {
+        HttpRequest request = prepared.request;
+        CompiledApiCall compiled = prepared.compiled;
+        boolean timed = useTimedEngine(HostResolver.findOverride(request.uri().getHost(), hostOverrides) != null);
+        HttpClient clientToUse = timed ? null : getClient(request.uri());
+        boolean insecureTls = tlsTrustPolicy.isInsecure(request.uri());
+        int previewBytes = com.overzealouspelican.panel.SettingsEditorPanel.getResponsePreviewBytes();
+
+        String description = request.method() + " " + request.uri();
+        return inFlightRequests.execute(joinInFlight ? prepared.key : null, description, () -> {
+            long startNanos = System.nanoTime();
+            // Blocks a virtual thread only; cancelling the exchange interrupts it, which aborts the send
+            CompletableFuture<HttpCallResult> exchange = taskExecutor.submit(request.uri().getHost(), () -> {
+                long sendNanos = System.nanoTime(); // Time spent waiting for a host permit is not counted
+                HttpCallResult callResult;
+                if (timed) {
+                    TimedHttpEngine.TimedResponse response = TimedHttpEngine.getInstance()
+                        .send(request, insecureTls, previewBytes, hostOverrides);
+                    callResult = new HttpCallResult(
+                        response.getStatusCode(),
+                        response.getBody(),
+                        response.getHeaders(),
+                        (System.nanoTime() - sendNanos) / 1_000_000,
+                        response.getTiming()
+                    );
+                } else {
+                    // Streamed with bounded memory; large bodies spill to a temporary file
+                    HttpResponse<ResponseBody> response = clientToUse.send(request, new SpillingBodyHandler(previewBytes));
+                    callResult = new HttpCallResult(
+                        response.statusCode(),
+                        response.body(),
+                        response.headers().map(),
+                        (System.nanoTime() - sendNanos) / 1_000_000
+                    );
+                }
+                // Read here rather than on the EDT, since a large body is streamed from disk
+                if (callResult.isSuccess() && compiled.hasExtractions()) {
+                    callResult.extractedVariables = compiled.extract(callResult);
+                }
+                return callResult;
+            });
+            CompletableFuture<HttpCallResult> result = exchange.handle((callResult, error) -> {
+                HttpCallResult finished = error != null ? HttpCallResult.failed(error) : callResult;
+                finished.rendered = prepared.rendered;
+                return finished;
+            });
+            return new InFlightRequests.Exchange(exchange, result, startNanos);
+        });
     }
 
     /**
-     * Check if an API call exists
+     * Build the request for an API call with environment variables substituted.
+     * The request is immutable and can be sent any number of times.
      */
-    public boolean apiCallExists(String name) {
-        Map<String, ApiCall> apiCalls = loadApiCalls();
-        return apiCalls.containsKey(name);
+    public HttpRequest buildRequest(ApiCall apiCall, Map<String, String> environmentVariables) {
+        return prepareRequest(apiCall, environmentVariables, true).request;
     }
 
     /**
-     * Get the path to the API calls file
+     * Get a source of requests for sending an API call repeatedly. If the call uses dynamic or
+     * computed variables, each request is rendered again from the compiled templates with
+     * fresh values; otherwise the request is built once and the same one is returned.
+     * Fails straight away, as buildRequest does, if the URL cannot be resolved. Renders on the
+     * calling thread, which must not be the EDT if the call may use computed variables.
      */
-    public String getApiCallsFilePath() {
-        return apiCallsFile.toString();
+    public java.util.function.Supplier<HttpRequest> getRequestSource(ApiCall apiCall, Map<String, String> environmentVariables) {
+        RequestVariables first = RequestVariables.of(environmentVariables);
+        PreparedRequest prepared = prepareRequest(apiCall, first, true);
+        if (!prepared.dynamic) {
+            return () -> prepared.request;
+        }
+        ApiCall template = new ApiCall(apiCall);
+        Map<String, String> environment = first.getEnvironment();
+        return () -> prepareRequest(template, new RequestVariables(environment), false).request;
     }
 
     /**
-     * Execute an API call with environment variable substitution
+     * Open a connection to the host of an API call in the background, so the first send does
+     * not pay for DNS, connect and TLS. Only the timed engine's pool can be filled ahead of a
+     * request; with the Java HttpClient the host name is resolved, which warms the JDK's
+     * address cache. Calls whose URL is not complete yet are ignored; failures are logged.
+     * Computed variables are never evaluated here, since this runs whenever a call is loaded:
+     * a URL that uses one, directly or through another variable, counts as not complete.
+     * The variables and host overrides should come from the same environment snapshot.
      */
-    public HttpCallResult executeApiCall(ApiCall apiCall, Map<String, String> environmentVariables) {
-        String originalDisableHostnameVerification = null;
-        boolean modifiedSystemProperty = false;
-
+    public CompletableFuture<Void> preconnect(ApiCall apiCall, Map<String, String> environmentVariables,
+                                              Map<String, String> hostOverrides) {
+        RequestVariables variables = RequestVariables.withoutComputed(environmentVariables);
+        VariableTemplate urlTemplate = VariableTemplate.compile(apiCall.getUrl());
+        java.util.List<String> unresolved = new java.util.ArrayList<>();
+        urlTemplate.collectUnresolved(variables, unresolved);
+        URI uri;
         try {
-            // Log environment variables for debugging
-            System.out.println("Environment variables available: " + environmentVariables);
-
-            // Substitute environment variables in URL
-            String resolvedUrl = substituteVariables(apiCall.getUrl(), environmentVariables);
-            System.out.println("Original URL: " + apiCall.getUrl());
-            System.out.println("Resolved URL: " + resolvedUrl);
-
-            // Check if URL still contains unresolved variables
-            if (resolvedUrl.contains("{{") && resolvedUrl.contains("}}")) {
-                Pattern pattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-                Matcher matcher = pattern.matcher(resolvedUrl);
-                StringBuilder missingVars = new StringBuilder();
-                while (matcher.find()) {
-                    if (missingVars.length() > 0) missingVars.append(", ");
-                    missingVars.append(matcher.group(1));
-                }
-                throw new IllegalArgumentException(
-                    "URL contains unresolved environment variables: " + missingVars.toString() +
-                    "\nAvailable variables: " + environmentVariables.keySet()
-                );
-            }
-
-            // Substitute environment variables in headers
-            Map<String, String> resolvedHeaders = new HashMap<>();
-            for (Map.Entry<String, String> entry : apiCall.getHeaders().entrySet()) {
-                String key = substituteVariables(entry.getKey(), environmentVariables);
-                String value = substituteVariables(entry.getValue(), environmentVariables);
-                resolvedHeaders.put(key, value);
-            }
-
-            // Substitute environment variables in body
-            Map<String, String> resolvedBody = new HashMap<>();
-            for (Map.Entry<String, String> entry : apiCall.getBody().entrySet()) {
-                String key = substituteVariables(entry.getKey(), environmentVariables);
-                String value = substituteVariables(entry.getValue(), environmentVariables);
-                resolvedBody.put(key, value);
-            }
-
-            // Build the request
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(resolvedUrl))
-                .timeout(Duration.ofSeconds(30));
-
-            // Add headers
-            for (Map.Entry<String, String> header : resolvedHeaders.entrySet()) {
-                requestBuilder.header(header.getKey(), header.getValue());
-            }
+            uri = apiCall.getUrl() == null || !unresolved.isEmpty() || variables.isComputedSkipped()
+                ? null : URI.create(urlTemplate.render(variables).trim());
+        } catch (IllegalArgumentException e) {
+            uri = null;
+        }
+        if (uri == null || uri.getHost() == null
+                || !("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            // Set the HTTP method and body
-            String method = apiCall.getHttpMethod().toUpperCase();
-            String bodyContent = buildBodyContent(resolvedBody);
-
-            switch (method) {
-                case "GET":
-                    requestBuilder.GET();
-                    break;
-                case "POST":
-                    requestBuilder.POST(HttpRequest.BodyPublishers.ofString(bodyContent));
-                    if (!resolvedHeaders.containsKey("Content-Type")) {
-                        requestBuilder.header("Content-Type", "application/json");
-                    }
-                    break;
-                case "PUT":
-                    requestBuilder.PUT(HttpRequest.BodyPublishers.ofString(bodyContent));
-                    if (!resolvedHeaders.containsKey("Content-Type")) {
-                        requestBuilder.header("Content-Type", "application/json");
-                    }
-                    break;
-                case "DELETE":
-                    requestBuilder.DELETE();
-                    break;
-                case "PATCH":
-                    requestBuilder.method("PATCH", HttpRequest.BodyPublishers.ofString(bodyContent));
-                    if (!resolvedHeaders.containsKey("Content-Type")) {
-                        requestBuilder.header("Content-Type", "application/json");
-                    }
-                    break;
-                case "HEAD":
-                    requestBuilder.method("HEAD", HttpRequest.BodyPublishers.noBody());
-                    break;
-                case "OPTIONS":
-                    requestBuilder.method("OPTIONS", HttpRequest.BodyPublishers.noBody());
-                    break;
-                default:
-                    requestBuilder.GET();
+        URI target = uri;
+        boolean timed = useTimedEngine(HostResolver.findOverride(target.getHost(), hostOverrides) != null);
+        boolean insecureTls = tlsTrustPolicy.isInsecure(target);
+        CompletableFuture<Void> warmed = taskExecutor.submit(() -> {
+            if (timed) {
+                TimedHttpEngine.getInstance().preconnect(target, insecureTls, hostOverrides);
+            } else {
+                HostResolver.getInstance().resolve(target.getHost(), hostOverrides);
             }
-
-            HttpRequest request = requestBuilder.build();
-
-            // Choose the appropriate HTTP client based on URL
-            HttpClient clientToUse = httpClient;
-            boolean isLocalhost = isLocalhostUrl(resolvedUrl);
-
-            if (isLocalhost) {
-                System.out.println("Using insecure SSL context for localhost URL");
-
-                // Try to verify hostname resolution using system DNS
-                try {
-                    verifyHostnameResolution(resolvedUrl);
-
-                    // Temporarily disable SSL endpoint identification for localhost
-                    // This is the only way to disable hostname verification in HttpClient
-                    synchronized (ApiCallService.class) {
-                        originalDisableHostnameVerification = System.getProperty("jdk.internal.httpclient.disableHostnameVerification");
-                        System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
-                        modifiedSystemProperty = true;
-                        System.out.println("Disabled hostname verification for localhost request");
-                    }
-
-                    clientToUse = createInsecureHttpClient();
-                } catch (UnknownHostException e) {
-                    System.out.println("Could not resolve hostname via system DNS, falling back to default client");
-                    // Fall back to default client if DNS resolution fails
-                    clientToUse = httpClient;
-                    modifiedSystemProperty = false;
-                }
+            return null;
+        });
+        return warmed.whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Pre-connect to " + target.getHost() + " failed: " + error.getMessage());
             }
+        });
+    }
 
-            // Execute the request
-            long startTime = System.currentTimeMillis();
-            HttpResponse<String> response = clientToUse.send(request, HttpResponse.BodyHandlers.ofString());
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-
-            // Build result
-            return new HttpCallResult(
-                response.statusCode(),
-                response.body(),
-                response.headers().map(),
-                duration,
-                null
-            );
-
-        } catch (Exception e) {
-            e.printStackTrace(); // Log full stack trace
-            return new HttpCallResult(
-                0,
-                "Error: " + e.getMessage(),
-                new HashMap<>(),
-                0,
-                e
-            );
-        } finally {
-            // ALWAYS restore original system property if we changed it
-            if (modifiedSystemProperty) {
-                synchronized (ApiCallService.class) {
-                    if (originalDisableHostnameVerification != null) {
-                        System.setProperty("jdk.internal.httpclient.disableHostnameVerification", originalDisableHostnameVerification);
-                    } else {
-                        System.clearProperty("jdk.internal.httpclient.disableHostnameVerification");
-                    }
-                    System.out.println("Restored hostname verification setting");
-                }
-            }
+    /**
+     * Get how a load test sends requests to a URI, chosen as for a single send: through
+     * TimedHttpEngine if the host is overridden by the environment or that engine is selected,
+     * otherwise through the shared Java HttpClient. Responses of the timed engine are received
+     * in full and released straight away.
+     */
+    public LoadTestRunner.Sender getLoadTestSender(URI uri, Map<String, String> hostOverrides) {
+        if (!useTimedEngine(HostResolver.findOverride(uri.getHost(), hostOverrides) != null)) {
+            return LoadTestRunner.discarding(getClient(uri));
         }
+        boolean insecureTls = tlsTrustPolicy.isInsecure(uri);
+        int previewBytes = com.overzealouspelican.panel.SettingsEditorPanel.getResponsePreviewBytes();
+        TimedHttpEngine engine = TimedHttpEngine.getInstance();
+        return request -> {
+            TimedHttpEngine.TimedResponse response = engine.send(request, insecureTls, previewBytes, hostOverrides);
+            if (response.getBody() != null) {
+                response.getBody().release();
+            }
+            return response.getStatusCode();
+        };
     }
 
     /**
-     * Check if the URL is targeting localhost
+     * Get the shared client for a URI, chosen by the connection settings and the host's TLS policy
      */
-    private boolean isLocalhostUrl(String url) {
-        if (url == null) {
-            return false;
-        }
-        String lowerUrl = url.toLowerCase();
-        return lowerUrl.contains("localhost") || lowerUrl.contains("127.0.0.1") || lowerUrl.contains("[::1]");
+    public HttpClient getClient(URI uri) {
+        ConnectionProfile profile = ConnectionProfile.fromSettings()
+            .withInsecureTls(tlsTrustPolicy.isInsecure(uri));
+        return clientRegistry.getClient(profile);
     }
 
     /**
-     * Create an HTTP client that trusts all certificates (for localhost development only)
-     * Uses system DNS resolver to support custom hosts file entries
-     * Disables hostname verification for self-signed certificates
+     * Check whether a request goes through TimedHttpEngine. Requests to hosts overridden by
+     * the environment always do, since the Java HttpClient cannot connect to an address other
+     * than the host's while keeping its name for TLS. The timed engine does not support
+     * proxies, so the Java HttpClient is used whenever one is configured.
      */
-    private HttpClient createInsecureHttpClient() {
-        try {
-            // Create a trust manager that does not validate certificate chains
-            TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return new X509Certificate[0];
-                    }
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                    }
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                    }
-                }
-            };
-
-            // Install the all-trusting trust manager
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-
-            // Create custom SSLParameters that disable endpoint identification (hostname verification)
-            // Using empty string instead of null for better compatibility
-            javax.net.ssl.SSLParameters sslParams = sslContext.getDefaultSSLParameters();
-            sslParams.setEndpointIdentificationAlgorithm(""); // Empty string disables hostname verification
-
-            // Create HTTP client with custom SSL context that disables all verification
-            return HttpClient.newBuilder()
-                .sslContext(sslContext)
-                .sslParameters(sslParams)
-                .connectTimeout(Duration.ofSeconds(30))
-                .proxy(ProxySelector.getDefault()) // Use system proxy settings
-                .build();
-
-        } catch (Exception e) {
-            System.err.println("Failed to create insecure HTTP client: " + e.getMessage());
-            e.printStackTrace();
-            // Fall back to the default secure client
-            return httpClient;
+    private boolean useTimedEngine(boolean hostOverridden) {
+        boolean selected = Engine.fromName(com.overzealouspelican.panel.SettingsEditorPanel.getHttpEngine()) == Engine.TIMED;
+        if (!selected && !hostOverridden) {
+            return false;
+        }
+        if (!com.overzealouspelican.panel.SettingsEditorPanel.getHttpProxy().trim().isEmpty()) {
+            System.out.println(hostOverridden
+                ? "Host override ignored because a proxy is configured"
+                : "Timed engine does not support proxies, using the Java HttpClient");
+            return false;
         }
+        return true;
     }
 
     /**
-     * Verify hostname resolution using system DNS before making the request
-     * This ensures custom hosts file entries work properly
+     * A request ready to send, with the key identifying identical requests
      */
-    private void verifyHostnameResolution(String url) throws UnknownHostException {
-        try {
-            URI uri = URI.create(url);
-            String host = uri.getHost();
-
-            if (host != null) {
-                // Try to resolve using system DNS (includes hosts file)
-                InetAddress[] addresses = InetAddress.getAllByName(host);
-                System.out.println("Resolved " + host + " to: ");
-                for (InetAddress addr : addresses) {
-                    System.out.println("  - " + addr.getHostAddress());
-                }
-            }
-        } catch (UnknownHostException e) {
-            System.err.println("Failed to resolve hostname: " + e.getMessage());
-            throw e; // Re-throw to let caller handle
+    private static class PreparedRequest {
+        private final HttpRequest request;
+        private final String key;
+        private final boolean dynamic; // Rendered with values that change between requests
+        private final CompiledApiCall compiled;
+        private final CompiledApiCall.Rendered rendered;
+
+        PreparedRequest(HttpRequest request, String key, boolean dynamic, CompiledApiCall compiled,
+                        CompiledApiCall.Rendered rendered) {
+            this.request = request;
+            this.key = key;
+            this.dynamic = dynamic;
+            this.compiled = compiled;
+            this.rendered = rendered;
         }
     }
 
     /**
-     * Substitute {{key}} placeholders with environment variable values
+     * Render and build the request for a call. Variables are resolved lazily, once each, for
+     * this request only (see RequestVariables). Logging is skipped when rendering repeatedly.
      */
-    private String substituteVariables(String input, Map<String, String> environmentVariables) {
-        if (input == null || environmentVariables == null) {
-            return input;
+    private PreparedRequest prepareRequest(ApiCall apiCall, Map<String, String> environment, boolean verbose) {
+        RequestVariables environmentVariables = RequestVariables.of(environment);
+        if (verbose) {
+            // Log environment variables for debugging, as defined rather than resolved
+            System.out.println("Environment variables available: " + environmentVariables.getEnvironment());
         }
 
-        Pattern pattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(input);
-        StringBuffer result = new StringBuffer();
+        // Templates are parsed once per version of the call; one builder renders them all
+        CompiledApiCall compiled = templateCache.compile(apiCall);
+        StringBuilder builder = new StringBuilder(256);
 
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String value = environmentVariables.get(key);
-            if (value != null) {
-                matcher.appendReplacement(result, Matcher.quoteReplacement(value));
-            } else {
-                // Keep the placeholder if no value found
-                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-            }
+        // Substitute environment variables; reused if the environment has not changed since the last send
+        CompiledApiCall.Rendered rendered = compiled.render(environmentVariables, builder);
+        String resolvedUrl = rendered.getUrl();
+        if (verbose) {
+            System.out.println("Original URL: " + apiCall.getUrl());
+            System.out.println("Resolved URL: " + resolvedUrl);
+        }
+
+        // Check if URL still contains unresolved variables
+        Set<String> missingVars = rendered.getUnresolvedInUrl();
+        if (!missingVars.isEmpty()) {
+            throw new IllegalArgumentException(
+                "URL contains unresolved environment variables: " + String.join(", ", missingVars) +
+                "\nAvailable variables: " + environmentVariables.keySet()
+            );
         }
-        matcher.appendTail(result);
 
-        return result.toString();
+        Map<String, String> resolvedHeaders = rendered.getHeaders();
+        Map<String, String> resolvedBody = rendered.getBody();
+        Set<String> unresolved = rendered.getUnresolved();
+        if (verbose && !unresolved.isEmpty()) {
+            System.out.println("Unresolved variables sent as written: " + String.join(", ", unresolved));
+        }
+
+        // Build the request
+        int timeoutSeconds = apiCall.getTimeoutSeconds() > 0
+            ? apiCall.getTimeoutSeconds()
+            : com.overzealouspelican.panel.SettingsEditorPanel.getRequestTimeoutSeconds();
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+            .uri(URI.create(resolvedUrl))
+            .timeout(Duration.ofSeconds(timeoutSeconds));
+
+        // Add headers
+        for (Map.Entry<String, String> header : resolvedHeaders.entrySet()) {
+            requestBuilder.header(header.getKey(), header.getValue());
+        }
+        // Ask for a compressed response unless the call negotiates encodings itself
+        if (resolvedHeaders.keySet().stream().noneMatch(name -> name.trim().equalsIgnoreCase("Accept-Encoding"))) {
+            requestBuilder.header("Accept-Encoding", ContentCodecs.getAcceptEncoding());
+        }
+
+        // Set the HTTP method and body
+        String method = apiCall.getHttpMethod().toUpperCase();
+        String bodyContent = buildBodyContent(resolvedBody);
+
+        switch (method) {
+            case "GET":
+                requestBuilder.GET();
+                break;
+            case "POST":
+                requestBuilder.POST(HttpRequest.BodyPublishers.ofString(bodyContent));
+                if (!resolvedHeaders.containsKey("Content-Type")) {
+                    requestBuilder.header("Content-Type", "application/json");
+                }
+                break;
+            case "PUT":
+                requestBuilder.PUT(HttpRequest.BodyPublishers.ofString(bodyContent));
+                if (!resolvedHeaders.containsKey("Content-Type")) {
+                    requestBuilder.header("Content-Type", "application/json");
+                }
+                break;
+            case "DELETE":
+                requestBuilder.DELETE();
+                break;
+            case "PATCH":
+                requestBuilder.method("PATCH", HttpRequest.BodyPublishers.ofString(bodyContent));
+                if (!resolvedHeaders.containsKey("Content-Type")) {
+                    requestBuilder.header("Content-Type", "application/json");
+                }
+                break;
+            case "HEAD":
+                requestBuilder.method("HEAD", HttpRequest.BodyPublishers.noBody());
+                break;
+            case "OPTIONS":
+                requestBuilder.method("OPTIONS", HttpRequest.BodyPublishers.noBody());
+                break;
+            default:
+                requestBuilder.GET();
+        }
+
+        // Identical safe requests share one exchange while in flight; others are always sent
+        String key = SHARED_METHODS.contains(method)
+            ? method + " " + resolvedUrl + "\n" + new TreeMap<>(resolvedHeaders) + "\n" + bodyContent
+            : null;
+        return new PreparedRequest(requestBuilder.build(), key, environmentVariables.isDynamic(), compiled, rendered);
     }
 
     /**
@@ -453,39 +424,125 @@ public class ApiCallService {
     public static class HttpCallResult {
         private final int statusCode;
         private final String body;
+        private final ResponseBody responseBody; // Null for results without a streamed body
+        private final RequestTiming timing; // Null unless sent with TimedHttpEngine
         private final Map<String, java.util.List<String>> headers;
         private final long duration;
         private final Exception error;
+        private Map<String, String> extractedVariables = Map.of(); // Set before the result is published
+        private CompiledApiCall.Rendered rendered; // Set before the result is published; null if never rendered
 
         public HttpCallResult(int statusCode, String body, Map<String, java.util.List<String>> headers,
                             long duration, Exception error) {
             this.statusCode = statusCode;
             this.body = body;
+            this.responseBody = null;
+            this.timing = null;
             this.headers = headers;
             this.duration = duration;
             this.error = error;
         }
 
+        public HttpCallResult(int statusCode, ResponseBody responseBody, Map<String, java.util.List<String>> headers,
+                            long duration) {
+            this(statusCode, responseBody, headers, duration, null);
+        }
+
+        public HttpCallResult(int statusCode, ResponseBody responseBody, Map<String, java.util.List<String>> headers,
+                            long duration, RequestTiming timing) {
+            this.statusCode = statusCode;
+            this.body = responseBody.getPreviewText();
+            this.responseBody = responseBody;
+            this.timing = timing;
+            this.headers = headers;
+            this.duration = duration;
+            this.error = null;
+        }
+
         public int getStatusCode() {
             return statusCode;
         }
 
+        /**
+         * Get the body text; only the preview when the body was too large to keep in memory
+         */
         public String getBody() {
             return body;
         }
 
+        /**
+         * Get the streamed body with its size and transfer rate, or null
+         */
+        public ResponseBody getResponseBody() {
+            return responseBody;
+        }
+
         public Map<String, java.util.List<String>> getHeaders() {
             return headers;
         }
 
+        /**
+         * Get the values of a response header joined with commas, or null if it is absent
+         */
+        public String getHeader(String name) {
+            if (headers == null) {
+                return null;
+            }
+            for (Map.Entry<String, java.util.List<String>> entry : headers.entrySet()) {
+                if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)) {
+                    return String.join(", ", entry.getValue());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the time spent in each phase of the request, or null if it was not measured
+         */
+        public RequestTiming getTiming() {
+            return timing;
+        }
+
         public long getDuration() {
             return duration;
         }
 
+        /**
+         * Get the values the call's extractions found in the response, by variable name
+         */
+        public Map<String, String> getExtractedVariables() {
+            return extractedVariables;
+        }
+
+        /**
+         * Get the URL, headers and body the request was sent with, or null if it failed
+         * before it was rendered
+         */
+        public CompiledApiCall.Rendered getRendered() {
+            return rendered;
+        }
+
         public Exception getError() {
             return error;
         }
 
+        /**
+         * Create the result of a call that failed before a response was received
+         */
+        public static HttpCallResult failed(Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                cause.printStackTrace(); // Log full stack trace
+            }
+            Exception exception = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+            String message = cause instanceof CancellationException ? "Request cancelled" : cause.getMessage();
+            return new HttpCallResult(0, "Error: " + message, new HashMap<>(), 0, exception);
+        }
+
+        public boolean isCancelled() {
+            return error instanceof CancellationException;
+        }
+
         public boolean isSuccess() {
             return error == null && statusCode >= 200 && statusCode < 300;
         }
@@ -497,7 +554,30 @@ public class ApiCallService {
 
             StringBuilder sb = new StringBuilder();
             sb.append("Status: ").append(statusCode).append("\n");
-            sb.append("Duration: ").append(duration).append(" ms\n\n");
+            sb.append("Duration: ").append(duration).append(" ms\n");
+            if (responseBody != null) {
+                sb.append("Size: ").append(ResponseBody.formatBytes(responseBody.getTotalBytes()))
+                    .append(" (").append(ResponseBody.formatBytes(responseBody.getBytesPerSecond())).append("/s)\n");
+                if (responseBody.getContentEncoding() != null) {
+                    sb.append("Encoding: ").append(responseBody.getContentEncoding()).append(", ")
+                        .append(ResponseBody.formatBytes(responseBody.getWireBytes())).append(" on the wire, ")
+                        .append(ResponseBody.formatBytes(responseBody.getTotalBytes())).append(" decoded (")
+                        .append(String.format("%.1fx", responseBody.getCompressionRatio())).append(")\n");
+                } else if (ContentCodecs.isEncoded(getHeader("Content-Encoding"))) {
+                    sb.append("Encoding: ").append(getHeader("Content-Encoding")).append(" (not supported, shown as received)\n");
+                }
+            }
+            if (timing != null) {
+                sb.append("\nTiming: ").append(timing.formatWaterfall());
+            }
+            sb.append("\n");
+
+            if (!extractedVariables.isEmpty()) {
+                sb.append("Extracted Variables:\n");
+                extractedVariables.forEach((name, value) ->
+                    sb.append(name).append(" = ").append(value).append("\n"));
+                sb.append("\n");
+            }
 
             sb.append("Response Headers:\n");
             if (headers != null && !headers.isEmpty()) {
@@ -510,6 +590,11 @@ public class ApiCallService {
 
             sb.append("\nResponse Body:\n");
             sb.append(body != null && !body.isEmpty() ? body : "(Empty response)");
+            if (responseBody != null && responseBody.isTruncated()) {
+                sb.append("\n\n(Showing the first ").append(ResponseBody.formatBytes(responseBody.getPreviewBytes()))
+                    .append(" of ").append(ResponseBody.formatBytes(responseBody.getTotalBytes()))
+                    .append("; use Save Body to write the full response to a file)");
+            }
 
             return sb.toString();
         }
@@ -0,0 +1,104 @@
+package com.overzealouspelican.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The intended start times of the requests of an open-model load test.
+ * The rate ramps linearly from 0 to the target, holds, and ramps back to 0; the n-th request
+ * is due when the integral of the rate reaches n, so start times follow the rate exactly
+ * instead of drifting with rounding or with how late the previous request was sent.
+ */
+public class ArrivalSchedule {
+
+    private final List<Stage> stages;
+
+    /**
+     * A stage with a rate changing linearly from startRate to endRate (requests per second)
+     */
+    private static class Stage {
+        final double startSeconds;
+        final double durationSeconds;
+        final double startRate;
+        final double endRate;
+        final double requestsBefore;
+        final double requests;
+
+        Stage(double startSeconds, double durationSeconds, double startRate, double endRate, double requestsBefore) {
+            this.startSeconds = startSeconds;
+            this.durationSeconds = durationSeconds;
+            this.startRate = startRate;
+            this.endRate = endRate;
+            this.requestsBefore = requestsBefore;
+            this.requests = (startRate + endRate) / 2 * durationSeconds;
+        }
+    }
+
+    public ArrivalSchedule(LoadTestConfig config) {
+        this.stages = new ArrayList<>();
+        double rate = config.getTargetRate();
+        addStage(config.getRampUpSeconds(), 0, rate);
+        addStage(config.getDurationSeconds(), rate, rate);
+        addStage(config.getRampDownSeconds(), rate, 0);
+    }
+
+    private void addStage(double durationSeconds, double startRate, double endRate) {
+        if (durationSeconds <= 0) {
+            return;
+        }
+        double startSeconds = 0;
+        double requestsBefore = 0;
+        if (!stages.isEmpty()) {
+            Stage last = stages.get(stages.size() - 1);
+            startSeconds = last.startSeconds + last.durationSeconds;
+            requestsBefore = last.requestsBefore + last.requests;
+        }
+        stages.add(new Stage(startSeconds, durationSeconds, startRate, endRate, requestsBefore));
+    }
+
+    /**
+     * Get the number of requests in the whole schedule
+     */
+    public long getTotalRequests() {
+        if (stages.isEmpty()) {
+            return 0;
+        }
+        Stage last = stages.get(stages.size() - 1);
+        return (long) Math.floor(last.requestsBefore + last.requests + 1e-9);
+    }
+
+    /**
+     * Get when the n-th request (from 1) is due, in nanoseconds from the start, or -1 if the
+     * schedule has ended before it
+     */
+    public long getOffsetNanos(long n) {
+        for (Stage stage : stages) {
+            double inStage = n - stage.requestsBefore;
+            if (inStage > stage.requests + 1e-9) {
+                continue;
+            }
+            // Solve startRate * t + (endRate - startRate) / (2 * duration) * t^2 = inStage for t
+            double a = stage.startRate;
+            double c = (stage.endRate - stage.startRate) / (2 * stage.durationSeconds);
+            double t = c == 0
+                ? inStage / a
+                : (-a + Math.sqrt(Math.max(0, a * a + 4 * c * inStage))) / (2 * c);
+            t = Math.min(Math.max(0, t), stage.durationSeconds);
+            return (long) ((stage.startSeconds + t) * 1_000_000_000L);
+        }
+        return -1;
+    }
+
+    /**
+     * Get the target rate at a point in the schedule, in requests per second
+     */
+    public double getRateAt(double seconds) {
+        for (Stage stage : stages) {
+            if (seconds < stage.startSeconds + stage.durationSeconds) {
+                double progress = Math.max(0, seconds - stage.startSeconds) / stage.durationSeconds;
+                return stage.startRate + (stage.endRate - stage.startRate) * progress;
+            }
+        }
+        return 0;
+    }
+}
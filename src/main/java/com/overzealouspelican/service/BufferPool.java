@@ -0,0 +1,73 @@
+package com.overzealouspelican.service;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide pool of direct byte buffers for socket and TLS I/O.
+ * All buffers have the same size, large enough for one TLS record, so any buffer fits any
+ * use. Released buffers are kept for the next connection up to a fixed number; beyond
+ * that they are left to the garbage collector.
+ * Uses the Singleton pattern.
+ */
+public class BufferPool {
+
+    public static final int BUFFER_SIZE = 32 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static BufferPool instance;
+
+    private final Queue<ByteBuffer> buffers;
+    private final AtomicInteger pooled;
+
+    private BufferPool() {
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger();
+    }
+
+    /**
+     * Get the singleton instance of BufferPool
+     */
+    public static synchronized BufferPool getInstance() {
+        if (instance == null) {
+            instance = new BufferPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Take a cleared buffer from the pool, allocating one if the pool is empty
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool; it must not be used afterwards
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != BUFFER_SIZE || !buffer.isDirect()) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of buffers waiting in the pool
+     */
+    public int size() {
+        return pooled.get();
+    }
+}
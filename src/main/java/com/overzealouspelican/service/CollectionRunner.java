@@ -0,0 +1,283 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApplicationState;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Runs every call of a group against one environment.
+ * Calls without dependencies all start at once and run in parallel, bounded only by the
+ * per-host request limit in Settings; a call listing others under "Runs After" starts when they
+ * have all succeeded, and is skipped if any of them failed. Calls in a dependency cycle or
+ * depending on a call outside the group fail without being sent.
+ * Values a call extracts from its response are available to the calls that run after it,
+ * and are kept as session variables once the run is over.
+ * Progress is reported per call to a listener, on whichever thread completed the call.
+ */
+public class CollectionRunner {
+
+    /**
+     * The state of one call in a run
+     */
+    public enum State { WAITING, RUNNING, PASSED, FAILED, SKIPPED }
+
+    /**
+     * The state of one call at one point of a run. Immutable.
+     */
+    public static class CallRun {
+        private final String name;
+        private final String method;
+        private final State state;
+        private final int statusCode;
+        private final long durationMillis;
+        private final long bytes;
+        private final String message;
+
+        CallRun(String name, String method, State state, int statusCode, long durationMillis, long bytes, String message) {
+            this.name = name;
+            this.method = method;
+            this.state = state;
+            this.statusCode = statusCode;
+            this.durationMillis = durationMillis;
+            this.bytes = bytes;
+            this.message = message;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * Get the response body size, or -1 if there was no response
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final String groupName;
+    private final Map<String, ApiCall> calls; // In the order they run
+    private final Map<String, String> environmentVariables; // Plus extracted values; read by parallel calls
+    private final Map<String, String> hostOverrides; // Of the environment the variables come from
+    private final ApiCallService apiCallService;
+    private final Map<String, String> invalid; // Call name -> why it cannot run
+    private final Set<InFlightRequests.InFlightRequest> pendingRequests;
+    private volatile boolean cancelled;
+    private volatile long elapsedMillis;
+
+    /**
+     * Create a run; the variables and host overrides must come from one environment snapshot,
+     * taken when the run starts, so calls running later do not mix two environments
+     */
+    public CollectionRunner(String groupName, Map<String, ApiCall> groupCalls, Map<String, String> environmentVariables,
+                            Map<String, String> hostOverrides) {
+        this.groupName = groupName;
+        this.environmentVariables = new ConcurrentHashMap<>(environmentVariables);
+        this.hostOverrides = hostOverrides;
+        this.apiCallService = new ApiCallService();
+        this.invalid = new HashMap<>();
+        this.pendingRequests = ConcurrentHashMap.newKeySet();
+        this.calls = orderByDependencies(new TreeMap<>(groupCalls));
+    }
+
+    /**
+     * Order calls so each comes after the calls it depends on (Kahn's algorithm, by name
+     * among calls that are ready together). Calls that cannot be ordered are recorded as invalid.
+     */
+    private Map<String, ApiCall> orderByDependencies(Map<String, ApiCall> byName) {
+        Map<String, Integer> unmetCounts = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (ApiCall call : byName.values()) {
+            int unmet = 0;
+            for (String dependency : call.getDependsOn()) {
+                if (!byName.containsKey(dependency)) {
+                    invalid.put(call.getName(), "Depends on '" + dependency + "', which is not in this group");
+                } else if (!dependency.equals(call.getName())) {
+                    dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(call.getName());
+                    unmet++;
+                } else {
+                    invalid.put(call.getName(), "Depends on itself");
+                }
+            }
+            unmetCounts.put(call.getName(), unmet);
+        }
+
+        Map<String, ApiCall> ordered = new LinkedHashMap<>();
+        TreeMap<String, ApiCall> ready = new TreeMap<>();
+        unmetCounts.forEach((name, unmet) -> {
+            if (unmet == 0) {
+                ready.put(name, byName.get(name));
+            }
+        });
+        while (!ready.isEmpty()) {
+            Map.Entry<String, ApiCall> next = ready.pollFirstEntry();
+            ordered.put(next.getKey(), next.getValue());
+            for (String dependent : dependents.getOrDefault(next.getKey(), Collections.emptyList())) {
+                if (unmetCounts.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.put(dependent, byName.get(dependent));
+                }
+            }
+        }
+
+        // Whatever is left waits on a cycle
+        for (ApiCall call : byName.values()) {
+            if (!ordered.containsKey(call.getName())) {
+                invalid.putIfAbsent(call.getName(), "Waits on a dependency cycle");
+                ordered.put(call.getName(), call);
+            }
+        }
+        return ordered;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    /**
+     * Get every call of the run in the order it is scheduled, all waiting
+     */
+    public List<CallRun> getPlan() {
+        List<CallRun> plan = new ArrayList<>();
+        for (ApiCall call : calls.values()) {
+            plan.add(new CallRun(call.getName(), call.getHttpMethod(), State.WAITING, 0, 0, -1, ""));
+        }
+        return plan;
+    }
+
+    /**
+     * Start the run; the listener is told each time a call changes state, and the returned
+     * future completes with the final state of every call
+     */
+    public CompletableFuture<List<CallRun>> start(Consumer<CallRun> listener) {
+        long startNanos = System.nanoTime();
+        Map<String, CompletableFuture<CallRun>> runs = new HashMap<>();
+        for (ApiCall call : calls.values()) {
+            List<CompletableFuture<CallRun>> dependencies = new ArrayList<>();
+            for (String dependency : call.getDependsOn()) {
+                CompletableFuture<CallRun> dependencyRun = runs.get(dependency);
+                if (dependencyRun != null) {
+                    dependencies.add(dependencyRun);
+                }
+            }
+            CompletableFuture<CallRun> run = CompletableFuture
+                .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> runCall(call, dependencies, listener));
+            runs.put(call.getName(), run);
+        }
+
+        CompletableFuture<?>[] all = runs.values().toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(all).thenApply(ignored -> {
+            elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            List<CallRun> results = new ArrayList<>();
+            for (String name : calls.keySet()) {
+                results.add(runs.get(name).join());
+            }
+            return results;
+        });
+    }
+
+    private CompletableFuture<CallRun> runCall(ApiCall call, List<CompletableFuture<CallRun>> dependencies,
+                                               Consumer<CallRun> listener) {
+        String reason = invalid.get(call.getName());
+        State state = State.FAILED;
+        if (reason == null) {
+            state = State.SKIPPED;
+            if (cancelled) {
+                reason = "Run stopped";
+            }
+            for (CompletableFuture<CallRun> dependency : dependencies) {
+                CallRun dependencyRun = dependency.join();
+                if (reason == null && dependencyRun.getState() != State.PASSED) {
+                    reason = "'" + dependencyRun.getName() + "' did not pass";
+                }
+            }
+        }
+        if (reason != null) {
+            return CompletableFuture.completedFuture(report(listener,
+                new CallRun(call.getName(), call.getHttpMethod(), state, 0, 0, -1, reason)));
+        }
+
+        report(listener, new CallRun(call.getName(), call.getHttpMethod(), State.RUNNING, 0, 0, -1, ""));
+        // Every call of the run is sent, so each one it reports as passed reached the server
+        InFlightRequests.InFlightRequest request = apiCallService.executeApiCallAsync(call, environmentVariables, hostOverrides, false);
+        pendingRequests.add(request);
+        return request.getResult().thenApply(result -> {
+            pendingRequests.remove(request);
+            Map<String, String> extracted = result.getExtractedVariables();
+            if (result.isSuccess() && !extracted.isEmpty()) {
+                // Before the report, so the calls depending on this one see the values
+                environmentVariables.putAll(extracted);
+                SwingUtilities.invokeLater(() -> ApplicationState.getInstance().putSessionVariables(extracted));
+            }
+            ResponseBody body = result.getResponseBody();
+            if (body != null) {
+                body.release(); // Only its size is reported; do not keep the spill file
+            }
+            String message;
+            if (result.getError() != null) {
+                message = result.isCancelled() ? "Run stopped" : String.valueOf(result.getError().getMessage());
+            } else {
+                message = result.isSuccess() ? "" : "HTTP " + result.getStatusCode();
+            }
+            return report(listener, new CallRun(call.getName(), call.getHttpMethod(),
+                result.isSuccess() ? State.PASSED : State.FAILED,
+                result.getStatusCode(), result.getDuration(), body != null ? body.getTotalBytes() : -1, message));
+        });
+    }
+
+    private static CallRun report(Consumer<CallRun> listener, CallRun run) {
+        try {
+            listener.accept(run);
+        } catch (RuntimeException e) {
+            System.err.println("Collection run listener failed: " + e.getMessage());
+        }
+        return run;
+    }
+
+    /**
+     * Stop the run: requests in flight are cancelled and calls not yet started are skipped
+     */
+    public void cancel() {
+        cancelled = true;
+        pendingRequests.forEach(InFlightRequests.InFlightRequest::cancel);
+    }
+
+    /**
+     * Get the wall clock time of the whole run, once it has finished
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
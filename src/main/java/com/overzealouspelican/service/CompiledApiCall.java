@@ -0,0 +1,245 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.util.VariableTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The URL, header and body templates and the response extractions of one version of an API
+ * call, parsed once and kept in the TemplateCache. Rendering appends to a builder owned by
+ * the caller. Immutable, apart from keeping its last rendering for reuse (see render).
+ */
+public class CompiledApiCall {
+
+    private final long version;
+    private final String url;
+    private final Map<String, String> headers;
+    private final Map<String, String> body;
+    private final VariableTemplate urlTemplate;
+    private final List<VariableTemplate[]> headerTemplates; // {key, value}
+    private final List<VariableTemplate[]> bodyTemplates;
+    private final Map<String, String> extractionSources;
+    private final List<ResponseExtraction> extractions;
+    private volatile Rendered lastRendered; // With an environment snapshot and no dynamic values
+
+    /**
+     * The URL, headers and body of the call rendered with one set of variables, with the
+     * variables that had no value. Immutable.
+     */
+    public static final class Rendered {
+        private final long snapshotVersion;
+        private final String url;
+        private final Map<String, String> headers;
+        private final Map<String, String> body;
+        private final Set<String> unresolvedInUrl;
+        private final Set<String> unresolved;
+
+        Rendered(long snapshotVersion, String url, Map<String, String> headers, Map<String, String> body,
+                 Set<String> unresolvedInUrl, Set<String> unresolved) {
+            this.snapshotVersion = snapshotVersion;
+            this.url = url;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = Collections.unmodifiableMap(body);
+            this.unresolvedInUrl = Collections.unmodifiableSet(unresolvedInUrl);
+            this.unresolved = Collections.unmodifiableSet(unresolved);
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public Map<String, String> getBody() {
+            return body;
+        }
+
+        public Set<String> getUnresolvedInUrl() {
+            return unresolvedInUrl;
+        }
+
+        public Set<String> getUnresolved() {
+            return unresolved;
+        }
+    }
+
+    CompiledApiCall(ApiCall apiCall) {
+        this.version = apiCall.getVersion();
+        this.url = apiCall.getUrl();
+        this.headers = apiCall.getHeaders();
+        this.body = apiCall.getBody();
+        this.urlTemplate = VariableTemplate.compile(url);
+        this.headerTemplates = compileEntries(headers);
+        this.bodyTemplates = compileEntries(body);
+        this.extractionSources = apiCall.getExtractions();
+        this.extractions = new ArrayList<>();
+        new TreeMap<>(extractionSources).forEach((variable, source) -> {
+            if (!variable.trim().isEmpty()) {
+                extractions.add(new ResponseExtraction(variable, source));
+            }
+        });
+    }
+
+    private static List<VariableTemplate[]> compileEntries(Map<String, String> entries) {
+        List<VariableTemplate[]> templates = new ArrayList<>(entries.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            templates.add(new VariableTemplate[]{
+                VariableTemplate.compile(entry.getKey()), VariableTemplate.compile(entry.getValue())
+            });
+        }
+        return templates;
+    }
+
+    /**
+     * Check whether this was compiled from the same version and content as a call; unsaved
+     * edits keep the version of the saved call, so the content is compared too
+     */
+    boolean isCompiledFrom(ApiCall apiCall) {
+        return version == apiCall.getVersion()
+            && Objects.equals(url, apiCall.getUrl())
+            && headers.equals(apiCall.getHeaders())
+            && body.equals(apiCall.getBody())
+            && extractionSources.equals(apiCall.getExtractions());
+    }
+
+    /**
+     * Render the whole call. A rendering with an environment snapshot that used no dynamic or
+     * computed values is kept, and returned as it is for later requests with the same snapshot
+     * version, so sending a call again with an unchanged environment renders nothing.
+     */
+    public Rendered render(RequestVariables variables, StringBuilder builder) {
+        long snapshotVersion = variables.getSnapshotVersion();
+        Rendered cached = lastRendered;
+        if (snapshotVersion >= 0 && cached != null && cached.snapshotVersion == snapshotVersion) {
+            return cached;
+        }
+        String renderedUrl = renderUrl(variables, builder);
+        Rendered rendered = new Rendered(snapshotVersion, renderedUrl,
+            renderHeaders(variables, builder), renderBody(variables, builder),
+            getUnresolvedInUrl(variables), getUnresolved(variables));
+        if (snapshotVersion >= 0 && !variables.isDynamic()) {
+            lastRendered = rendered;
+        }
+        return rendered;
+    }
+
+    public VariableTemplate getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * Render the URL; the builder is cleared first
+     */
+    public String renderUrl(Map<String, String> variables, StringBuilder builder) {
+        return render(urlTemplate, variables, builder);
+    }
+
+    /**
+     * Render the headers; the builder is cleared before each key and value
+     */
+    public Map<String, String> renderHeaders(Map<String, String> variables, StringBuilder builder) {
+        return renderEntries(headerTemplates, variables, builder);
+    }
+
+    /**
+     * Render the body fields; the builder is cleared before each key and value
+     */
+    public Map<String, String> renderBody(Map<String, String> variables, StringBuilder builder) {
+        return renderEntries(bodyTemplates, variables, builder);
+    }
+
+    private static Map<String, String> renderEntries(List<VariableTemplate[]> templates, Map<String, String> variables,
+                                                     StringBuilder builder) {
+        Map<String, String> rendered = new LinkedHashMap<>();
+        for (VariableTemplate[] entry : templates) {
+            rendered.put(render(entry[0], variables, builder), render(entry[1], variables, builder));
+        }
+        return rendered;
+    }
+
+    private static String render(VariableTemplate template, Map<String, String> variables, StringBuilder builder) {
+        if (template.isConstant()) {
+            return template.getSource();
+        }
+        builder.setLength(0);
+        template.renderTo(builder, variables);
+        return builder.toString();
+    }
+
+    /**
+     * Get the variables used in the URL that have no value, in order of use
+     */
+    public Set<String> getUnresolvedInUrl(Map<String, String> variables) {
+        Set<String> unresolved = new LinkedHashSet<>();
+        urlTemplate.collectUnresolved(variables, unresolved);
+        return unresolved;
+    }
+
+    /**
+     * Get the variables used anywhere in the call that have no value, in order of use
+     */
+    public Set<String> getUnresolved(Map<String, String> variables) {
+        Set<String> unresolved = getUnresolvedInUrl(variables);
+        for (List<VariableTemplate[]> templates : List.of(headerTemplates, bodyTemplates)) {
+            for (VariableTemplate[] entry : templates) {
+                entry[0].collectUnresolved(variables, unresolved);
+                entry[1].collectUnresolved(variables, unresolved);
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Get the names of every variable the call uses
+     */
+    public Set<String> getVariableNames() {
+        return getUnresolved(null);
+    }
+
+    /**
+     * Get the names of the variables the call's extractions set
+     */
+    public Set<String> getExtractedNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (ResponseExtraction extraction : extractions) {
+            names.add(extraction.getVariable());
+        }
+        return names;
+    }
+
+    /**
+     * Run the extractions on a response, returning the values found by variable name.
+     * Extractions whose value is not in the response are left out and logged.
+     */
+    public Map<String, String> extract(ApiCallService.HttpCallResult result) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (ResponseExtraction extraction : extractions) {
+            if (extraction.getError() != null) {
+                System.err.println("Skipping extraction " + extraction + ": " + extraction.getError());
+                continue;
+            }
+            String value = extraction.extract(result);
+            if (value != null) {
+                values.put(extraction.getVariable(), value);
+            } else {
+                System.out.println("Extraction " + extraction + " found no value");
+            }
+        }
+        return values;
+    }
+
+    public boolean hasExtractions() {
+        return !extractions.isEmpty();
+    }
+}
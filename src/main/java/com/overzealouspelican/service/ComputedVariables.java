@@ -0,0 +1,204 @@
+package com.overzealouspelican.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Environment variables whose value is read from a file or printed by a command, written
+ * as "$file:path" or "$cmd:command" in the environment. The value is the file's content or
+ * the command's output with surrounding whitespace removed, and is cached for the number of
+ * seconds set in the settings, so a token read from a file or produced by a CLI is not read
+ * again for every request. When several requests need an expired value at once, only one
+ * reads it and the others wait for it; requests needing other values are not held up.
+ * Commands run only if enabled in the settings, which are kept on this machine: environments
+ * can come from a shared data folder, and anyone who can write to it could otherwise run
+ * commands on every machine using it.
+ * Uses the Singleton pattern.
+ */
+public class ComputedVariables {
+
+    public static final String FILE_PREFIX = "$file:";
+    public static final String COMMAND_PREFIX = "$cmd:";
+    private static final long COMMAND_TIMEOUT_SECONDS = 10;
+    private static final int MAX_VALUE_BYTES = 1024 * 1024;
+
+    private static ComputedVariables instance;
+
+    private final Map<String, CachedValue> cache; // Definition -> latest value
+
+    /**
+     * A value being computed or computed; joined by every request for it until it expires
+     */
+    private static class CachedValue {
+        final CompletableFuture<String> value = new CompletableFuture<>();
+        volatile boolean done;
+        volatile long expiresNanos;
+
+        boolean isValid() {
+            return !done || System.nanoTime() - expiresNanos < 0;
+        }
+    }
+
+    private ComputedVariables() {
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the singleton instance of ComputedVariables
+     */
+    public static synchronized ComputedVariables getInstance() {
+        if (instance == null) {
+            instance = new ComputedVariables();
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether an environment value is computed rather than used as written
+     */
+    public static boolean isComputed(String value) {
+        return value != null && (value.startsWith(FILE_PREFIX) || value.startsWith(COMMAND_PREFIX));
+    }
+
+    /**
+     * Get the value of a computed variable, from the cache while it is fresh.
+     * Returns null if the file cannot be read, the command fails, or commands are disabled.
+     */
+    public String resolve(String definition) {
+        if (!isComputed(definition)) {
+            return definition;
+        }
+        if (definition.startsWith(COMMAND_PREFIX)
+                && !com.overzealouspelican.panel.SettingsEditorPanel.isComputedVariableCommandsEnabled()) {
+            System.err.println("Not running " + definition + ": commands of $cmd: variables are disabled in Settings");
+            return null;
+        }
+        long ttlNanos = TimeUnit.SECONDS.toNanos(
+            com.overzealouspelican.panel.SettingsEditorPanel.getComputedVariableTtlSeconds());
+        if (ttlNanos <= 0) {
+            return compute(definition);
+        }
+        while (true) {
+            CachedValue cached = cache.get(definition);
+            if (cached != null && cached.isValid()) {
+                return await(cached);
+            }
+            CachedValue computing = new CachedValue();
+            boolean started = cached == null
+                ? cache.putIfAbsent(definition, computing) == null
+                : cache.replace(definition, cached, computing);
+            if (!started) {
+                continue; // Another request has just started computing it; join it
+            }
+            // Computed outside any lock, so a slow command only holds up the requests waiting for it
+            String value = null;
+            try {
+                value = compute(definition);
+            } finally {
+                if (value == null) {
+                    // Failures are not cached, so a fixed file or command is picked up on the next request
+                    cache.remove(definition, computing);
+                }
+                computing.expiresNanos = System.nanoTime() + ttlNanos;
+                computing.done = true;
+                computing.value.complete(value);
+            }
+            return value;
+        }
+    }
+
+    private static String await(CachedValue cached) {
+        try {
+            return cached.value.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null; // Not reached; values always complete normally
+        }
+    }
+
+    /**
+     * Forget all cached values, so every computed variable is read again when next used
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private static String compute(String definition) {
+        try {
+            if (definition.startsWith(FILE_PREFIX)) {
+                return readFile(definition.substring(FILE_PREFIX.length()).trim());
+            }
+            return runCommand(definition.substring(COMMAND_PREFIX.length()).trim());
+        } catch (IOException e) {
+            System.err.println("Failed to compute variable " + definition + ": " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String readFile(String location) throws IOException {
+        if (location.startsWith("~")) {
+            location = System.getProperty("user.home") + location.substring(1);
+        }
+        Path path = Paths.get(location);
+        if (Files.size(path) > MAX_VALUE_BYTES) {
+            throw new IOException("file is larger than " + MAX_VALUE_BYTES + " bytes");
+        }
+        return Files.readString(path, StandardCharsets.UTF_8).strip();
+    }
+
+    private static String runCommand(String command) throws IOException, InterruptedException {
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("win");
+        ProcessBuilder builder = windows
+            ? new ProcessBuilder("cmd.exe", "/c", command)
+            : new ProcessBuilder("sh", "-c", command);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = builder.start();
+        try {
+            process.getOutputStream().close();
+            // Read on a virtual thread so a command that never exits cannot block past the timeout
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Thread reader = Thread.ofVirtual().start(() -> copyLimited(process.getInputStream(), output));
+            if (!process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("command did not finish within " + COMMAND_TIMEOUT_SECONDS + " seconds");
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(1));
+            if (process.exitValue() != 0) {
+                throw new IOException("command exited with status " + process.exitValue());
+            }
+            synchronized (output) {
+                return output.toString(StandardCharsets.UTF_8).strip();
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private static void copyLimited(InputStream in, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[8192];
+        try (in) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                synchronized (output) {
+                    output.write(buffer, 0, Math.min(read, Math.max(0, MAX_VALUE_BYTES - output.size())));
+                }
+            }
+        } catch (IOException e) {
+            // The process was stopped; whatever was read is used
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.overzealouspelican.service;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The settings that require a separate HttpClient: calls with equal profiles share one
+ * client, and with it its connection pool and TLS session cache (see HttpClientRegistry).
+ * Immutable; use the with-methods to derive a variant.
+ */
+public final class ConnectionProfile {
+
+    private final HttpClient.Version httpVersion;
+    private final boolean insecureTls;
+    private final String proxy; // host:port, or null for the system proxy settings
+    private final Duration connectTimeout;
+    private final int executorThreads; // 0 for virtual threads
+
+    public ConnectionProfile(HttpClient.Version httpVersion, boolean insecureTls, String proxy,
+                             Duration connectTimeout, int executorThreads) {
+        this.httpVersion = httpVersion;
+        this.insecureTls = insecureTls;
+        this.proxy = proxy == null || proxy.trim().isEmpty() ? null : proxy.trim();
+        this.connectTimeout = connectTimeout;
+        this.executorThreads = Math.max(0, executorThreads);
+    }
+
+    /**
+     * Create the profile configured in Settings, with certificate validation enabled
+     */
+    public static ConnectionProfile fromSettings() {
+        return new ConnectionProfile(
+            parseVersion(com.overzealouspelican.panel.SettingsEditorPanel.getHttpVersion()),
+            false,
+            com.overzealouspelican.panel.SettingsEditorPanel.getHttpProxy(),
+            Duration.ofSeconds(com.overzealouspelican.panel.SettingsEditorPanel.getConnectTimeoutSeconds()),
+            com.overzealouspelican.panel.SettingsEditorPanel.getHttpClientThreads());
+    }
+
+    private static HttpClient.Version parseVersion(String name) {
+        try {
+            return HttpClient.Version.valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+
+    public ConnectionProfile withInsecureTls(boolean insecureTls) {
+        return new ConnectionProfile(httpVersion, insecureTls, proxy, connectTimeout, executorThreads);
+    }
+
+    public HttpClient.Version getHttpVersion() {
+        return httpVersion;
+    }
+
+    public boolean isInsecureTls() {
+        return insecureTls;
+    }
+
+    public String getProxy() {
+        return proxy;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConnectionProfile)) return false;
+        ConnectionProfile other = (ConnectionProfile) o;
+        return insecureTls == other.insecureTls
+            && executorThreads == other.executorThreads
+            && httpVersion == other.httpVersion
+            && Objects.equals(proxy, other.proxy)
+            && Objects.equals(connectTimeout, other.connectTimeout);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(httpVersion, insecureTls, proxy, connectTimeout, executorThreads);
+    }
+
+    @Override
+    public String toString() {
+        return httpVersion + (insecureTls ? "/insecure" : "") + (proxy != null ? "/proxy=" + proxy : "")
+            + "/connect=" + connectTimeout.getSeconds() + "s" + (executorThreads > 0 ? "/threads=" + executorThreads : "");
+    }
+}
@@ -0,0 +1,53 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A content coding that response bodies can be decoded from, such as gzip.
+ * Codecs are registered with ContentCodecs, which offers every registered coding in the
+ * Accept-Encoding header and picks the codec for a response from its Content-Encoding.
+ * Implementations must be safe to share; each response gets its own Decoder.
+ */
+public interface ContentCodec {
+
+    /**
+     * Get the coding name as used in Accept-Encoding and Content-Encoding (e.g. "gzip")
+     */
+    String getName();
+
+    /**
+     * Create a decoder for one response body
+     */
+    Decoder newDecoder();
+
+    /**
+     * Receives decoded bytes; it must consume the buffer before returning
+     */
+    @FunctionalInterface
+    interface Sink {
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Decodes one body as it arrives, buffer by buffer. Not thread-safe.
+     */
+    interface Decoder {
+
+        /**
+         * Decode all remaining bytes of an encoded buffer, passing any output to the sink
+         */
+        void decode(ByteBuffer input, Sink output) throws IOException;
+
+        /**
+         * Flush the last output once the whole body has been decoded; fails if the encoded
+         * body was cut short
+         */
+        void finish(Sink output) throws IOException;
+
+        /**
+         * Release the decoder's resources; called once, whether or not decoding finished
+         */
+        void close();
+    }
+}
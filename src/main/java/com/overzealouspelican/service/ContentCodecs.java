@@ -0,0 +1,134 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The content codings YAPMC can decode, offered to servers in Accept-Encoding.
+ * gzip and deflate are built in; more can be added with register(). A response whose
+ * Content-Encoding lists several codings is decoded in reverse order of the list.
+ */
+public class ContentCodecs {
+
+    private static final Map<String, ContentCodec> codecs = new LinkedHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new DeflateCodec());
+    }
+
+    /**
+     * Add a codec, replacing any registered under the same name
+     */
+    public static synchronized void register(ContentCodec codec) {
+        codecs.put(codec.getName().toLowerCase(Locale.ROOT), codec);
+    }
+
+    /**
+     * Get the codec for a coding name, or null if it is not supported
+     */
+    public static synchronized ContentCodec find(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        if (key.equals("x-gzip")) {
+            key = "gzip"; // Old alias, still sent by some servers
+        }
+        return codecs.get(key);
+    }
+
+    /**
+     * Get the value of the Accept-Encoding header to send, listing every registered coding
+     */
+    public static synchronized String getAcceptEncoding() {
+        return String.join(", ", codecs.keySet());
+    }
+
+    /**
+     * Check whether a Content-Encoding header value needs decoding (it is not empty or identity)
+     */
+    public static boolean isEncoded(String contentEncoding) {
+        return !codings(contentEncoding).isEmpty();
+    }
+
+    /**
+     * Create a decoder for a Content-Encoding header value. Returns null if the body is not
+     * encoded, or is encoded with a coding that has no codec and must be kept as received.
+     */
+    public static ContentCodec.Decoder newDecoder(String contentEncoding) {
+        List<String> codings = codings(contentEncoding);
+        if (codings.isEmpty()) {
+            return null;
+        }
+        List<ContentCodec> chain = new ArrayList<>();
+        for (String coding : codings) {
+            ContentCodec codec = find(coding);
+            if (codec == null) {
+                return null;
+            }
+            chain.add(0, codec); // The last coding applied is removed first
+        }
+        if (chain.size() == 1) {
+            return chain.get(0).newDecoder();
+        }
+        List<ContentCodec.Decoder> decoders = new ArrayList<>();
+        for (ContentCodec codec : chain) {
+            decoders.add(codec.newDecoder());
+        }
+        return new ChainedDecoder(decoders);
+    }
+
+    private static List<String> codings(String contentEncoding) {
+        List<String> codings = new ArrayList<>();
+        if (contentEncoding == null) {
+            return codings;
+        }
+        for (String coding : contentEncoding.split(",")) {
+            String trimmed = coding.trim();
+            if (!trimmed.isEmpty() && !trimmed.equalsIgnoreCase("identity")) {
+                codings.add(trimmed);
+            }
+        }
+        return codings;
+    }
+
+    /**
+     * Feeds the output of each decoder into the next one
+     */
+    private static class ChainedDecoder implements ContentCodec.Decoder {
+        private final List<ContentCodec.Decoder> decoders;
+
+        ChainedDecoder(List<ContentCodec.Decoder> decoders) {
+            this.decoders = decoders;
+        }
+
+        @Override
+        public void decode(ByteBuffer input, ContentCodec.Sink output) throws IOException {
+            decoders.get(0).decode(input, stage(1, output));
+        }
+
+        @Override
+        public void finish(ContentCodec.Sink output) throws IOException {
+            for (int i = 0; i < decoders.size(); i++) {
+                decoders.get(i).finish(stage(i + 1, output));
+            }
+        }
+
+        private ContentCodec.Sink stage(int index, ContentCodec.Sink output) {
+            if (index == decoders.size()) {
+                return output;
+            }
+            return buffer -> decoders.get(index).decode(buffer, stage(index + 1, output));
+        }
+
+        @Override
+        public void close() {
+            for (ContentCodec.Decoder decoder : decoders) {
+                decoder.close();
+            }
+        }
+    }
+}
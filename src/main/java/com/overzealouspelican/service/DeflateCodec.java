@@ -0,0 +1,64 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The deflate content coding. HTTP defines it as zlib-wrapped DEFLATE, but some servers send
+ * raw DEFLATE data, so the format is detected from the first two bytes.
+ */
+class DeflateCodec implements ContentCodec {
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public Decoder newDecoder() {
+        return new DeflateDecoder();
+    }
+
+    private static class DeflateDecoder extends InflaterDecoder {
+        private final byte[] header = new byte[2];
+        private int headerLength;
+        private boolean started;
+
+        DeflateDecoder() {
+            super("deflate");
+        }
+
+        @Override
+        public void decode(ByteBuffer input, Sink output) throws IOException {
+            if (!started) {
+                while (headerLength < header.length && input.hasRemaining()) {
+                    header[headerLength++] = input.get();
+                }
+                if (headerLength < header.length) {
+                    return;
+                }
+                started = true;
+                startStream(!isZlibHeader(header[0] & 0xff, header[1] & 0xff));
+                inflate(ByteBuffer.wrap(header), output);
+            }
+            if (!isStreamFinished()) {
+                inflate(input, output);
+            }
+            input.position(input.limit()); // Anything after the end of the stream is ignored
+        }
+
+        private static boolean isZlibHeader(int cmf, int flg) {
+            return (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+        }
+
+        @Override
+        public void finish(Sink output) throws IOException {
+            if (headerLength == 0) {
+                return; // Empty body, e.g. a HEAD response
+            }
+            if (!isStreamFinished()) {
+                throw truncated();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApplicationState;
+import com.overzealouspelican.model.Environment;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared in-memory repository of environments.
+ * Environments are loaded from the StorageBackend once; mutations update memory immediately
+ * and are written behind to the backend in batches by the PersistenceExecutor.
+ * Uses the Singleton pattern so all panels see the same state.
+ */
+public class EnvironmentRepository {
+
+    private static final String PERSISTENCE_KEY = "environments";
+    private static final String PERSISTENCE_DESCRIPTION = "Environments written to disk";
+
+    private static EnvironmentRepository instance;
+
+    private final StorageBackend backend;
+    private final Map<String, Environment> environments;
+    private final ReadWriteLock lock;
+    private final PersistenceExecutor persistenceExecutor;
+    private StorageBatch pendingWrites; // Guarded by the write lock
+
+    private EnvironmentRepository(StorageBackend backend) {
+        this.backend = backend;
+        this.lock = new ReentrantReadWriteLock();
+        this.persistenceExecutor = PersistenceExecutor.getInstance();
+        this.environments = new LinkedHashMap<>();
+        this.pendingWrites = new StorageBatch();
+
+        try {
+            environments.putAll(backend.loadEnvironments());
+        } catch (IOException e) {
+            System.err.println("Failed to load environments: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the singleton instance of EnvironmentRepository, loading the environments on first use
+     */
+    public static synchronized EnvironmentRepository getInstance() {
+        if (instance == null) {
+            instance = new EnvironmentRepository(StorageBackends.getShared());
+        }
+        return instance;
+    }
+
+    /**
+     * Get a copy of all environments, in storage order
+     */
+    public Map<String, Environment> findAll() {
+        lock.readLock().lock();
+        try {
+            Map<String, Environment> copy = new LinkedHashMap<>();
+            environments.forEach((name, environment) ->
+                copy.put(name, new Environment(environment)));
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a copy of a specific environment by name, or null if it does not exist
+     */
+    public Environment find(String name) {
+        lock.readLock().lock();
+        try {
+            Environment environment = environments.get(name);
+            return environment != null ? new Environment(environment) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if an environment exists
+     */
+    public boolean exists(String name) {
+        lock.readLock().lock();
+        try {
+            return environments.containsKey(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Save (insert or replace) an environment
+     */
+    public void save(Environment environment) {
+        Environment stored = new Environment(environment.getName(), environment.getVariables(), environment.getHostOverrides());
+        lock.writeLock().lock();
+        try {
+            Environment current = environments.get(stored.getName());
+            long version = current != null ? current.getVersion() : 0;
+            stored.setVersion(version + 1);
+            environments.put(stored.getName(), stored);
+            pendingWrites.putEnvironment(stored, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Delete an environment
+     */
+    public void delete(String name) {
+        lock.writeLock().lock();
+        try {
+            Environment removed = environments.remove(name);
+            if (removed == null) {
+                return;
+            }
+            pendingWrites.deleteEnvironment(name, removed.getVersion());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Apply changes made to the stored environments outside this process, after the backend
+     * has been reloaded. Environments with unwritten local changes keep their local version.
+     * Must run on the persistence thread. The names of the added, changed and removed
+     * environments are published through ApplicationState.
+     */
+    public void applyExternalChanges() throws IOException {
+        Map<String, Environment> stored = backend.loadEnvironments();
+
+        Set<String> changedNames = new LinkedHashSet<>();
+        lock.writeLock().lock();
+        try {
+            for (Environment environment : stored.values()) {
+                String name = environment.getName();
+                if (!pendingWrites.touchesEnvironment(name) && !environment.equals(environments.get(name))) {
+                    environments.put(name, environment);
+                    changedNames.add(name);
+                }
+            }
+
+            Iterator<String> names = environments.keySet().iterator();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!stored.containsKey(name) && !pendingWrites.touchesEnvironment(name)) {
+                    names.remove();
+                    changedNames.add(name);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!changedNames.isEmpty()) {
+            System.out.println("Applied environment changes made outside the application: " + changedNames);
+            SwingUtilities.invokeLater(() -> ApplicationState.getInstance()
+                .firePropertyChange(ApplicationState.PROPERTY_ENVIRONMENTS_CHANGED, null, changedNames));
+        }
+    }
+
+    /**
+     * Schedule a write of the pending mutations; a burst of mutations is written as one batch
+     */
+    private void scheduleWrite() {
+        persistenceExecutor.schedule(PERSISTENCE_KEY, PERSISTENCE_DESCRIPTION, this::writePending);
+    }
+
+    private void writePending() throws IOException {
+        StorageBatch batch;
+        lock.writeLock().lock();
+        try {
+            batch = pendingWrites;
+            pendingWrites = new StorageBatch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<String> conflicts;
+        try {
+            conflicts = backend.write(batch);
+        } catch (IOException e) {
+            // Keep the mutations; PersistenceExecutor retries this write, which picks them up again
+            lock.writeLock().lock();
+            try {
+                pendingWrites = StorageBatch.merge(batch, pendingWrites);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        if (!conflicts.isEmpty()) {
+            System.err.println("Environments changed by another instance meanwhile: " + conflicts);
+            applyExternalChanges();
+            SwingUtilities.invokeLater(() -> ApplicationState.getInstance().setStatusWarning(
+                "Environment changed by another instance meanwhile: " + String.join(", ", conflicts) + " - your version was kept as a conflict copy"));
+        }
+    }
+}
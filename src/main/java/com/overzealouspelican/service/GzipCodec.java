@@ -0,0 +1,176 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * The gzip content coding (RFC 1952). The header and trailer are parsed as bytes arrive, the
+ * CRC and length in the trailer are checked, and concatenated members are decoded in turn.
+ */
+class GzipCodec implements ContentCodec {
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public Decoder newDecoder() {
+        return new GzipDecoder();
+    }
+
+    private static class GzipDecoder extends InflaterDecoder {
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        // Parts of a member, in order; optional header parts are skipped unless flagged
+        private static final int FIXED_HEADER = 0;
+        private static final int EXTRA_LENGTH = 1;
+        private static final int EXTRA = 2;
+        private static final int NAME = 3;
+        private static final int COMMENT = 4;
+        private static final int HEADER_CRC = 5;
+        private static final int BODY = 6;
+        private static final int TRAILER = 7;
+        private static final int DONE = 8;
+
+        private final byte[] scratch = new byte[10];
+        private final CRC32 crc = new CRC32();
+        private int state = FIXED_HEADER;
+        private int scratchLength;
+        private int flags;
+        private int extraRemaining;
+        private long memberBytes;
+        private int members;
+
+        GzipDecoder() {
+            super("gzip");
+        }
+
+        @Override
+        public void decode(ByteBuffer input, Sink output) throws IOException {
+            while (input.hasRemaining()) {
+                switch (state) {
+                    case FIXED_HEADER:
+                        scratch[scratchLength++] = input.get();
+                        if (scratchLength == 10) {
+                            scratchLength = 0;
+                            if ((scratch[0] & 0xff) != 0x1f || (scratch[1] & 0xff) != 0x8b || scratch[2] != 8) {
+                                if (members > 0) {
+                                    state = DONE; // Trailing garbage after a complete member is ignored
+                                    break;
+                                }
+                                throw new IOException("Not in gzip format");
+                            }
+                            flags = scratch[3] & 0xff;
+                            state = nextHeaderPart(EXTRA_LENGTH);
+                        }
+                        break;
+                    case EXTRA_LENGTH:
+                        scratch[scratchLength++] = input.get();
+                        if (scratchLength == 2) {
+                            scratchLength = 0;
+                            extraRemaining = (scratch[0] & 0xff) | (scratch[1] & 0xff) << 8;
+                            state = extraRemaining > 0 ? EXTRA : nextHeaderPart(NAME);
+                        }
+                        break;
+                    case EXTRA:
+                        int skipped = Math.min(extraRemaining, input.remaining());
+                        input.position(input.position() + skipped);
+                        extraRemaining -= skipped;
+                        if (extraRemaining == 0) {
+                            state = nextHeaderPart(NAME);
+                        }
+                        break;
+                    case NAME:
+                    case COMMENT:
+                        if (input.get() == 0) {
+                            state = nextHeaderPart(state + 1);
+                        }
+                        break;
+                    case HEADER_CRC:
+                        input.get();
+                        if (++scratchLength == 2) {
+                            scratchLength = 0;
+                            state = nextHeaderPart(BODY);
+                        }
+                        break;
+                    case BODY:
+                        inflate(input, buffer -> {
+                            memberBytes += buffer.remaining();
+                            crc.update(buffer.duplicate());
+                            output.write(buffer);
+                        });
+                        if (isStreamFinished()) {
+                            state = TRAILER;
+                        }
+                        break;
+                    case TRAILER:
+                        scratch[scratchLength++] = input.get();
+                        if (scratchLength == 8) {
+                            scratchLength = 0;
+                            checkTrailer();
+                            members++;
+                            state = FIXED_HEADER;
+                        }
+                        break;
+                    default:
+                        input.position(input.limit());
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Get the first header part from the given one that is present, or the body
+         */
+        private int nextHeaderPart(int from) {
+            int part = from;
+            if (part == EXTRA_LENGTH && (flags & FEXTRA) == 0) {
+                part = NAME;
+            }
+            if (part == NAME && (flags & FNAME) == 0) {
+                part = COMMENT;
+            }
+            if (part == COMMENT && (flags & FCOMMENT) == 0) {
+                part = HEADER_CRC;
+            }
+            if (part == HEADER_CRC && (flags & FHCRC) == 0) {
+                part = BODY;
+            }
+            if (part == BODY) {
+                startStream(true);
+                crc.reset();
+                memberBytes = 0;
+            }
+            return part;
+        }
+
+        private void checkTrailer() throws IOException {
+            long expectedCrc = littleEndianInt(0);
+            long expectedSize = littleEndianInt(4);
+            if (expectedCrc != crc.getValue()) {
+                throw new IOException("Corrupt gzip body: CRC mismatch");
+            }
+            if (expectedSize != (memberBytes & 0xffffffffL)) {
+                throw new IOException("Corrupt gzip body: length mismatch");
+            }
+        }
+
+        private long littleEndianInt(int offset) {
+            return (scratch[offset] & 0xffL) | (scratch[offset + 1] & 0xffL) << 8
+                | (scratch[offset + 2] & 0xffL) << 16 | (scratch[offset + 3] & 0xffL) << 24;
+        }
+
+        @Override
+        public void finish(Sink output) throws IOException {
+            if (state == DONE || (state == FIXED_HEADER && (scratchLength == 0 || members > 0))) {
+                return; // Complete members, or an empty body such as a HEAD response
+            }
+            throw truncated();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves host names for TimedHttpEngine, shared by all requests.
+ * Addresses are cached for as long as the JDK is configured to trust a lookup
+ * (networkaddress.cache.ttl, 30 seconds by default) and failures for
+ * networkaddress.cache.negative.ttl (10 seconds by default); concurrent lookups of the same
+ * host share one query. Hosts overridden by the selected environment are never looked up:
+ * the override address is used with the original host name, so TLS still sees that name.
+ * Uses the Singleton pattern.
+ */
+public class HostResolver {
+
+    private static final long DEFAULT_TTL_SECONDS = 30;
+    private static final long DEFAULT_NEGATIVE_TTL_SECONDS = 10;
+
+    private static HostResolver instance;
+
+    private final Map<String, CachedLookup> cache; // Lower-case host -> latest lookup
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * A lookup in progress or done; joined by every request for the host until it expires
+     */
+    private static class CachedLookup {
+        final CompletableFuture<InetAddress[]> addresses = new CompletableFuture<>();
+        volatile boolean done;
+        volatile long expiresNanos;
+
+        boolean isValid() {
+            return !done || System.nanoTime() - expiresNanos < 0;
+        }
+    }
+
+    private HostResolver() {
+        this.cache = new ConcurrentHashMap<>();
+        this.ttlNanos = readTtlNanos("networkaddress.cache.ttl", DEFAULT_TTL_SECONDS);
+        this.negativeTtlNanos = readTtlNanos("networkaddress.cache.negative.ttl", DEFAULT_NEGATIVE_TTL_SECONDS);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Get the singleton instance of HostResolver
+     */
+    public static synchronized HostResolver getInstance() {
+        if (instance == null) {
+            instance = new HostResolver();
+        }
+        return instance;
+    }
+
+    private static long readTtlNanos(String property, long defaultSeconds) {
+        long seconds = defaultSeconds;
+        try {
+            String value = Security.getProperty(property);
+            if (value != null) {
+                seconds = Long.parseLong(value.trim());
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + property + ", using " + defaultSeconds + " seconds");
+        }
+        return seconds < 0 ? Long.MAX_VALUE / 2 : TimeUnit.SECONDS.toNanos(seconds); // Negative means forever
+    }
+
+    /**
+     * Get the addresses to connect to for a host, from the overrides, the cache or DNS
+     */
+    public InetAddress[] resolve(String host, Map<String, String> hostOverrides) throws IOException {
+        String override = findOverride(host, hostOverrides);
+        if (override != null) {
+            return parseOverride(host, override);
+        }
+
+        String key = host.toLowerCase(Locale.ROOT);
+        while (true) {
+            CachedLookup cached = cache.get(key);
+            if (cached != null && cached.isValid()) {
+                hits.incrementAndGet();
+                return await(cached);
+            }
+            CachedLookup lookup = new CachedLookup();
+            boolean started = cached == null ? cache.putIfAbsent(key, lookup) == null : cache.replace(key, cached, lookup);
+            if (!started) {
+                continue; // Another request has just started a lookup; join it
+            }
+            misses.incrementAndGet();
+            try {
+                InetAddress[] addresses = InetAddress.getAllByName(host);
+                lookup.expiresNanos = System.nanoTime() + ttlNanos;
+                lookup.done = true;
+                lookup.addresses.complete(addresses);
+                return addresses;
+            } catch (UnknownHostException e) {
+                lookup.expiresNanos = System.nanoTime() + negativeTtlNanos;
+                lookup.done = true;
+                lookup.addresses.completeExceptionally(e);
+                throw e;
+            } catch (RuntimeException e) {
+                cache.remove(key, lookup); // Not a DNS answer; do not cache it
+                lookup.done = true;
+                lookup.addresses.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static InetAddress[] await(CachedLookup lookup) throws IOException {
+        try {
+            return lookup.addresses.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving a host name");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownHostException) {
+                throw new UnknownHostException(e.getCause().getMessage());
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the override address configured for a host, or null if it is not overridden
+     */
+    public static String findOverride(String host, Map<String, String> hostOverrides) {
+        if (host == null || hostOverrides == null || hostOverrides.isEmpty()) {
+            return null;
+        }
+        String bare = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        for (Map.Entry<String, String> entry : hostOverrides.entrySet()) {
+            if (entry.getKey().trim().equalsIgnoreCase(bare)) {
+                return entry.getValue().trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse an override of one or more comma separated IP addresses, keeping the host name
+     */
+    private static InetAddress[] parseOverride(String host, String override) throws IOException {
+        String[] parts = override.split("\\s*,\\s*");
+        InetAddress[] addresses = new InetAddress[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String address = parts[i].startsWith("[") && parts[i].endsWith("]")
+                ? parts[i].substring(1, parts[i].length() - 1) : parts[i];
+            if (!isIpAddress(address)) {
+                throw new UnknownHostException("Host override for " + host + " is not an IP address: " + parts[i]);
+            }
+            addresses[i] = InetAddress.getByAddress(host, InetAddress.getByName(address).getAddress());
+        }
+        return addresses;
+    }
+
+    /**
+     * Check whether a string is an IPv4 or IPv6 address literal, which resolves without DNS
+     */
+    public static boolean isIpAddress(String value) {
+        return value.contains(":") ? value.matches("[0-9a-fA-F:.%]+") : value.matches("\\d{1,3}(\\.\\d{1,3}){3}");
+    }
+
+    /**
+     * Get the number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups sent to DNS
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Forget all cached addresses
+     */
+    public void clear() {
+        cache.clear();
+    }
+}
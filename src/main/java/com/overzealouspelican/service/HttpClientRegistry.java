@@ -0,0 +1,146 @@
+package com.overzealouspelican.service;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide registry of HttpClients, one per ConnectionProfile.
+ * Clients are created on first use and kept for the lifetime of the application, so every
+ * panel sending to the same host reuses the same keep-alive connections, selector thread
+ * and TLS session cache instead of building a client of its own.
+ * Uses the Singleton pattern.
+ */
+public class HttpClientRegistry {
+
+    private static HttpClientRegistry instance;
+
+    private final Map<ConnectionProfile, HttpClient> clients;
+    private final AtomicInteger threadCounter;
+
+    private HttpClientRegistry() {
+        this.clients = new ConcurrentHashMap<>();
+        this.threadCounter = new AtomicInteger();
+    }
+
+    /**
+     * Get the singleton instance of HttpClientRegistry
+     */
+    public static synchronized HttpClientRegistry getInstance() {
+        if (instance == null) {
+            instance = new HttpClientRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the shared client for a profile, creating it on first use
+     */
+    public HttpClient getClient(ConnectionProfile profile) {
+        return clients.computeIfAbsent(profile, this::createClient);
+    }
+
+    /**
+     * Get the number of clients created so far
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    private HttpClient createClient(ConnectionProfile profile) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(profile.getHttpVersion())
+            .connectTimeout(profile.getConnectTimeout());
+
+        if (profile.getProxy() != null) {
+            builder.proxy(ProxySelector.of(parseProxy(profile.getProxy())));
+        } else {
+            builder.proxy(ProxySelector.getDefault()); // Use system proxy settings
+        }
+
+        if (profile.getExecutorThreads() > 0) {
+            builder.executor(createExecutor(profile.getExecutorThreads()));
+        } else {
+            builder.executor(TaskExecutor.getInstance().getExecutor());
+        }
+
+        if (profile.isInsecureTls()) {
+            try {
+                builder.sslContext(createTrustAllContext());
+            } catch (GeneralSecurityException e) {
+                System.err.println("Failed to create insecure TLS context, certificates will be validated: " + e.getMessage());
+            }
+        }
+
+        System.out.println("Created HTTP client for profile: " + profile);
+        return builder.build();
+    }
+
+    private ExecutorService createExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "yapmc-http-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create a TLS context that trusts all certificates and host names (for development servers only).
+     * The trust manager is an X509ExtendedTrustManager, so JSSE leaves the host name check to it
+     * instead of wrapping it with its own; this is what makes the global
+     * jdk.internal.httpclient.disableHostnameVerification property unnecessary.
+     */
+    static SSLContext createTrustAllContext() throws GeneralSecurityException {
+        TrustManager[] trustAllCerts = new TrustManager[]{
+            new X509ExtendedTrustManager() {
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+                public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                }
+                public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                }
+                public void checkClientTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                }
+                public void checkServerTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                }
+                public void checkClientTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                }
+                public void checkServerTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                }
+            }
+        };
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustAllCerts, new SecureRandom());
+        return sslContext;
+    }
+
+    private static InetSocketAddress parseProxy(String proxy) {
+        int colon = proxy.lastIndexOf(':');
+        if (colon < 0) {
+            return InetSocketAddress.createUnresolved(proxy, 80);
+        }
+        String host = proxy.substring(0, colon);
+        int port;
+        try {
+            port = Integer.parseInt(proxy.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            port = 80;
+        }
+        return InetSocketAddress.createUnresolved(host, port);
+    }
+}
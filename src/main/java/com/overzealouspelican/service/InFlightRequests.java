@@ -0,0 +1,259 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApplicationState;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the HTTP requests currently being executed.
+ * Identical safe requests (same method, URL, headers and body) sent while one is still in
+ * flight join the running exchange instead of sending a second one (single flight), so a
+ * double-clicked Send never hits the server twice. Requests without a key, such as POSTs,
+ * are never joined. Everyone who sends a request gets a handle of their own: cancelling it
+ * ends that sender's wait, and the exchange is aborted once no handle is waiting for it.
+ * The number of exchanges in flight is published through ApplicationState.
+ * Uses the Singleton pattern.
+ */
+public class InFlightRequests {
+
+    private static InFlightRequests instance;
+
+    private final Map<String, Exchange> shared; // Request key -> running exchange that can be joined
+    private final Set<Exchange> running; // Every running exchange, oldest first
+
+    /**
+     * One sender's handle on a running request
+     */
+    public static class InFlightRequest {
+        private final String description;
+        private final long startNanos;
+        private final Consumer<InFlightRequest> canceller;
+        private final CompletableFuture<ApiCallService.HttpCallResult> result;
+
+        InFlightRequest(String description, CompletableFuture<ApiCallService.HttpCallResult> result,
+                        long startNanos, Consumer<InFlightRequest> canceller) {
+            this.description = description;
+            this.startNanos = startNanos;
+            this.canceller = canceller;
+            this.result = result;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Get the result; completes with an error result (never exceptionally) when the
+         * request fails, times out or is cancelled
+         */
+        public CompletableFuture<ApiCallService.HttpCallResult> getResult() {
+            return result;
+        }
+
+        public long getElapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        /**
+         * Stop waiting for the request; the result completes with a cancellation error. The
+         * exchange is aborted unless someone else who sent the same request still waits for it.
+         */
+        public void cancel() {
+            canceller.accept(this);
+        }
+    }
+
+    /**
+     * A request about to be sent: the exchange and the result derived from it
+     */
+    public static class Exchange {
+        final CompletableFuture<?> exchange;
+        final CompletableFuture<ApiCallService.HttpCallResult> result;
+        final long startNanos;
+        private String key; // Null if it cannot be joined
+        private boolean aborted; // Every handle was cancelled; guarded by the registry
+        private final List<InFlightRequest> handles; // Still waiting for the result; guarded by the registry
+
+        public Exchange(CompletableFuture<?> exchange, CompletableFuture<ApiCallService.HttpCallResult> result, long startNanos) {
+            this.exchange = exchange;
+            this.result = result;
+            this.startNanos = startNanos;
+            this.handles = new ArrayList<>();
+        }
+    }
+
+    private InFlightRequests() {
+        this.shared = new HashMap<>();
+        this.running = new LinkedHashSet<>();
+    }
+
+    /**
+     * Get the singleton instance of InFlightRequests
+     */
+    public static synchronized InFlightRequests getInstance() {
+        if (instance == null) {
+            instance = new InFlightRequests();
+        }
+        return instance;
+    }
+
+    /**
+     * Join the in-flight request with the same key, or start a new one with the sender.
+     * A null key always starts a new request, which no one else can join; use it for requests
+     * that are not safe to share, such as POST. Every call returns a new handle.
+     * The sender must not block; it is called while the registry is locked.
+     */
+    public InFlightRequest execute(String key, String description, Supplier<Exchange> sender) {
+        Exchange exchange;
+        InFlightRequest request;
+        boolean started = false;
+        synchronized (this) {
+            exchange = key != null ? shared.get(key) : null;
+            if (exchange != null) {
+                System.out.println("Joined request already in flight: " + description);
+            } else {
+                exchange = sender.get();
+                exchange.key = key;
+                if (key != null) {
+                    shared.put(key, exchange);
+                }
+                running.add(exchange);
+                started = true;
+            }
+            Exchange target = exchange;
+            request = new InFlightRequest(description, new CompletableFuture<>(), exchange.startNanos,
+                handle -> release(handle, target));
+            exchange.handles.add(request);
+        }
+        if (started) {
+            publishCount();
+            Exchange finished = exchange;
+            // May run right away if the request already failed
+            exchange.result.whenComplete((result, error) -> finished(finished, result));
+        }
+        Exchange joined = exchange;
+        exchange.result.whenComplete((result, error) -> {
+            synchronized (this) {
+                joined.handles.remove(request);
+            }
+            request.result.complete(error != null ? ApiCallService.HttpCallResult.failed(error) : result);
+        });
+        return request;
+    }
+
+    /**
+     * Start a request whose key is only known once it has been prepared, such as one rendered
+     * from templates whose variables may read files or run commands. The starter runs on a
+     * virtual thread, never on the caller's, and registers the request with execute().
+     * Cancelling the returned request stops the preparation, or the request it started.
+     * Its result completes with an error result if the starter fails.
+     */
+    public InFlightRequest start(String description, Callable<InFlightRequest> starter) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<InFlightRequest> started = new AtomicReference<>();
+        CompletableFuture<InFlightRequest> preparing = TaskExecutor.getInstance().submit(() -> {
+            InFlightRequest request = starter.call();
+            started.set(request);
+            if (cancelled.get()) {
+                request.cancel(); // Cancelled while it was being registered
+            }
+            return request;
+        });
+        CompletableFuture<ApiCallService.HttpCallResult> result = preparing
+            .thenCompose(InFlightRequest::getResult)
+            .handle((callResult, error) -> error != null ? ApiCallService.HttpCallResult.failed(error) : callResult);
+        return new InFlightRequest(description, result, System.nanoTime(), handle -> {
+            cancelled.set(true);
+            preparing.cancel(true);
+            InFlightRequest request = started.get();
+            if (request != null) {
+                request.cancel();
+            }
+        });
+    }
+
+    /**
+     * Stop a handle waiting for its exchange, aborting the exchange if it was the last one
+     */
+    private void release(InFlightRequest handle, Exchange exchange) {
+        boolean abort;
+        synchronized (this) {
+            if (!exchange.handles.remove(handle)) {
+                return; // Already cancelled, or the result has arrived
+            }
+            abort = exchange.handles.isEmpty();
+            exchange.aborted = abort;
+            if (abort && exchange.key != null) {
+                shared.remove(exchange.key, exchange); // Not joined again while it is being aborted
+            }
+        }
+        handle.result.complete(ApiCallService.HttpCallResult.failed(new CancellationException("Request cancelled")));
+        if (abort) {
+            exchange.exchange.cancel(true);
+        }
+    }
+
+    private void finished(Exchange exchange, ApiCallService.HttpCallResult result) {
+        boolean unclaimed;
+        synchronized (this) {
+            if (exchange.key != null) {
+                shared.remove(exchange.key, exchange);
+            }
+            running.remove(exchange);
+            unclaimed = exchange.aborted;
+        }
+        if (unclaimed && result != null && result.getResponseBody() != null) {
+            // Arrived just as the last handle was cancelled; no one will release it
+            result.getResponseBody().release();
+        }
+        publishCount();
+    }
+
+    /**
+     * Get a snapshot of the handles waiting for a request in flight, oldest request first
+     */
+    public synchronized List<InFlightRequest> getAll() {
+        List<InFlightRequest> handles = new ArrayList<>();
+        for (Exchange exchange : running) {
+            handles.addAll(exchange.handles);
+        }
+        return handles;
+    }
+
+    /**
+     * Get the number of exchanges in flight; joined requests count once
+     */
+    public synchronized int size() {
+        return running.size();
+    }
+
+    /**
+     * Cancel every request in flight
+     */
+    public void cancelAll() {
+        getAll().forEach(InFlightRequest::cancel);
+    }
+
+    private void publishCount() {
+        int count = size();
+        SwingUtilities.invokeLater(() -> ApplicationState.getInstance()
+            .firePropertyChange(ApplicationState.PROPERTY_IN_FLIGHT_REQUESTS, null, count));
+    }
+}
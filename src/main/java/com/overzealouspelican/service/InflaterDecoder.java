@@ -0,0 +1,78 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Base for decoders of DEFLATE data (gzip and deflate), built on the JDK's Inflater.
+ * Output goes through one buffer from the BufferPool, so decoding a large body needs no
+ * more memory than receiving it.
+ */
+abstract class InflaterDecoder implements ContentCodec.Decoder {
+
+    private final String codingName;
+    private final ByteBuffer output;
+    private Inflater inflater;
+    private boolean closed;
+
+    InflaterDecoder(String codingName) {
+        this.codingName = codingName;
+        this.output = BufferPool.getInstance().acquire();
+    }
+
+    /**
+     * Start a new DEFLATE stream; nowrap selects raw data rather than the zlib format
+     */
+    protected void startStream(boolean nowrap) {
+        if (inflater != null) {
+            inflater.end();
+        }
+        inflater = new Inflater(nowrap);
+    }
+
+    /**
+     * Inflate input until the stream ends or more input is needed. The position of the input
+     * is left after the last byte of the stream, so whatever follows it can be read.
+     */
+    protected void inflate(ByteBuffer input, ContentCodec.Sink sink) throws IOException {
+        inflater.setInput(input);
+        try {
+            while (!inflater.finished()) {
+                output.clear();
+                int inflated = inflater.inflate(output);
+                if (inflated > 0) {
+                    output.flip();
+                    sink.write(output);
+                } else if (inflater.needsDictionary()) {
+                    throw new IOException("Compressed " + codingName + " body needs a preset dictionary");
+                } else {
+                    break; // All input consumed
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt " + codingName + " body: " + e.getMessage(), e);
+        }
+    }
+
+    protected boolean isStreamFinished() {
+        return inflater != null && inflater.finished();
+    }
+
+    protected IOException truncated() {
+        return new IOException("Compressed " + codingName + " body ended too early");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (inflater != null) {
+            inflater.end();
+        }
+        BufferPool.getInstance().release(output);
+    }
+}
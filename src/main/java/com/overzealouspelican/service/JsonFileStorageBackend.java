@@ -0,0 +1,454 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallSummary;
+import com.overzealouspelican.model.Environment;
+import com.overzealouspelican.util.DataDirectoryLock;
+import com.overzealouspelican.util.FileFingerprint;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage backend that keeps saved calls and environments in JSON files in the data directory.
+ *
+ * Two layouts are supported for saved calls:
+ * - single file: all calls in api-calls.json, held in memory. In journaled mode each batch is
+ *   appended to a MutationJournal and the file is only rewritten when the journal is compacted.
+ * - sharded: one file per call plus a summary index (see ShardedApiCallStore). Only the
+ *   index is held in memory; a call's file is read when the call is opened.
+ * Environments are always held in memory and stored in environments.json (journaled if enabled).
+ *
+ * Every write and reload holds the DataDirectoryLock, and a write first re-reads the files
+ * if another instance changed them, so instances sharing the directory never overwrite each
+ * other's changes with a stale copy.
+ */
+public class JsonFileStorageBackend implements StorageBackend {
+
+    private static final String API_CALLS_FILE = "api-calls.json";
+    private static final String API_CALLS_JOURNAL_FILE = "api-calls.journal";
+    private static final String ENVIRONMENTS_FILE = "environments.json";
+    private static final String ENVIRONMENTS_JOURNAL_FILE = "environments.journal";
+    private static final String SHARD_DIRECTORY = "calls";
+    private static final String ARCHIVE_SUFFIX = ".bak";
+
+    private final Path dataDirectory;
+    private final DataDirectoryLock directoryLock;
+    private final Path apiCallsFile;
+    private final Path environmentsFile;
+    private final JsonStoreCodec codec;
+    private final MutationJournal<ApiCall> callJournal;
+    private final MutationJournal<Environment> environmentJournal;
+    private final ShardedApiCallStore shardedStore;
+    private final boolean sharded;
+    private final boolean callJournalEnabled;
+    private final boolean environmentJournalEnabled;
+
+    private final Map<String, ApiCall> apiCalls; // Every call; unused with the sharded layout
+    private final Map<String, ApiCallSummary> index; // Every call's summary; sharded layout only
+    private final Map<String, Environment> environments;
+    private final Map<Path, String> fingerprints; // Of the files as last read or written
+    private boolean externalChangesLoaded; // By a write, since the last reload
+
+    public JsonFileStorageBackend(Path dataDirectory) {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        this.codec = JsonStoreCodec.fromSettings(gson);
+        this.dataDirectory = dataDirectory;
+        this.directoryLock = DataDirectoryLock.of(dataDirectory);
+        this.apiCallsFile = dataDirectory.resolve(API_CALLS_FILE);
+        this.environmentsFile = dataDirectory.resolve(ENVIRONMENTS_FILE);
+        this.callJournal = new MutationJournal<>(dataDirectory.resolve(API_CALLS_JOURNAL_FILE), ApiCall.class);
+        this.environmentJournal = new MutationJournal<>(dataDirectory.resolve(ENVIRONMENTS_JOURNAL_FILE), Environment.class);
+        this.shardedStore = new ShardedApiCallStore(dataDirectory.resolve(SHARD_DIRECTORY), codec);
+
+        this.sharded = com.overzealouspelican.panel.SettingsEditorPanel.isShardedStorageEnabled();
+        this.environmentJournalEnabled = com.overzealouspelican.panel.SettingsEditorPanel.isJournalEnabled();
+        this.callJournalEnabled = !sharded && environmentJournalEnabled;
+
+        this.apiCalls = new LinkedHashMap<>();
+        this.index = new LinkedHashMap<>();
+        this.environments = new LinkedHashMap<>();
+        this.fingerprints = new LinkedHashMap<>();
+
+        // Exclusive, because the first load may move the calls to another layout
+        DataDirectoryLock.Held held = null;
+        try {
+            held = directoryLock.lockExclusive();
+        } catch (IOException e) {
+            System.err.println("Failed to lock " + dataDirectory + ", loading anyway: " + e.getMessage());
+        }
+        try {
+            if (sharded) {
+                loadSharded();
+            } else {
+                loadSingleFile();
+            }
+            loadEnvironmentsFile();
+            rememberFingerprints();
+        } finally {
+            release(held);
+        }
+    }
+
+    private static void release(DataDirectoryLock.Held held) {
+        if (held == null) {
+            return;
+        }
+        try {
+            held.close();
+        } catch (IOException e) {
+            System.err.println("Failed to release data directory lock: " + e.getMessage());
+        }
+    }
+
+    private void loadSingleFile() {
+        if (!Files.exists(apiCallsFile) && shardedStore.exists()) {
+            // Switching back from the sharded layout: carry the calls over once
+            apiCalls.putAll(shardedStore.loadAll());
+            try {
+                writeApiCallsFile();
+                shardedStore.archive();
+                System.out.println("Saved calls moved to: " + apiCallsFile);
+            } catch (IOException e) {
+                System.err.println("Failed to move saved calls to " + apiCallsFile + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        // A journal left behind is always replayed, even if journaling has since been turned off
+        apiCalls.putAll(readApiCallsFile());
+        callJournal.replay(apiCalls);
+    }
+
+    private void loadSharded() {
+        if (shardedStore.exists()) {
+            index.putAll(shardedStore.loadIndex());
+            return;
+        }
+
+        // First start with the sharded layout: split api-calls.json into one file per call
+        Map<String, ApiCall> existing = readApiCallsFile();
+        callJournal.replay(existing);
+        existing.forEach((name, apiCall) -> index.put(name, ApiCallSummary.of(apiCall)));
+        if (!existing.isEmpty()) {
+            try {
+                shardedStore.writeAll(existing);
+                archive(apiCallsFile);
+                callJournal.clear();
+                System.out.println("Saved calls moved to: " + shardedStore.getShardDirectory());
+            } catch (IOException e) {
+                System.err.println("Failed to move saved calls to " + shardedStore.getShardDirectory() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void loadEnvironmentsFile() {
+        try {
+            environments.putAll(codec.readMap(environmentsFile, Environment.class));
+        } catch (IOException e) {
+            System.err.println("Failed to load environments: " + e.getMessage());
+            e.printStackTrace();
+        }
+        environmentJournal.replay(environments);
+    }
+
+    private Map<String, ApiCall> readApiCallsFile() {
+        try {
+            return codec.readMap(apiCallsFile, ApiCall.class);
+        } catch (IOException e) {
+            System.err.println("Failed to load API calls: " + e.getMessage());
+            e.printStackTrace();
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @Override
+    public synchronized Map<String, ApiCallSummary> loadCallSummaries() {
+        if (sharded) {
+            return new LinkedHashMap<>(index);
+        }
+        Map<String, ApiCallSummary> summaries = new LinkedHashMap<>();
+        apiCalls.forEach((name, apiCall) -> summaries.put(name, ApiCallSummary.of(apiCall)));
+        return summaries;
+    }
+
+    @Override
+    public synchronized ApiCall loadCall(String name) {
+        if (sharded) {
+            return index.containsKey(name) ? shardedStore.loadCall(name) : null;
+        }
+        return apiCalls.get(name);
+    }
+
+    @Override
+    public synchronized Map<String, ApiCall> loadCallsInGroup(String groupName) {
+        Map<String, ApiCall> result = new LinkedHashMap<>();
+        for (ApiCallSummary summary : loadCallSummaries().values()) {
+            if (summary.isInGroup(groupName)) {
+                ApiCall apiCall = loadCall(summary.getName());
+                if (apiCall != null) {
+                    result.put(summary.getName(), apiCall);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, ApiCall> loadAllCalls() {
+        return sharded ? shardedStore.loadAll() : new LinkedHashMap<>(apiCalls);
+    }
+
+    @Override
+    public synchronized Set<String> loadGroupNames() {
+        Set<String> groupNames = new LinkedHashSet<>();
+        for (ApiCallSummary summary : loadCallSummaries().values()) {
+            if (summary.getGroupName() != null && !summary.getGroupName().trim().isEmpty()) {
+                groupNames.add(summary.getGroupName());
+            }
+        }
+        return groupNames;
+    }
+
+    @Override
+    public synchronized Map<String, Environment> loadEnvironments() {
+        return new LinkedHashMap<>(environments);
+    }
+
+    /**
+     * Write a batch. Calls and environments are written separately, so a crash can
+     * leave one of them updated without the other.
+     */
+    @Override
+    public synchronized List<String> write(StorageBatch batch) throws IOException {
+        DataDirectoryLock.Held held = directoryLock.lockExclusive();
+        try {
+            if (filesChanged()) {
+                // Another instance wrote since we last read: build on its data, not on a stale copy
+                reloadFiles();
+                externalChangesLoaded = true;
+            }
+
+            List<String> conflicts = new ArrayList<>();
+            StorageBatch resolved = batch.resolveConflicts(storedVersions(), conflicts);
+            if (resolved.hasCallChanges()) {
+                if (sharded) {
+                    writeShards(resolved);
+                } else {
+                    writeCalls(resolved);
+                }
+            }
+            if (resolved.hasEnvironmentChanges()) {
+                writeEnvironments(resolved);
+            }
+            directoryLock.incrementSequence();
+            rememberFingerprints();
+            return conflicts;
+        } finally {
+            release(held);
+        }
+    }
+
+    private StorageBatch.StoredVersions storedVersions() {
+        return new StorageBatch.StoredVersions() {
+            @Override
+            public Long callVersion(String name) {
+                if (sharded) {
+                    ApiCallSummary summary = index.get(name);
+                    return summary != null ? summary.getVersion() : null;
+                }
+                ApiCall apiCall = apiCalls.get(name);
+                return apiCall != null ? apiCall.getVersion() : null;
+            }
+
+            @Override
+            public Long environmentVersion(String name) {
+                Environment environment = environments.get(name);
+                return environment != null ? environment.getVersion() : null;
+            }
+        };
+    }
+
+    private void writeCalls(StorageBatch batch) throws IOException {
+        apiCalls.putAll(batch.getCallPuts());
+        batch.getCallDeletes().forEach(apiCalls::remove);
+
+        if (!callJournalEnabled) {
+            writeApiCallsFile();
+            callJournal.clear();
+            return;
+        }
+
+        List<MutationJournal.Record<ApiCall>> records = new ArrayList<>();
+        batch.getCallPuts().forEach((name, apiCall) -> records.add(MutationJournal.Record.put(name, apiCall)));
+        batch.getCallDeletes().forEach(name -> records.add(MutationJournal.Record.delete(name)));
+        callJournal.append(records);
+        if (callJournal.needsCompaction()) {
+            writeApiCallsFile();
+            callJournal.clear();
+        }
+    }
+
+    private void writeShards(StorageBatch batch) throws IOException {
+        for (ApiCall apiCall : batch.getCallPuts().values()) {
+            shardedStore.writeCall(apiCall);
+            index.put(apiCall.getName(), ApiCallSummary.of(apiCall));
+        }
+        for (String name : batch.getCallDeletes()) {
+            shardedStore.deleteCall(name);
+            index.remove(name);
+        }
+        shardedStore.writeIndex(index);
+    }
+
+    private void writeEnvironments(StorageBatch batch) throws IOException {
+        environments.putAll(batch.getEnvironmentPuts());
+        batch.getEnvironmentDeletes().forEach(environments::remove);
+
+        if (!environmentJournalEnabled) {
+            writeEnvironmentsFile();
+            environmentJournal.clear();
+            return;
+        }
+
+        List<MutationJournal.Record<Environment>> records = new ArrayList<>();
+        batch.getEnvironmentPuts().forEach((name, environment) -> records.add(MutationJournal.Record.put(name, environment)));
+        batch.getEnvironmentDeletes().forEach(name -> records.add(MutationJournal.Record.delete(name)));
+        environmentJournal.append(records);
+        if (environmentJournal.needsCompaction()) {
+            writeEnvironmentsFile();
+            environmentJournal.clear();
+        }
+    }
+
+    private void writeApiCallsFile() throws IOException {
+        codec.writeMap(apiCallsFile, apiCalls, ApiCall.class);
+        System.out.println("Saved API calls to: " + apiCallsFile);
+    }
+
+    private void writeEnvironmentsFile() throws IOException {
+        codec.writeMap(environmentsFile, environments, Environment.class);
+        System.out.println("Saved environments to: " + environmentsFile);
+    }
+
+    @Override
+    public synchronized boolean reload() throws IOException {
+        boolean changed = externalChangesLoaded;
+        if (filesChanged()) {
+            // Shared lock, so a journal is never read while another instance appends to it
+            DataDirectoryLock.Held held = directoryLock.lockShared();
+            try {
+                reloadFiles();
+            } finally {
+                release(held);
+            }
+            changed = true;
+        }
+        externalChangesLoaded = false;
+        return changed;
+    }
+
+    private void reloadFiles() throws IOException {
+        Map<String, Environment> reloadedEnvironments = codec.readMap(environmentsFile, Environment.class);
+        environmentJournal.replay(reloadedEnvironments);
+
+        if (sharded) {
+            Map<String, ApiCallSummary> reloadedIndex = shardedStore.loadIndex();
+            index.clear();
+            index.putAll(reloadedIndex);
+        } else {
+            Map<String, ApiCall> reloadedCalls = codec.readMap(apiCallsFile, ApiCall.class);
+            callJournal.replay(reloadedCalls);
+            apiCalls.clear();
+            apiCalls.putAll(reloadedCalls);
+        }
+        environments.clear();
+        environments.putAll(reloadedEnvironments);
+        rememberFingerprints();
+    }
+
+    @Override
+    public long getChangeSequence() throws IOException {
+        return directoryLock.readSequence();
+    }
+
+    /**
+     * The files whose fingerprints tell whether anything changed. With the sharded layout
+     * the index is rewritten on every change, so the call files do not need to be checked.
+     */
+    private List<Path> trackedFiles() {
+        return Arrays.asList(apiCallsFile, callJournal.getJournalFile(), environmentsFile,
+            environmentJournal.getJournalFile(), shardedStore.getIndexFile());
+    }
+
+    private void rememberFingerprints() {
+        for (Path file : trackedFiles()) {
+            fingerprints.put(file, FileFingerprint.of(file));
+        }
+    }
+
+    private boolean filesChanged() {
+        for (Path file : trackedFiles()) {
+            if (!FileFingerprint.of(file).equals(fingerprints.get(file))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Path> getDirectories() {
+        return sharded ? Arrays.asList(dataDirectory, shardedStore.getShardDirectory()) : Collections.singletonList(dataDirectory);
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return apiCalls.isEmpty() && index.isEmpty() && environments.isEmpty();
+    }
+
+    @Override
+    public String getLocation() {
+        return sharded ? shardedStore.getShardDirectory().toString() : apiCallsFile.toString();
+    }
+
+    /**
+     * Move every data file aside after the data has been migrated to another backend,
+     * so it is migrated afresh if this backend is selected again
+     */
+    public synchronized void archive() throws IOException {
+        DataDirectoryLock.Held held = directoryLock.lockExclusive();
+        try {
+            archive(apiCallsFile);
+            archive(environmentsFile);
+            shardedStore.archive();
+            callJournal.clear();
+            environmentJournal.clear();
+            directoryLock.incrementSequence();
+        } finally {
+            release(held);
+        }
+        apiCalls.clear();
+        index.clear();
+        environments.clear();
+    }
+
+    private static void archive(Path file) throws IOException {
+        if (Files.exists(file)) {
+            Path archived = file.resolveSibling(file.getFileName() + ARCHIVE_SUFFIX);
+            Files.move(file, archived, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Archived " + file.getFileName() + " to: " + archived);
+        }
+    }
+}
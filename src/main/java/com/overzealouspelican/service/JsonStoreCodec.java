@@ -0,0 +1,213 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.util.AtomicFileWriter;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming JSON codec for the on-disk stores.
+ * Maps are decoded entry by entry with a JsonReader and encoded with a JsonWriter, so no
+ * intermediate JSON tree or full-document string is built. Files are read and written
+ * through buffered channels. The on-disk format is pretty JSON, compact JSON or
+ * gzip-compressed compact JSON; gzip is detected when reading, so files written in any
+ * format stay readable after the format setting changes.
+ */
+public class JsonStoreCodec {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PRETTY_INDENT = "  ";
+
+    /**
+     * On-disk format of the JSON stores
+     */
+    public enum Format {
+        PRETTY("Pretty JSON"),
+        COMPACT("Compact JSON"),
+        GZIP("Compressed JSON (gzip)");
+
+        private final String displayName;
+
+        Format(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /**
+         * Parse a stored setting value, falling back to pretty JSON
+         */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equals(name)) {
+                    return format;
+                }
+            }
+            return PRETTY;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private final Gson gson;
+    private final Format format;
+
+    public JsonStoreCodec(Gson gson, Format format) {
+        this.gson = gson;
+        this.format = format;
+    }
+
+    /**
+     * Create a codec using the format selected in the settings
+     */
+    public static JsonStoreCodec fromSettings(Gson gson) {
+        return new JsonStoreCodec(gson, Format.fromName(com.overzealouspelican.panel.SettingsEditorPanel.getStorageFormat()));
+    }
+
+    /**
+     * Decode a JSON object of name to value, one entry at a time.
+     * A missing, empty or null document decodes to an empty map.
+     */
+    public <T> Map<String, T> readMap(Path file, Type valueType) throws IOException {
+        Map<String, T> result = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+
+        try (JsonReader reader = gson.newJsonReader(openReader(file))) {
+            JsonToken token;
+            try {
+                token = reader.peek();
+            } catch (EOFException e) {
+                return result; // Empty file
+            }
+            if (token == JsonToken.NULL) {
+                return result;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                T value = gson.fromJson(reader, valueType);
+                if (value != null) {
+                    result.put(name, value);
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed JSON in " + file + ": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Encode a map as a JSON object, one entry at a time, replacing the file atomically
+     */
+    public <T> void writeMap(Path file, Map<String, T> map, Type valueType) throws IOException {
+        AtomicFileWriter.writeStream(file, outputStream -> encode(outputStream, writer -> {
+            writer.beginObject();
+            for (Map.Entry<String, T> entry : map.entrySet()) {
+                writer.name(entry.getKey());
+                gson.toJson(entry.getValue(), valueType, writer);
+            }
+            writer.endObject();
+        }));
+    }
+
+    /**
+     * Decode a single value, or null if the file is missing or empty
+     */
+    public <T> T readValue(Path file, Type type) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (JsonReader reader = gson.newJsonReader(openReader(file))) {
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                return null;
+            }
+            return gson.fromJson(reader, type);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed JSON in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encode a single value, replacing the file atomically
+     */
+    public void writeValue(Path file, Object value, Type type) throws IOException {
+        AtomicFileWriter.writeStream(file, outputStream -> encode(outputStream, writer -> gson.toJson(value, type, writer)));
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Write JSON to the stream in the configured format. The stream is flushed but left
+     * open, since the caller forces it to disk before closing it.
+     */
+    private void encode(OutputStream outputStream, JsonBody body) throws IOException {
+        GZIPOutputStream gzipStream = format == Format.GZIP ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+        Writer writer = new OutputStreamWriter(gzipStream != null ? gzipStream : outputStream, StandardCharsets.UTF_8);
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        jsonWriter.setIndent(format == Format.PRETTY ? PRETTY_INDENT : "");
+        body.write(jsonWriter);
+        jsonWriter.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+    }
+
+    /**
+     * Open a file for reading through a buffered channel, transparently
+     * decompressing it if it starts with the gzip magic number
+     */
+    private java.io.Reader openReader(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+        try {
+            inputStream.mark(2);
+            int first = inputStream.read();
+            int second = inputStream.read();
+            inputStream.reset();
+            if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+                inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+    }
+}
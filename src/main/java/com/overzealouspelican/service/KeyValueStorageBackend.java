@@ -0,0 +1,286 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallSummary;
+import com.overzealouspelican.model.Environment;
+import com.overzealouspelican.util.DataDirectoryLock;
+import com.overzealouspelican.util.FileFingerprint;
+import com.overzealouspelican.util.PagedKeyValueStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage backend on top of the embedded PagedKeyValueStore (a single database file).
+ *
+ * Key layout:
+ * - call/{name}: the full call
+ * - group/{group}\0{name}: the call's summary, so listing the calls or the calls of one group
+ *   is a range scan over small values ("group/\0{name}" for ungrouped calls)
+ * - env/{name}: an environment
+ * Values are compact JSON. Each batch is committed as one transaction.
+ *
+ * Commits hold the DataDirectoryLock and first re-read the file if another instance
+ * appended to it, so transactions of several instances never overwrite each other.
+ */
+public class KeyValueStorageBackend implements StorageBackend {
+
+    private static final String CALL_PREFIX = "call/";
+    private static final String GROUP_PREFIX = "group/";
+    private static final String ENVIRONMENT_PREFIX = "env/";
+    private static final char GROUP_SEPARATOR = '\0';
+
+    private final PagedKeyValueStore store;
+    private final DataDirectoryLock directoryLock;
+    private final Gson gson;
+    private final Map<String, String> groupKeys; // Call name -> its group/ key, to move or delete it
+    private String fingerprint; // Of the database file as last read or written
+    private boolean externalChangesLoaded; // By a write, since the last reload
+
+    private KeyValueStorageBackend(PagedKeyValueStore store) {
+        this.store = store;
+        this.directoryLock = DataDirectoryLock.of(store.getFile().toAbsolutePath().getParent());
+        this.gson = new Gson();
+        this.groupKeys = new HashMap<>();
+        this.fingerprint = FileFingerprint.of(store.getFile());
+        loadGroupKeys();
+    }
+
+    private void loadGroupKeys() {
+        groupKeys.clear();
+        for (String key : store.keys(GROUP_PREFIX)) {
+            groupKeys.put(callNameOf(key), key);
+        }
+    }
+
+    /**
+     * Open the database file, creating it if needed
+     */
+    public static KeyValueStorageBackend open(Path databaseFile) throws IOException {
+        return new KeyValueStorageBackend(PagedKeyValueStore.open(databaseFile));
+    }
+
+    @Override
+    public Map<String, ApiCallSummary> loadCallSummaries() throws IOException {
+        Map<String, ApiCallSummary> summaries = new LinkedHashMap<>();
+        for (byte[] value : store.scan(GROUP_PREFIX).values()) {
+            ApiCallSummary summary = decode(value, ApiCallSummary.class);
+            if (summary != null) {
+                summaries.put(summary.getName(), summary);
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public ApiCall loadCall(String name) throws IOException {
+        byte[] value = store.get(CALL_PREFIX + name);
+        return value != null ? decode(value, ApiCall.class) : null;
+    }
+
+    @Override
+    public Map<String, ApiCall> loadCallsInGroup(String groupName) throws IOException {
+        Map<String, ApiCall> apiCalls = new LinkedHashMap<>();
+        for (String key : store.keys(groupPrefix(groupName))) {
+            String name = callNameOf(key);
+            ApiCall apiCall = loadCall(name);
+            if (apiCall != null) {
+                apiCalls.put(name, apiCall);
+            }
+        }
+        return apiCalls;
+    }
+
+    @Override
+    public Map<String, ApiCall> loadAllCalls() throws IOException {
+        Map<String, ApiCall> apiCalls = new LinkedHashMap<>();
+        for (byte[] value : store.scan(CALL_PREFIX).values()) {
+            ApiCall apiCall = decode(value, ApiCall.class);
+            if (apiCall != null) {
+                apiCalls.put(apiCall.getName(), apiCall);
+            }
+        }
+        return apiCalls;
+    }
+
+    @Override
+    public Set<String> loadGroupNames() {
+        Set<String> groupNames = new LinkedHashSet<>();
+        for (String key : store.keys(GROUP_PREFIX)) {
+            String groupName = key.substring(GROUP_PREFIX.length(), key.indexOf(GROUP_SEPARATOR));
+            if (!groupName.isEmpty()) {
+                groupNames.add(groupName);
+            }
+        }
+        return groupNames;
+    }
+
+    @Override
+    public Map<String, Environment> loadEnvironments() throws IOException {
+        Map<String, Environment> environments = new LinkedHashMap<>();
+        for (byte[] value : store.scan(ENVIRONMENT_PREFIX).values()) {
+            Environment environment = decode(value, Environment.class);
+            if (environment != null) {
+                environments.put(environment.getName(), environment);
+            }
+        }
+        return environments;
+    }
+
+    @Override
+    public synchronized List<String> write(StorageBatch batch) throws IOException {
+        DataDirectoryLock.Held held = directoryLock.lockExclusive();
+        try {
+            if (!FileFingerprint.of(store.getFile()).equals(fingerprint)) {
+                // Another instance committed since we last read: append after its transactions
+                store.reload();
+                loadGroupKeys();
+                externalChangesLoaded = true;
+            }
+
+            List<String> conflicts = new ArrayList<>();
+            commit(batch.resolveConflicts(storedVersions(), conflicts));
+            directoryLock.incrementSequence();
+            fingerprint = FileFingerprint.of(store.getFile());
+            return conflicts;
+        } finally {
+            release(held);
+        }
+    }
+
+    private StorageBatch.StoredVersions storedVersions() {
+        return new StorageBatch.StoredVersions() {
+            @Override
+            public Long callVersion(String name) throws IOException {
+                String groupKey = groupKeys.get(name);
+                byte[] value = groupKey != null ? store.get(groupKey) : null;
+                return value != null ? decode(value, ApiCallSummary.class).getVersion() : null;
+            }
+
+            @Override
+            public Long environmentVersion(String name) throws IOException {
+                byte[] value = store.get(ENVIRONMENT_PREFIX + name);
+                return value != null ? decode(value, Environment.class).getVersion() : null;
+            }
+        };
+    }
+
+    private void commit(StorageBatch batch) throws IOException {
+        PagedKeyValueStore.WriteBatch writeBatch = new PagedKeyValueStore.WriteBatch();
+        Map<String, String> newGroupKeys = new HashMap<>();
+
+        for (ApiCall apiCall : batch.getCallPuts().values()) {
+            String groupKey = groupPrefix(apiCall.getGroupName()) + apiCall.getName();
+            String previousGroupKey = groupKeys.get(apiCall.getName());
+            if (previousGroupKey != null && !previousGroupKey.equals(groupKey)) {
+                writeBatch.delete(previousGroupKey);
+            }
+            writeBatch.put(CALL_PREFIX + apiCall.getName(), encode(apiCall));
+            writeBatch.put(groupKey, encode(ApiCallSummary.of(apiCall)));
+            newGroupKeys.put(apiCall.getName(), groupKey);
+        }
+        for (String name : batch.getCallDeletes()) {
+            writeBatch.delete(CALL_PREFIX + name);
+            String previousGroupKey = groupKeys.get(name);
+            if (previousGroupKey != null) {
+                writeBatch.delete(previousGroupKey);
+            }
+        }
+        for (Environment environment : batch.getEnvironmentPuts().values()) {
+            writeBatch.put(ENVIRONMENT_PREFIX + environment.getName(), encode(environment));
+        }
+        for (String name : batch.getEnvironmentDeletes()) {
+            writeBatch.delete(ENVIRONMENT_PREFIX + name);
+        }
+
+        store.commit(writeBatch);
+        groupKeys.putAll(newGroupKeys);
+        batch.getCallDeletes().forEach(groupKeys::remove);
+    }
+
+    @Override
+    public synchronized boolean reload() throws IOException {
+        boolean changed = externalChangesLoaded;
+        if (!FileFingerprint.of(store.getFile()).equals(fingerprint)) {
+            // Shared lock, so a transaction being appended is not mistaken for a torn one
+            DataDirectoryLock.Held held = directoryLock.lockShared();
+            try {
+                fingerprint = FileFingerprint.of(store.getFile());
+                store.reload();
+                loadGroupKeys();
+            } finally {
+                release(held);
+            }
+            changed = true;
+        }
+        externalChangesLoaded = false;
+        return changed;
+    }
+
+    @Override
+    public long getChangeSequence() throws IOException {
+        return directoryLock.readSequence();
+    }
+
+    @Override
+    public List<Path> getDirectories() {
+        return Collections.singletonList(store.getFile().toAbsolutePath().getParent());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    @Override
+    public String getLocation() {
+        return store.getFile().toString();
+    }
+
+    /**
+     * Close the database file
+     */
+    public void close() throws IOException {
+        store.close();
+    }
+
+    private static void release(DataDirectoryLock.Held held) {
+        try {
+            held.close();
+        } catch (IOException e) {
+            System.err.println("Failed to release data directory lock: " + e.getMessage());
+        }
+    }
+
+    private static String groupPrefix(String groupName) {
+        String group = groupName == null || groupName.trim().isEmpty() ? "" : groupName;
+        return GROUP_PREFIX + group + GROUP_SEPARATOR;
+    }
+
+    private static String callNameOf(String groupKey) {
+        return groupKey.substring(groupKey.indexOf(GROUP_SEPARATOR) + 1);
+    }
+
+    private byte[] encode(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private <T> T decode(byte[] value, Class<T> type) throws IOException {
+        try {
+            return gson.fromJson(new String(value, StandardCharsets.UTF_8), type);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed record in " + store.getFile() + ": " + e.getMessage(), e);
+        }
+    }
+}
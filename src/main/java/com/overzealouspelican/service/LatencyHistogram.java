@@ -0,0 +1,188 @@
+package com.overzealouspelican.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Fixed-size histogram of latencies in nanoseconds with about 0.8% relative precision.
+ * Values below 256 ns get a bucket each; above that every power of two is split into 128
+ * linear buckets, covering up to about 9.8 hours. This is the bucket layout of an
+ * HdrHistogram with 2 significant digits, so the counts can be exported in its compressed
+ * encoding (see encodeCompressed) and read by the HdrHistogram tools.
+ * Recording is lock-free and allocation-free, so many threads can record into one histogram
+ * while another reads percentiles from it.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SIGNIFICANT_DIGITS = 2; // The HdrHistogram precision with this layout
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // Exact buckets below this value
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2; // Buckets per power of two above it
+    private static final int MAX_EXPONENT = 44; // Values from 2^45 ns up are out of range
+
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount;
+    private final LongAdder totalNanos;
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT);
+        this.totalCount = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Record one latency; values beyond the range are counted in the last bucket
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalNanos.add(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    private int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return counts.length() - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - (SUB_BUCKET_BITS - 1))); // 128..255
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Get the highest value that falls into a bucket
+     */
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = SUB_BUCKET_BITS + offset / HALF_SUB_BUCKET_COUNT;
+        long subBucket = HALF_SUB_BUCKET_COUNT + offset % HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << (exponent - (SUB_BUCKET_BITS - 1))) - 1;
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    /**
+     * Get the highest value that can be recorded without clamping
+     */
+    public static long getHighestTrackableValue() {
+        return (1L << (MAX_EXPONENT + 1)) - 1;
+    }
+
+    /**
+     * Get the latency at or below which the given percentage (0-100) of values fall
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestValueAt(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get(); // Counts still being recorded by other threads
+    }
+
+    /**
+     * Encode the counts in HdrHistogram's V2 compressed format (as produced by
+     * encodeIntoCompressedByteBuffer): a DEFLATE-compressed header plus ZigZag LEB128 counts,
+     * with runs of empty buckets collapsed into one negative count
+     */
+    public byte[] encodeCompressed() {
+        int countsLimit = 0;
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            if (snapshot[i] != 0) {
+                countsLimit = i + 1;
+            }
+        }
+
+        ByteBuffer uncompressed = ByteBuffer.allocate(40 + countsLimit * 9);
+        uncompressed.putInt(0x1c849303 | 0x10); // V2 encoding cookie
+        uncompressed.putInt(0); // Payload length, filled in below
+        uncompressed.putInt(0); // Normalizing index offset
+        uncompressed.putInt(SIGNIFICANT_DIGITS);
+        uncompressed.putLong(1); // Lowest discernible value
+        uncompressed.putLong(getHighestTrackableValue());
+        uncompressed.putDouble(1.0); // Integer to double value conversion ratio
+        int payloadStart = uncompressed.position();
+        for (int i = 0; i < countsLimit; ) {
+            long count = snapshot[i++];
+            if (count == 0) {
+                long zeros = 1;
+                while (i < countsLimit && snapshot[i] == 0) {
+                    zeros++;
+                    i++;
+                }
+                putZigZag(uncompressed, zeros > 1 ? -zeros : 0);
+            } else {
+                putZigZag(uncompressed, count);
+            }
+        }
+        uncompressed.putInt(4, uncompressed.position() - payloadStart);
+
+        Deflater deflater = new Deflater();
+        deflater.setInput(uncompressed.array(), 0, uncompressed.position());
+        deflater.finish();
+        byte[] compressed = new byte[uncompressed.position() + 64];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.end();
+
+        ByteBuffer encoded = ByteBuffer.allocate(8 + compressedLength);
+        encoded.putInt(0x1c849304 | 0x10); // V2 compressed encoding cookie
+        encoded.putInt(compressedLength);
+        encoded.put(compressed, 0, compressedLength);
+        return encoded.array();
+    }
+
+    /**
+     * Write a value as ZigZag LEB128 with at most 9 bytes, the 9th holding 8 bits
+     */
+    private static void putZigZag(ByteBuffer buffer, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        for (int i = 0; i < 8; i++) {
+            if ((zigZag >>> 7) == 0) {
+                buffer.put((byte) zigZag);
+                return;
+            }
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        buffer.put((byte) zigZag);
+    }
+}
@@ -0,0 +1,109 @@
+package com.overzealouspelican.service;
+
+/**
+ * Settings for one load test run. Warm-up requests are sent first without being measured.
+ * <p>
+ * With a target rate of 0 the run is a closed model: a fixed number of concurrent users,
+ * each sending the next request when the previous one returns, ending after the given
+ * number of iterations, or after the duration if iterations is 0.
+ * <p>
+ * With a target rate the run is an open model: requests are started on a schedule whatever
+ * the server does, ramping linearly from 0 up to the rate, holding it for the duration and
+ * ramping back down. The concurrency is then the most requests allowed in flight at once.
+ * Immutable.
+ */
+public final class LoadTestConfig {
+
+    private final int concurrency;
+    private final long iterations;
+    private final int durationSeconds;
+    private final int warmupIterations;
+    private final int targetRate;
+    private final int rampUpSeconds;
+    private final int rampDownSeconds;
+
+    /**
+     * Create a closed-model configuration
+     */
+    public LoadTestConfig(int concurrency, long iterations, int durationSeconds, int warmupIterations) {
+        this(concurrency, iterations, durationSeconds, warmupIterations, 0, 0, 0);
+    }
+
+    /**
+     * Create a configuration; a target rate above 0 selects the open model
+     */
+    public LoadTestConfig(int concurrency, long iterations, int durationSeconds, int warmupIterations,
+                          int targetRate, int rampUpSeconds, int rampDownSeconds) {
+        this.concurrency = Math.max(1, concurrency);
+        this.iterations = Math.max(0, iterations);
+        this.durationSeconds = Math.max(0, durationSeconds);
+        this.warmupIterations = Math.max(0, warmupIterations);
+        this.targetRate = Math.max(0, targetRate);
+        this.rampUpSeconds = Math.max(0, rampUpSeconds);
+        this.rampDownSeconds = Math.max(0, rampDownSeconds);
+
+        if (isOpenModel() && this.durationSeconds + this.rampUpSeconds + this.rampDownSeconds == 0) {
+            throw new IllegalArgumentException("A duration or ramp is required for a target rate");
+        }
+        if (!isOpenModel() && this.iterations == 0 && this.durationSeconds == 0) {
+            throw new IllegalArgumentException("Either iterations or a duration is required");
+        }
+    }
+
+    /**
+     * Check whether requests are started at a target rate rather than by concurrent users
+     */
+    public boolean isOpenModel() {
+        return targetRate > 0;
+    }
+
+    /**
+     * Get the number of concurrent users, or the most requests in flight for the open model
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Get the number of measured requests, or 0 to run for the duration (closed model only)
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Get the run time, or for the open model the time at the target rate
+     */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * Get the requests started per second at the plateau, or 0 for the closed model
+     */
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    public int getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    public int getRampDownSeconds() {
+        return rampDownSeconds;
+    }
+
+    @Override
+    public String toString() {
+        String warmup = warmupIterations > 0 ? ", " + warmupIterations + " warm-up" : "";
+        if (isOpenModel()) {
+            return targetRate + " req/s (ramp " + rampUpSeconds + " s / " + durationSeconds + " s / "
+                + rampDownSeconds + " s), max " + concurrency + " in flight" + warmup;
+        }
+        return concurrency + " concurrent, " + (iterations > 0 ? iterations + " requests" : durationSeconds + " s") + warmup;
+    }
+}
@@ -0,0 +1,497 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs one prepared request repeatedly and measures it, in either of two models
+ * (see LoadTestConfig). A request using dynamic variables is rendered again for each send
+ * from its compiled templates; other requests are built once and sent as they are.
+ * <ul>
+ * <li>Closed: each concurrent user is a virtual thread sending the request in a loop.</li>
+ * <li>Open: a scheduler starts each request on a virtual thread of its own at the time the
+ * ArrivalSchedule says, whether or not earlier requests have returned.</li>
+ * </ul>
+ * Latency is measured with System.nanoTime from the time a request was due, so a server
+ * stall also counts against the requests that could not be sent during it (coordinated
+ * omission correction); the uncorrected service time is recorded separately. In the closed
+ * model both are the same. The send loop allocates nothing of its own: latencies go into
+ * LatencyHistograms and outcomes into counters per status code.
+ * Warm-up requests are sent first by concurrent users and are not measured.
+ * The per-host request limit does not apply; the configured concurrency is the limit.
+ * Requests go out through a Sender, see ApiCallService.getLoadTestSender, so host overrides
+ * apply as they do to single sends.
+ * Results can be read with getSnapshot() at any time while the test runs, and the measured
+ * latencies exported per second as an HdrHistogram log.
+ */
+public class LoadTestRunner {
+
+    private static final long LOG_INTERVAL_NANOS = 1_000_000_000L;
+
+    /**
+     * The stage a run is in
+     */
+    public enum Phase { WARMING_UP, RUNNING, FINISHED, STOPPED }
+
+    private final Sender sender;
+    private final Supplier<HttpRequest> requests;
+    private final LoadTestConfig config;
+    private final ArrivalSchedule schedule; // Null for the closed model
+    private final TaskExecutor taskExecutor;
+    private final LatencyHistogram histogram; // From the time each request was due
+    private final LatencyHistogram serviceHistogram; // From the time each request was sent
+    private final AtomicLongArray statusCounts; // Indexed by HTTP status code
+    private final Map<String, LongAdder> exceptionCounts; // Exception class -> count
+    private final LongAdder errorCount;
+    private final List<CompletableFuture<Void>> workers;
+    private final Set<CompletableFuture<Void>> pendingRequests; // Open model requests in flight
+    private final StampedLock intervalLock; // Read-locked to record, write-locked to start the next interval
+    private final List<String> intervalLog; // One HdrHistogram log line per interval
+    private volatile LatencyHistogram intervalHistogram;
+    private volatile long intervalStartNanos;
+    private volatile Phase phase;
+    private volatile boolean stopRequested;
+    private volatile long measureStartNanos;
+    private volatile long measureEndNanos;
+    private volatile long measureStartMillis; // Wall clock time of measureStartNanos, for the log
+
+    /**
+     * Sends one request and waits for the whole response, which it discards
+     */
+    @FunctionalInterface
+    public interface Sender {
+        /**
+         * Send a request, returning the status code of the response
+         */
+        int send(HttpRequest request) throws IOException, InterruptedException;
+    }
+
+    /**
+     * A consistent-enough view of a run's results; latencies are in nanoseconds
+     */
+    public static class Snapshot {
+        private final Phase phase;
+        private final boolean openModel;
+        private final double targetRate;
+        private final long requests;
+        private final long errors;
+        private final long elapsedNanos;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+        private final long serviceP99Nanos;
+        private final long serviceMaxNanos;
+        private final Map<String, Long> outcomes;
+
+        Snapshot(Phase phase, boolean openModel, double targetRate, long requests, long errors, long elapsedNanos,
+                 LatencyHistogram histogram, LatencyHistogram serviceHistogram, Map<String, Long> outcomes) {
+            this.phase = phase;
+            this.openModel = openModel;
+            this.targetRate = targetRate;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.meanNanos = histogram.getMeanNanos();
+            this.p50Nanos = histogram.getValueAtPercentile(50);
+            this.p90Nanos = histogram.getValueAtPercentile(90);
+            this.p99Nanos = histogram.getValueAtPercentile(99);
+            this.p999Nanos = histogram.getValueAtPercentile(99.9);
+            this.maxNanos = histogram.getMaxNanos();
+            this.serviceP99Nanos = serviceHistogram.getValueAtPercentile(99);
+            this.serviceMaxNanos = serviceHistogram.getMaxNanos();
+            this.outcomes = outcomes;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public boolean isOpenModel() {
+            return openModel;
+        }
+
+        /**
+         * Get the rate the schedule is at now (open model only), in requests per second
+         */
+        public double getTargetRate() {
+            return targetRate;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get the measured requests completed per second
+         */
+        public double getThroughput() {
+            return elapsedNanos <= 0 ? 0 : requests * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public long getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Get the 99th percentile measured from when requests were actually sent
+         */
+        public long getServiceP99Nanos() {
+            return serviceP99Nanos;
+        }
+
+        public long getServiceMaxNanos() {
+            return serviceMaxNanos;
+        }
+
+        /**
+         * Get the number of requests per status code, or per exception class for requests
+         * that got no response, sorted by key
+         */
+        public Map<String, Long> getOutcomes() {
+            return outcomes;
+        }
+    }
+
+    public LoadTestRunner(HttpClient client, HttpRequest request, LoadTestConfig config) {
+        this(discarding(client), () -> request, config);
+    }
+
+    /**
+     * Create a runner that asks for the request to send each time, see ApiCallService.getRequestSource
+     */
+    public LoadTestRunner(Sender sender, Supplier<HttpRequest> requests, LoadTestConfig config) {
+        this.sender = sender;
+        this.requests = requests;
+        this.config = config;
+        this.schedule = config.isOpenModel() ? new ArrivalSchedule(config) : null;
+        this.taskExecutor = TaskExecutor.getInstance();
+        this.histogram = new LatencyHistogram();
+        this.serviceHistogram = new LatencyHistogram();
+        this.statusCounts = new AtomicLongArray(600);
+        this.exceptionCounts = new ConcurrentHashMap<>();
+        this.errorCount = new LongAdder();
+        this.workers = Collections.synchronizedList(new ArrayList<>());
+        this.pendingRequests = ConcurrentHashMap.newKeySet();
+        this.intervalLock = new StampedLock();
+        this.intervalLog = Collections.synchronizedList(new ArrayList<>());
+        this.phase = Phase.WARMING_UP;
+    }
+
+    /**
+     * Get a sender that sends requests with a Java HttpClient, discarding the bodies as they arrive
+     */
+    public static Sender discarding(HttpClient client) {
+        HttpResponse.BodyHandler<Void> discarding = HttpResponse.BodyHandlers.discarding();
+        return request -> client.send(request, discarding).statusCode();
+    }
+
+    /**
+     * Start the run in the background; the returned future completes when it has finished or stopped
+     */
+    public CompletableFuture<Snapshot> start() {
+        return taskExecutor.submit(() -> {
+            if (config.getWarmupIterations() > 0) {
+                runWorkers(new AtomicLong(config.getWarmupIterations()), Long.MAX_VALUE, false);
+            }
+
+            measureStartMillis = System.currentTimeMillis();
+            measureStartNanos = System.nanoTime();
+            intervalStartNanos = measureStartNanos;
+            intervalHistogram = new LatencyHistogram();
+            phase = Phase.RUNNING;
+            CompletableFuture<Void> logger = taskExecutor.submit(() -> {
+                logIntervals();
+                return null;
+            });
+
+            if (schedule != null) {
+                runSchedule();
+            } else {
+                long deadline = config.getIterations() > 0
+                    ? Long.MAX_VALUE
+                    : measureStartNanos + config.getDurationSeconds() * 1_000_000_000L;
+                AtomicLong remaining = config.getIterations() > 0 ? new AtomicLong(config.getIterations()) : null;
+                runWorkers(remaining, deadline, true);
+            }
+
+            measureEndNanos = System.nanoTime();
+            logger.cancel(true);
+            closeInterval(measureEndNanos);
+            phase = stopRequested ? Phase.STOPPED : Phase.FINISHED;
+            return getSnapshot();
+        });
+    }
+
+    /**
+     * Stop the run, aborting the requests in flight; results so far are kept
+     */
+    public void stop() {
+        stopRequested = true;
+        synchronized (workers) {
+            workers.forEach(worker -> worker.cancel(true));
+        }
+        pendingRequests.forEach(pending -> pending.cancel(true));
+    }
+
+    private void runWorkers(AtomicLong remaining, long deadlineNanos, boolean measured) {
+        List<CompletableFuture<Void>> started = new ArrayList<>();
+        for (int i = 0; i < config.getConcurrency() && !stopRequested; i++) {
+            CompletableFuture<Void> worker = taskExecutor.submit(() -> {
+                runLoop(remaining, deadlineNanos, measured);
+                return null;
+            });
+            started.add(worker);
+            workers.add(worker);
+        }
+        awaitAll(started);
+        workers.removeAll(started);
+    }
+
+    private void awaitAll(List<CompletableFuture<Void>> futures) {
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                // Cancelled by stop(), or failed unexpectedly; the others carry on
+            }
+        }
+    }
+
+    private void runLoop(AtomicLong remaining, long deadlineNanos, boolean measured) {
+        while (!stopRequested) {
+            if (remaining != null ? remaining.getAndDecrement() <= 0 : System.nanoTime() >= deadlineNanos) {
+                return;
+            }
+            if (!send(System.nanoTime(), measured)) {
+                return; // Stopped
+            }
+        }
+    }
+
+    /**
+     * Start each request of the open model when it is due, on a virtual thread of its own.
+     * When the in-flight limit is reached the scheduler waits, and the requests it sends late
+     * are still measured from when they were due.
+     */
+    private void runSchedule() {
+        Semaphore inFlight = new Semaphore(config.getConcurrency());
+        CompletableFuture<Void> scheduler = taskExecutor.submit(() -> {
+            for (long n = 1; !stopRequested; n++) {
+                long offset = schedule.getOffsetNanos(n);
+                if (offset < 0) {
+                    break;
+                }
+                long dueNanos = measureStartNanos + offset;
+                long wait;
+                while ((wait = dueNanos - System.nanoTime()) > 0 && !stopRequested) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (stopRequested) {
+                    break;
+                }
+                inFlight.acquire();
+                CompletableFuture<Void> pending = taskExecutor.submit(() -> {
+                    send(dueNanos, true);
+                    return null;
+                });
+                pendingRequests.add(pending);
+                // Also runs if the request is cancelled before it started
+                pending.whenComplete((result, error) -> {
+                    pendingRequests.remove(pending);
+                    inFlight.release();
+                });
+            }
+            return null;
+        });
+        workers.add(scheduler);
+        awaitAll(List.of(scheduler));
+        workers.remove(scheduler);
+
+        // Wait for the requests still in flight
+        try {
+            inFlight.acquire(config.getConcurrency());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the request once, recording the outcome if measured
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean send(long dueNanos, boolean measured) {
+        long sendNanos = System.nanoTime();
+        try {
+            HttpRequest request = requests.get();
+            sendNanos = System.nanoTime(); // Rendering the request is not service time
+            int status = sender.send(request);
+            if (measured) {
+                record(dueNanos, sendNanos);
+                statusCounts.incrementAndGet(status >= 0 && status < statusCounts.length() ? status : 0);
+                if (status >= 400) {
+                    errorCount.increment();
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            if (measured && !stopRequested) {
+                record(dueNanos, sendNanos);
+                exceptionCounts.computeIfAbsent(e.getClass().getSimpleName(), key -> new LongAdder()).increment();
+                errorCount.increment();
+            }
+            return true;
+        }
+    }
+
+    private void record(long dueNanos, long sendNanos) {
+        long endNanos = System.nanoTime();
+        long latency = endNanos - dueNanos;
+        long stamp = intervalLock.readLock();
+        try {
+            histogram.record(latency);
+            intervalHistogram.record(latency);
+        } finally {
+            intervalLock.unlockRead(stamp);
+        }
+        serviceHistogram.record(endNanos - sendNanos);
+    }
+
+    private void logIntervals() throws InterruptedException {
+        while (!stopRequested) {
+            long wait = intervalStartNanos + LOG_INTERVAL_NANOS - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+            closeInterval(System.nanoTime());
+        }
+    }
+
+    /**
+     * Log the current interval's histogram and start the next interval
+     */
+    private void closeInterval(long endNanos) {
+        LatencyHistogram closed;
+        long startNanos;
+        long stamp = intervalLock.writeLock();
+        try {
+            closed = intervalHistogram;
+            startNanos = intervalStartNanos;
+            if (closed == null || endNanos <= startNanos) {
+                return;
+            }
+            intervalHistogram = new LatencyHistogram();
+            intervalStartNanos = endNanos;
+        } finally {
+            intervalLock.unlockWrite(stamp);
+        }
+
+        intervalLog.add(String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%s",
+            (startNanos - measureStartNanos) / 1e9,
+            (endNanos - startNanos) / 1e9,
+            closed.getMaxNanos() / 1e6, // Max in milliseconds, the log's default unit ratio
+            Base64.getEncoder().encodeToString(closed.encodeCompressed())));
+    }
+
+    /**
+     * Write the measured latencies (in nanoseconds, from when each request was due) as an
+     * HdrHistogram interval log with one histogram per second, readable by HistogramLogReader
+     * and tools such as HistogramLogAnalyzer
+     */
+    public void writeHistogramLog(Writer writer) throws IOException {
+        writer.write("#[Histogram log format version 1.3]\n");
+        writer.write(String.format(Locale.ROOT, "#[StartTime: %.3f (seconds since epoch), %s]\n",
+            measureStartMillis / 1000.0, new Date(measureStartMillis)));
+        writer.write("\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\",\"Interval_Compressed_Histogram\"\n");
+        synchronized (intervalLog) {
+            for (String line : intervalLog) {
+                writer.write(line);
+                writer.write("\n");
+            }
+        }
+    }
+
+    public LoadTestConfig getConfig() {
+        return config;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Get the results measured so far
+     */
+    public Snapshot getSnapshot() {
+        Phase current = phase;
+        long elapsed = current == Phase.WARMING_UP ? 0
+            : (current == Phase.RUNNING ? System.nanoTime() : measureEndNanos) - measureStartNanos;
+        double targetRate = schedule != null && current == Phase.RUNNING ? schedule.getRateAt(elapsed / 1e9) : 0;
+
+        Map<String, Long> outcomes = new TreeMap<>();
+        for (int status = 0; status < statusCounts.length(); status++) {
+            long count = statusCounts.get(status);
+            if (count > 0) {
+                outcomes.put(String.valueOf(status), count);
+            }
+        }
+        exceptionCounts.forEach((name, count) -> outcomes.put(name, count.sum()));
+
+        return new Snapshot(current, schedule != null, targetRate, histogram.getCount(), errorCount.sum(), elapsed,
+            histogram, serviceHistogram, outcomes);
+    }
+}
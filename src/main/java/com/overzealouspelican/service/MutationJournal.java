@@ -0,0 +1,207 @@
+package com.overzealouspelican.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of mutations to a keyed JSON store.
+ * Each mutation (put or delete) is written as one JSON line next to the
+ * snapshot file, so a save costs O(change) instead of a full rewrite. On startup the log
+ * is replayed over the snapshot; once it grows past a threshold it is folded into a new
+ * snapshot and cleared (compaction).
+ */
+public class MutationJournal<T> {
+
+    public static final String OP_PUT = "put";
+    public static final String OP_DELETE = "delete";
+
+    private static final long COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+
+    private final Path journalFile;
+    private final Gson gson;
+    private final Type recordType;
+
+    /**
+     * A single journaled mutation
+     */
+    public static class Record<T> {
+        private String op;
+        private String key;
+        private T value;
+
+        public static <T> Record<T> put(String key, T value) {
+            Record<T> record = new Record<>();
+            record.op = OP_PUT;
+            record.key = key;
+            record.value = value;
+            return record;
+        }
+
+        public static <T> Record<T> delete(String key) {
+            Record<T> record = new Record<>();
+            record.op = OP_DELETE;
+            record.key = key;
+            return record;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    public MutationJournal(Path journalFile, Class<T> valueType) {
+        this.journalFile = journalFile;
+        this.gson = new Gson(); // Compact output: one record per line
+        this.recordType = TypeToken.getParameterized(Record.class, valueType).getType();
+    }
+
+    /**
+     * Append records and force them to disk with a single sync
+     */
+    public void append(List<Record<T>> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Record<T> record : records) {
+            lines.append(gson.toJson(record, recordType)).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Read every record in the journal.
+     * A line that cannot be parsed (e.g. a record cut short by a crash) ends the read,
+     * since nothing after it can be trusted to be in order. The damaged tail is cut off
+     * so that later appends start on a clean line.
+     */
+    public List<Record<T>> readAll() {
+        List<Record<T>> records = new ArrayList<>();
+        if (!Files.exists(journalFile)) {
+            return records;
+        }
+
+        long validBytes = 0;
+        boolean damaged = false;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    Record<T> record = parse(line);
+                    if (record == null) {
+                        damaged = true;
+                        break;
+                    }
+                    records.add(record);
+                }
+                validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        } catch (IOException e) {
+            System.err.println("Stopped reading journal " + journalFile + ": " + e.getMessage());
+            return records;
+        }
+
+        if (damaged) {
+            truncate(validBytes);
+        }
+        return records;
+    }
+
+    private Record<T> parse(String line) {
+        try {
+            Record<T> record = gson.fromJson(line, recordType);
+            if (record == null || record.op == null || record.key == null) {
+                return null;
+            }
+            return record;
+        } catch (JsonParseException e) {
+            System.err.println("Damaged journal record in " + journalFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void truncate(long validBytes) {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            System.err.println("Truncated damaged journal " + journalFile + " to " + validBytes + " bytes");
+        } catch (IOException e) {
+            System.err.println("Failed to truncate journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replay the journal over a snapshot
+     */
+    public void replay(Map<String, T> target) {
+        List<Record<T>> records = readAll();
+        for (Record<T> record : records) {
+            switch (record.op) {
+                case OP_PUT:
+                    if (record.value != null) {
+                        target.put(record.key, record.value);
+                    }
+                    break;
+                case OP_DELETE:
+                    target.remove(record.key);
+                    break;
+                default:
+                    System.err.println("Ignoring unknown journal operation: " + record.op);
+            }
+        }
+        if (!records.isEmpty()) {
+            System.out.println("Replayed " + records.size() + " journal records from: " + journalFile);
+        }
+    }
+
+    /**
+     * Check whether the journal has grown large enough to be folded into the snapshot
+     */
+    public boolean needsCompaction() {
+        try {
+            return Files.exists(journalFile) && Files.size(journalFile) > COMPACTION_THRESHOLD_BYTES;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Clear the journal. Must only be called after a snapshot containing every
+     * journaled mutation has been written.
+     */
+    public void clear() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+}
@@ -0,0 +1,201 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApplicationState;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single background executor for all disk writes (write-behind persistence).
+ * Writes are keyed by target: a burst of writes scheduled for the same key within the
+ * debounce window is merged into a single write, which runs off the Swing EDT.
+ * Completion and failure are reported through the ApplicationState status.
+ * A keyed write that fails stays pending and is retried, waiting longer after each failure,
+ * until it succeeds or a newer write for the key replaces it; writes still pending at exit,
+ * failed ones included, are flushed before the application stops.
+ * Uses the Singleton pattern so every store shares the same writer thread.
+ */
+public class PersistenceExecutor {
+
+    private static final long DEBOUNCE_MILLIS = 250;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static final long RETRY_INITIAL_MILLIS = 1000;
+    private static final long RETRY_MAX_MILLIS = 60_000;
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    private static PersistenceExecutor instance;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, PendingWrite> pendingWrites;
+    private volatile boolean shuttingDown;
+
+    /**
+     * A write action that may fail with an IOException
+     */
+    @FunctionalInterface
+    public interface WriteAction {
+        void write() throws IOException;
+    }
+
+    private static class PendingWrite {
+        final String description;
+        final WriteAction action;
+        final int failures; // Failed attempts so far
+
+        PendingWrite(String description, WriteAction action, int failures) {
+            this.description = description;
+            this.action = action;
+            this.failures = failures;
+        }
+    }
+
+    private PersistenceExecutor() {
+        this.pendingWrites = new HashMap<>();
+        // One virtual thread keeps writes in order without pinning a platform thread while idle
+        this.executor = new ScheduledThreadPoolExecutor(1, Thread.ofVirtual().name("yapmc-persistence").factory());
+        // Delayed flushes and retries are run by the shutdown flush instead of waited for
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        // Make sure writes still pending when the application exits reach the disk
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "yapmc-persistence-shutdown"));
+    }
+
+    /**
+     * Get the singleton instance of PersistenceExecutor
+     */
+    public static synchronized PersistenceExecutor getInstance() {
+        if (instance == null) {
+            instance = new PersistenceExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Schedule a debounced write for the given key.
+     * If a write for the same key is already pending it is replaced, so the action
+     * should write the latest state at the time it runs rather than a captured copy.
+     * A write replacing one that is waiting to be retried runs after the debounce window too,
+     * rather than when the retry was due.
+     * A null description runs the action without reporting success in the status bar.
+     */
+    public void schedule(String key, String description, WriteAction action) {
+        synchronized (pendingWrites) {
+            PendingWrite previous = pendingWrites.put(key, new PendingWrite(description, action, 0));
+            if (previous == null || previous.failures > 0) {
+                executor.schedule(() -> flush(key), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Submit a write that must not be merged with others (e.g. a journal append).
+     * Submitted writes run in order on the same thread as the debounced ones.
+     */
+    public void submit(String description, WriteAction action) {
+        executor.execute(() -> run(description, action));
+    }
+
+    /**
+     * Run every pending write as soon as possible instead of waiting for the debounce window
+     */
+    public void flushAll() {
+        List<String> keys;
+        synchronized (pendingWrites) {
+            keys = new ArrayList<>(pendingWrites.keySet());
+        }
+        for (String key : keys) {
+            executor.execute(() -> flush(key));
+        }
+    }
+
+    private void flush(String key) {
+        PendingWrite pendingWrite;
+        synchronized (pendingWrites) {
+            pendingWrite = pendingWrites.remove(key);
+        }
+        while (pendingWrite != null && !run(pendingWrite.description, pendingWrite.action)) {
+            pendingWrite = retry(key, pendingWrite);
+        }
+    }
+
+    /**
+     * Keep a failed write pending and schedule it again, later after each failure. The key
+     * stays pending meanwhile, so flushAll and the shutdown flush include it.
+     *
+     * @return the write to retry straight away, when shutting down, or null
+     */
+    private PendingWrite retry(String key, PendingWrite failed) {
+        int failures = failed.failures + 1;
+        synchronized (pendingWrites) {
+            if (pendingWrites.containsKey(key)) {
+                return null; // A newer write is scheduled; it writes the latest state, which includes this one's
+            }
+            PendingWrite retry = new PendingWrite(failed.description, failed.action, failures);
+            if (shuttingDown) {
+                if (failures < SHUTDOWN_ATTEMPTS) {
+                    return retry;
+                }
+                System.err.println("Giving up on write (" + failed.description + ") after " + failures + " attempts");
+                return null;
+            }
+            long delay = Math.min(RETRY_MAX_MILLIS, RETRY_INITIAL_MILLIS << Math.min(failures - 1, 16));
+            pendingWrites.put(key, retry);
+            executor.schedule(() -> flush(key), delay, TimeUnit.MILLISECONDS);
+            System.err.println("Retrying write (" + failed.description + ") in " + delay + " ms");
+            return null;
+        }
+    }
+
+    /**
+     * Run a write, reporting the outcome
+     *
+     * @return false if it failed
+     */
+    private boolean run(String description, WriteAction action) {
+        try {
+            action.write();
+            reportStatus(description, null);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to write (" + description + "): " + e.getMessage());
+            e.printStackTrace();
+            reportStatus(description, e);
+            return false;
+        }
+    }
+
+    private void reportStatus(String description, Exception error) {
+        SwingUtilities.invokeLater(() -> {
+            ApplicationState appState = ApplicationState.getInstance();
+            if (error == null) {
+                if (description != null) {
+                    appState.setStatusSuccess(description);
+                }
+            } else {
+                appState.setStatusError("Failed to save - " + error.getMessage());
+            }
+        });
+    }
+
+    private void shutdown() {
+        // Set first, so a write failing from now on is retried right away rather than scheduled
+        synchronized (pendingWrites) {
+            shuttingDown = true;
+        }
+        flushAll();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Timed out waiting for pending writes to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.overzealouspelican.service;
+
+/**
+ * Where the time of one request went, phase by phase, as measured by TimedHttpEngine.
+ * Phases run one after the other; on a reused keep-alive connection the DNS, connect and
+ * TLS phases are zero. Immutable.
+ */
+public class RequestTiming {
+
+    private static final String[] PHASE_NAMES = {
+        "DNS lookup", "TCP connect", "TLS handshake", "Request sent", "Waiting (TTFB)", "Content download"
+    };
+    private static final int WATERFALL_WIDTH = 40;
+
+    private final long[] phaseNanos;
+    private final boolean reusedConnection;
+    private final String remoteAddress;
+    private final String tlsProtocol; // Null for plain HTTP
+
+    RequestTiming(long dnsNanos, long connectNanos, long tlsNanos, long sendNanos, long waitNanos,
+                  long downloadNanos, boolean reusedConnection, String remoteAddress, String tlsProtocol) {
+        this.phaseNanos = new long[]{dnsNanos, connectNanos, tlsNanos, sendNanos, waitNanos, downloadNanos};
+        this.reusedConnection = reusedConnection;
+        this.remoteAddress = remoteAddress;
+        this.tlsProtocol = tlsProtocol;
+    }
+
+    public long getDnsNanos() {
+        return phaseNanos[0];
+    }
+
+    public long getConnectNanos() {
+        return phaseNanos[1];
+    }
+
+    public long getTlsNanos() {
+        return phaseNanos[2];
+    }
+
+    public long getSendNanos() {
+        return phaseNanos[3];
+    }
+
+    /**
+     * Get the time from the request being sent to the first byte of the response
+     */
+    public long getWaitNanos() {
+        return phaseNanos[4];
+    }
+
+    public long getDownloadNanos() {
+        return phaseNanos[5];
+    }
+
+    /**
+     * Get the sum of all phases
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    public boolean isReusedConnection() {
+        return reusedConnection;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public String getTlsProtocol() {
+        return tlsProtocol;
+    }
+
+    /**
+     * Format the phases as a text waterfall, one line per phase with a bar placed on a
+     * shared time axis
+     */
+    public String formatWaterfall() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(reusedConnection ? "Reused connection to " : "New connection to ").append(remoteAddress);
+        if (tlsProtocol != null) {
+            sb.append(" (").append(tlsProtocol).append(")");
+        }
+        sb.append("\n");
+
+        long total = Math.max(1, getTotalNanos());
+        long offset = 0;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            int from = (int) Math.round((double) offset / total * WATERFALL_WIDTH);
+            int to = (int) Math.round((double) (offset + phaseNanos[i]) / total * WATERFALL_WIDTH);
+            if (phaseNanos[i] > 0 && to == from) {
+                to = Math.min(WATERFALL_WIDTH, from + 1); // Keep short phases visible
+                from = to - 1;
+            }
+            sb.append(String.format("  %-17s %9.1f ms  │", PHASE_NAMES[i], phaseNanos[i] / 1_000_000.0));
+            for (int column = 0; column < WATERFALL_WIDTH; column++) {
+                sb.append(column >= from && column < to ? '█' : ' ');
+            }
+            sb.append("│\n");
+            offset += phaseNanos[i];
+        }
+        sb.append(String.format("  %-17s %9.1f ms\n", "Total", getTotalNanos() / 1_000_000.0));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.EnvironmentSnapshot;
+import com.overzealouspelican.util.DynamicVariables;
+import com.overzealouspelican.util.VariableTemplate;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The variables of one request: the environment's variables plus the built-in dynamic ones
+ * (see DynamicVariables), resolved only when a template asks for them. A value that contains
+ * {{name}} placeholders is rendered with these same variables, so variables can refer to
+ * each other, and "$file:" and "$cmd:" values are computed (see ComputedVariables).
+ * Each variable is resolved at most once per request: {{$uuid}} used in the URL and the body
+ * gives the same value in both, and a variable referenced by several others is not
+ * rendered again. A new instance is used for every request.
+ * <p>
+ * Lookups resolve values; iterating gives the variables as defined in the environment, so
+ * listing them does not compute anything. Not thread safe: a request is rendered on one
+ * thread, and read elsewhere only once it has been sent.
+ */
+public class RequestVariables extends AbstractMap<String, String> {
+
+    private final Map<String, String> environment;
+    private final EnvironmentSnapshot snapshot; // Null unless created from a snapshot
+    private final Map<String, String> resolved; // Values already resolved for this request
+    private final Set<String> resolving; // Variables being resolved, to detect cycles
+    private final boolean computeValues; // False to leave computed variables unresolved
+    private boolean dynamic;
+    private boolean computedSkipped;
+
+    public RequestVariables(Map<String, String> environment) {
+        this(environment != null ? environment : Map.of(), null, true);
+    }
+
+    /**
+     * Create the variables of a request sent with a snapshot of the application's environment;
+     * values referring to other variables then use the templates compiled by the snapshot
+     */
+    public RequestVariables(EnvironmentSnapshot snapshot) {
+        this(snapshot.getRequestVariables(), snapshot, true);
+    }
+
+    private RequestVariables(Map<String, String> environment, EnvironmentSnapshot snapshot, boolean computeValues) {
+        this.environment = environment;
+        this.snapshot = snapshot;
+        this.resolved = new HashMap<>();
+        this.resolving = new HashSet<>();
+        this.computeValues = computeValues;
+    }
+
+    /**
+     * Wrap a map in request variables, unless it already is
+     */
+    public static RequestVariables of(Map<String, String> variables) {
+        return variables instanceof RequestVariables
+            ? (RequestVariables) variables : new RequestVariables(variables);
+    }
+
+    /**
+     * Create variables that leave "$file:" and "$cmd:" values unresolved instead of reading
+     * the file or running the command, for work that must stay cheap, such as pre-connecting
+     */
+    public static RequestVariables withoutComputed(Map<String, String> variables) {
+        Map<String, String> environment = variables instanceof RequestVariables
+            ? ((RequestVariables) variables).getEnvironment() : variables;
+        return new RequestVariables(environment != null ? environment : Map.of(), null, false);
+    }
+
+    /**
+     * Get the variables as defined in the environment, before any are resolved
+     */
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Get the snapshot the variables come from, or null
+     */
+    public EnvironmentSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the version of the snapshot the variables come from, or -1 if they do not come
+     * from one; requests rendered with the same version and no dynamic values are identical
+     */
+    public long getSnapshotVersion() {
+        return snapshot != null ? snapshot.getVersion() : -1;
+    }
+
+    /**
+     * Check whether a value resolved so far varies between requests: a built-in dynamic
+     * variable or a computed one was used, directly or through another variable
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * Check whether a computed variable was needed but left unresolved, see withoutComputed
+     */
+    public boolean isComputedSkipped() {
+        return computedSkipped;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        if (resolved.containsKey(name)) {
+            return resolved.get(name);
+        }
+        if (!resolving.add(name)) {
+            System.err.println("Variable " + name + " refers to itself; left unresolved");
+            return null;
+        }
+        try {
+            String value = resolve(name);
+            resolved.put(name, value);
+            return value;
+        } finally {
+            resolving.remove(name);
+        }
+    }
+
+    private String resolve(String name) {
+        if (DynamicVariables.isDynamic(name)) {
+            dynamic = true;
+            return DynamicVariables.evaluate(name);
+        }
+        String value = environment.get(name);
+        if (ComputedVariables.isComputed(value)) {
+            dynamic = true;
+            if (!computeValues) {
+                computedSkipped = true;
+                return null;
+            }
+            return ComputedVariables.getInstance().resolve(value);
+        }
+        if (value != null && value.contains("{{")) {
+            VariableTemplate template = snapshot != null ? snapshot.getValueTemplate(name) : VariableTemplate.compile(value);
+            return template.render(this);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return environment.containsKey(key) || (key instanceof String && DynamicVariables.isDynamic((String) key));
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return environment.entrySet();
+    }
+}
@@ -0,0 +1,175 @@
+package com.overzealouspelican.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The body of an HTTP response, held with bounded memory and decoded if it was compressed.
+ * The first bytes are kept in memory as a preview; anything beyond is in a temporary spill
+ * file, so a very large download never has to fit in the heap. The full body can be saved
+ * to disk without loading it. Created by ResponseBodyWriter.
+ * Whoever ends up with a body releases it once it is no longer needed, which deletes the
+ * spill file; files of bodies still held when the application exits are deleted then.
+ */
+public class ResponseBody {
+
+    private static final Set<Path> liveSpillFiles = ConcurrentHashMap.newKeySet(); // Not yet deleted
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> liveSpillFiles.forEach(ResponseBody::deleteSpillFile),
+            "yapmc-spill-cleanup"));
+    }
+
+    private final byte[] preview;
+    private final Path spillFile; // Bytes after the preview, or null if the body fit in memory
+    private final long totalBytes;
+    private final long wireBytes;
+    private final String contentEncoding; // Coding the body was decoded from, or null
+    private final long transferNanos;
+    private final Charset charset;
+
+    ResponseBody(byte[] preview, Path spillFile, long totalBytes, long wireBytes, String contentEncoding,
+                 long transferNanos, Charset charset) {
+        this.preview = preview;
+        this.spillFile = spillFile;
+        this.totalBytes = totalBytes;
+        this.wireBytes = wireBytes;
+        this.contentEncoding = contentEncoding;
+        this.transferNanos = transferNanos;
+        this.charset = charset;
+    }
+
+    /**
+     * Get the preview decoded with the response charset; the whole body unless truncated
+     */
+    public String getPreviewText() {
+        return new String(preview, charset);
+    }
+
+    public int getPreviewBytes() {
+        return preview.length;
+    }
+
+    /**
+     * Get the size of the body after decoding
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the size of the body as received, before decoding
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Get the content coding the body was decoded from, or null if it was not encoded
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Get how many times larger the decoded body is than the body received, 1 if not encoded
+     */
+    public double getCompressionRatio() {
+        return wireBytes > 0 ? (double) totalBytes / wireBytes : 1.0;
+    }
+
+    /**
+     * Check whether part of the body is only on disk
+     */
+    public boolean isTruncated() {
+        return spillFile != null;
+    }
+
+    public long getTransferMillis() {
+        return transferNanos / 1_000_000;
+    }
+
+    /**
+     * Get the transfer rate from the first to the last byte, in bytes received per second
+     */
+    public long getBytesPerSecond() {
+        if (transferNanos <= 0) {
+            return 0;
+        }
+        return (long) (wireBytes * 1_000_000_000.0 / transferNanos);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Open the full body for reading, streaming the spilled part from disk
+     */
+    public InputStream openStream() throws IOException {
+        InputStream head = new ByteArrayInputStream(preview);
+        return spillFile != null ? new SequenceInputStream(head, Files.newInputStream(spillFile)) : head;
+    }
+
+    /**
+     * Write the full body to a file, streaming the spilled part from disk
+     */
+    public void saveTo(Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            out.write(preview);
+            if (spillFile != null) {
+                Files.copy(spillFile, out);
+            }
+        }
+    }
+
+    /**
+     * Delete the spill file; the preview stays available but the body can no longer be saved in full
+     */
+    public void release() {
+        if (spillFile != null) {
+            deleteSpillFile(spillFile);
+        }
+    }
+
+    /**
+     * Remember a spill file until it is deleted, so it is deleted at exit if still in use
+     */
+    static void trackSpillFile(Path file) {
+        liveSpillFiles.add(file);
+    }
+
+    static void deleteSpillFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            liveSpillFiles.remove(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete response spill file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Format a byte count for display (e.g. "1.5 MB")
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+}
@@ -0,0 +1,121 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Collects the bytes of a response body as they arrive into a ResponseBody.
+ * A body sent with a Content-Encoding that ContentCodecs supports is decoded on the way in.
+ * The first decoded bytes, up to the preview size, are kept in memory; the rest is written
+ * to a temporary file, so memory use does not grow with the size of the response.
+ * Used by SpillingBodyHandler and TimedHttpEngine. Not thread-safe.
+ */
+class ResponseBodyWriter {
+
+    private final byte[] preview;
+    private final Charset charset;
+    private final long startNanos;
+    private final ContentCodec.Decoder decoder; // Null if the body is kept as received
+    private final String contentEncoding;
+    private final ContentCodec.Sink decodedSink = this::writeDecoded;
+    private int previewLength;
+    private long totalBytes;
+    private long wireBytes;
+    private Path spillFile;
+    private FileChannel spillChannel;
+
+    ResponseBodyWriter(int previewBytes, Charset charset, String contentEncoding) {
+        this.preview = new byte[Math.max(0, previewBytes)];
+        this.charset = charset;
+        this.startNanos = System.nanoTime();
+        this.decoder = ContentCodecs.newDecoder(contentEncoding);
+        this.contentEncoding = decoder != null ? contentEncoding.trim() : null;
+    }
+
+    /**
+     * Create a writer for a response, with the charset and content coding from its headers
+     */
+    static ResponseBodyWriter forResponse(int previewBytes, HttpHeaders headers) {
+        return new ResponseBodyWriter(previewBytes, SpillingBodyHandler.charsetOf(headers),
+            headers.firstValue("Content-Encoding").orElse(null));
+    }
+
+    /**
+     * Consume all remaining bytes of a buffer, as received from the server
+     */
+    void write(ByteBuffer buffer) throws IOException {
+        wireBytes += buffer.remaining();
+        if (decoder != null) {
+            decoder.decode(buffer, decodedSink);
+        } else {
+            writeDecoded(buffer);
+        }
+    }
+
+    private void writeDecoded(ByteBuffer buffer) throws IOException {
+        totalBytes += buffer.remaining();
+        int toPreview = Math.min(buffer.remaining(), preview.length - previewLength);
+        buffer.get(preview, previewLength, toPreview);
+        previewLength += toPreview;
+        if (buffer.hasRemaining()) {
+            spill(buffer);
+        }
+    }
+
+    private void spill(ByteBuffer buffer) throws IOException {
+        if (spillChannel == null) {
+            spillFile = Files.createTempFile("yapmc-body-", ".tmp");
+            ResponseBody.trackSpillFile(spillFile);
+            spillChannel = FileChannel.open(spillFile, StandardOpenOption.WRITE);
+        }
+        while (buffer.hasRemaining()) {
+            spillChannel.write(buffer);
+        }
+    }
+
+    /**
+     * Finish the body once the last byte has been written; fails if an encoded body is
+     * incomplete, after which the writer must be aborted
+     */
+    ResponseBody complete() throws IOException {
+        if (decoder != null) {
+            decoder.finish(decodedSink);
+            decoder.close();
+        }
+        long transferNanos = System.nanoTime() - startNanos;
+        closeSpillChannel();
+        byte[] kept = previewLength == preview.length ? preview : Arrays.copyOf(preview, previewLength);
+        return new ResponseBody(kept, spillFile, totalBytes, wireBytes, contentEncoding, transferNanos, charset);
+    }
+
+    /**
+     * Give up on a body that could not be received in full, deleting what was spilled
+     */
+    void abort() {
+        if (decoder != null) {
+            decoder.close();
+        }
+        closeSpillChannel();
+        if (spillFile != null) {
+            ResponseBody.deleteSpillFile(spillFile);
+        }
+    }
+
+    private void closeSpillChannel() {
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close response spill file: " + e.getMessage());
+            }
+            spillChannel = null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.util.JsonPath;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * A rule copying one value from a response into a variable, so a later call can use the ID
+ * or token an earlier one returned. The source is either "header:Name" for a response header
+ * or a JSONPath such as $.data.id for a value in a JSON body (see JsonPath). Compiled once
+ * per version of a call, as part of its CompiledApiCall. Immutable.
+ */
+public class ResponseExtraction {
+
+    public static final String HEADER_PREFIX = "header:";
+
+    private final String variable;
+    private final String source;
+    private final String headerName; // Null unless the source is a header
+    private final JsonPath path; // Null unless the source is a valid JSONPath
+    private final String error; // Why the source cannot be used, or null
+
+    ResponseExtraction(String variable, String source) {
+        this.variable = variable.trim();
+        this.source = source != null ? source.trim() : "";
+        String headerName = null;
+        JsonPath path = null;
+        String error = null;
+        if (this.source.regionMatches(true, 0, HEADER_PREFIX, 0, HEADER_PREFIX.length())) {
+            headerName = this.source.substring(HEADER_PREFIX.length()).trim();
+            if (headerName.isEmpty()) {
+                error = "No header name after " + HEADER_PREFIX;
+            }
+        } else {
+            try {
+                path = JsonPath.compile(this.source);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+        }
+        this.headerName = headerName;
+        this.path = path;
+        this.error = error;
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Get why the source cannot be used, or null if it is valid
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Get the value from a response, or null if the response does not have it. Large bodies
+     * are streamed from the spill file rather than read into memory.
+     */
+    public String extract(ApiCallService.HttpCallResult result) {
+        if (error != null) {
+            return null;
+        }
+        if (headerName != null) {
+            return result.getHeader(headerName);
+        }
+        ResponseBody body = result.getResponseBody();
+        try (Reader reader = body != null
+                ? new InputStreamReader(body.openStream(), body.getCharset())
+                : new StringReader(result.getBody() != null ? result.getBody() : "")) {
+            return path.read(reader);
+        } catch (IOException | RuntimeException e) {
+            // Not JSON, or the spill file is gone
+            System.err.println("Failed to extract " + variable + " from " + source + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return variable + " <- " + source;
+    }
+}
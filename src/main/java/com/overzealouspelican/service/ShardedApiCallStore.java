@@ -0,0 +1,253 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallSummary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * File-per-call storage layout.
+ * Every API call is stored in its own file under the shard directory, next to a compact
+ * summary index (name, method, URL, group, modification time). Listing the saved calls
+ * only reads the index; headers and body are read from a call's file when it is opened.
+ * Files written before call files were named by SHA-256 are still read, and replaced by the
+ * new file the next time their call is saved.
+ */
+public class ShardedApiCallStore {
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String CALL_FILE_SUFFIX = ".call.json";
+    private static final int MAX_FILE_NAME_PREFIX = 48;
+    private static final int FILE_NAME_HASH_BYTES = 16;
+
+    private final Path shardDirectory;
+    private final Path indexFile;
+    private final JsonStoreCodec codec;
+
+    public ShardedApiCallStore(Path shardDirectory, JsonStoreCodec codec) {
+        this.shardDirectory = shardDirectory;
+        this.indexFile = shardDirectory.resolve(INDEX_FILE);
+        this.codec = codec;
+    }
+
+    /**
+     * Check whether calls have been stored in this layout before
+     * (an index, or call files whose index was lost)
+     */
+    public boolean exists() {
+        if (Files.exists(indexFile)) {
+            return true;
+        }
+        if (!Files.isDirectory(shardDirectory)) {
+            return false;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shardDirectory, "*" + CALL_FILE_SUFFIX)) {
+            return files.iterator().hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load the summary index. If the index is missing or damaged but call files exist,
+     * it is rebuilt from them (the only case where every call file is read).
+     */
+    public Map<String, ApiCallSummary> loadIndex() {
+        if (Files.exists(indexFile)) {
+            try {
+                return codec.readMap(indexFile, ApiCallSummary.class);
+            } catch (IOException e) {
+                System.err.println("Failed to load call index, rebuilding it: " + e.getMessage());
+            }
+        }
+
+        Map<String, ApiCallSummary> index = new LinkedHashMap<>();
+        loadAll().forEach((name, apiCall) -> index.put(name, ApiCallSummary.of(apiCall)));
+        return index;
+    }
+
+    /**
+     * Load a single call from its own file, or null if it is missing
+     */
+    public ApiCall loadCall(String name) {
+        Path callFile = callFile(name);
+        if (!Files.exists(callFile)) {
+            callFile = legacyCallFile(name); // Not saved since the file naming changed
+            if (!Files.exists(callFile)) {
+                return null;
+            }
+        }
+
+        try {
+            ApiCall apiCall = codec.readValue(callFile, ApiCall.class);
+            // Guard against two names sharing a legacy file name
+            return apiCall != null && name.equals(apiCall.getName()) ? apiCall : null;
+        } catch (IOException e) {
+            System.err.println("Failed to load API call '" + name + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Load every call file, in directory order
+     */
+    public Map<String, ApiCall> loadAll() {
+        Map<String, ApiCall> apiCalls = new LinkedHashMap<>();
+        if (!Files.isDirectory(shardDirectory)) {
+            return apiCalls;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shardDirectory, "*" + CALL_FILE_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    ApiCall apiCall = codec.readValue(file, ApiCall.class);
+                    if (apiCall != null && apiCall.getName() != null && !isSuperseded(file, apiCall.getName())) {
+                        apiCalls.put(apiCall.getName(), apiCall);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Skipping unreadable call file " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list call files: " + e.getMessage());
+        }
+        return apiCalls;
+    }
+
+    /**
+     * Write a single call to its own file
+     */
+    public void writeCall(ApiCall apiCall) throws IOException {
+        ensureDirectoryExists();
+        codec.writeValue(callFile(apiCall.getName()), apiCall, ApiCall.class);
+        deleteLegacyCallFile(apiCall.getName());
+    }
+
+    /**
+     * Delete a single call's file
+     */
+    public void deleteCall(String name) throws IOException {
+        Files.deleteIfExists(callFile(name));
+        deleteLegacyCallFile(name);
+    }
+
+    /**
+     * Check whether a file is a call's legacy file that its current file replaces
+     */
+    private boolean isSuperseded(Path file, String name) {
+        return !file.equals(callFile(name)) && file.equals(legacyCallFile(name)) && Files.exists(callFile(name));
+    }
+
+    /**
+     * Delete the file a call was stored in before call files were named by SHA-256, unless
+     * it holds another call whose name had the same legacy file name
+     */
+    private void deleteLegacyCallFile(String name) throws IOException {
+        Path legacyFile = legacyCallFile(name);
+        if (!Files.exists(legacyFile)) {
+            return;
+        }
+        ApiCall stored;
+        try {
+            stored = codec.readValue(legacyFile, ApiCall.class);
+        } catch (IOException e) {
+            stored = null; // Unreadable; kept for recovery by hand
+        }
+        if (stored != null && name.equals(stored.getName())) {
+            Files.delete(legacyFile);
+        }
+    }
+
+    /**
+     * Write the summary index
+     */
+    public void writeIndex(Map<String, ApiCallSummary> index) throws IOException {
+        ensureDirectoryExists();
+        codec.writeMap(indexFile, index, ApiCallSummary.class);
+    }
+
+    /**
+     * Write a complete set of calls in this layout (used to migrate from api-calls.json)
+     */
+    public void writeAll(Map<String, ApiCall> apiCalls) throws IOException {
+        Map<String, ApiCallSummary> index = new LinkedHashMap<>();
+        for (ApiCall apiCall : apiCalls.values()) {
+            writeCall(apiCall);
+            index.put(apiCall.getName(), ApiCallSummary.of(apiCall));
+        }
+        writeIndex(index);
+        System.out.println("Wrote " + apiCalls.size() + " API calls to: " + shardDirectory);
+    }
+
+    /**
+     * Move the layout aside after the calls have been migrated back to api-calls.json,
+     * so it is migrated afresh if it is enabled again
+     */
+    public void archive() throws IOException {
+        if (Files.exists(shardDirectory)) {
+            Path archived = shardDirectory.resolveSibling(shardDirectory.getFileName() + ".bak");
+            if (Files.exists(archived)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(archived)) {
+                    for (Path file : files) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(archived);
+            }
+            Files.move(shardDirectory, archived);
+            System.out.println("Archived call files to: " + archived);
+        }
+    }
+
+    public Path getShardDirectory() {
+        return shardDirectory;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Map a call name to a file name that is safe on every file system.
+     * The readable prefix is followed by the first 128 bits of the name's SHA-256, so two
+     * names never share a file in practice, however similar they are.
+     */
+    private Path callFile(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            String hash = HexFormat.of().formatHex(Arrays.copyOf(digest, FILE_NAME_HASH_BYTES));
+            return shardDirectory.resolve(fileNamePrefix(name) + "-" + hash + CALL_FILE_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required of every JVM
+        }
+    }
+
+    /**
+     * Get the file name a call was stored under before call files were named by SHA-256.
+     * It used String.hashCode, with which distinct names can share a file.
+     */
+    private Path legacyCallFile(String name) {
+        return shardDirectory.resolve(fileNamePrefix(name) + "-" + Integer.toHexString(name.hashCode()) + CALL_FILE_SUFFIX);
+    }
+
+    private static String fileNamePrefix(String name) {
+        String prefix = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return prefix.length() > MAX_FILE_NAME_PREFIX ? prefix.substring(0, MAX_FILE_NAME_PREFIX) : prefix;
+    }
+
+    private void ensureDirectoryExists() throws IOException {
+        if (!Files.exists(shardDirectory)) {
+            Files.createDirectories(shardDirectory);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body handler that streams a response into a ResponseBody instead of a String.
+ * Compressed bodies are decoded as they arrive. The first bytes, up to the preview size, are
+ * kept in memory; the rest is written to a temporary file as it arrives, one buffer list at
+ * a time, so memory use does not grow with the size of the response (see ResponseBodyWriter).
+ */
+public class SpillingBodyHandler implements HttpResponse.BodyHandler<ResponseBody> {
+
+    private final int previewBytes;
+
+    public SpillingBodyHandler(int previewBytes) {
+        this.previewBytes = Math.max(0, previewBytes);
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<ResponseBody> apply(HttpResponse.ResponseInfo responseInfo) {
+        return new SpillingSubscriber(previewBytes, responseInfo.headers());
+    }
+
+    /**
+     * Get the charset named in the Content-Type header, or UTF-8
+     */
+    static Charset charsetOf(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                try {
+                    return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+                } catch (IllegalArgumentException e) {
+                    break; // Unknown or malformed charset
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static class SpillingSubscriber implements HttpResponse.BodySubscriber<ResponseBody> {
+
+        private final CompletableFuture<ResponseBody> result = new CompletableFuture<>();
+        private final int previewBytes;
+        private final HttpHeaders headers;
+        private Flow.Subscription subscription;
+        private ResponseBodyWriter writer;
+
+        SpillingSubscriber(int previewBytes, HttpHeaders headers) {
+            this.previewBytes = previewBytes;
+            this.headers = headers;
+        }
+
+        @Override
+        public CompletionStage<ResponseBody> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            this.writer = ResponseBodyWriter.forResponse(previewBytes, headers);
+            subscription.request(1); // One buffer list at a time, so a slow disk applies backpressure
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    writer.write(buffer);
+                }
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            writer.abort();
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                result.complete(writer.complete());
+            } catch (IOException e) {
+                onError(e);
+            }
+        }
+    }
+}
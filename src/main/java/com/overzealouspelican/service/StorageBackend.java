@@ -0,0 +1,89 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.ApiCallSummary;
+import com.overzealouspelican.model.Environment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage for saved calls, their groups and environments.
+ * The repositories keep summaries (and whatever calls have been opened) in memory and use
+ * the backend for everything else; writes reach the backend in batches from the
+ * PersistenceExecutor thread. Implementations must be safe to call from several threads.
+ */
+public interface StorageBackend {
+
+    /**
+     * Load the summary of every saved call, without their headers and bodies
+     */
+    Map<String, ApiCallSummary> loadCallSummaries() throws IOException;
+
+    /**
+     * Load a single call, or null if it does not exist
+     */
+    ApiCall loadCall(String name) throws IOException;
+
+    /**
+     * Load every call in a group; a null group name selects the ungrouped calls
+     */
+    Map<String, ApiCall> loadCallsInGroup(String groupName) throws IOException;
+
+    /**
+     * Load every saved call (used when moving data between backends)
+     */
+    Map<String, ApiCall> loadAllCalls() throws IOException;
+
+    /**
+     * Get the names of all groups that contain at least one call
+     */
+    Set<String> loadGroupNames() throws IOException;
+
+    /**
+     * Load every environment
+     */
+    Map<String, Environment> loadEnvironments() throws IOException;
+
+    /**
+     * Write a batch of mutations while holding the data directory lock, on top of whatever
+     * other instances have written meanwhile. Mutations that conflict with a newer stored
+     * version are resolved as described in StorageBatch.resolveConflicts, and the names of
+     * the conflicting records are returned. Backends that support it apply the batch
+     * atomically: after a crash either all or none of its mutations are visible.
+     */
+    List<String> write(StorageBatch batch) throws IOException;
+
+    /**
+     * Re-read the stored data after its files were changed outside this process.
+     * Returns false without reading anything if the files are unchanged since they were
+     * last read or written by this backend, and nothing written by other instances was
+     * picked up by a write since the last reload. If the files cannot be read (e.g. while
+     * they are still being synced) an IOException is thrown and the loaded data is kept.
+     */
+    boolean reload() throws IOException;
+
+    /**
+     * Get a number that changes whenever any instance writes through a backend; cheap
+     * enough to poll for changes where file system events are unreliable
+     */
+    long getChangeSequence() throws IOException;
+
+    /**
+     * Get the directories holding the backend's files, for watching external changes
+     */
+    List<Path> getDirectories();
+
+    /**
+     * Check whether nothing has been stored yet
+     */
+    boolean isEmpty() throws IOException;
+
+    /**
+     * Get a description of where the data is stored
+     */
+    String getLocation();
+}
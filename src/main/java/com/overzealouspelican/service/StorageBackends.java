@@ -0,0 +1,132 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.Environment;
+import com.overzealouspelican.util.DataDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Opens the storage backend selected in the settings and shares it between the repositories.
+ * When the selection has changed since the last run, the data is migrated once from the
+ * previous backend, whose files are then moved aside.
+ */
+public class StorageBackends {
+
+    private static final String DATABASE_FILE = "yapmc.db";
+
+    private static StorageBackend shared;
+
+    /**
+     * Available storage backends
+     */
+    public enum Kind {
+        JSON_FILES("JSON files"),
+        EMBEDDED_DATABASE("Embedded database (single file)");
+
+        private final String displayName;
+
+        Kind(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /**
+         * Parse a stored setting value, falling back to JSON files
+         */
+        public static Kind fromName(String name) {
+            for (Kind kind : values()) {
+                if (kind.name().equals(name)) {
+                    return kind;
+                }
+            }
+            return JSON_FILES;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Get the shared storage backend, opening it on first use
+     */
+    public static synchronized StorageBackend getShared() {
+        if (shared == null) {
+            shared = open(DataDirectory.resolve());
+        }
+        return shared;
+    }
+
+    private static StorageBackend open(Path dataDirectory) {
+        Kind kind = Kind.fromName(com.overzealouspelican.panel.SettingsEditorPanel.getStorageBackend());
+        Path databaseFile = dataDirectory.resolve(DATABASE_FILE);
+
+        if (kind == Kind.EMBEDDED_DATABASE) {
+            try {
+                return openDatabase(dataDirectory, databaseFile);
+            } catch (IOException e) {
+                System.err.println("Failed to open database " + databaseFile + ", using JSON files instead: " + e.getMessage());
+                return new JsonFileStorageBackend(dataDirectory);
+            }
+        }
+
+        JsonFileStorageBackend jsonFiles = new JsonFileStorageBackend(dataDirectory);
+        if (Files.exists(databaseFile)) {
+            // Switching back from the database: carry the data over once
+            try {
+                KeyValueStorageBackend database = KeyValueStorageBackend.open(databaseFile);
+                try {
+                    copy(database, jsonFiles);
+                } finally {
+                    database.close();
+                }
+                Path archived = databaseFile.resolveSibling(DATABASE_FILE + ".bak");
+                Files.move(databaseFile, archived, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("Moved data from " + databaseFile + " to JSON files; archived database to: " + archived);
+            } catch (IOException e) {
+                System.err.println("Failed to move data from " + databaseFile + ": " + e.getMessage());
+            }
+        }
+        return jsonFiles;
+    }
+
+    private static StorageBackend openDatabase(Path dataDirectory, Path databaseFile) throws IOException {
+        boolean created = !Files.exists(databaseFile);
+        KeyValueStorageBackend database = KeyValueStorageBackend.open(databaseFile);
+        if (created) {
+            // First start with the database: import the JSON files
+            JsonFileStorageBackend jsonFiles = new JsonFileStorageBackend(dataDirectory);
+            if (!jsonFiles.isEmpty()) {
+                try {
+                    copy(jsonFiles, database);
+                } catch (IOException e) {
+                    // Start over on the next run rather than keep a database missing the data
+                    database.close();
+                    Files.deleteIfExists(databaseFile);
+                    throw e;
+                }
+                jsonFiles.archive();
+                System.out.println("Moved data from JSON files to: " + databaseFile);
+            }
+        }
+        return database;
+    }
+
+    /**
+     * Copy every call and environment from one backend to another in a single batch
+     */
+    private static void copy(StorageBackend from, StorageBackend to) throws IOException {
+        StorageBatch batch = new StorageBatch();
+        for (ApiCall apiCall : from.loadAllCalls().values()) {
+            batch.putCall(apiCall);
+        }
+        for (Environment environment : from.loadEnvironments().values()) {
+            batch.putEnvironment(environment);
+        }
+        to.write(batch);
+    }
+}
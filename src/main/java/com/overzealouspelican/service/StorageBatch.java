@@ -0,0 +1,234 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.Environment;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of mutations that a StorageBackend writes as one unit.
+ * Mutations of the same key are coalesced: only the latest put or delete of a call or
+ * environment is kept. Not thread-safe; the repositories guard their pending batch with
+ * their own lock.
+ *
+ * Mutations made with an expected version are checked optimistically: the backend compares
+ * the expected version with the stored one while holding the data directory lock, and a
+ * mismatch means another instance changed the record since this one read it (see resolveConflicts).
+ */
+public class StorageBatch {
+
+    private static final String CONFLICT_SUFFIX = " (conflict)";
+
+    private final Map<String, ApiCall> callPuts = new LinkedHashMap<>();
+    private final Set<String> callDeletes = new LinkedHashSet<>();
+    private final Map<String, Environment> environmentPuts = new LinkedHashMap<>();
+    private final Set<String> environmentDeletes = new LinkedHashSet<>();
+
+    // Stored version each key is expected to have, from the first checked mutation of the key
+    private final Map<String, Long> expectedCallVersions = new HashMap<>();
+    private final Map<String, Long> expectedEnvironmentVersions = new HashMap<>();
+
+    /**
+     * Versions of the stored records, as seen by a backend while it holds the data directory lock
+     */
+    public interface StoredVersions {
+        /**
+         * Get the stored version of a call, or null if it does not exist
+         */
+        Long callVersion(String name) throws IOException;
+
+        /**
+         * Get the stored version of an environment, or null if it does not exist
+         */
+        Long environmentVersion(String name) throws IOException;
+    }
+
+    /**
+     * Insert or replace a call without a version check. The call must not be mutated afterwards.
+     */
+    public void putCall(ApiCall apiCall) {
+        callDeletes.remove(apiCall.getName());
+        callPuts.put(apiCall.getName(), apiCall);
+    }
+
+    /**
+     * Insert or replace a call that had the expected version when it was read (0 for a new call)
+     */
+    public void putCall(ApiCall apiCall, long expectedVersion) {
+        expectedCallVersions.putIfAbsent(apiCall.getName(), expectedVersion);
+        putCall(apiCall);
+    }
+
+    public void deleteCall(String name) {
+        callPuts.remove(name);
+        callDeletes.add(name);
+    }
+
+    public void deleteCall(String name, long expectedVersion) {
+        expectedCallVersions.putIfAbsent(name, expectedVersion);
+        deleteCall(name);
+    }
+
+    /**
+     * Insert or replace an environment without a version check. The environment must not be mutated afterwards.
+     */
+    public void putEnvironment(Environment environment) {
+        environmentDeletes.remove(environment.getName());
+        environmentPuts.put(environment.getName(), environment);
+    }
+
+    public void putEnvironment(Environment environment, long expectedVersion) {
+        expectedEnvironmentVersions.putIfAbsent(environment.getName(), expectedVersion);
+        putEnvironment(environment);
+    }
+
+    public void deleteEnvironment(String name) {
+        environmentPuts.remove(name);
+        environmentDeletes.add(name);
+    }
+
+    public void deleteEnvironment(String name, long expectedVersion) {
+        expectedEnvironmentVersions.putIfAbsent(name, expectedVersion);
+        deleteEnvironment(name);
+    }
+
+    /**
+     * Merge two batches; where both touch the same key the newer mutation wins,
+     * while the expected version of the older one is kept
+     */
+    public static StorageBatch merge(StorageBatch older, StorageBatch newer) {
+        StorageBatch merged = new StorageBatch();
+        older.callPuts.values().forEach(merged::putCall);
+        older.callDeletes.forEach(merged::deleteCall);
+        older.environmentPuts.values().forEach(merged::putEnvironment);
+        older.environmentDeletes.forEach(merged::deleteEnvironment);
+        newer.callPuts.values().forEach(merged::putCall);
+        newer.callDeletes.forEach(merged::deleteCall);
+        newer.environmentPuts.values().forEach(merged::putEnvironment);
+        newer.environmentDeletes.forEach(merged::deleteEnvironment);
+        merged.expectedCallVersions.putAll(newer.expectedCallVersions);
+        merged.expectedCallVersions.putAll(older.expectedCallVersions);
+        merged.expectedEnvironmentVersions.putAll(newer.expectedEnvironmentVersions);
+        merged.expectedEnvironmentVersions.putAll(older.expectedEnvironmentVersions);
+        return merged;
+    }
+
+    /**
+     * Get a copy of this batch that does not overwrite changes made by another instance.
+     * A checked put of a record whose stored version differs from the expected one is
+     * written as a copy named "{name} (conflict)", so neither edit is lost; a checked delete
+     * of a record changed since is dropped. A record deleted by another instance is simply
+     * written again. The names of the conflicting records are added to conflicts.
+     */
+    public StorageBatch resolveConflicts(StoredVersions stored, List<String> conflicts) throws IOException {
+        StorageBatch resolved = new StorageBatch();
+
+        for (ApiCall apiCall : callPuts.values()) {
+            String name = apiCall.getName();
+            if (isConflict(expectedCallVersions.get(name), stored.callVersion(name))) {
+                ApiCall copy = new ApiCall(apiCall);
+                copy.setName(conflictName(name, candidate ->
+                    stored.callVersion(candidate) != null || callPuts.containsKey(candidate)));
+                copy.setVersion(1);
+                resolved.putCall(copy);
+                conflicts.add(name);
+            } else {
+                resolved.putCall(apiCall);
+            }
+        }
+        for (String name : callDeletes) {
+            if (isConflict(expectedCallVersions.get(name), stored.callVersion(name))) {
+                conflicts.add(name);
+            } else {
+                resolved.deleteCall(name);
+            }
+        }
+
+        for (Environment environment : environmentPuts.values()) {
+            String name = environment.getName();
+            if (isConflict(expectedEnvironmentVersions.get(name), stored.environmentVersion(name))) {
+                Environment copy = new Environment(environment);
+                copy.setName(conflictName(name, candidate ->
+                    stored.environmentVersion(candidate) != null || environmentPuts.containsKey(candidate)));
+                copy.setVersion(1);
+                resolved.putEnvironment(copy);
+                conflicts.add(name);
+            } else {
+                resolved.putEnvironment(environment);
+            }
+        }
+        for (String name : environmentDeletes) {
+            if (isConflict(expectedEnvironmentVersions.get(name), stored.environmentVersion(name))) {
+                conflicts.add(name);
+            } else {
+                resolved.deleteEnvironment(name);
+            }
+        }
+        return resolved;
+    }
+
+    private static boolean isConflict(Long expectedVersion, Long storedVersion) {
+        return expectedVersion != null && storedVersion != null && !expectedVersion.equals(storedVersion);
+    }
+
+    private interface NameTaken {
+        boolean test(String name) throws IOException;
+    }
+
+    private static String conflictName(String name, NameTaken taken) throws IOException {
+        String candidate = name + CONFLICT_SUFFIX;
+        for (int i = 2; taken.test(candidate); i++) {
+            candidate = name + " (conflict " + i + ")";
+        }
+        return candidate;
+    }
+
+    public Map<String, ApiCall> getCallPuts() {
+        return Collections.unmodifiableMap(callPuts);
+    }
+
+    public Set<String> getCallDeletes() {
+        return Collections.unmodifiableSet(callDeletes);
+    }
+
+    public Map<String, Environment> getEnvironmentPuts() {
+        return Collections.unmodifiableMap(environmentPuts);
+    }
+
+    public Set<String> getEnvironmentDeletes() {
+        return Collections.unmodifiableSet(environmentDeletes);
+    }
+
+    /**
+     * Check if the batch puts or deletes the named call
+     */
+    public boolean touchesCall(String name) {
+        return callPuts.containsKey(name) || callDeletes.contains(name);
+    }
+
+    /**
+     * Check if the batch puts or deletes the named environment
+     */
+    public boolean touchesEnvironment(String name) {
+        return environmentPuts.containsKey(name) || environmentDeletes.contains(name);
+    }
+
+    public boolean hasCallChanges() {
+        return !callPuts.isEmpty() || !callDeletes.isEmpty();
+    }
+
+    public boolean hasEnvironmentChanges() {
+        return !environmentPuts.isEmpty() || !environmentDeletes.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasCallChanges() && !hasEnvironmentChanges();
+    }
+}
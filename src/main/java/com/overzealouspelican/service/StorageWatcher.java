@@ -0,0 +1,147 @@
+package com.overzealouspelican.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the data directory for changes made outside the application (another instance,
+ * a sync tool, a text editor) and applies them to the repositories.
+ *
+ * Change events only schedule a reload on the persistence thread, debounced like the writes,
+ * so a burst of events causes one reload and a reload never runs while a batch is written.
+ * The backend compares file fingerprints, so events caused by our own writes read nothing.
+ * Between events the change sequence of the data directory is polled, which catches writes
+ * of other instances on file systems that report no events (e.g. network shares).
+ */
+public class StorageWatcher {
+
+    private static final String RELOAD_KEY = "external-changes";
+    private static final long POLL_SECONDS = 2;
+
+    private static StorageWatcher instance;
+
+    private final StorageBackend backend;
+    private final PersistenceExecutor persistenceExecutor;
+    private final Set<Path> watchedDirectories;
+    private WatchService watchService;
+    private long changeSequence;
+
+    private StorageWatcher(StorageBackend backend) {
+        this.backend = backend;
+        this.persistenceExecutor = PersistenceExecutor.getInstance();
+        this.watchedDirectories = new HashSet<>();
+    }
+
+    /**
+     * Get the singleton instance of StorageWatcher
+     */
+    public static synchronized StorageWatcher getInstance() {
+        if (instance == null) {
+            instance = new StorageWatcher(StorageBackends.getShared());
+        }
+        return instance;
+    }
+
+    /**
+     * Start watching on a virtual thread; does nothing if already started
+     */
+    public synchronized void start() {
+        if (watchService != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerDirectories();
+        } catch (IOException e) {
+            System.err.println("Failed to watch " + backend.getLocation() + " for external changes: " + e.getMessage());
+            return;
+        }
+
+        changeSequence = readChangeSequence();
+        Thread.ofVirtual().name("yapmc-storage-watcher").start(this::watch);
+    }
+
+    private void registerDirectories() throws IOException {
+        for (Path directory : backend.getDirectories()) {
+            // Directories created later (e.g. the shard directory) are registered when they appear
+            if (Files.isDirectory(directory) && watchedDirectories.add(directory)) {
+                directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.poll(POLL_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean relevant = false;
+            if (key != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || isRelevant((Path) event.context())) {
+                        relevant = true;
+                    }
+                }
+                key.reset();
+            }
+            long sequence = readChangeSequence();
+            if (sequence != changeSequence) {
+                changeSequence = sequence;
+                relevant = true;
+            }
+
+            if (relevant) {
+                try {
+                    registerDirectories();
+                } catch (IOException e) {
+                    System.err.println("Failed to watch new storage directory: " + e.getMessage());
+                }
+                persistenceExecutor.schedule(RELOAD_KEY, null, this::reload);
+            }
+        }
+    }
+
+    private static boolean isRelevant(Path file) {
+        String name = file.getFileName().toString();
+        // Temporary files of atomic writes, archived files, database compaction and the lock file
+        return !name.endsWith(".tmp") && !name.endsWith(".bak") && !name.endsWith(".compact") && !name.endsWith(".lock");
+    }
+
+    private long readChangeSequence() {
+        try {
+            return backend.getChangeSequence();
+        } catch (IOException e) {
+            return changeSequence;
+        }
+    }
+
+    private void reload() {
+        try {
+            if (!backend.reload()) {
+                return;
+            }
+            ApiCallRepository.getInstance().applyExternalChanges();
+            EnvironmentRepository.getInstance().applyExternalChanges();
+        } catch (IOException e) {
+            // Most likely a file that is still being written; the next event retries
+            System.err.println("Failed to reload external changes from " + backend.getLocation() + ": " + e.getMessage());
+        }
+    }
+}
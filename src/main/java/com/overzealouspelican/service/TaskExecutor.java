@@ -0,0 +1,130 @@
+package com.overzealouspelican.service;
+
+import javax.swing.SwingUtilities;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Execution layer for all background work: requests, file imports and other blocking tasks.
+ * Every task runs on a virtual thread of its own, so hundreds of concurrent calls cost little
+ * more than their sockets, and blocking code can be written plainly. Requests to the same host
+ * are bounded by the "Max Requests Per Host" setting; tasks beyond the limit wait on their
+ * virtual thread without holding anything else up.
+ * Results reach Swing through a single hand-off, {@link #onEdt}, which runs the callback on
+ * the EDT with the result or the unwrapped failure.
+ * Uses the Singleton pattern.
+ */
+public class TaskExecutor {
+
+    private static TaskExecutor instance;
+
+    private final ExecutorService executor;
+    private final Map<String, HostPermits> hostPermits; // Host -> permits for requests in flight
+
+    /**
+     * The permits for one host, sized by the limit configured when they were created
+     */
+    private static class HostPermits {
+        final Semaphore semaphore;
+        final int limit;
+
+        HostPermits(int limit) {
+            this.semaphore = new Semaphore(limit, true);
+            this.limit = limit;
+        }
+    }
+
+    private TaskExecutor() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("yapmc-task-", 1).factory());
+        this.hostPermits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the singleton instance of TaskExecutor
+     */
+    public static synchronized TaskExecutor getInstance() {
+        if (instance == null) {
+            instance = new TaskExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the executor running each task on a new virtual thread
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Run a task on a virtual thread.
+     * Cancelling the returned future interrupts the task, which aborts blocking I/O such as
+     * HttpClient.send.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Run a task on a virtual thread once fewer than the configured number of tasks
+     * for the same host are running
+     */
+    public <T> CompletableFuture<T> submit(String host, Callable<T> task) {
+        if (host == null) {
+            return submit(task);
+        }
+        return submit(() -> {
+            HostPermits permits = getPermits(host);
+            permits.semaphore.acquire();
+            try {
+                return task.call();
+            } finally {
+                permits.semaphore.release();
+            }
+        });
+    }
+
+    private HostPermits getPermits(String host) {
+        int limit = com.overzealouspelican.panel.SettingsEditorPanel.getMaxRequestsPerHost();
+        // Tasks holding permits of a replaced limit release them to the old semaphore
+        return hostPermits.compute(host, (key, permits) ->
+            permits != null && permits.limit == limit ? permits : new HostPermits(limit));
+    }
+
+    /**
+     * Hand the outcome of a background task to Swing: the callback runs on the EDT with either
+     * the result or the failure (unwrapped from CompletionException/ExecutionException)
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, BiConsumer<? super T, Throwable> callback) {
+        future.whenComplete((value, error) -> {
+            Throwable cause = error;
+            while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            Throwable failure = cause;
+            SwingUtilities.invokeLater(() -> callback.accept(value, failure));
+        });
+    }
+}
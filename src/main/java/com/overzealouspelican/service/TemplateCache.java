@@ -0,0 +1,73 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the compiled templates of recently sent calls, keyed by call name, so a call is
+ * parsed once per version rather than on every send. Least recently used entries are
+ * dropped beyond a fixed number.
+ * Uses the Singleton pattern.
+ */
+public class TemplateCache {
+
+    private static final int MAX_ENTRIES = 512;
+
+    private static TemplateCache instance;
+
+    private final Map<String, CompiledApiCall> compiled; // Access order, guarded by this
+    private long hits;
+    private long misses;
+
+    private TemplateCache() {
+        this.compiled = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledApiCall> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Get the singleton instance of TemplateCache
+     */
+    public static synchronized TemplateCache getInstance() {
+        if (instance == null) {
+            instance = new TemplateCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the compiled templates of a call, compiling it if this version has not been seen
+     */
+    public synchronized CompiledApiCall compile(ApiCall apiCall) {
+        String key = String.valueOf(apiCall.getName());
+        CompiledApiCall cached = compiled.get(key);
+        if (cached != null && cached.isCompiledFrom(apiCall)) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        CompiledApiCall fresh = new CompiledApiCall(apiCall);
+        compiled.put(key, fresh);
+        return fresh;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Forget all compiled calls
+     */
+    public synchronized void clear() {
+        compiled.clear();
+    }
+}
@@ -0,0 +1,1003 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApplicationState;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.swing.SwingUtilities;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP/1.1 engine written directly on SocketChannel and SSLEngine, so that every phase of a
+ * request can be timed: DNS lookup, TCP connect, TLS handshake, sending the request, waiting
+ * for the first byte and downloading the body (see RequestTiming).
+ * Sockets are used in blocking mode from the calling thread, which is meant to be a virtual
+ * thread; timeouts close the channel from a timer, and interrupting the thread aborts the
+ * request. Host names are resolved through HostResolver, which applies the host overrides
+ * of the environment. Keep-alive connections are pooled per scheme, host, port and override
+ * address, and can be opened ahead of the first request with preconnect(); socket and TLS
+ * buffers come from the shared BufferPool. Proxies and HTTP/2 are not supported; callers
+ * fall back to the Java HttpClient for those.
+ * Uses the Singleton pattern.
+ */
+public class TimedHttpEngine {
+
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    // Safe to send again when a pooled connection drops before the response (RFC 9110 9.2.2)
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+
+    private static TimedHttpEngine instance;
+
+    private final Map<String, Deque<Connection>> idleConnections; // Pool key -> idle connections, most recent first
+    private final BufferPool bufferPool;
+    private final HostResolver hostResolver;
+    private final ScheduledThreadPoolExecutor timeouts;
+    private final Set<String> warming; // Pool keys with a pre-connect in progress
+    private final AtomicLong poolHits;
+    private final AtomicLong poolMisses;
+    private final AtomicLong prewarmed;
+    private final AtomicLong prewarmedUsed;
+    private volatile SSLContext trustAllContext;
+
+    /**
+     * How often requests found a keep-alive connection in the pool. Immutable.
+     */
+    public static class PoolStats {
+        private final long hits;
+        private final long misses;
+        private final long prewarmed;
+        private final long prewarmedUsed;
+        private final int idleConnections;
+
+        PoolStats(long hits, long misses, long prewarmed, long prewarmedUsed, int idleConnections) {
+            this.hits = hits;
+            this.misses = misses;
+            this.prewarmed = prewarmed;
+            this.prewarmedUsed = prewarmedUsed;
+            this.idleConnections = idleConnections;
+        }
+
+        /**
+         * Get the number of requests sent on a pooled connection
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Get the number of requests that had to open a new connection
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Get the number of connections opened by preconnect()
+         */
+        public long getPrewarmed() {
+            return prewarmed;
+        }
+
+        /**
+         * Get the number of pre-connected connections that a request went on to use
+         */
+        public long getPrewarmedUsed() {
+            return prewarmedUsed;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool: " + hits + " hits · " + misses + " misses · " + prewarmedUsed + "/" + prewarmed
+                + " pre-warmed used · " + idleConnections + " idle";
+        }
+    }
+
+    /**
+     * A response received by the engine, with the timing of the request
+     */
+    public static class TimedResponse {
+        private final int statusCode;
+        private final Map<String, List<String>> headers;
+        private final ResponseBody body;
+        private final RequestTiming timing;
+
+        TimedResponse(int statusCode, Map<String, List<String>> headers, ResponseBody body, RequestTiming timing) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+            this.timing = timing;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public ResponseBody getBody() {
+            return body;
+        }
+
+        public RequestTiming getTiming() {
+            return timing;
+        }
+    }
+
+    private TimedHttpEngine() {
+        this.idleConnections = new ConcurrentHashMap<>();
+        this.bufferPool = BufferPool.getInstance();
+        this.hostResolver = HostResolver.getInstance();
+        this.timeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "yapmc-http-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts.setRemoveOnCancelPolicy(true);
+        this.warming = ConcurrentHashMap.newKeySet();
+        this.poolHits = new AtomicLong();
+        this.poolMisses = new AtomicLong();
+        this.prewarmed = new AtomicLong();
+        this.prewarmedUsed = new AtomicLong();
+    }
+
+    /**
+     * Get the singleton instance of TimedHttpEngine
+     */
+    public static synchronized TimedHttpEngine getInstance() {
+        if (instance == null) {
+            instance = new TimedHttpEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Send a request and wait for the whole response, blocking the calling thread.
+     * The request timeout applies until the response headers arrive and then to each pause
+     * in the body. A keep-alive connection that turns out to be closed before any response is
+     * retried once on a new connection, if the method is idempotent or the request could not
+     * even be written; otherwise the server may have acted on it. Overridden hosts are connected to at the override address, with the
+     * host name of the URL kept in the Host header and for SNI and certificate checks.
+     */
+    public TimedResponse send(HttpRequest request, boolean insecureTls, int previewBytes,
+                              Map<String, String> hostOverrides) throws IOException {
+        URI uri = request.uri();
+        boolean https = "https".equalsIgnoreCase(uri.getScheme());
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("URL has no host: " + uri);
+        }
+        String host = uri.getHost();
+        int port = uri.getPort() > 0 ? uri.getPort() : (https ? 443 : 80);
+        String poolKey = poolKey(https, host, port, insecureTls, hostOverrides);
+        long timeoutNanos = request.timeout()
+            .orElse(Duration.ofSeconds(com.overzealouspelican.panel.SettingsEditorPanel.getRequestTimeoutSeconds()))
+            .toNanos();
+        byte[] body = readRequestBody(request);
+        byte[] head = formatRequestHead(request, host, port, https, body);
+
+        Connection connection = takeIdle(poolKey);
+        if (connection != null) {
+            boolean prewarmedConnection = connection.prewarmed;
+            connection.prewarmed = false; // Counted on its first request only
+            try {
+                TimedResponse response = exchange(connection, request.method(), head, body, previewBytes, timeoutNanos);
+                poolHits.incrementAndGet();
+                if (prewarmedConnection) {
+                    prewarmedUsed.incrementAndGet();
+                }
+                publishPoolStats();
+                return response;
+            } catch (IOException e) {
+                if (connection.firstByteNanos != 0 || connection.timedOut || Thread.currentThread().isInterrupted()
+                        || (connection.requestSent && !IDEMPOTENT_METHODS.contains(request.method()))) {
+                    throw e;
+                }
+                System.out.println("Keep-alive connection to " + poolKey + " was closed, retrying on a new connection");
+            }
+        }
+
+        poolMisses.incrementAndGet();
+        publishPoolStats();
+        connection = open(poolKey, host, port, https, insecureTls, hostOverrides);
+        return exchange(connection, request.method(), head, body, previewBytes, timeoutNanos);
+    }
+
+    /**
+     * Open a connection to the host of a URI and park it in the pool, so that the next
+     * request to the host skips DNS, connect and TLS. Does nothing if an idle connection is
+     * already pooled or being opened. Blocks the calling thread until the connection is up.
+     */
+    public void preconnect(URI uri, boolean insecureTls, Map<String, String> hostOverrides) throws IOException {
+        boolean https = "https".equalsIgnoreCase(uri.getScheme());
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("URL has no host: " + uri);
+        }
+        String host = uri.getHost();
+        int port = uri.getPort() > 0 ? uri.getPort() : (https ? 443 : 80);
+        String poolKey = poolKey(https, host, port, insecureTls, hostOverrides);
+        Deque<Connection> pooled = idleConnections.get(poolKey);
+        if ((pooled != null && !pooled.isEmpty()) || !warming.add(poolKey)) {
+            return;
+        }
+        try {
+            Connection connection = open(poolKey, host, port, https, insecureTls, hostOverrides);
+            connection.prewarmed = true;
+            prewarmed.incrementAndGet();
+            park(connection);
+            System.out.println("Pre-connected to " + poolKey + " in "
+                + (connection.dnsNanos + connection.connectNanos + connection.tlsNanos) / 1_000_000 + " ms");
+        } finally {
+            warming.remove(poolKey);
+            publishPoolStats();
+        }
+    }
+
+    private static String poolKey(boolean https, String host, int port, boolean insecureTls,
+                                  Map<String, String> hostOverrides) {
+        String override = HostResolver.findOverride(host, hostOverrides);
+        return (https ? "https://" : "http://") + host.toLowerCase(Locale.ROOT) + ":" + port
+            + (override != null ? "@" + override : "") + (insecureTls ? "/insecure" : "");
+    }
+
+    /**
+     * Get how often requests have found a connection in the pool
+     */
+    public PoolStats getPoolStats() {
+        return new PoolStats(poolHits.get(), poolMisses.get(), prewarmed.get(), prewarmedUsed.get(),
+            getIdleConnectionCount());
+    }
+
+    /**
+     * Publish the pool stats on the EDT for the status bar
+     */
+    private void publishPoolStats() {
+        PoolStats stats = getPoolStats();
+        SwingUtilities.invokeLater(() -> ApplicationState.getInstance()
+            .firePropertyChange(ApplicationState.PROPERTY_CONNECTION_POOL, null, stats));
+    }
+
+    /**
+     * Get the number of idle keep-alive connections in the pool
+     */
+    public int getIdleConnectionCount() {
+        int count = 0;
+        for (Deque<Connection> connections : idleConnections.values()) {
+            count += connections.size();
+        }
+        return count;
+    }
+
+    private Connection takeIdle(String poolKey) {
+        Deque<Connection> connections = idleConnections.get(poolKey);
+        if (connections == null) {
+            return null;
+        }
+        Connection connection;
+        while ((connection = connections.pollFirst()) != null) {
+            if (connection.isReusable()) {
+                connection.reused = true;
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private void park(Connection connection) {
+        Deque<Connection> connections = idleConnections.computeIfAbsent(connection.poolKey, key -> new ConcurrentLinkedDeque<>());
+        connection.idleSinceNanos = System.nanoTime();
+        if (connections.size() < com.overzealouspelican.panel.SettingsEditorPanel.getMaxRequestsPerHost()) {
+            connections.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+    }
+
+    /**
+     * Resolve the host, connect to the first address that accepts, and do the TLS handshake
+     */
+    private Connection open(String poolKey, String host, int port, boolean https, boolean insecureTls,
+                            Map<String, String> hostOverrides) throws IOException {
+        String hostName = host.startsWith("[") ? host.substring(1, host.length() - 1) : host;
+        long connectTimeoutNanos = TimeUnit.SECONDS.toNanos(
+            com.overzealouspelican.panel.SettingsEditorPanel.getConnectTimeoutSeconds());
+
+        long dnsStart = System.nanoTime();
+        InetAddress[] addresses = hostResolver.resolve(hostName, hostOverrides);
+        long connectStart = System.nanoTime();
+
+        Connection connection = null;
+        IOException lastError = null;
+        for (InetAddress address : addresses) {
+            SocketChannel channel = SocketChannel.open();
+            Connection attempt = new Connection(this, poolKey, channel);
+            attempt.armTimeout(connectTimeoutNanos - (System.nanoTime() - connectStart), false);
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(new InetSocketAddress(address, port));
+                attempt.disarm();
+                attempt.remoteAddress = (address.getHostAddress().contains(":")
+                    ? "[" + address.getHostAddress() + "]" : address.getHostAddress()) + ":" + port;
+                connection = attempt;
+                break;
+            } catch (IOException e) {
+                attempt.close();
+                if (attempt.timedOut) {
+                    throw new HttpConnectTimeoutException("HTTP connect timed out");
+                }
+                lastError = e;
+            }
+        }
+        if (connection == null) {
+            throw lastError != null ? lastError : new IOException("No addresses for " + hostName);
+        }
+        long tlsStart = System.nanoTime();
+
+        if (https) {
+            connection.armTimeout(connectTimeoutNanos, false);
+            try {
+                connection.startTls(createSslEngine(hostName, port, insecureTls));
+                connection.disarm();
+            } catch (IOException e) {
+                connection.close();
+                if (connection.timedOut) {
+                    throw new HttpConnectTimeoutException("TLS handshake timed out");
+                }
+                throw e;
+            }
+        }
+
+        long end = System.nanoTime();
+        connection.dnsNanos = connectStart - dnsStart;
+        connection.connectNanos = tlsStart - connectStart;
+        connection.tlsNanos = end - tlsStart;
+        return connection;
+    }
+
+    private SSLEngine createSslEngine(String hostName, int port, boolean insecureTls) throws IOException {
+        SSLContext context;
+        try {
+            context = insecureTls ? getTrustAllContext() : SSLContext.getDefault();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to create TLS context: " + e.getMessage(), e);
+        }
+        SSLEngine engine = context.createSSLEngine(hostName, port);
+        engine.setUseClientMode(true);
+        SSLParameters parameters = engine.getSSLParameters();
+        if (!insecureTls) {
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        }
+        if (!HostResolver.isIpAddress(hostName)) {
+            parameters.setServerNames(List.of(new SNIHostName(hostName)));
+        }
+        parameters.setApplicationProtocols(new String[]{"http/1.1"});
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    private SSLContext getTrustAllContext() throws GeneralSecurityException {
+        if (trustAllContext == null) {
+            trustAllContext = HttpClientRegistry.createTrustAllContext();
+        }
+        return trustAllContext;
+    }
+
+    /**
+     * Send the request on a connection and read the response, then pool or close the connection
+     */
+    private TimedResponse exchange(Connection connection, String method, byte[] head, byte[] body,
+                                   int previewBytes, long timeoutNanos) throws IOException {
+        ResponseBodyWriter writer = null;
+        try {
+            connection.firstByteNanos = 0;
+            connection.requestSent = false;
+            connection.armTimeout(timeoutNanos, false);
+            long sendStart = System.nanoTime();
+            connection.send(head, body);
+            connection.requestSent = true;
+            long sent = System.nanoTime();
+
+            // Interim 1xx responses are skipped
+            String statusLine;
+            int statusCode;
+            Map<String, List<String>> headers;
+            do {
+                statusLine = connection.readLine();
+                statusCode = parseStatusCode(statusLine);
+                headers = readHeaders(connection);
+            } while (statusCode >= 100 && statusCode < 200 && statusCode != 101);
+            long firstByte = connection.firstByteNanos;
+
+            connection.armTimeout(timeoutNanos, true);
+            writer = ResponseBodyWriter.forResponse(previewBytes, HttpHeaders.of(headers, (name, value) -> true));
+            boolean keepAlive = readBody(connection, method, statusCode, headers, writer);
+            ResponseBody responseBody = writer.complete();
+            writer = null;
+            long end = System.nanoTime();
+            connection.disarm();
+
+            keepAlive = keepAlive && !statusLine.startsWith("HTTP/1.0")
+                && !"close".equalsIgnoreCase(firstHeader(headers, "Connection"))
+                && !connection.hasBufferedInput();
+            RequestTiming timing = new RequestTiming(
+                connection.reused ? 0 : connection.dnsNanos,
+                connection.reused ? 0 : connection.connectNanos,
+                connection.reused ? 0 : connection.tlsNanos,
+                sent - sendStart, firstByte - sent, end - firstByte,
+                connection.reused, connection.remoteAddress, connection.tlsProtocol);
+            if (keepAlive) {
+                park(connection);
+            } else {
+                connection.close();
+            }
+            return new TimedResponse(statusCode, headers, responseBody, timing);
+        } catch (IOException | RuntimeException e) {
+            if (writer != null) {
+                writer.abort();
+            }
+            connection.close();
+            if (connection.timedOut) {
+                throw new HttpTimeoutException("request timed out");
+            }
+            throw e;
+        }
+    }
+
+    private static int parseStatusCode(String statusLine) throws IOException {
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("Invalid response status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid response status line: " + statusLine);
+        }
+    }
+
+    private static Map<String, List<String>> readHeaders(Connection connection) throws IOException {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int headerBytes = 0;
+        String line;
+        while (!(line = connection.readLine()).isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("Response headers are larger than " + MAX_HEADER_BYTES + " bytes");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue; // Obsolete line folding or garbage; not worth failing the request for
+            }
+            headers.computeIfAbsent(line.substring(0, colon).trim(), name -> new ArrayList<>())
+                .add(line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static String firstHeader(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Read the body as framed by the response; returns whether the connection can be reused
+     */
+    private static boolean readBody(Connection connection, String method, int statusCode,
+                                    Map<String, List<String>> headers, ResponseBodyWriter writer) throws IOException {
+        if ("HEAD".equals(method) || statusCode == 204 || statusCode == 304 || statusCode < 200) {
+            return statusCode != 101;
+        }
+        String transferEncoding = firstHeader(headers, "Transfer-Encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            readChunked(connection, writer);
+            return true;
+        }
+        String contentLength = firstHeader(headers, "Content-Length");
+        if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + contentLength);
+            }
+            if (length < 0) {
+                throw new IOException("Invalid Content-Length: " + contentLength);
+            }
+            connection.copyBody(length, writer);
+            return true;
+        }
+        connection.copyUntilClosed(writer);
+        return false;
+    }
+
+    private static void readChunked(Connection connection, ResponseBodyWriter writer) throws IOException {
+        while (true) {
+            String sizeLine = connection.readLine();
+            int extension = sizeLine.indexOf(';');
+            String size = (extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim();
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkSize < 0) {
+                throw new IOException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkSize == 0) {
+                while (!connection.readLine().isEmpty()) {
+                    // Trailers are not used
+                }
+                return;
+            }
+            connection.copyBody(chunkSize, writer);
+            connection.readLine(); // CRLF after the chunk
+        }
+    }
+
+    private static byte[] formatRequestHead(HttpRequest request, String host, int port, boolean https, byte[] body) {
+        URI uri = request.uri();
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        String method = request.method();
+
+        StringBuilder head = new StringBuilder();
+        head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(host);
+        if (port != (https ? 443 : 80)) {
+            head.append(':').append(port);
+        }
+        head.append("\r\n");
+        request.headers().map().forEach((name, values) -> {
+            for (String value : values) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        });
+        if (request.headers().firstValue("User-Agent").isEmpty()) {
+            head.append("User-Agent: YAPMC\r\n");
+        }
+        if (body != null && (body.length > 0 || method.equals("POST") || method.equals("PUT") || method.equals("PATCH"))) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collect the body of a request from its publisher, or null if it has none
+     */
+    private static byte[] readRequestBody(HttpRequest request) throws IOException {
+        if (request.bodyPublisher().isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream collected = new ByteArrayOutputStream();
+        CompletableFuture<byte[]> done = new CompletableFuture<>();
+        request.bodyPublisher().get().subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                collected.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(collected.toByteArray());
+            }
+        });
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the request body", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read the request body: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * One socket, with its TLS engine and buffers. Used by one request at a time.
+     * The plain-text input buffer is kept in read mode between calls.
+     */
+    private static class Connection {
+        private final TimedHttpEngine owner;
+        private final String poolKey;
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+        private SSLEngine sslEngine;
+        private ByteBuffer netIn; // Encrypted bytes not yet unwrapped, in write mode
+        private ByteBuffer netOut;
+        private String remoteAddress;
+        private String tlsProtocol;
+        private long dnsNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long idleSinceNanos;
+        private boolean reused;
+        private boolean prewarmed; // Opened by preconnect() rather than for a request
+        private boolean closed;
+        private volatile long firstByteNanos;
+        private boolean requestSent; // The whole request of the current exchange was written
+
+        private final Object timerLock = new Object();
+        private ScheduledFuture<?> timer;
+        private int timerGeneration;
+        private volatile long lastProgressNanos;
+        private volatile boolean timedOut;
+
+        Connection(TimedHttpEngine owner, String poolKey, SocketChannel channel) {
+            this.owner = owner;
+            this.poolKey = poolKey;
+            this.channel = channel;
+            this.in = owner.bufferPool.acquire().flip();
+            this.out = owner.bufferPool.acquire();
+        }
+
+        /**
+         * Close the channel after a timeout; with resetOnProgress, the timeout restarts
+         * whenever bytes arrive
+         */
+        void armTimeout(long timeoutNanos, boolean resetOnProgress) {
+            synchronized (timerLock) {
+                disarmLocked();
+                int generation = timerGeneration;
+                lastProgressNanos = System.nanoTime();
+                timer = owner.timeouts.schedule(() -> expire(generation, timeoutNanos, resetOnProgress),
+                    Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void expire(int generation, long timeoutNanos, boolean resetOnProgress) {
+            synchronized (timerLock) {
+                if (generation != timerGeneration) {
+                    return;
+                }
+                long idleNanos = System.nanoTime() - lastProgressNanos;
+                if (resetOnProgress && idleNanos < timeoutNanos) {
+                    timer = owner.timeouts.schedule(() -> expire(generation, timeoutNanos, true),
+                        timeoutNanos - idleNanos, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                timedOut = true;
+            }
+            try {
+                channel.close(); // Unblocks the thread reading or writing
+            } catch (IOException e) {
+                System.err.println("Failed to close timed out connection: " + e.getMessage());
+            }
+        }
+
+        void disarm() {
+            synchronized (timerLock) {
+                disarmLocked();
+            }
+        }
+
+        private void disarmLocked() {
+            timerGeneration++;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+
+        void startTls(SSLEngine engine) throws IOException {
+            this.sslEngine = engine;
+            int packetSize = engine.getSession().getPacketBufferSize();
+            this.netIn = packetSize <= BufferPool.BUFFER_SIZE ? owner.bufferPool.acquire() : ByteBuffer.allocate(packetSize);
+            this.netOut = packetSize <= BufferPool.BUFFER_SIZE ? owner.bufferPool.acquire() : ByteBuffer.allocate(packetSize);
+
+            engine.beginHandshake();
+            SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+            while (status != SSLEngineResult.HandshakeStatus.FINISHED
+                    && status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                switch (status) {
+                    case NEED_WRAP:
+                        status = wrap(EMPTY);
+                        break;
+                    case NEED_UNWRAP:
+                    case NEED_UNWRAP_AGAIN:
+                        in.compact();
+                        SSLEngineResult result;
+                        try {
+                            result = unwrap();
+                        } finally {
+                            in.flip();
+                        }
+                        if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                            if (readChannel(netIn) < 0) {
+                                throw new EOFException("Connection closed during the TLS handshake");
+                            }
+                            status = engine.getHandshakeStatus();
+                        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new SSLException("Connection closed during the TLS handshake");
+                        } else {
+                            status = result.getHandshakeStatus();
+                        }
+                        break;
+                    case NEED_TASK:
+                        runDelegatedTasks();
+                        status = engine.getHandshakeStatus();
+                        break;
+                    default:
+                        throw new SSLException("Unexpected TLS handshake status: " + status);
+                }
+            }
+            tlsProtocol = engine.getSession().getProtocol();
+        }
+
+        private SSLEngineResult unwrap() throws IOException {
+            netIn.flip();
+            try {
+                return sslEngine.unwrap(netIn, in);
+            } finally {
+                netIn.compact();
+            }
+        }
+
+        private SSLEngineResult.HandshakeStatus wrap(ByteBuffer source) throws IOException {
+            netOut.clear();
+            SSLEngineResult result = sslEngine.wrap(source, netOut);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new SSLException("TLS connection closed");
+            }
+            netOut.flip();
+            writeChannel(netOut);
+            return result.getHandshakeStatus();
+        }
+
+        private void runDelegatedTasks() {
+            Runnable task;
+            while ((task = sslEngine.getDelegatedTask()) != null) {
+                task.run();
+            }
+        }
+
+        /**
+         * Send the request head and body, coalesced into as few writes as the buffer allows
+         */
+        void send(byte[] head, byte[] body) throws IOException {
+            out.clear();
+            put(head);
+            if (body != null) {
+                put(body);
+            }
+            flushOut();
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int length = Math.min(out.remaining(), bytes.length - offset);
+                out.put(bytes, offset, length);
+                offset += length;
+                if (!out.hasRemaining()) {
+                    flushOut();
+                }
+            }
+        }
+
+        private void flushOut() throws IOException {
+            out.flip();
+            if (sslEngine == null) {
+                writeChannel(out);
+            } else {
+                while (out.hasRemaining()) {
+                    wrap(out);
+                }
+            }
+            out.clear();
+        }
+
+        private void writeChannel(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        private int readChannel(ByteBuffer target) throws IOException {
+            int read = channel.read(target);
+            if (read > 0) {
+                lastProgressNanos = System.nanoTime();
+            }
+            return read;
+        }
+
+        /**
+         * Read more plain-text bytes into the input buffer; returns -1 at the end of the stream
+         */
+        private int fill() throws IOException {
+            in.compact();
+            int read;
+            try {
+                read = sslEngine == null ? readChannel(in) : readTls();
+            } finally {
+                in.flip();
+            }
+            if (read > 0 && firstByteNanos == 0) {
+                firstByteNanos = System.nanoTime();
+            }
+            return read;
+        }
+
+        private int readTls() throws IOException {
+            while (true) {
+                if (netIn.position() > 0) {
+                    SSLEngineResult result = unwrap();
+                    switch (result.getStatus()) {
+                        case CLOSED:
+                            return -1;
+                        case BUFFER_OVERFLOW:
+                            throw new IOException("TLS record larger than the input buffer");
+                        default:
+                            break;
+                    }
+                    // Post-handshake messages such as session tickets and key updates
+                    if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                    }
+                    if (sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                        wrap(EMPTY);
+                    }
+                    if (result.bytesProduced() > 0) {
+                        return result.bytesProduced();
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.OK && result.bytesConsumed() > 0) {
+                        continue;
+                    }
+                }
+                if (readChannel(netIn) < 0) {
+                    return -1;
+                }
+            }
+        }
+
+        String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            while (true) {
+                while (in.hasRemaining()) {
+                    byte b = in.get();
+                    if (b == '\n') {
+                        int end = line.length();
+                        if (end > 0 && line.charAt(end - 1) == '\r') {
+                            line.setLength(end - 1);
+                        }
+                        return line.toString();
+                    }
+                    line.append((char) (b & 0xff));
+                    if (line.length() > MAX_LINE_LENGTH) {
+                        throw new IOException("Response line longer than " + MAX_LINE_LENGTH + " bytes");
+                    }
+                }
+                if (fill() < 0) {
+                    throw new EOFException(firstByteNanos == 0
+                        ? "Connection closed before a response was received"
+                        : "Connection closed in the middle of the response");
+                }
+            }
+        }
+
+        void copyBody(long length, ResponseBodyWriter writer) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                if (!in.hasRemaining() && fill() < 0) {
+                    throw new EOFException("Connection closed with " + remaining + " bytes of the body missing");
+                }
+                int count = (int) Math.min(remaining, in.remaining());
+                writer.write(in.slice(in.position(), count));
+                in.position(in.position() + count);
+                remaining -= count;
+            }
+        }
+
+        void copyUntilClosed(ResponseBodyWriter writer) throws IOException {
+            while (in.hasRemaining() || fill() >= 0) {
+                writer.write(in);
+            }
+        }
+
+        boolean hasBufferedInput() {
+            return in.hasRemaining();
+        }
+
+        /**
+         * Check whether an idle connection can carry another request: it must not be too old
+         * or closed by the server. Only TLS connections may have received bytes while idle.
+         */
+        boolean isReusable() {
+            if (closed || !channel.isOpen() || System.nanoTime() - idleSinceNanos > MAX_IDLE_NANOS) {
+                return false;
+            }
+            try {
+                channel.configureBlocking(false);
+                int read;
+                try {
+                    read = sslEngine == null ? channel.read(in.compact()) : channel.read(netIn);
+                } finally {
+                    if (sslEngine == null) {
+                        in.flip();
+                    }
+                    channel.configureBlocking(true);
+                }
+                return read == 0 || (read > 0 && sslEngine != null);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        void close() {
+            disarm();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close connection to " + remoteAddress + ": " + e.getMessage());
+            }
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            owner.bufferPool.release(in);
+            owner.bufferPool.release(out);
+            owner.bufferPool.release(netIn);
+            owner.bufferPool.release(netOut);
+        }
+    }
+}
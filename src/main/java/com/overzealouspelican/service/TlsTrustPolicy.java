@@ -0,0 +1,89 @@
+package com.overzealouspelican.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides per host whether certificates and host names are verified for HTTPS requests.
+ * Hosts are matched against the patterns configured in Settings (exact host names, or
+ * "*.suffix" wildcards). Insecure hosts are sent through a client of their own that trusts
+ * any certificate (see HttpClientRegistry), so no process-wide state is changed per request.
+ * Decisions are cached per host until the configured patterns change.
+ * Uses the Singleton pattern.
+ */
+public class TlsTrustPolicy {
+
+    public static final String DEFAULT_INSECURE_HOSTS = "localhost, 127.0.0.1, [::1]";
+
+    private static TlsTrustPolicy instance;
+
+    private final Map<String, Boolean> decisions; // Host -> insecure
+    private volatile String configuredHosts;
+    private volatile List<String> patterns;
+
+    private TlsTrustPolicy() {
+        this.decisions = new ConcurrentHashMap<>();
+        this.patterns = Collections.emptyList();
+    }
+
+    /**
+     * Get the singleton instance of TlsTrustPolicy
+     */
+    public static synchronized TlsTrustPolicy getInstance() {
+        if (instance == null) {
+            instance = new TlsTrustPolicy();
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether certificate and host name verification is skipped for a URI.
+     * Only HTTPS URIs are ever insecure, so plain HTTP keeps using the default client.
+     */
+    public boolean isInsecure(URI uri) {
+        if (uri.getHost() == null || !"https".equalsIgnoreCase(uri.getScheme())) {
+            return false;
+        }
+        return isInsecure(uri.getHost());
+    }
+
+    /**
+     * Check whether certificate and host name verification is skipped for a host
+     */
+    public boolean isInsecure(String host) {
+        String configured = com.overzealouspelican.panel.SettingsEditorPanel.getInsecureTlsHosts();
+        if (!configured.equals(configuredHosts)) {
+            configure(configured);
+        }
+        return decisions.computeIfAbsent(host.toLowerCase(Locale.ROOT), this::matches);
+    }
+
+    private synchronized void configure(String configured) {
+        if (configured.equals(configuredHosts)) {
+            return;
+        }
+        List<String> parsed = new ArrayList<>();
+        for (String pattern : configured.split("[,\\s]+")) {
+            if (!pattern.isEmpty()) {
+                parsed.add(pattern.toLowerCase(Locale.ROOT));
+            }
+        }
+        patterns = parsed;
+        decisions.clear();
+        configuredHosts = configured;
+    }
+
+    private boolean matches(String host) {
+        for (String pattern : patterns) {
+            if (pattern.startsWith("*.") ? host.endsWith(pattern.substring(1)) : host.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,285 @@
+package com.overzealouspelican.service;
+
+import com.overzealouspelican.model.ApiCall;
+import com.overzealouspelican.model.Environment;
+import com.overzealouspelican.util.DynamicVariables;
+import com.overzealouspelican.util.VariableTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index from environment variable names to the saved calls that use them, and back.
+ * Built once from every saved call on first use, then kept up to date by ApiCallRepository
+ * as calls are saved, deleted or changed on disk, so finding the calls affected by a
+ * variable never scans the calls again. Calls changed outside the application are marked
+ * stale and read again on the next query.
+ * Uses the Singleton pattern.
+ */
+public class VariableIndex {
+
+    private static VariableIndex instance;
+
+    private final Map<String, Set<String>> callsByVariable; // Guarded by this
+    private final Map<String, Set<String>> variablesByCall;
+    private final Map<String, Set<String>> extractedByCall; // Variables set from the call's responses
+    private final Set<String> staleCalls; // Calls to read again before answering
+    private boolean built;
+
+    private VariableIndex() {
+        this.callsByVariable = new HashMap<>();
+        this.variablesByCall = new HashMap<>();
+        this.extractedByCall = new HashMap<>();
+        this.staleCalls = new LinkedHashSet<>();
+    }
+
+    /**
+     * Get the singleton instance of VariableIndex
+     */
+    public static synchronized VariableIndex getInstance() {
+        if (instance == null) {
+            instance = new VariableIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Record the variables used by a saved call, replacing what it used before
+     */
+    public synchronized void update(ApiCall apiCall) {
+        if (!built) {
+            return; // Read with every other call when the index is built
+        }
+        staleCalls.remove(apiCall.getName());
+        CompiledApiCall compiled = TemplateCache.getInstance().compile(apiCall);
+        put(apiCall.getName(), compiled.getVariableNames(), compiled.getExtractedNames());
+    }
+
+    /**
+     * Forget a deleted call
+     */
+    public synchronized void remove(String callName) {
+        staleCalls.remove(callName);
+        put(callName, Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * Mark a call changed outside the application, to be read again when next needed
+     */
+    public synchronized void invalidate(String callName) {
+        if (built) {
+            staleCalls.add(callName);
+        }
+    }
+
+    private void put(String callName, Set<String> variables, Set<String> extracted) {
+        if (extracted.isEmpty()) {
+            extractedByCall.remove(callName);
+        } else {
+            extractedByCall.put(callName, new LinkedHashSet<>(extracted));
+        }
+        Set<String> previous = variablesByCall.remove(callName);
+        if (previous != null) {
+            for (String variable : previous) {
+                Set<String> calls = callsByVariable.get(variable);
+                calls.remove(callName);
+                if (calls.isEmpty()) {
+                    callsByVariable.remove(variable);
+                }
+            }
+        }
+        if (!variables.isEmpty()) {
+            variablesByCall.put(callName, new LinkedHashSet<>(variables));
+            for (String variable : variables) {
+                callsByVariable.computeIfAbsent(variable, key -> new TreeSet<>()).add(callName);
+            }
+        }
+    }
+
+    /**
+     * Build the index if needed and read the calls marked stale. Calls are loaded without
+     * holding the index lock; a call saved meanwhile is not overwritten with what was read.
+     */
+    private void refresh() {
+        ApiCallRepository repository = ApiCallRepository.getInstance();
+        List<String> names;
+        synchronized (this) {
+            if (!built) {
+                built = true;
+                staleCalls.addAll(repository.findAllSummaries().keySet());
+            }
+            if (staleCalls.isEmpty()) {
+                return;
+            }
+            names = new ArrayList<>(staleCalls);
+        }
+        for (String name : names) {
+            ApiCall apiCall = repository.find(name);
+            CompiledApiCall compiled = apiCall != null ? TemplateCache.getInstance().compile(apiCall) : null;
+            synchronized (this) {
+                if (staleCalls.remove(name)) {
+                    put(name, compiled != null ? compiled.getVariableNames() : Collections.emptySet(),
+                        compiled != null ? compiled.getExtractedNames() : Collections.emptySet());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the names of the calls that use a variable or set it from their responses, sorted
+     */
+    public Set<String> getCallsUsing(String variable) {
+        refresh();
+        synchronized (this) {
+            Set<String> calls = new TreeSet<>(callsByVariable.getOrDefault(variable, Collections.emptySet()));
+            extractedByCall.forEach((call, extracted) -> {
+                if (extracted.contains(variable)) {
+                    calls.add(call);
+                }
+            });
+            return calls;
+        }
+    }
+
+    /**
+     * Get every variable used by a saved call, with the calls using it, sorted by name
+     */
+    public Map<String, Set<String>> getUsages() {
+        refresh();
+        synchronized (this) {
+            Map<String, Set<String>> usages = new TreeMap<>();
+            callsByVariable.forEach((variable, calls) -> usages.put(variable, new TreeSet<>(calls)));
+            return usages;
+        }
+    }
+
+    /**
+     * Get the calls that use variables an environment does not define, with those variables.
+     * Built-in dynamic variables are always defined, and so are variables a saved call
+     * extracts from its responses. A value that refers to other variables is followed, so a
+     * call also lists the undefined variables its variables' values refer to.
+     */
+    public Map<String, Set<String>> findUnresolved(Map<String, String> environmentVariables) {
+        refresh();
+        Map<String, String> environment = environmentVariables != null ? environmentVariables : Collections.emptyMap();
+        Map<String, Set<String>> unresolved = new TreeMap<>();
+        synchronized (this) {
+            Set<String> extracted = new HashSet<>();
+            extractedByCall.values().forEach(extracted::addAll);
+            Map<String, Set<String>> missingByVariable = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : callsByVariable.entrySet()) {
+                Set<String> missing = findMissing(entry.getKey(), environment, extracted, missingByVariable, new HashSet<>());
+                if (!missing.isEmpty()) {
+                    for (String call : entry.getValue()) {
+                        unresolved.computeIfAbsent(call, key -> new TreeSet<>()).addAll(missing);
+                    }
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Get the undefined variables a variable comes down to: itself if the environment does not
+     * define it, else those its value refers to. A variable whose value refers back to itself
+     * is left unresolved when rendered, so it counts as undefined. Results are kept in
+     * missingByVariable, so each value is parsed once per query.
+     */
+    private static Set<String> findMissing(String variable, Map<String, String> environment, Set<String> extracted,
+                                           Map<String, Set<String>> missingByVariable, Set<String> visiting) {
+        if (DynamicVariables.isDynamic(variable) || extracted.contains(variable)) {
+            return Collections.emptySet();
+        }
+        Set<String> known = missingByVariable.get(variable);
+        if (known != null) {
+            return known;
+        }
+        String value = environment.get(variable);
+        if (value == null || !visiting.add(variable)) {
+            return Set.of(variable);
+        }
+        Set<String> missing = new TreeSet<>();
+        if (!ComputedVariables.isComputed(value)) {
+            for (String reference : VariableTemplate.compile(value).getVariableNames()) {
+                missing.addAll(findMissing(reference, environment, extracted, missingByVariable, visiting));
+            }
+        }
+        visiting.remove(variable);
+        missingByVariable.put(variable, missing);
+        return missing;
+    }
+
+    /**
+     * Rename a variable in every saved call that uses it or extracts it from responses, and
+     * in every environment that defines it or refers to it in a value. Environments and calls
+     * that already define the new name keep their value or extraction for it. Returns the
+     * number of calls changed.
+     */
+    public int renameVariable(String oldName, String newName) {
+        Map<String, String> replacement = Map.of(oldName, "{{" + newName + "}}");
+        ApiCallRepository calls = ApiCallRepository.getInstance();
+        int renamed = 0;
+        for (String name : getCallsUsing(oldName)) {
+            ApiCall apiCall = calls.find(name);
+            if (apiCall == null) {
+                continue;
+            }
+            // Other placeholders have no value in the replacement map, so they stay as written
+            apiCall.setUrl(VariableTemplate.substitute(apiCall.getUrl(), replacement));
+            apiCall.setHeaders(renameIn(apiCall.getHeaders(), replacement));
+            apiCall.setBody(renameIn(apiCall.getBody(), replacement));
+            apiCall.setExtractions(renameExtraction(apiCall.getExtractions(), oldName, newName));
+            calls.save(apiCall);
+            renamed++;
+        }
+
+        EnvironmentRepository environments = EnvironmentRepository.getInstance();
+        for (Environment environment : environments.findAll().values()) {
+            Map<String, String> variables = environment.getVariables();
+            Map<String, String> renamedVariables = new HashMap<>();
+            variables.forEach((name, value) -> renamedVariables.put(name, VariableTemplate.substitute(value, replacement)));
+            if (renamedVariables.containsKey(oldName)) {
+                renamedVariables.putIfAbsent(newName, renamedVariables.remove(oldName));
+            }
+            if (!renamedVariables.equals(variables)) {
+                environments.save(new Environment(environment.getName(), renamedVariables, environment.getHostOverrides()));
+            }
+        }
+        System.out.println("Renamed variable " + oldName + " to " + newName + " in " + renamed + " calls");
+        return renamed;
+    }
+
+    /**
+     * Move an extraction to the new variable; names are trimmed as ResponseExtraction does
+     */
+    private static Map<String, String> renameExtraction(Map<String, String> extractions, String oldName, String newName) {
+        Map<String, String> renamed = new HashMap<>();
+        String source = null;
+        for (Map.Entry<String, String> entry : extractions.entrySet()) {
+            if (entry.getKey().trim().equals(oldName)) {
+                source = entry.getValue();
+            } else {
+                renamed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (source != null && renamed.keySet().stream().noneMatch(name -> name.trim().equals(newName))) {
+            renamed.put(newName, source);
+        }
+        return renamed;
+    }
+
+    private static Map<String, String> renameIn(Map<String, String> entries, Map<String, String> replacement) {
+        Map<String, String> renamed = new HashMap<>();
+        entries.forEach((key, value) -> renamed.put(
+            VariableTemplate.substitute(key, replacement), VariableTemplate.substitute(value, replacement)));
+        return renamed;
+    }
+}
@@ -0,0 +1,86 @@
+package com.overzealouspelican.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utility class for replacing a file atomically.
+ * Content is written to a temporary file next to the target and then renamed over it,
+ * so readers (and a crash mid-write) only ever see the old or the new complete file.
+ */
+public class AtomicFileWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Callback that writes the new file content as text
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Callback that writes the new file content as bytes
+     */
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Write the target file atomically as UTF-8 text using the given content writer
+     */
+    public static void write(Path target, ContentWriter contentWriter) throws IOException {
+        writeStream(target, outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            contentWriter.write(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Write the target file atomically using the given stream writer.
+     * The temporary file is written through a buffered channel and forced to disk
+     * before it is renamed over the target.
+     */
+    public static void writeStream(Path target, StreamWriter streamWriter) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                streamWriter.write(outputStream);
+                outputStream.flush();
+                channel.force(true);
+            }
+            moveIntoPlace(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Rename the temporary file over the target, falling back to a plain replace
+     * on file systems that do not support atomic moves
+     */
+    private static void moveIntoPlace(Path tempFile, Path target) throws IOException {
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
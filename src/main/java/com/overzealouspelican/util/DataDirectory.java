@@ -0,0 +1,67 @@
+package com.overzealouspelican.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Utility class for locating the application data directory.
+ * The directory configured in the settings wins; otherwise the OS-specific default is used.
+ */
+public class DataDirectory {
+
+    private static final String APP_DIR_NAME = ".yapmc";
+    private static final String APP_FOLDER_NAME = "YAPMC";
+
+    /**
+     * Get the data directory, creating it if it does not exist yet
+     */
+    public static Path resolve() {
+        Path dataDirectory = getConfigured();
+        try {
+            if (!Files.exists(dataDirectory)) {
+                Files.createDirectories(dataDirectory);
+                System.out.println("Created data directory: " + dataDirectory);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to create data directory: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return dataDirectory;
+    }
+
+    /**
+     * Get the data directory configured in the settings, or the default one
+     */
+    public static Path getConfigured() {
+        String customLocation = com.overzealouspelican.panel.SettingsEditorPanel.getStorageLocation();
+        if (customLocation != null && !customLocation.isEmpty()) {
+            return Paths.get(customLocation);
+        }
+        return getDefault();
+    }
+
+    /**
+     * Get the default data directory based on the OS
+     */
+    public static Path getDefault() {
+        String userHome = System.getProperty("user.home");
+        String os = System.getProperty("os.name").toLowerCase();
+
+        if (os.contains("win")) {
+            // Windows: %APPDATA%\YAPMC
+            String appData = System.getenv("APPDATA");
+            if (appData != null) {
+                return Paths.get(appData, APP_FOLDER_NAME);
+            }
+            return Paths.get(userHome, "AppData", "Roaming", APP_FOLDER_NAME);
+        } else if (os.contains("mac")) {
+            // macOS: ~/Library/Application Support/YAPMC
+            return Paths.get(userHome, "Library", "Application Support", APP_FOLDER_NAME);
+        } else {
+            // Linux/Unix: ~/.yapmc
+            return Paths.get(userHome, APP_DIR_NAME);
+        }
+    }
+}
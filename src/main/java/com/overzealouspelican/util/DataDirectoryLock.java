@@ -0,0 +1,154 @@
+package com.overzealouspelican.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cross-process lock on a data directory, so several instances of the application can
+ * share one directory without losing each other's updates.
+ *
+ * Writers hold the exclusive lock only while they re-read what changed and write a batch;
+ * readers hold the shared lock while they re-read, so they never see a half-written journal.
+ * The lock file also holds a change sequence that every writer increments, which other
+ * instances can poll cheaply to notice changes when file system events are unreliable.
+ *
+ * The lock is a FileChannel lock on a byte range past the sequence (so the sequence can be
+ * read while the lock is held, also on Windows). FileChannel locks are held per process,
+ * so threads of this process additionally take a ReentrantLock.
+ */
+public class DataDirectoryLock {
+
+    private static final String LOCK_FILE = ".yapmc.lock";
+    private static final long LOCK_POSITION = 1024;
+    private static final long RETRY_MILLIS = 20;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static final Map<Path, DataDirectoryLock> locks = new HashMap<>();
+
+    private final Path lockFile;
+    private final ReentrantLock localLock;
+    private FileChannel channel;
+
+    /**
+     * Handle of a held lock; closing it releases the lock
+     */
+    public interface Held extends AutoCloseable {
+        @Override
+        void close() throws IOException;
+    }
+
+    private DataDirectoryLock(Path lockFile) {
+        this.lockFile = lockFile;
+        this.localLock = new ReentrantLock();
+    }
+
+    /**
+     * Get the lock of a data directory. Every caller in this process gets the same
+     * instance, because a second channel on the lock file would conflict with the first.
+     */
+    public static synchronized DataDirectoryLock of(Path dataDirectory) {
+        Path directory = dataDirectory.toAbsolutePath().normalize();
+        return locks.computeIfAbsent(directory, d -> new DataDirectoryLock(d.resolve(LOCK_FILE)));
+    }
+
+    /**
+     * Lock the directory for writing; other instances can neither read nor write until released
+     */
+    public Held lockExclusive() throws IOException {
+        return lock(false);
+    }
+
+    /**
+     * Lock the directory for reading; other instances can read but not write until released
+     */
+    public Held lockShared() throws IOException {
+        return lock(true);
+    }
+
+    private Held lock(boolean shared) throws IOException {
+        localLock.lock();
+        if (localLock.getHoldCount() > 1) {
+            return localLock::unlock; // Already held further up the stack
+        }
+        try {
+            FileLock fileLock = acquire(shared);
+            return () -> {
+                try {
+                    fileLock.release();
+                } finally {
+                    localLock.unlock();
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    private FileLock acquire(boolean shared) throws IOException {
+        // Poll instead of blocking, so a hung instance cannot block this one forever
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            FileLock fileLock = channel().tryLock(LOCK_POSITION, 1, shared);
+            if (fileLock != null) {
+                return fileLock;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Data directory is locked by another instance: " + lockFile.getParent());
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for " + lockFile, e);
+            }
+        }
+    }
+
+    private synchronized FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Get the change sequence without taking the lock. A read that races with a writer
+     * may return a stale or torn value, which only causes an extra reload.
+     */
+    public long readSequence() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel().read(buffer, buffer.position()) < 0) {
+                return 0; // New lock file
+            }
+        }
+        return buffer.flip().getLong();
+    }
+
+    /**
+     * Increment the change sequence; must be called while holding the exclusive lock
+     */
+    public long incrementSequence() throws IOException {
+        if (!localLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The data directory lock is not held");
+        }
+        long sequence = readSequence() + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip();
+        while (buffer.hasRemaining()) {
+            channel().write(buffer, buffer.position());
+        }
+        return sequence;
+    }
+
+    public Path getLockFile() {
+        return lockFile;
+    }
+}
@@ -0,0 +1,88 @@
+package com.overzealouspelican.util;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Built-in variables whose value is generated each time they are resolved, named with a
+ * leading '$' so they cannot clash with environment variables:
+ * <ul>
+ * <li>{{$timestamp}}: seconds since the epoch</li>
+ * <li>{{$isoNow}}: the current time in ISO-8601, UTC</li>
+ * <li>{{$uuid}}: a random UUID</li>
+ * <li>{{$randomInt}}: a random integer from 0 to 1000, or {{$randomInt min max}} for another range</li>
+ * </ul>
+ */
+public final class DynamicVariables {
+
+    public static final String PREFIX = "$";
+
+    private DynamicVariables() {
+    }
+
+    /**
+     * Check whether a variable name refers to a built-in variable, whatever its arguments
+     */
+    public static boolean isDynamic(String name) {
+        if (name == null || !name.trim().startsWith(PREFIX)) {
+            return false;
+        }
+        switch (functionName(name)) {
+            case "$timestamp":
+            case "$isoNow":
+            case "$uuid":
+            case "$randomInt":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Generate a value for a built-in variable; null if the name or its arguments are not valid
+     */
+    public static String evaluate(String name) {
+        if (!isDynamic(name)) {
+            return null;
+        }
+        String[] arguments = name.trim().split("\\s+");
+        switch (arguments[0]) {
+            case "$timestamp":
+                return Long.toString(System.currentTimeMillis() / 1000);
+            case "$isoNow":
+                return Instant.now().toString();
+            case "$uuid":
+                return UUID.randomUUID().toString();
+            case "$randomInt":
+                return randomInt(arguments);
+            default:
+                return null;
+        }
+    }
+
+    private static String randomInt(String[] arguments) {
+        long min = 0;
+        long max = 1000;
+        if (arguments.length == 3) {
+            try {
+                min = Long.parseLong(arguments[1]);
+                max = Long.parseLong(arguments[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        } else if (arguments.length != 1) {
+            return null;
+        }
+        if (min > max || max == Long.MAX_VALUE) {
+            return null;
+        }
+        return Long.toString(ThreadLocalRandom.current().nextLong(min, max + 1));
+    }
+
+    private static String functionName(String name) {
+        String trimmed = name.trim();
+        int space = trimmed.indexOf(' ');
+        return space < 0 ? trimmed : trimmed.substring(0, space);
+    }
+}
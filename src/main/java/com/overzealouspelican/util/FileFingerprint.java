@@ -0,0 +1,31 @@
+package com.overzealouspelican.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Utility class for cheaply telling whether a file changed.
+ * The fingerprint combines the file's identity, size and modification time, so a file
+ * replaced by an atomic rename is detected even if its size and timestamp are unchanged.
+ */
+public class FileFingerprint {
+
+    private static final String MISSING = "missing";
+
+    /**
+     * Get the fingerprint of a file; all missing files share the same fingerprint
+     */
+    public static String of(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.fileKey() + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        } catch (IOException e) {
+            return "unreadable:" + System.nanoTime(); // Never matches, so the file is re-read
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.overzealouspelican.util;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JSONPath expression, compiled once and evaluated against a stream of JSON without
+ * building a tree of the document. Supports the subset needed to pick one value out of a
+ * response: $ for the root, .name and ['name'] for object members, [n] for array elements
+ * and * or [*] for any member or element, e.g. $.data.items[0].id or $['access_token'].
+ * Reading stops at the first match, so a value near the start of a large response is found
+ * without reading the rest. Immutable.
+ */
+public final class JsonPath {
+
+    private final String source;
+    private final Segment[] segments;
+
+    /**
+     * One step of the path: a member name, an array index, or a wildcard
+     */
+    private static final class Segment {
+        private final String name; // Null for an index or a wildcard
+        private final int index; // -1 for a name or a wildcard
+
+        Segment(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        boolean isWildcard() {
+            return name == null && index < 0;
+        }
+    }
+
+    private JsonPath(String source, Segment[] segments) {
+        this.source = source;
+        this.segments = segments;
+    }
+
+    /**
+     * Parse an expression; throws IllegalArgumentException if it is not valid
+     */
+    public static JsonPath compile(String expression) {
+        String path = expression != null ? expression.trim() : "";
+        if (!path.startsWith("$")) {
+            throw new IllegalArgumentException("JSONPath must start with $: " + expression);
+        }
+        List<Segment> segments = new ArrayList<>();
+        int i = 1;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                int end = i + 1;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                String name = path.substring(i + 1, end);
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Empty member name at " + i + " in " + expression);
+                }
+                segments.add(name.equals("*") ? new Segment(null, -1) : new Segment(name, -1));
+                i = end;
+            } else if (c == '[') {
+                int close = findClosingBracket(path, i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed [ at " + i + " in " + expression);
+                }
+                segments.add(parseBracket(path.substring(i + 1, close).trim(), expression));
+                i = close + 1;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' at " + i + " in " + expression);
+            }
+        }
+        return new JsonPath(path, segments.toArray(new Segment[0]));
+    }
+
+    private static int findClosingBracket(String path, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Segment parseBracket(String content, String expression) {
+        if (content.equals("*")) {
+            return new Segment(null, -1);
+        }
+        if (content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+                && content.charAt(content.length() - 1) == content.charAt(0)) {
+            return new Segment(content.substring(1, content.length() - 1), -1);
+        }
+        try {
+            int index = Integer.parseInt(content);
+            if (index >= 0) {
+                return new Segment(null, index);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Expected a quoted name, an index of 0 or more, or * in ["
+            + content + "] in " + expression);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Read JSON from a reader and get the first value matching the path: strings and numbers as
+     * written, true or false, and objects and arrays as compact JSON. Returns null if nothing
+     * matches or the value is null. The reader is not closed.
+     * Throws IOException if the JSON is malformed before a match is found.
+     */
+    public String read(Reader json) throws IOException {
+        JsonReader in = new JsonReader(json);
+        return find(in, 0);
+    }
+
+    /**
+     * Find the match within the next value of the stream. Returns as soon as a match is read,
+     * leaving the rest of the stream unread.
+     */
+    private String find(JsonReader in, int depth) throws IOException {
+        if (depth == segments.length) {
+            return readValue(in);
+        }
+        Segment segment = segments[depth];
+        JsonToken token = in.peek();
+        if (token == JsonToken.BEGIN_OBJECT && segment.index < 0) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (segment.isWildcard() || name.equals(segment.name)) {
+                    String found = find(in, depth + 1);
+                    if (found != null) {
+                        return found;
+                    }
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_ARRAY && segment.name == null) {
+            in.beginArray();
+            for (int index = 0; in.hasNext(); index++) {
+                if (segment.isWildcard() || index == segment.index) {
+                    String found = find(in, depth + 1);
+                    if (found != null) {
+                        return found;
+                    }
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endArray();
+            return null;
+        }
+        in.skipValue();
+        return null;
+    }
+
+    private static String readValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+            case NUMBER:
+                return in.nextString();
+            case BOOLEAN:
+                return Boolean.toString(in.nextBoolean());
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                return JsonParser.parseReader(in).toString(); // Only this subtree is built
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
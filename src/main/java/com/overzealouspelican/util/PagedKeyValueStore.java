@@ -0,0 +1,407 @@
+package com.overzealouspelican.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store kept in a single page-structured file.
+ *
+ * The file starts with a header page, followed by committed transactions. Every transaction
+ * starts on a page boundary with a small header (magic, sequence number, payload length and
+ * CRC32 of the payload) and is padded to a whole number of pages. A transaction is only
+ * visible once its payload checksum matches, so a batch cut short by a crash is discarded
+ * as a whole on the next open.
+ *
+ * Only keys and value locations are held in memory, in a sorted index; values are read from
+ * the file on demand. Point lookups cost one positional read, and prefix scans walk the
+ * sorted index. When most of the file is superseded data it is compacted into a new file
+ * holding a single transaction, which then replaces the old one atomically.
+ */
+public class PagedKeyValueStore implements Closeable {
+
+    public static final int PAGE_SIZE = 4096;
+
+    private static final byte[] FILE_MAGIC = "YAPMCKV1".getBytes(StandardCharsets.US_ASCII);
+    private static final int FILE_VERSION = 1;
+    private static final int TRANSACTION_MAGIC = 0x5458_4E31; // "TXN1"
+    private static final int TRANSACTION_HEADER_SIZE = 4 + 8 + 4 + 4;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final long COMPACTION_MIN_FILE_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final TreeMap<String, ValueRef> index;
+    private FileChannel channel;
+    private long endOfData;
+    private long liveBytes; // Encoded size of the entries that are still current
+    private long sequence;
+
+    /**
+     * Location of a value in the file
+     */
+    private static class ValueRef {
+        final long position;
+        final int length;
+        final int entryLength; // Including the operation code, key and length prefixes
+
+        ValueRef(long position, int length, int entryLength) {
+            this.position = position;
+            this.length = length;
+            this.entryLength = entryLength;
+        }
+    }
+
+    /**
+     * A set of puts and deletes that is committed atomically.
+     * Later operations on the same key replace earlier ones.
+     */
+    public static class WriteBatch {
+        private final Map<String, byte[]> operations = new LinkedHashMap<>(); // null value = delete
+
+        public WriteBatch put(String key, byte[] value) {
+            operations.put(key, value);
+            return this;
+        }
+
+        public WriteBatch delete(String key) {
+            operations.put(key, null);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return operations.isEmpty();
+        }
+    }
+
+    private PagedKeyValueStore(Path file) {
+        this.file = file;
+        this.index = new TreeMap<>();
+    }
+
+    /**
+     * Open a store, creating the file if it does not exist
+     */
+    public static PagedKeyValueStore open(Path file) throws IOException {
+        PagedKeyValueStore store = new PagedKeyValueStore(file);
+        store.openChannel();
+        return store;
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeFileHeader(channel);
+            channel.force(true);
+        } else {
+            readFileHeader();
+        }
+        recover(true);
+    }
+
+    private static void writeFileHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.put(FILE_MAGIC).putInt(FILE_VERSION).putInt(PAGE_SIZE);
+        header.rewind();
+        writeFully(target, header, 0);
+    }
+
+    private void readFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_MAGIC.length + 8);
+        readFully(header, 0);
+        header.flip();
+        byte[] magic = new byte[FILE_MAGIC.length];
+        header.get(magic);
+        int version = header.getInt();
+        int pageSize = header.getInt();
+        if (!Arrays.equals(magic, FILE_MAGIC) || version != FILE_VERSION || pageSize != PAGE_SIZE) {
+            channel.close();
+            throw new IOException("Not a YAPMC database or unsupported version: " + file);
+        }
+    }
+
+    /**
+     * Re-read the file after it was replaced or appended to by another process.
+     * An incomplete transaction at the end is skipped but left in place, since its
+     * writer may still be busy with it.
+     */
+    public synchronized void reload() throws IOException {
+        // Open the file afresh in case it was replaced (e.g. compacted by another process)
+        FileChannel reopened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel previous = channel;
+        channel = reopened;
+        previous.close();
+        readFileHeader();
+        recover(false);
+    }
+
+    /**
+     * Rebuild the in-memory index by replaying every complete transaction.
+     * Anything after the last complete transaction is cut off if truncateTail is set.
+     */
+    private void recover(boolean truncateTail) throws IOException {
+        index.clear();
+        liveBytes = 0;
+        sequence = 0;
+
+        long fileSize = channel.size();
+        long position = PAGE_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(TRANSACTION_HEADER_SIZE);
+        while (position + TRANSACTION_HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int magic = header.getInt();
+            long transactionSequence = header.getLong();
+            int payloadLength = header.getInt();
+            int checksum = header.getInt();
+            long payloadPosition = position + TRANSACTION_HEADER_SIZE;
+            if (magic != TRANSACTION_MAGIC || transactionSequence <= sequence
+                    || payloadLength < 0 || payloadPosition + payloadLength > fileSize) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            readFully(payload, payloadPosition);
+            payload.flip();
+            if (checksum(payload) != checksum) {
+                break;
+            }
+
+            applyPayload(payload, payloadPosition);
+            sequence = transactionSequence;
+            position = pageAlign(payloadPosition + payloadLength);
+        }
+
+        endOfData = position;
+        if (truncateTail && fileSize > endOfData) {
+            System.err.println("Discarding incomplete transaction at the end of " + file);
+            channel.truncate(endOfData);
+        }
+    }
+
+    private void applyPayload(ByteBuffer payload, long payloadPosition) {
+        while (payload.hasRemaining()) {
+            byte op = payload.get();
+            byte[] key = new byte[payload.getInt()];
+            payload.get(key);
+            String keyString = new String(key, StandardCharsets.UTF_8);
+            ValueRef previous;
+            if (op == OP_PUT) {
+                int valueLength = payload.getInt();
+                int entryLength = 1 + 4 + key.length + 4 + valueLength;
+                previous = index.put(keyString, new ValueRef(payloadPosition + payload.position(), valueLength, entryLength));
+                payload.position(payload.position() + valueLength);
+                liveBytes += entryLength;
+            } else {
+                previous = index.remove(keyString);
+            }
+            if (previous != null) {
+                liveBytes -= previous.entryLength;
+            }
+        }
+    }
+
+    /**
+     * Get the value stored under a key, or null if there is none
+     */
+    public synchronized byte[] get(String key) throws IOException {
+        ValueRef ref = index.get(key);
+        return ref != null ? readValue(ref) : null;
+    }
+
+    /**
+     * Check if a key exists, without reading its value
+     */
+    public synchronized boolean containsKey(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Get all keys starting with a prefix, in key order, without reading their values
+     */
+    public synchronized List<String> keys(String prefix) {
+        return new ArrayList<>(prefixRange(prefix).keySet());
+    }
+
+    /**
+     * Get all entries whose key starts with a prefix, in key order
+     */
+    public synchronized Map<String, byte[]> scan(String prefix) throws IOException {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, ValueRef> entry : prefixRange(prefix).entrySet()) {
+            result.put(entry.getKey(), readValue(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Commit a batch atomically and force it to disk
+     */
+    public synchronized void commit(WriteBatch batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer payload = encodePayload(batch.operations);
+        long transactionPosition = endOfData;
+        long payloadPosition = transactionPosition + TRANSACTION_HEADER_SIZE;
+        int payloadLength = payload.remaining();
+
+        ByteBuffer transaction = ByteBuffer.allocate((int) (pageAlign(TRANSACTION_HEADER_SIZE + payloadLength)));
+        transaction.putInt(TRANSACTION_MAGIC).putLong(sequence + 1).putInt(payloadLength).putInt(checksum(payload.duplicate()));
+        transaction.put(payload.duplicate());
+        transaction.rewind();
+        writeFully(channel, transaction, transactionPosition);
+        channel.force(false);
+
+        sequence++;
+        endOfData = transactionPosition + transaction.capacity();
+        applyPayload(payload, payloadPosition);
+
+        if (needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Check whether nothing is stored
+     */
+    public synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean needsCompaction() {
+        return endOfData > COMPACTION_MIN_FILE_SIZE && liveBytes * 2 < endOfData;
+    }
+
+    /**
+     * Copy the live entries into a new file as a single transaction and swap it in
+     */
+    private void compact() throws IOException {
+        Map<String, byte[]> live = new LinkedHashMap<>();
+        for (Map.Entry<String, ValueRef> entry : index.entrySet()) {
+            live.put(entry.getKey(), readValue(entry.getValue()));
+        }
+        ByteBuffer payload = encodePayload(live);
+        int payloadLength = payload.remaining();
+
+        Path compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            try (FileChannel target = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFileHeader(target);
+                ByteBuffer transaction = ByteBuffer.allocate((int) pageAlign(TRANSACTION_HEADER_SIZE + payloadLength));
+                transaction.putInt(TRANSACTION_MAGIC).putLong(1).putInt(payloadLength).putInt(checksum(payload.duplicate()));
+                transaction.put(payload);
+                transaction.rewind();
+                writeFully(target, transaction, PAGE_SIZE);
+                target.force(true);
+            }
+
+            long before = endOfData;
+            channel.close();
+            try {
+                Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(compactFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            openChannel();
+            System.out.println("Compacted " + file + " from " + before + " to " + endOfData + " bytes");
+        } finally {
+            Files.deleteIfExists(compactFile);
+            if (!channel.isOpen()) {
+                openChannel();
+            }
+        }
+    }
+
+    private static ByteBuffer encodePayload(Map<String, byte[]> operations) {
+        int size = 0;
+        List<byte[]> keys = new ArrayList<>(operations.size());
+        for (Map.Entry<String, byte[]> entry : operations.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            size += 1 + 4 + key.length;
+            if (entry.getValue() != null) {
+                size += 4 + entry.getValue().length;
+            }
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        int i = 0;
+        for (byte[] value : operations.values()) {
+            byte[] key = keys.get(i++);
+            payload.put(value != null ? OP_PUT : OP_DELETE).putInt(key.length).put(key);
+            if (value != null) {
+                payload.putInt(value.length).put(value);
+            }
+        }
+        payload.flip();
+        return payload;
+    }
+
+    private NavigableMap<String, ValueRef> prefixRange(String prefix) {
+        if (prefix.isEmpty()) {
+            return index;
+        }
+        // Every key with the prefix sorts before the prefix followed by the highest char
+        return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private byte[] readValue(ValueRef ref) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(ref.length);
+        readFully(value, ref.position);
+        return value.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static long pageAlign(long position) {
+        return (position + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+}
@@ -0,0 +1,133 @@
+package com.overzealouspelican.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A string with {{name}} placeholders, parsed once into literal and variable segments so it
+ * can be rendered any number of times without scanning the text again.
+ * A placeholder whose variable has no value is rendered as written. Immutable.
+ */
+public final class VariableTemplate {
+
+    private static final VariableTemplate EMPTY = new VariableTemplate("", new String[] {""}, new String[0]);
+
+    private final String source;
+    private final String[] literals; // literals[i] comes before variables[i]; one more literal than variables
+    private final String[] variables;
+
+    private VariableTemplate(String source, String[] literals, String[] variables) {
+        this.source = source;
+        this.literals = literals;
+        this.variables = variables;
+    }
+
+    /**
+     * Parse a string; a placeholder is "{{", one or more characters other than '}', then "}}"
+     */
+    public static VariableTemplate compile(String source) {
+        if (source == null || source.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int literalStart = 0;
+        int from = 0;
+        int open;
+        while ((open = source.indexOf("{{", from)) >= 0) {
+            int nameEnd = open + 2;
+            while (nameEnd < source.length() && source.charAt(nameEnd) != '}') {
+                nameEnd++;
+            }
+            if (nameEnd == open + 2 || !source.startsWith("}}", nameEnd)) {
+                from = open + 1; // Not a placeholder; look for one starting at the next brace
+                continue;
+            }
+            literals.add(source.substring(literalStart, open));
+            variables.add(source.substring(open + 2, nameEnd));
+            literalStart = nameEnd + 2;
+            from = literalStart;
+        }
+        literals.add(source.substring(literalStart));
+        return new VariableTemplate(source, literals.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+
+    /**
+     * Substitute variables in a string in one go, for text that is rendered only once
+     */
+    public static String substitute(String source, Map<String, String> variables) {
+        if (source == null || variables == null) {
+            return source;
+        }
+        return compile(source).render(variables);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Check whether the template has no placeholders, so it always renders as its source
+     */
+    public boolean isConstant() {
+        return variables.length == 0;
+    }
+
+    /**
+     * Get the names of the variables used, in order of first use
+     */
+    public Set<String> getVariableNames() {
+        Set<String> names = new LinkedHashSet<>();
+        Collections.addAll(names, variables);
+        return names;
+    }
+
+    /**
+     * Render with the given variable values
+     */
+    public String render(Map<String, String> values) {
+        if (isConstant()) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length() + 16 * variables.length);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Append the rendered text to a builder, so one builder can be reused for many templates
+     */
+    public void renderTo(StringBuilder out, Map<String, String> values) {
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            String value = values != null ? values.get(variables[i]) : null;
+            if (value != null) {
+                out.append(value);
+            } else {
+                out.append("{{").append(variables[i]).append("}}"); // Keep the placeholder if no value found
+            }
+        }
+        out.append(literals[variables.length]);
+    }
+
+    /**
+     * Add the names of the variables that have no value to a collection
+     */
+    public void collectUnresolved(Map<String, String> values, Collection<String> unresolved) {
+        for (String variable : variables) {
+            if ((values == null || values.get(variable) == null) && !unresolved.contains(variable)) {
+                unresolved.add(variable);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
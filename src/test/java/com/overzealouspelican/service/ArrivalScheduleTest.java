@@ -0,0 +1,80 @@
+package com.overzealouspelican.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for ArrivalSchedule: start times follow the integral of the ramped rate
+ */
+class ArrivalScheduleTest {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double TOLERANCE_NANOS = 1000;
+
+    private static ArrivalSchedule schedule(int rate, int rampUpSeconds, int durationSeconds, int rampDownSeconds) {
+        return new ArrivalSchedule(new LoadTestConfig(10, 0, durationSeconds, 0, rate, rampUpSeconds, rampDownSeconds));
+    }
+
+    private static void assertDueAt(double seconds, ArrivalSchedule schedule, long n) {
+        assertEquals(seconds * NANOS_PER_SECOND, schedule.getOffsetNanos(n), TOLERANCE_NANOS, "Request " + n);
+    }
+
+    @Test
+    void constantRateSpacesRequestsEvenly() {
+        ArrivalSchedule schedule = schedule(10, 0, 5, 0);
+        assertEquals(50, schedule.getTotalRequests());
+        assertDueAt(0.1, schedule, 1);
+        assertDueAt(2.5, schedule, 25);
+        assertDueAt(5.0, schedule, 50);
+        assertEquals(-1, schedule.getOffsetNanos(51));
+    }
+
+    @Test
+    void rampUpFollowsTheIntegralOfTheRate() {
+        // The rate rises by 1/s per second, so n requests have been due after sqrt(2n) seconds
+        ArrivalSchedule schedule = schedule(10, 10, 0, 0);
+        assertEquals(50, schedule.getTotalRequests());
+        assertDueAt(Math.sqrt(2), schedule, 1);
+        assertDueAt(2.0, schedule, 2);
+        assertDueAt(10.0, schedule, 50);
+        assertEquals(-1, schedule.getOffsetNanos(51));
+    }
+
+    @Test
+    void rampUpHoldAndRampDown() {
+        ArrivalSchedule schedule = schedule(10, 10, 10, 10);
+        assertEquals(200, schedule.getTotalRequests());
+        assertDueAt(10.0, schedule, 50);
+        assertDueAt(10.1, schedule, 51);
+        assertDueAt(20.0, schedule, 150);
+        // The last request of the ramp down is due when the rate reaches 0; the one before
+        // it when one request's worth of the triangle is left
+        assertDueAt(30.0 - Math.sqrt(2), schedule, 199);
+        assertDueAt(30.0, schedule, 200);
+        assertEquals(-1, schedule.getOffsetNanos(201));
+    }
+
+    @Test
+    void startTimesIncrease() {
+        ArrivalSchedule schedule = schedule(7, 3, 4, 5);
+        long previous = -1;
+        for (long n = 1; n <= schedule.getTotalRequests(); n++) {
+            long offset = schedule.getOffsetNanos(n);
+            assertTrue(offset > previous, "Request " + n + " at " + offset + " after " + previous);
+            previous = offset;
+        }
+        assertEquals(-1, schedule.getOffsetNanos(schedule.getTotalRequests() + 1));
+    }
+
+    @Test
+    void rateAtFollowsTheRamps() {
+        ArrivalSchedule schedule = schedule(10, 10, 10, 10);
+        assertEquals(0, schedule.getRateAt(0), 1e-9);
+        assertEquals(5, schedule.getRateAt(5), 1e-9);
+        assertEquals(10, schedule.getRateAt(15), 1e-9);
+        assertEquals(5, schedule.getRateAt(25), 1e-9);
+        assertEquals(0, schedule.getRateAt(31), 1e-9);
+    }
+}
@@ -0,0 +1,247 @@
+package com.overzealouspelican.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the gzip and deflate decoders and chained codings, against bodies encoded with the
+ * JDK's GZIPOutputStream and DeflaterOutputStream. Bodies are fed in chunks of several sizes,
+ * down to one byte, since the decoders parse headers and trailers as the bytes arrive.
+ */
+class ContentCodecsTest {
+
+    private static final int[] CHUNK_SIZES = {1, 7, 100, 8192, Integer.MAX_VALUE};
+
+    /**
+     * Text that compresses well, followed by random bytes that do not
+     */
+    private static byte[] sampleBody() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("{\"id\": ").append(i).append(", \"value\": ").append(i * 31 % 97).append("}\n");
+        }
+        byte[] textBytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[20_000];
+        new Random(42).nextBytes(random);
+        byte[] body = Arrays.copyOf(textBytes, textBytes.length + random.length);
+        System.arraycopy(random, 0, body, textBytes.length, random.length);
+        return body;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(encoded)) {
+            out.write(data);
+        }
+        return encoded.toByteArray();
+    }
+
+    private static byte[] zlib(byte[] data) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(encoded)) {
+            out.write(data);
+        }
+        return encoded.toByteArray();
+    }
+
+    private static byte[] rawDeflate(byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(encoded, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return encoded.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            joined.writeBytes(part);
+        }
+        return joined.toByteArray();
+    }
+
+    /**
+     * Decode a body fed in chunks of the given size, as a response arrives
+     */
+    private static byte[] decode(String contentEncoding, byte[] encoded, int chunkSize) throws IOException {
+        ContentCodec.Decoder decoder = ContentCodecs.newDecoder(contentEncoding);
+        assertNotNull(decoder, "No decoder for " + contentEncoding);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        ContentCodec.Sink sink = buffer -> {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            decoded.writeBytes(bytes);
+        };
+        try {
+            for (int offset = 0; offset < encoded.length; ) {
+                int length = Math.min(chunkSize, encoded.length - offset);
+                ByteBuffer chunk = ByteBuffer.wrap(encoded, offset, length);
+                decoder.decode(chunk, sink);
+                assertFalse(chunk.hasRemaining(), "The decoder consumes every byte it is given");
+                offset += length;
+            }
+            decoder.finish(sink);
+        } finally {
+            decoder.close();
+        }
+        return decoded.toByteArray();
+    }
+
+    private static void assertDecodes(byte[] expected, String contentEncoding, byte[] encoded) throws IOException {
+        for (int chunkSize : CHUNK_SIZES) {
+            assertArrayEquals(expected, decode(contentEncoding, encoded, chunkSize),
+                contentEncoding + " in chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    void gzipRoundTrips() throws IOException {
+        byte[] body = sampleBody();
+        assertDecodes(body, "gzip", gzip(body));
+        assertDecodes(body, "x-gzip", gzip(body));
+    }
+
+    @Test
+    void gzipDecodesConcatenatedMembers() throws IOException {
+        byte[] first = "first member\n".getBytes(StandardCharsets.UTF_8);
+        byte[] second = sampleBody();
+        byte[] third = new byte[0];
+        assertDecodes(concat(first, second), "gzip", concat(gzip(first), gzip(second), gzip(third)));
+    }
+
+    @Test
+    void gzipSkipsOptionalHeaderFields() throws IOException {
+        byte[] body = "body after a full header".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        // FHCRC | FEXTRA | FNAME | FCOMMENT
+        member.writeBytes(new byte[] {0x1f, (byte) 0x8b, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xff});
+        member.writeBytes(new byte[] {3, 0, 'a', 'b', 'c'});
+        member.writeBytes("name.json\0".getBytes(StandardCharsets.ISO_8859_1));
+        member.writeBytes("a comment\0".getBytes(StandardCharsets.ISO_8859_1));
+        member.writeBytes(new byte[] {0x12, 0x34}); // Header CRC, not checked
+        member.writeBytes(rawDeflate(body));
+        member.writeBytes(littleEndian(crc.getValue()));
+        member.writeBytes(littleEndian(body.length));
+        assertDecodes(body, "gzip", member.toByteArray());
+    }
+
+    private static byte[] littleEndian(long value) {
+        return new byte[] {(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)};
+    }
+
+    @Test
+    void gzipChecksTheTrailer() throws IOException {
+        byte[] encoded = gzip(sampleBody());
+
+        byte[] badCrc = encoded.clone();
+        badCrc[badCrc.length - 8] ^= 1;
+        IOException crcError = assertThrows(IOException.class, () -> decode("gzip", badCrc, 100));
+        assertTrue(crcError.getMessage().contains("CRC"), crcError.getMessage());
+
+        byte[] badLength = encoded.clone();
+        badLength[badLength.length - 4] ^= 1;
+        IOException lengthError = assertThrows(IOException.class, () -> decode("gzip", badLength, 100));
+        assertTrue(lengthError.getMessage().contains("length"), lengthError.getMessage());
+    }
+
+    @Test
+    void gzipFailsWhenCutShort() throws IOException {
+        byte[] encoded = gzip(sampleBody());
+        for (int cut : new int[] {5, 10, encoded.length / 2, encoded.length - 3}) {
+            byte[] truncated = Arrays.copyOf(encoded, cut);
+            assertThrows(IOException.class, () -> decode("gzip", truncated, 100), "Cut at " + cut);
+        }
+    }
+
+    @Test
+    void gzipIgnoresGarbageAfterAMember() throws IOException {
+        byte[] body = sampleBody();
+        assertDecodes(body, "gzip", concat(gzip(body), new byte[16]));
+    }
+
+    @Test
+    void gzipRejectsOtherFormats() {
+        byte[] notGzip = "plain text, not compressed".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> decode("gzip", notGzip, 100));
+    }
+
+    @Test
+    void emptyBodiesDecodeToNothing() throws IOException {
+        assertEquals(0, decode("gzip", new byte[0], 100).length);
+        assertEquals(0, decode("deflate", new byte[0], 100).length);
+    }
+
+    @Test
+    void deflateRoundTripsZlibData() throws IOException {
+        byte[] body = sampleBody();
+        assertDecodes(body, "deflate", zlib(body));
+    }
+
+    @Test
+    void deflateRoundTripsRawData() throws IOException {
+        byte[] body = sampleBody();
+        assertDecodes(body, "deflate", rawDeflate(body));
+        byte[] tiny = "x".getBytes(StandardCharsets.UTF_8);
+        assertDecodes(tiny, "deflate", rawDeflate(tiny));
+    }
+
+    @Test
+    void deflateFailsWhenCutShort() throws IOException {
+        byte[] zlib = zlib(sampleBody());
+        assertThrows(IOException.class, () -> decode("deflate", Arrays.copyOf(zlib, zlib.length / 2), 100));
+        byte[] raw = rawDeflate(sampleBody());
+        assertThrows(IOException.class, () -> decode("deflate", Arrays.copyOf(raw, raw.length / 2), 100));
+        assertThrows(IOException.class, () -> decode("deflate", Arrays.copyOf(zlib, 1), 100));
+    }
+
+    @Test
+    void chainedCodingsAreRemovedInReverseOrder() throws IOException {
+        byte[] body = sampleBody();
+        // deflate was applied first and gzip last, so gzip is removed first
+        assertDecodes(body, "deflate, gzip", gzip(zlib(body)));
+        assertDecodes(body, "gzip, identity, deflate", zlib(gzip(body)));
+        assertDecodes(body, "gzip, gzip", gzip(gzip(body)));
+    }
+
+    @Test
+    void chainedDecoderFailsWhenAnInnerCodingIsCutShort() throws IOException {
+        byte[] inner = zlib(sampleBody());
+        byte[] encoded = gzip(Arrays.copyOf(inner, inner.length / 2));
+        assertThrows(IOException.class, () -> decode("deflate, gzip", encoded, 100));
+    }
+
+    @Test
+    void unsupportedOrIdentityCodingsAreNotDecoded() {
+        assertNull(ContentCodecs.newDecoder(null));
+        assertNull(ContentCodecs.newDecoder("identity"));
+        assertNull(ContentCodecs.newDecoder("br"));
+        assertNull(ContentCodecs.newDecoder("gzip, br"));
+        assertFalse(ContentCodecs.isEncoded(" identity "));
+        assertTrue(ContentCodecs.isEncoded("GZIP"));
+        assertTrue(ContentCodecs.getAcceptEncoding().contains("gzip"));
+        assertTrue(ContentCodecs.getAcceptEncoding().contains("deflate"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.overzealouspelican.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for LatencyHistogram: percentiles, and the HdrHistogram V2 compressed encoding,
+ * decoded here as HdrHistogram's decodeFromCompressedByteBuffer reads it
+ */
+class LatencyHistogramTest {
+
+    private static final int V2_ENCODING_COOKIE = 0x1c849303 | 0x10;
+    private static final int V2_COMPRESSED_ENCODING_COOKIE = 0x1c849304 | 0x10;
+    private static final int HEADER_SIZE = 40;
+
+    /**
+     * The counts index of a value in an HdrHistogram with 2 significant digits and a lowest
+     * discernible value of 1: 256 sub-buckets, of which the upper 128 repeat per power of two
+     */
+    private static int hdrIndexOf(long value) {
+        int bucketIndex = Math.max(0, 63 - Long.numberOfLeadingZeros(value | 255) - 7);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << 7) + (subBucketIndex - 128);
+    }
+
+    /**
+     * The decoded V2 header and counts of an encoded histogram
+     */
+    private static class Decoded {
+        int cookie;
+        int normalizingIndexOffset;
+        int significantDigits;
+        long lowestDiscernibleValue;
+        long highestTrackableValue;
+        double conversionRatio;
+        long[] counts;
+    }
+
+    private static Decoded decode(byte[] encoded) throws DataFormatException {
+        ByteBuffer outer = ByteBuffer.wrap(encoded);
+        assertEquals(V2_COMPRESSED_ENCODING_COOKIE, outer.getInt());
+        int compressedLength = outer.getInt();
+        assertEquals(encoded.length - 8, compressedLength);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(encoded, 8, compressedLength);
+        byte[] header = new byte[HEADER_SIZE];
+        assertEquals(HEADER_SIZE, inflater.inflate(header));
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        Decoded decoded = new Decoded();
+        decoded.cookie = headerBuffer.getInt();
+        int payloadLength = headerBuffer.getInt();
+        decoded.normalizingIndexOffset = headerBuffer.getInt();
+        decoded.significantDigits = headerBuffer.getInt();
+        decoded.lowestDiscernibleValue = headerBuffer.getLong();
+        decoded.highestTrackableValue = headerBuffer.getLong();
+        decoded.conversionRatio = headerBuffer.getDouble();
+
+        byte[] payload = new byte[payloadLength];
+        int read = 0;
+        while (read < payloadLength) {
+            int n = inflater.inflate(payload, read, payloadLength - read);
+            assertTrue(n > 0 || !inflater.finished(), "Payload shorter than its length");
+            read += n;
+        }
+        inflater.inflate(new byte[1]);
+        assertTrue(inflater.finished(), "Nothing follows the payload");
+        inflater.end();
+
+        ByteBuffer counts = ByteBuffer.wrap(payload);
+        long[] decodedCounts = new long[0];
+        int index = 0;
+        while (counts.hasRemaining()) {
+            long count = getZigZag(counts);
+            if (count < 0) {
+                index += (int) -count; // A run of empty buckets
+            } else {
+                decodedCounts = Arrays.copyOf(decodedCounts, Math.max(decodedCounts.length, index + 1));
+                decodedCounts[index++] = count;
+            }
+        }
+        decoded.counts = Arrays.copyOf(decodedCounts, index);
+        return decoded;
+    }
+
+    /**
+     * Read a ZigZag LEB128 value of at most 9 bytes, as HdrHistogram's ZigZagEncoding.getLong
+     */
+    private static long getZigZag(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 56; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        value |= (long) (buffer.get() & 0xFF) << 56;
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Test
+    void encodedHeaderDescribesTheLayout() throws DataFormatException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        Decoded decoded = decode(histogram.encodeCompressed());
+        assertEquals(V2_ENCODING_COOKIE, decoded.cookie);
+        assertEquals(0, decoded.normalizingIndexOffset);
+        assertEquals(2, decoded.significantDigits);
+        assertEquals(1, decoded.lowestDiscernibleValue);
+        assertEquals(LatencyHistogram.getHighestTrackableValue(), decoded.highestTrackableValue);
+        assertEquals(1.0, decoded.conversionRatio, 0);
+    }
+
+    @Test
+    void encodedCountsUseHdrHistogramIndexes() throws DataFormatException {
+        long[] values = {0, 1, 1, 255, 256, 257, 1000, 1000, 1000, 4095, 4096, 1_000_000, 5_000_000_000L};
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] expected = new long[hdrIndexOf(5_000_000_000L) + 1];
+        for (long value : values) {
+            histogram.record(value);
+            expected[hdrIndexOf(value)]++;
+        }
+
+        Decoded decoded = decode(histogram.encodeCompressed());
+        assertArrayEquals(expected, decoded.counts);
+    }
+
+    @Test
+    void emptyHistogramHasNoCounts() throws DataFormatException {
+        Decoded decoded = decode(new LatencyHistogram().encodeCompressed());
+        assertEquals(0, decoded.counts.length);
+    }
+
+    @Test
+    void singleEmptyBucketIsWrittenAsZero() throws DataFormatException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(12);
+
+        Decoded decoded = decode(histogram.encodeCompressed());
+        long[] expected = new long[13];
+        expected[10] = 1;
+        expected[12] = 1;
+        assertArrayEquals(expected, decoded.counts);
+    }
+
+    @Test
+    void valuesOutOfRangeAreClamped() throws DataFormatException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        Decoded decoded = decode(histogram.encodeCompressed());
+        assertEquals(1, decoded.counts[0], "Negative values count as 0");
+        assertEquals(1, decoded.counts[decoded.counts.length - 1], "Too large values go into the last bucket");
+        assertEquals(hdrIndexOf(LatencyHistogram.getHighestTrackableValue()) + 1, decoded.counts.length);
+        assertEquals(Long.MAX_VALUE, histogram.getMaxNanos());
+    }
+
+    @Test
+    void percentilesAreWithinThePrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertEquals(5_000_500, histogram.getMeanNanos());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.008);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.008);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getValueAtPercentile(0), 1000 * 0.008);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 200; value++) {
+            histogram.record(value);
+        }
+        assertEquals(99, histogram.getValueAtPercentile(50));
+        assertEquals(199, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+}
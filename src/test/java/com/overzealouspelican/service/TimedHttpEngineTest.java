@@ -0,0 +1,322 @@
+package com.overzealouspelican.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for TimedHttpEngine against a server on a local ServerSocket that answers each
+ * connection with a script: body framing, interim responses, and which requests are sent
+ * again when a pooled connection turns out to be closed
+ */
+class TimedHttpEngineTest {
+
+    private ScriptedServer server;
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static String respond(int statusCode, String headers, String body) {
+        return "HTTP/1.1 " + statusCode + " Status\r\n" + headers + "\r\n" + body;
+    }
+
+    private TimedHttpEngine.TimedResponse send(String method, String path) throws IOException {
+        HttpRequest.BodyPublisher body = method.equals("POST")
+            ? HttpRequest.BodyPublishers.ofString("{\"a\": 1}") : HttpRequest.BodyPublishers.noBody();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+            .method(method, body)
+            .timeout(Duration.ofSeconds(5))
+            .build();
+        return TimedHttpEngine.getInstance().send(request, false, 64 * 1024, Map.of());
+    }
+
+    private static String bodyOf(TimedHttpEngine.TimedResponse response) {
+        try {
+            return response.getBody().getPreviewText();
+        } finally {
+            response.getBody().release();
+        }
+    }
+
+    @Test
+    void readsContentLengthBodiesAndKeepsTheConnection() throws IOException {
+        server = new ScriptedServer(peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Content-Length: 5\r\n", "hello"));
+            peer.readRequest();
+            peer.write(respond(200, "Content-Length: 0\r\n", ""));
+            peer.readRequest();
+        });
+
+        TimedHttpEngine.TimedResponse first = send("GET", "/first");
+        assertEquals(200, first.getStatusCode());
+        assertEquals("hello", bodyOf(first));
+        assertFalse(first.getTiming().isReusedConnection());
+
+        TimedHttpEngine.TimedResponse second = send("GET", "/second?q=1");
+        assertEquals("", bodyOf(second));
+        assertTrue(second.getTiming().isReusedConnection());
+        assertEquals(1, server.getConnections());
+        assertEquals(List.of("GET /first HTTP/1.1", "GET /second?q=1 HTTP/1.1"), server.getRequestLines());
+    }
+
+    @Test
+    void readsChunkedBodies() throws IOException {
+        server = new ScriptedServer(peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Transfer-Encoding: chunked\r\n",
+                "5;name=value\r\nhello\r\n6\r\n world\r\nA\r\n, chunked!\r\n0\r\nTrailer: ignored\r\n\r\n"));
+            peer.readRequest();
+        });
+
+        TimedHttpEngine.TimedResponse response = send("GET", "/");
+        assertEquals("hello world, chunked!", bodyOf(response));
+        assertEquals(21, response.getBody().getTotalBytes());
+    }
+
+    @Test
+    void skipsInterimResponses() throws IOException {
+        server = new ScriptedServer(peer -> {
+            peer.readRequest();
+            peer.write("HTTP/1.1 100 Continue\r\n\r\n");
+            peer.write("HTTP/1.1 103 Early Hints\r\nLink: </style.css>; rel=preload\r\n\r\n");
+            peer.write(respond(201, "Content-Length: 2\r\n", "ok"));
+            peer.readRequest();
+        });
+
+        TimedHttpEngine.TimedResponse response = send("POST", "/items");
+        assertEquals(201, response.getStatusCode());
+        assertEquals("ok", bodyOf(response));
+        assertNull(response.getHeaders().get("Link"), "Headers of interim responses are dropped");
+    }
+
+    @Test
+    void readsUntilClosedWithoutFraming() throws IOException {
+        server = new ScriptedServer(
+            peer -> {
+                peer.readRequest();
+                peer.write(respond(200, "", "the body ends when the connection does"));
+            },
+            peer -> {
+                peer.readRequest();
+                peer.write(respond(200, "Content-Length: 4\r\n", "next"));
+                peer.readRequest();
+            });
+
+        assertEquals("the body ends when the connection does", bodyOf(send("GET", "/")));
+        TimedHttpEngine.TimedResponse next = send("GET", "/");
+        assertEquals("next", bodyOf(next));
+        assertFalse(next.getTiming().isReusedConnection(), "A body read until closed leaves nothing to reuse");
+        assertEquals(2, server.getConnections());
+    }
+
+    @Test
+    void rejectsNegativeContentLength() {
+        server = new ScriptedServer(peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Content-Length: -1\r\n", "body"));
+        });
+        IOException error = assertThrows(IOException.class, () -> send("GET", "/"));
+        assertTrue(error.getMessage().contains("Content-Length"), error.getMessage());
+    }
+
+    @Test
+    void rejectsNegativeChunkSizes() {
+        server = new ScriptedServer(peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Transfer-Encoding: chunked\r\n", "-5\r\nhello\r\n0\r\n\r\n"));
+        });
+        IOException error = assertThrows(IOException.class, () -> send("GET", "/"));
+        assertTrue(error.getMessage().contains("chunk size"), error.getMessage());
+    }
+
+    /**
+     * The first connection answers one request, then reads the next and closes without an answer
+     */
+    private static void answerOnceThenDrop(Peer peer) throws IOException {
+        peer.readRequest();
+        peer.write(respond(200, "Content-Length: 2\r\n", "ok"));
+        peer.readRequest();
+    }
+
+    @Test
+    void idempotentRequestIsRetriedWhenAPooledConnectionDrops() throws IOException {
+        server = new ScriptedServer(TimedHttpEngineTest::answerOnceThenDrop, peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Content-Length: 5\r\n", "again"));
+            peer.readRequest();
+        });
+
+        assertEquals("ok", bodyOf(send("GET", "/")));
+        TimedHttpEngine.TimedResponse retried = send("PUT", "/item");
+        assertEquals("again", bodyOf(retried));
+        assertFalse(retried.getTiming().isReusedConnection());
+        assertEquals(2, server.getConnections());
+        assertEquals(List.of("GET / HTTP/1.1", "PUT /item HTTP/1.1", "PUT /item HTTP/1.1"), server.getRequestLines());
+    }
+
+    @Test
+    void postIsNotRetriedWhenAPooledConnectionDrops() throws IOException {
+        server = new ScriptedServer(TimedHttpEngineTest::answerOnceThenDrop, peer -> {
+            peer.readRequest();
+            peer.write(respond(200, "Content-Length: 0\r\n", ""));
+        });
+
+        assertEquals("ok", bodyOf(send("GET", "/")));
+        assertThrows(IOException.class, () -> send("POST", "/orders"));
+        assertEquals(1, server.getConnections(), "The server may have acted on the POST, so it is not sent again");
+        assertEquals(List.of("GET / HTTP/1.1", "POST /orders HTTP/1.1"), server.getRequestLines());
+    }
+
+    /**
+     * What a script does with one accepted connection; the connection is closed when it returns
+     */
+    private interface Script {
+        void run(Peer peer) throws IOException;
+    }
+
+    /**
+     * The server's end of one connection
+     */
+    private static class Peer {
+        private final InputStream in;
+        private final OutputStream out;
+        private final List<String> requestLines;
+
+        Peer(Socket socket, List<String> requestLines) throws IOException {
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+            this.requestLines = requestLines;
+        }
+
+        /**
+         * Read a request with its body and record its request line; null if the client closed
+         */
+        String readRequest() throws IOException {
+            String requestLine = readLine();
+            if (requestLine == null) {
+                return null;
+            }
+            int contentLength = 0;
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                }
+            }
+            if (in.readNBytes(contentLength).length < contentLength) {
+                throw new EOFException("Request body cut short");
+            }
+            requestLines.add(requestLine);
+            return requestLine;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    if (line.size() == 0) {
+                        return null;
+                    }
+                    throw new EOFException("Request line cut short");
+                }
+                line.write(b);
+            }
+            String text = line.toString(StandardCharsets.ISO_8859_1);
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        void write(String response) throws IOException {
+            out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        }
+    }
+
+    /**
+     * Accepts one connection per script, in order, on a loopback port of its own, so the
+     * engine's pool never mixes connections between tests
+     */
+    private static class ScriptedServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger connections;
+        private final List<String> requestLines;
+        private final List<Socket> accepted;
+
+        ScriptedServer(Script... scripts) {
+            try {
+                this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open a local port", e);
+            }
+            this.connections = new AtomicInteger();
+            this.requestLines = new CopyOnWriteArrayList<>();
+            this.accepted = new CopyOnWriteArrayList<>();
+            Thread thread = new Thread(() -> serve(scripts), "test-http-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void serve(Script[] scripts) {
+            for (Script script : scripts) {
+                try (Socket socket = serverSocket.accept()) {
+                    accepted.add(socket);
+                    connections.incrementAndGet();
+                    script.run(new Peer(socket, requestLines));
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        int getConnections() {
+            return connections.get();
+        }
+
+        List<String> getRequestLines() {
+            return List.copyOf(requestLines);
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+}
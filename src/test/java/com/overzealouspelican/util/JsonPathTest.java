@@ -0,0 +1,133 @@
+package com.overzealouspelican.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for JsonPath: the supported syntax, the values it returns, and reading no further
+ * than the first match
+ */
+class JsonPathTest {
+
+    private static final String DOCUMENT = "{"
+        + "\"data\": {\"items\": [{\"id\": 7, \"name\": \"first\"}, {\"id\": 8, \"name\": \"second\", \"tags\": [\"a\", \"b\"]}]},"
+        + "\"access_token\": \"abc.def\","
+        + "\"with.dot\": {\"inner\": true},"
+        + "\"count\": 12.50,"
+        + "\"empty\": null"
+        + "}";
+
+    private static String read(String path, String json) throws IOException {
+        return JsonPath.compile(path).read(new StringReader(json));
+    }
+
+    @Test
+    void readsMembersAndElements() throws IOException {
+        assertEquals("7", read("$.data.items[0].id", DOCUMENT));
+        assertEquals("second", read("$.data.items[1].name", DOCUMENT));
+        assertEquals("b", read("$.data.items[1].tags[1]", DOCUMENT));
+        assertEquals("abc.def", read("$['access_token']", DOCUMENT));
+        assertEquals("true", read("$[\"with.dot\"].inner", DOCUMENT));
+    }
+
+    @Test
+    void keepsNumbersAsWritten() throws IOException {
+        assertEquals("12.50", read("$.count", DOCUMENT));
+    }
+
+    @Test
+    void returnsObjectsAndArraysAsCompactJson() throws IOException {
+        assertEquals("{\"id\":7,\"name\":\"first\"}", read("$.data.items[0]", DOCUMENT));
+        assertEquals("[\"a\",\"b\"]", read("$.data.items[1].tags", DOCUMENT));
+        assertEquals(DOCUMENT.replace(" ", ""), read("$", DOCUMENT).replace(" ", ""));
+    }
+
+    @Test
+    void wildcardsMatchTheFirstMemberThatHasTheRest() throws IOException {
+        assertEquals("7", read("$.data.items[*].id", DOCUMENT));
+        assertEquals("a", read("$.data.items[*].tags[0]", DOCUMENT), "The first item has no tags");
+        assertEquals("first", read("$.*.items[0].name", DOCUMENT));
+        assertEquals("true", read("$[*].inner", DOCUMENT));
+    }
+
+    @Test
+    void missingValuesAndNullGiveNull() throws IOException {
+        assertNull(read("$.missing", DOCUMENT));
+        assertNull(read("$.data.items[5].id", DOCUMENT));
+        assertNull(read("$.data.items.id", DOCUMENT), "Members are not looked up in arrays");
+        assertNull(read("$.data[0]", DOCUMENT), "Indexes are not looked up in objects");
+        assertNull(read("$.access_token.length", DOCUMENT));
+        assertNull(read("$.empty", DOCUMENT));
+    }
+
+    @Test
+    void stopsReadingAtTheFirstMatch() throws IOException {
+        // Anything after the match, even malformed JSON, is never read
+        String json = "{\"token\": \"early\", \"rest\": [1, 2, " + "x".repeat(100) + "}";
+        CountingReader reader = new CountingReader(json);
+        assertEquals("early", JsonPath.compile("$.token").read(reader));
+        assertTrue(reader.read < json.length(), "Read " + reader.read + " of " + json.length());
+    }
+
+    @Test
+    void failsOnMalformedJsonBeforeAMatch() {
+        assertThrows(IOException.class, () -> read("$.b", "{\"a\": [1, 2,, \"b\": 1}"));
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("data.id"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile(null));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$..id"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$.data[0"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$.data[-1]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$.data[first]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("$data"));
+    }
+
+    @Test
+    void keepsTheExpression() {
+        assertEquals("$.data.items[0]", JsonPath.compile("  $.data.items[0] ").getSource());
+        assertEquals("$['a]b']", JsonPath.compile("$['a]b']").toString());
+    }
+
+    @Test
+    void quotedNamesMayContainBrackets() throws IOException {
+        assertEquals("1", read("$['a]b']", "{\"a]b\": 1}"));
+    }
+
+    /**
+     * Counts the characters handed out, to check how far the document was read
+     */
+    private static class CountingReader extends Reader {
+        private final String text;
+        private int read;
+
+        CountingReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (read == text.length()) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, 8), text.length() - read);
+            text.getChars(read, read + count, buffer, offset);
+            read += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.overzealouspelican.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for PagedKeyValueStore: the page layout, recovery from damaged or torn transactions,
+ * and compaction
+ */
+class PagedKeyValueStoreTest {
+
+    private static final int PAGE_SIZE = PagedKeyValueStore.PAGE_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    @Test
+    void committedBatchesSurviveReopening() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch()
+                .put("call/a", bytes("1"))
+                .put("call/b", bytes("2"))
+                .put("env/dev", bytes("3")));
+            store.commit(new PagedKeyValueStore.WriteBatch()
+                .put("call/a", bytes("4"))
+                .delete("call/b"));
+        }
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals("4", string(store.get("call/a")));
+            assertNull(store.get("call/b"));
+            assertFalse(store.containsKey("call/b"));
+            assertEquals(List.of("call/a"), store.keys("call/"));
+            assertEquals(List.of("call/a", "env/dev"), store.keys(""));
+            Map<String, byte[]> scanned = store.scan("env/");
+            assertEquals(1, scanned.size());
+            assertEquals("3", string(scanned.get("env/dev")));
+        }
+    }
+
+    @Test
+    void transactionsStartOnPageBoundaries() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals(PAGE_SIZE, Files.size(file), "Only the header page");
+            store.commit(new PagedKeyValueStore.WriteBatch().put("small", bytes("x")));
+            assertEquals(2L * PAGE_SIZE, Files.size(file));
+
+            byte[] large = new byte[PAGE_SIZE + 100];
+            Arrays.fill(large, (byte) 7);
+            store.commit(new PagedKeyValueStore.WriteBatch().put("large", large));
+            assertEquals(4L * PAGE_SIZE, Files.size(file));
+            assertArrayEquals(large, store.get("large"));
+        }
+    }
+
+    @Test
+    void emptyBatchWritesNothing() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch());
+            assertEquals(PAGE_SIZE, Files.size(file));
+            assertTrue(store.isEmpty());
+        }
+    }
+
+    @Test
+    void transactionWithBadChecksumIsDiscarded() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch().put("first", bytes("kept")));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("second", bytes("damaged")));
+        }
+
+        // Flip a byte in the payload of the second transaction, which starts on the third page
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = 2L * PAGE_SIZE + 20 + 6;
+            raw.seek(position);
+            int value = raw.read();
+            raw.seek(position);
+            raw.write(value ^ 0xFF);
+        }
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals("kept", string(store.get("first")));
+            assertNull(store.get("second"));
+        }
+        assertEquals(2L * PAGE_SIZE, Files.size(file), "The damaged transaction is cut off");
+    }
+
+    @Test
+    void tornTransactionIsDiscardedAndLaterCommitsAreKept() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch().put("first", bytes("kept")));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("second", bytes("torn")));
+        }
+
+        // As if the process died while the second transaction was being written
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(2L * PAGE_SIZE + 24);
+        }
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals("kept", string(store.get("first")));
+            assertNull(store.get("second"));
+            assertEquals(2L * PAGE_SIZE, Files.size(file));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("third", bytes("after")));
+        }
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals(List.of("first", "third"), store.keys(""));
+            assertEquals("after", string(store.get("third")));
+        }
+    }
+
+    @Test
+    void tornHeaderIsDiscarded() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch().put("first", bytes("kept")));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("second", bytes("torn")));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(2L * PAGE_SIZE + 10);
+        }
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals(List.of("first"), store.keys(""));
+        }
+    }
+
+    @Test
+    void reloadSkipsIncompleteTailWithoutTruncating() throws IOException {
+        Path file = directory.resolve("store.db");
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch().put("first", bytes("kept")));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("second", bytes("torn")));
+            try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+                raw.setLength(2L * PAGE_SIZE + 24);
+            }
+
+            store.reload();
+            assertEquals(List.of("first"), store.keys(""));
+            assertEquals(2L * PAGE_SIZE + 24, Files.size(file), "Another writer may still be busy with it");
+        }
+    }
+
+    @Test
+    void fileThatIsNotAStoreIsRejected() throws IOException {
+        Path file = directory.resolve("other.db");
+        Files.write(file, bytes("{\"not\": \"a store\"}"));
+        assertThrows(IOException.class, () -> PagedKeyValueStore.open(file));
+    }
+
+    @Test
+    void supersededDataIsCompacted() throws IOException {
+        Path file = directory.resolve("store.db");
+        byte[] value = new byte[3000];
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            store.commit(new PagedKeyValueStore.WriteBatch().put("stable", bytes("unchanged")));
+            // Each rewrite takes a page; once the file is over 1 MB and mostly superseded it is compacted
+            for (int i = 0; i < 300; i++) {
+                Arrays.fill(value, (byte) i);
+                store.commit(new PagedKeyValueStore.WriteBatch().put("counter", value).delete("gone" + i));
+            }
+            assertTrue(Files.size(file) < 1024 * 1024, "Compacted, size " + Files.size(file));
+            assertEquals("unchanged", string(store.get("stable")));
+            assertArrayEquals(value, store.get("counter"));
+            store.commit(new PagedKeyValueStore.WriteBatch().put("afterwards", bytes("yes")));
+        }
+        assertFalse(Files.exists(directory.resolve("store.db.compact")));
+
+        try (PagedKeyValueStore store = PagedKeyValueStore.open(file)) {
+            assertEquals(List.of("afterwards", "counter", "stable"), store.keys(""));
+            assertArrayEquals(value, store.get("counter"));
+            assertEquals("yes", string(store.get("afterwards")));
+        }
+    }
+}
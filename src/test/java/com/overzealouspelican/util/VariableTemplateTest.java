@@ -0,0 +1,142 @@
+package com.overzealouspelican.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for VariableTemplate: which text is a placeholder, and rendering the same as the
+ * regex substitution it replaced
+ */
+class VariableTemplateTest {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{([^}]+)\\}\\}");
+
+    /**
+     * The substitution VariableTemplate replaced, kept here to compare against
+     */
+    private static String regexSubstitute(String input, Map<String, String> variables) {
+        Matcher matcher = PLACEHOLDER.matcher(input);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value != null ? value : matcher.group(0)));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static List<String> regexNames(String input) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(input);
+        while (matcher.find()) {
+            if (!names.contains(matcher.group(1))) {
+                names.add(matcher.group(1));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void substitutesKnownVariables() {
+        Map<String, String> values = Map.of("host", "example.com", "id", "42");
+        assertEquals("https://example.com/items/42?id=42",
+            VariableTemplate.substitute("https://{{host}}/items/{{id}}?id={{id}}", values));
+        assertEquals(List.of("host", "id"), new ArrayList<>(VariableTemplate.compile("{{host}}/{{id}}/{{id}}").getVariableNames()));
+    }
+
+    @Test
+    void unresolvedPlaceholdersAreKeptAsWritten() {
+        assertEquals("Bearer {{token}} for example.com",
+            VariableTemplate.substitute("Bearer {{token}} for {{host}}", Map.of("host", "example.com")));
+        assertEquals("{{ spaced name }}", VariableTemplate.substitute("{{ spaced name }}", Map.of("spaced name", "x")));
+    }
+
+    @Test
+    void unbalancedBracesAreLiteral() {
+        for (String text : new String[] {"{{a", "a}}", "{{a}", "{a}}", "{{", "}}", "{{a}x}}", "}}{{"}) {
+            VariableTemplate template = VariableTemplate.compile(text);
+            assertTrue(template.isConstant(), text);
+            assertEquals(text, template.render(Map.of("a", "value")), text);
+        }
+        // A name runs to the first '}', so an unclosed "{{" swallows the placeholder after it
+        assertEquals(Set.of("a {{b"), VariableTemplate.compile("{{a {{b}}").getVariableNames());
+        assertEquals("{{a {{b}}", VariableTemplate.substitute("{{a {{b}}", Map.of("b", "value")));
+    }
+
+    @Test
+    void extraOpeningBraceBelongsToTheName() {
+        // As with the regex, the placeholder starts at the first "{{", so the name is "{a"
+        VariableTemplate template = VariableTemplate.compile("{{{a}}");
+        assertEquals(Set.of("{a"), template.getVariableNames());
+        assertEquals("{{{a}}", template.render(Map.of("a", "value")));
+        assertEquals("value", template.render(Map.of("{a", "value")));
+        assertEquals("value}", VariableTemplate.substitute("{{a}}}", Map.of("a", "value")));
+    }
+
+    @Test
+    void emptyNamesAreNotPlaceholders() {
+        VariableTemplate template = VariableTemplate.compile("{{}}");
+        assertTrue(template.isConstant());
+        assertEquals("{{}}", template.render(Map.of("", "value")));
+        assertEquals("{{}}value", VariableTemplate.substitute("{{}}{{a}}", Map.of("a", "value")));
+    }
+
+    @Test
+    void valuesAreInsertedLiterally() {
+        assertEquals("cost: $1 \\n {{b}}", VariableTemplate.substitute("cost: {{a}}", Map.of("a", "$1 \\n {{b}}", "b", "x")));
+    }
+
+    @Test
+    void nullAndEmptyInput() {
+        assertNull(VariableTemplate.substitute(null, Map.of()));
+        assertEquals("{{a}}", VariableTemplate.substitute("{{a}}", null));
+        assertEquals("", VariableTemplate.compile("").render(Map.of()));
+        assertEquals("", VariableTemplate.compile(null).getSource());
+        assertEquals("{{a}}", VariableTemplate.compile("{{a}}").render(null));
+    }
+
+    @Test
+    void collectsUnresolvedVariablesOnce() {
+        List<String> unresolved = new ArrayList<>();
+        VariableTemplate.compile("{{a}}{{b}}{{a}}{{c}}").collectUnresolved(Map.of("b", "1"), unresolved);
+        assertEquals(List.of("a", "c"), unresolved);
+    }
+
+    @Test
+    void rendersLikeTheRegexOnRandomText() {
+        char[] alphabet = {'{', '{', '}', '}', 'a', 'b', ' ', '$', '\\'};
+        Map<String, String> values = Map.of("a", "A", "b", "$B\\", "{a", "[brace]", "a b", "AB");
+        Random random = new Random(7);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String source = text.toString();
+            VariableTemplate template = VariableTemplate.compile(source);
+            assertEquals(regexSubstitute(source, values), template.render(values), source);
+            assertEquals(regexNames(source), new ArrayList<>(template.getVariableNames()), source);
+            assertEquals(regexNames(source).isEmpty(), template.isConstant(), source);
+
+            out.setLength(0);
+            out.append('>');
+            template.renderTo(out, values);
+            assertEquals(">" + regexSubstitute(source, values), out.toString(), source);
+        }
+        assertFalse(VariableTemplate.compile("{{a}}").isConstant());
+    }
+}